@@ -0,0 +1,107 @@
+package freecell.benchmark;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.controller.FreecellBatchController;
+import freecell.controller.FreecellController;
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+
+/**
+ * Measures the controller reading a long script of commands: a million commands by default,
+ * which move a card back and forth between two open piles, with an invalid input every few
+ * commands that the controller skips. The output goes to an Appendable that only counts the
+ * characters, so the benchmark measures reading the commands and making the moves rather than
+ * storing the game states written after each move. playScriptBatch runs the same script through
+ * the batch controller, which only writes a summary once the script ends.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandScriptBenchmark {
+
+  @Param({"1000000"})
+  public int commands;
+
+  private List<Card> deck;
+  private FreeCellAbstractModel game;
+  private String script;
+  private final CountingAppendable out = new CountingAppendable();
+
+  /**
+   * An Appendable that drops what is appended to it, only counting the characters.
+   */
+  static final class CountingAppendable implements Appendable {
+    long characters;
+
+    @Override
+    public Appendable append(CharSequence csq) {
+      characters += csq.length();
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      characters += end - start;
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      characters++;
+      return this;
+    }
+  }
+
+  /**
+   * Writes the script of commands.
+   */
+  @Setup
+  public void setUp() {
+
+    game = Games.build("single", "8x4", true, 0);
+    deck = game.getDeck();
+
+    StringBuilder commandsScript = new StringBuilder(commands * 10);
+    commandsScript.append("C1 7 O1\n");
+    for (int i = 1; i < commands; i++) {
+      commandsScript.append(i % 2 == 1 ? "O1 1 O2\n" : "O2 1 O1\n");
+      if (i % 8 == 0) {
+        commandsScript.append("x ");
+      }
+    }
+    script = commandsScript.append("q\n").toString();
+  }
+
+  @Benchmark
+  public long playScript() {
+
+    new FreecellController(new StringReader(script), out).playGame(deck, game, false);
+    return out.characters;
+  }
+
+  @Benchmark
+  public long playScriptBatch() {
+
+    FreecellBatchController.getBuilder().build(new StringReader(script), out)
+            .playGame(deck, game, false);
+    return out.characters;
+  }
+}
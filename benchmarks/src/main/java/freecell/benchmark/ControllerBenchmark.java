@@ -0,0 +1,95 @@
+package freecell.benchmark;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.controller.FreecellController;
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveBuffer;
+
+/**
+ * Measures a whole game played through the controller: each call deals a fixed deck and plays a
+ * script of commands recorded from random play, ending with "q", writing the game state after
+ * every move as the controller does. The "commands" counter reports moves per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ControllerBenchmark {
+
+  @Param({"single", "multi"})
+  public String variant;
+
+  @Param({"4x1", "8x4"})
+  public String piles;
+
+  @Param({"false", "true"})
+  public boolean packed;
+
+  private List<Card> deck;
+  private FreeCellAbstractModel game;
+  private String script;
+  private int commandsCount;
+  private StringBuilder out;
+
+  /**
+   * Counts the moves played by the benchmark.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class PlayedCommands {
+    public long commands;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      commands = 0;
+    }
+  }
+
+  /**
+   * Deals the game and records the script of commands.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    Random random = new Random(2018);
+    game = Games.build(variant, piles, packed);
+    deck = game.getDeck();
+    Games.shuffle(deck, random);
+    game.startGame(deck, false);
+
+    int[] moves = Games.recordRandomMoves(game, new MoveBuffer(), random, 200);
+    script = Games.toCommands(moves) + "q\n";
+    commandsCount = moves.length;
+    out = new StringBuilder(1 << 20);
+  }
+
+  @Benchmark
+  public StringBuilder playGame(PlayedCommands counter) {
+
+    out.setLength(0);
+    new FreecellController(new StringReader(script), out).playGame(deck, game, false);
+    counter.commands += commandsCount;
+    return out;
+  }
+}
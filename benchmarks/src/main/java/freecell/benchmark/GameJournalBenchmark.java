@@ -0,0 +1,137 @@
+package freecell.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.journal.GameJournal;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.PileType;
+
+/**
+ * Measures the journal of games. append reports the records appended per second to a journal
+ * with segments of the default size, including its rollovers to new segments. recover reports
+ * the time taken to rebuild the given number of games in progress from a journal in which each
+ * of them moves the top card of its first cascade pile to an open pile and then moves it back
+ * and forth between two open piles, the moves of all the games being interleaved as they would
+ * be in a server.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GameJournalBenchmark {
+
+  @Param({"1000000"})
+  public int games;
+
+  @Param({"20"})
+  public int movesPerGame;
+
+  private Path recoveryDirectory;
+  private Path appendDirectory;
+  private GameJournal journal;
+  private long next;
+
+  /**
+   * Writes the journal of the games to be recovered.
+   * @throws IOException if the journal can't be written.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+
+    recoveryDirectory = Files.createTempDirectory("freecell-recovery");
+    FreeCellAbstractModel template = Games.build("single", "8x4", true);
+
+    try (GameJournal recovered = GameJournal.getBuilder().build(recoveryDirectory)) {
+      for (int gameId = 0; gameId < games; gameId++) {
+        recovered.startGame(gameId, template, gameId % 32000 + 1);
+      }
+      for (int gameId = 0; gameId < games; gameId++) {
+        recovered.move(gameId, PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      }
+      for (int move = 1; move < movesPerGame; move++) {
+        for (int gameId = 0; gameId < games; gameId++) {
+          recovered.move(gameId, PileType.OPEN, (move + 1) % 2, 0, PileType.OPEN, move % 2);
+        }
+      }
+    }
+  }
+
+  /**
+   * Opens an empty journal for the appends of an iteration.
+   * @throws IOException if the journal can't be opened.
+   */
+  @Setup(Level.Iteration)
+  public void openJournal() throws IOException {
+    appendDirectory = Files.createTempDirectory("freecell-journal");
+    journal = GameJournal.getBuilder().build(appendDirectory);
+  }
+
+  /**
+   * Closes the journal of an iteration and deletes its segments.
+   * @throws IOException if the segments can't be deleted.
+   */
+  @TearDown(Level.Iteration)
+  public void closeJournal() throws IOException {
+    journal.close();
+    delete(appendDirectory);
+  }
+
+  /**
+   * Deletes the journal of the games to be recovered.
+   * @throws IOException if the segments can't be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    delete(recoveryDirectory);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public void append() throws IOException {
+    long gameId = next++ & 1023;
+    journal.move(gameId, PileType.OPEN, 0, 0, PileType.OPEN, 1);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 3)
+  public int recover() throws IOException {
+    return GameJournal.recover(recoveryDirectory).size();
+  }
+
+  /**
+   * A helper method that deletes a directory and the files in it.
+   * @param directory the directory.
+   * @throws IOException if a file can't be deleted.
+   */
+  private static void delete(Path directory) throws IOException {
+
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+}
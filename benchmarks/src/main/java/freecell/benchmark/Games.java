@@ -0,0 +1,156 @@
+package freecell.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.PileType;
+
+/**
+ * Helper methods shared by the benchmarks to build games and bring them to positions of
+ * interest.
+ */
+final class Games {
+
+  /**
+   * Private constructor as this class only has static methods.
+   */
+  private Games() {
+  }
+
+  /**
+   * Builds a game that hasn't started yet.
+   * @param variant "single" for FreecellModel or "multi" for FreecellMultiMoveModel.
+   * @param piles the number of cascade and open piles, written as "CASCADESxOPENS".
+   * @param packed true to use the packed board.
+   * @return the game.
+   */
+  static FreeCellAbstractModel build(String variant, String piles, boolean packed) {
+    return build(variant, piles, packed, -1);
+  }
+
+  /**
+   * Builds a game that hasn't started yet and keeps at most the given number of moves to be
+   * undone.
+   * @param variant "single" for FreecellModel or "multi" for FreecellMultiMoveModel.
+   * @param piles the number of cascade and open piles, written as "CASCADESxOPENS".
+   * @param packed true to use the packed board.
+   * @param undoLimit the maximum number of moves that can be undone, or -1 for no limit.
+   * @return the game.
+   */
+  static FreeCellAbstractModel build(String variant, String piles, boolean packed,
+                                     int undoLimit) {
+
+    FreecellOperationsBuilder builder = "multi".equals(variant)
+            ? FreecellMultiMoveModel.getBuilder() : FreecellModel.getBuilder();
+    String[] counts = piles.split("x");
+    builder.cascades(Integer.parseInt(counts[0])).opens(Integer.parseInt(counts[1]));
+
+    if (packed) {
+      builder.packed();
+    }
+    if (undoLimit >= 0) {
+      builder.undoLimit(undoLimit);
+    }
+    FreecellOperations<Card> game = builder.build();
+    return (FreeCellAbstractModel) game;
+  }
+
+  /**
+   * Shuffles a deck with the given random number generator, so that benchmarks are repeatable.
+   * @param deck the deck to be shuffled.
+   * @param random the random number generator.
+   */
+  static void shuffle(List<Card> deck, Random random) {
+    Collections.shuffle(deck, random);
+  }
+
+  /**
+   * Plays random legal moves on a started game.
+   * @param game the game.
+   * @param buffer a buffer for the generated moves.
+   * @param random the random number generator.
+   * @param movesCount the number of moves to be played, fewer if the game gets stuck.
+   */
+  static void playRandomMoves(FreeCellAbstractModel game, MoveBuffer buffer, Random random,
+                              int movesCount) {
+    recordRandomMoves(game, buffer, random, movesCount);
+  }
+
+  /**
+   * Plays random legal moves on a started game and provides the moves played, so that they can
+   * be replayed on the same deal.
+   * @param game the game.
+   * @param buffer a buffer for the generated moves.
+   * @param random the random number generator.
+   * @param movesCount the number of moves to be played, fewer if the game gets stuck.
+   * @return the packed moves played.
+   */
+  static int[] recordRandomMoves(FreeCellAbstractModel game, MoveBuffer buffer, Random random,
+                                 int movesCount) {
+
+    int[] moves = new int[movesCount];
+    int played = 0;
+
+    while (played < movesCount && game.generateMoves(buffer) > 0) {
+      int move = buffer.get(random.nextInt(buffer.size()));
+      makeMove(game, move);
+      moves[played++] = move;
+    }
+    return Arrays.copyOf(moves, played);
+  }
+
+  /**
+   * Makes a packed move on a game.
+   * @param game the game.
+   * @param move the packed move.
+   */
+  static void makeMove(FreeCellAbstractModel game, int move) {
+    game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move), MoveBuffer.cardIndex(move),
+            MoveBuffer.destination(move), MoveBuffer.destPileNumber(move));
+  }
+
+  /**
+   * Writes packed moves as the commands a user would type to the controller, one move per line
+   * with pile numbers and card indices counted from 1.
+   * @param moves the packed moves.
+   * @return the commands.
+   */
+  static String toCommands(int[] moves) {
+
+    StringBuilder commands = new StringBuilder();
+
+    for (int move : moves) {
+      commands.append(pileLetter(MoveBuffer.source(move))).append(MoveBuffer.pileNumber(move) + 1)
+              .append(' ').append(MoveBuffer.cardIndex(move) + 1).append(' ')
+              .append(pileLetter(MoveBuffer.destination(move)))
+              .append(MoveBuffer.destPileNumber(move) + 1).append('\n');
+    }
+    return commands.toString();
+  }
+
+  /**
+   * Provides the letter by which the controller names a type of pile.
+   * @param pileType the type of pile.
+   * @return 'C', 'F' or 'O'.
+   */
+  private static char pileLetter(PileType pileType) {
+
+    switch (pileType) {
+      case CASCADE:
+        return 'C';
+      case FOUNDATION:
+        return 'F';
+      default:
+        return 'O';
+    }
+  }
+}
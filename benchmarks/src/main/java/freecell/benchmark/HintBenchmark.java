@@ -0,0 +1,73 @@
+package freecell.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.NumberedDeals;
+import freecell.solver.Hint;
+import freecell.solver.HintEngine;
+
+/**
+ * Measures the latency of a hint, as an interactive session sees it. Each call asks for a hint
+ * in the next deal of a corpus of numbered 8 cascade, 4 open deals, with the given budget.
+ * The benchmark samples the time of each call, so JMH reports its percentiles (p0.50, p0.90,
+ * p0.99, p0.999 and the maximum) alongside the mean: the search stops within a few dozen
+ * positions of the budget, so every percentile should stay close to the budget, or below it
+ * for the deals whose solution is found sooner.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class HintBenchmark {
+
+  private static final int DEALS = 64;
+
+  @Param({"single", "multi"})
+  public String variant;
+
+  @Param({"10", "50"})
+  public long budgetMillis;
+
+  private FreeCellAbstractModel[] deals;
+  private HintEngine engine;
+  private int next;
+
+  /**
+   * Deals the corpus and builds the engine.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    deals = new FreeCellAbstractModel[DEALS];
+    for (int i = 0; i < DEALS; i++) {
+      FreeCellAbstractModel game = Games.build(variant, "8x4", true);
+      game.startGame(NumberedDeals.deal(i + 1), false);
+      deals[i] = game;
+    }
+    engine = HintEngine.getBuilder().build();
+  }
+
+  @Benchmark
+  public Hint hint() {
+
+    FreeCellAbstractModel game = deals[next];
+    next = (next + 1) % DEALS;
+    return engine.hint(game, budgetMillis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,75 @@
+package freecell.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.metrics.InstrumentedOperations;
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellOperations;
+import freecell.model.PileType;
+
+/**
+ * Measures the overhead of instrumented operations. moveCard moves one card back and forth
+ * between two open piles, as in ModelBenchmark, and isGameOver checks the position; both run on
+ * the bare model ("off"), on instrumented operations with measuring switched off ("disabled")
+ * and on instrumented operations with measuring switched on ("enabled"). The difference between
+ * "off" and "disabled" is the cost of wrapping, and between "disabled" and "enabled" the cost of
+ * timing and recording.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InstrumentationBenchmark {
+
+  @Param({"off", "disabled", "enabled"})
+  public String instrumentation;
+
+  private FreecellOperations<Card> game;
+  private int from;
+
+  /**
+   * Deals an 8 cascade, 4 open game and moves a card to an open pile.
+   */
+  @Setup
+  public void setUp() {
+
+    FreeCellAbstractModel model = Games.build("single", "8x4", false, 0);
+    model.startGame(model.getDeck(), false);
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    if ("off".equals(instrumentation)) {
+      game = model;
+    } else {
+      InstrumentedOperations<Card> instrumented = new InstrumentedOperations<>(model);
+      instrumented.setEnabled("enabled".equals(instrumentation));
+      game = instrumented;
+    }
+  }
+
+  @Benchmark
+  public int moveCard() {
+
+    game.move(PileType.OPEN, from, 0, PileType.OPEN, 1 - from);
+    from = 1 - from;
+    return from;
+  }
+
+  @Benchmark
+  public boolean isGameOver() {
+    return game.isGameOver();
+  }
+}
@@ -0,0 +1,81 @@
+package freecell.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveResult;
+import freecell.model.PileType;
+
+/**
+ * Measures the rejection of invalid moves, as a bot probing moves would make them, on a dealt
+ * 8 cascade, 4 open game: a card that isn't on top, a pile that doesn't exist, a card of the
+ * wrong rank and an occupied open pile, in turn. move catches the exception thrown by move, and
+ * tryMove checks the result of tryMove; run with "-prof gc" to see that tryMove allocates
+ * nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InvalidMoveBenchmark {
+
+  private static final int[][] MOVES = {
+      {PileType.CASCADE.ordinal(), 0, 0, PileType.OPEN.ordinal(), 1},
+      {PileType.CASCADE.ordinal(), 9, 0, PileType.OPEN.ordinal(), 1},
+      {PileType.CASCADE.ordinal(), 1, 6, PileType.CASCADE.ordinal(), 2},
+      {PileType.CASCADE.ordinal(), 1, 6, PileType.OPEN.ordinal(), 0},
+  };
+  private static final PileType[] PILE_TYPES = PileType.values();
+
+  @Param({"single", "multi"})
+  public String variant;
+
+  private FreeCellAbstractModel game;
+  private int next;
+
+  /**
+   * Deals the game and fills an open pile.
+   */
+  @Setup
+  public void setUp() {
+
+    game = Games.build(variant, "8x4", false, 0);
+    game.startGame(game.getDeck(), false);
+    game.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+  }
+
+  @Benchmark
+  public boolean move() {
+
+    int[] move = MOVES[next];
+    next = (next + 1) & 3;
+    try {
+      game.move(PILE_TYPES[move[0]], move[1], move[2], PILE_TYPES[move[3]], move[4]);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  @Benchmark
+  public MoveResult tryMove() {
+
+    int[] move = MOVES[next];
+    next = (next + 1) & 3;
+    return game.tryMove(PILE_TYPES[move[0]], move[1], move[2], PILE_TYPES[move[3]], move[4]);
+  }
+}
@@ -0,0 +1,177 @@
+package freecell.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveBuffer;
+import freecell.model.PileType;
+
+/**
+ * Measures the operations of the game models: dealing a game, making moves, checking if the game
+ * is over, rendering its state and taking moves back.
+ *
+ * <p>startGame deals a fixed deck. moveCard moves one card back and forth between two open
+ * piles, so it measures a single card move alone; it uses 2 open piles where the configuration
+ * has only 1, and a bounded journal of moves to be undone so that it runs in constant memory.
+ * undoRedo undoes and redoes the last of the moves recorded from random play. replayGame deals
+ * a deck and replays moves recorded from random play, which for FreecellMultiMoveModel include
+ * multi card moves; its "moves" counter reports moves per second.
+ * isGameOver, getGameState and writeGameState, into a reused StringBuilder, run on positions
+ * reached by random play. As the positions don't change, getGameState measures the cached game
+ * state and writeGameState the state written card by card.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+  private static final int POSITIONS = 64;
+
+  @Param({"single", "multi"})
+  public String variant;
+
+  @Param({"4x1", "8x4"})
+  public String piles;
+
+  @Param({"false", "true"})
+  public boolean packed;
+
+  private List<Card> deck;
+  private FreeCellAbstractModel game;
+  private FreeCellAbstractModel toggled;
+  private FreeCellAbstractModel undone;
+  private int toggledFrom;
+  private int[] recordedMoves;
+  private FreeCellAbstractModel[] positions;
+  private final StringBuilder out = new StringBuilder(1024);
+  private int next;
+
+  /**
+   * Counts the moves replayed by the benchmark.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class ReplayedMoves {
+    public long moves;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      moves = 0;
+    }
+  }
+
+  /**
+   * Deals the games and records the moves used by the benchmarks.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    Random random = new Random(2018);
+    MoveBuffer buffer = new MoveBuffer();
+
+    game = Games.build(variant, piles, packed);
+    deck = game.getDeck();
+    Games.shuffle(deck, random);
+
+    game.startGame(deck, false);
+    recordedMoves = Games.recordRandomMoves(game, buffer, random, 200);
+
+    String[] counts = piles.split("x");
+    toggled = Games.build(variant,
+            counts[0] + "x" + Math.max(2, Integer.parseInt(counts[1])), packed, 64);
+    toggled.startGame(deck, false);
+    toggled.move(PileType.CASCADE, 0, toggled.getPileSize(PileType.CASCADE, 0) - 1,
+            PileType.OPEN, 0);
+
+    undone = Games.build(variant, piles, packed);
+    undone.startGame(deck, false);
+    for (int move : recordedMoves) {
+      Games.makeMove(undone, move);
+    }
+
+    positions = new FreeCellAbstractModel[POSITIONS];
+    for (int i = 0; i < POSITIONS; i++) {
+      FreeCellAbstractModel position = Games.build(variant, piles, packed);
+      List<Card> positionDeck = position.getDeck();
+      Games.shuffle(positionDeck, random);
+      position.startGame(positionDeck, false);
+      Games.playRandomMoves(position, buffer, random, random.nextInt(60));
+      positions[i] = position;
+    }
+  }
+
+  @Benchmark
+  public FreeCellAbstractModel startGame() {
+    game.startGame(deck, false);
+    return game;
+  }
+
+  @Benchmark
+  public FreeCellAbstractModel moveCard() {
+    toggled.move(PileType.OPEN, toggledFrom, 0, PileType.OPEN, 1 - toggledFrom);
+    toggledFrom = 1 - toggledFrom;
+    return toggled;
+  }
+
+  @Benchmark
+  public FreeCellAbstractModel undoRedo() {
+    undone.undo();
+    undone.redo();
+    return undone;
+  }
+
+  @Benchmark
+  public FreeCellAbstractModel replayGame(ReplayedMoves counter) {
+
+    game.startGame(deck, false);
+    for (int move : recordedMoves) {
+      Games.makeMove(game, move);
+    }
+    counter.moves += recordedMoves.length;
+    return game;
+  }
+
+  @Benchmark
+  public boolean isGameOver() {
+    FreeCellAbstractModel position = positions[next];
+    next = (next + 1) & (POSITIONS - 1);
+    return position.isGameOver();
+  }
+
+  @Benchmark
+  public String getGameState() {
+    FreeCellAbstractModel position = positions[next];
+    next = (next + 1) & (POSITIONS - 1);
+    return position.getGameState();
+  }
+
+  @Benchmark
+  public StringBuilder writeGameState() throws IOException {
+    FreeCellAbstractModel position = positions[next];
+    next = (next + 1) & (POSITIONS - 1);
+    out.setLength(0);
+    position.writeGameState(out);
+    return out;
+  }
+}
@@ -0,0 +1,96 @@
+package freecell.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveBuffer;
+
+/**
+ * Measures how many legal moves per second the move generator produces. The generator runs on
+ * a fixed set of positions reached by random play from shuffled deals. The "moves" counter
+ * reports generated moves per second, the primary score reports calls per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGeneratorBenchmark {
+
+  private static final int POSITIONS = 64;
+
+  @Param({"single", "multi"})
+  public String variant;
+
+  @Param({"4x1", "8x4"})
+  public String piles;
+
+  @Param({"false", "true"})
+  public boolean packed;
+
+  private FreeCellAbstractModel[] positions;
+  private MoveBuffer buffer;
+  private int next;
+
+  /**
+   * Counts the moves generated by the benchmark.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class GeneratedMoves {
+    public long moves;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      moves = 0;
+    }
+  }
+
+  /**
+   * Builds the positions on which the generator runs.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    Random random = new Random(2018);
+    buffer = new MoveBuffer();
+    positions = new FreeCellAbstractModel[POSITIONS];
+
+    for (int i = 0; i < POSITIONS; i++) {
+      FreeCellAbstractModel game = Games.build(variant, piles, packed);
+      List<Card> deck = game.getDeck();
+      Games.shuffle(deck, random);
+      game.startGame(deck, false);
+      Games.playRandomMoves(game, buffer, random, random.nextInt(40));
+      positions[i] = game;
+    }
+  }
+
+  @Benchmark
+  public int generateMoves(GeneratedMoves counter) {
+
+    FreeCellAbstractModel game = positions[next];
+    next = (next + 1) & (POSITIONS - 1);
+    int movesCount = game.generateMoves(buffer);
+    counter.moves += movesCount;
+    return movesCount;
+  }
+}
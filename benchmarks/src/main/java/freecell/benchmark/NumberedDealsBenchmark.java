@@ -0,0 +1,59 @@
+package freecell.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.Card;
+import freecell.model.NumberedDeals;
+
+/**
+ * Measures how many numbered deals per second are produced, into reusable arrays of card ids or
+ * of cards, and as new lists.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberedDealsBenchmark {
+
+  private final NumberedDeals deals = new NumberedDeals();
+  private final byte[] ids = new byte[52];
+  private final Card[] cards = new Card[52];
+  private int dealNumber;
+
+  /**
+   * A helper method that provides the number of the next deal, from 1 to 1,000,000.
+   */
+  private int nextDeal() {
+    dealNumber = dealNumber % 1_000_000 + 1;
+    return dealNumber;
+  }
+
+  @Benchmark
+  public byte[] dealIds() {
+    deals.dealIds(nextDeal(), ids, 0);
+    return ids;
+  }
+
+  @Benchmark
+  public Card[] dealCards() {
+    deals.deal(nextDeal(), cards);
+    return cards;
+  }
+
+  @Benchmark
+  public Object dealList() {
+    return NumberedDeals.deal(nextDeal());
+  }
+}
@@ -0,0 +1,99 @@
+package freecell.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.solver.ParallelSolver;
+import freecell.solver.Solution;
+
+/**
+ * Measures how the parallel solver scales with its number of threads. Each call solves the next
+ * deal of a fixed corpus of shuffled 8 cascade, 4 open deals, with a node limit so that hard deals
+ * take a bounded time. The "nodes" counter reports recorded positions per second, which is the
+ * figure to compare from one thread count to the next; the primary score reports solved or
+ * abandoned deals per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelSolverBenchmark {
+
+  private static final int DEALS = 16;
+
+  @Param({"1", "2", "4", "8", "16", "32"})
+  public int threads;
+
+  @Param({"single", "multi"})
+  public String variant;
+
+  @Param({"200000"})
+  public int maxNodes;
+
+  private FreeCellAbstractModel[] deals;
+  private ParallelSolver solver;
+  private int next;
+
+  /**
+   * Counts the positions recorded by the solver.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class SearchedNodes {
+    public long nodes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      nodes = 0;
+    }
+  }
+
+  /**
+   * Deals the corpus and builds the solver.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    Random random = new Random(2018);
+    deals = new FreeCellAbstractModel[DEALS];
+
+    for (int i = 0; i < DEALS; i++) {
+      FreeCellAbstractModel game = Games.build(variant, "8x4", true);
+      List<Card> deck = game.getDeck();
+      Games.shuffle(deck, random);
+      game.startGame(deck, false);
+      deals[i] = game;
+    }
+
+    solver = ParallelSolver.getBuilder().threads(threads).maxNodes(maxNodes).build();
+  }
+
+  @Benchmark
+  public Solution solve(SearchedNodes counter) {
+
+    FreeCellAbstractModel game = deals[next];
+    next = (next + 1) % DEALS;
+    Solution solution = solver.solve(game);
+    counter.nodes += solution.getNodesGenerated();
+    return solution;
+  }
+}
@@ -0,0 +1,142 @@
+package freecell.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveBuffer;
+import freecell.model.NumberedDeals;
+import freecell.model.ReplayVerifier;
+import freecell.model.ReplayVerifier.Replay;
+import freecell.model.ReplayVerifier.Verdict;
+import freecell.solver.Solution;
+import freecell.solver.Solver;
+
+/**
+ * Measures the verification of recorded solutions of 8 cascade, 4 open numbered deals, found by
+ * the solver at setup. verify checks one solution with a ReplayVerifier; modelReplay replays it
+ * on a model through the move method, which is what verifying took before; verifyAll checks an
+ * archive of solutions on the given number of threads. The "moves" counter reports the moves
+ * verified per second, which is the figure to compare.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayVerifierBenchmark {
+
+  private static final int DEALS = 16;
+  private static final int ARCHIVE_SIZE = 20_000;
+
+  @Param({"single", "multi"})
+  public String variant;
+
+  @Param({"4"})
+  public int threads;
+
+  private Replay[] solutions;
+  private int[][] solutionMoves;
+  private FreeCellAbstractModel[] games;
+  private List<Replay> archive;
+  private long archiveMoves;
+  private final ReplayVerifier verifier = new ReplayVerifier();
+  private int next;
+
+  /**
+   * Counts the verified moves.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class VerifiedMoves {
+    public long moves;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      moves = 0;
+    }
+  }
+
+  /**
+   * Solves the deals and builds the archive of their solutions.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+
+    boolean multiMove = "multi".equals(variant);
+    Solver solver = Solver.getBuilder().maxNodes(200_000).build();
+    List<Replay> found = new ArrayList<>();
+    List<FreeCellAbstractModel> dealt = new ArrayList<>();
+    solutionMoves = new int[DEALS][];
+
+    for (int deal = 1; found.size() < DEALS; deal++) {
+      FreeCellAbstractModel game = Games.build(variant, "8x4", true, 0);
+      game.startGame(NumberedDeals.deal(deal), false);
+      Solution solution = solver.solve(game);
+      if (solution.isSolved()) {
+        solutionMoves[found.size()] = solution.getMoves();
+        found.add(new Replay(deal, 4, 8, multiMove, solutionMoves[found.size()]));
+        dealt.add(game);
+      }
+    }
+    solutions = found.toArray(new Replay[0]);
+    games = dealt.toArray(new FreeCellAbstractModel[0]);
+
+    archive = new ArrayList<>();
+    for (int index = 0; index < ARCHIVE_SIZE; index++) {
+      archive.add(solutions[index % DEALS]);
+      archiveMoves += solutions[index % DEALS].getMoveCount();
+    }
+  }
+
+  @Benchmark
+  public Verdict verify(VerifiedMoves counter) {
+
+    Replay replay = solutions[next];
+    next = (next + 1) % DEALS;
+    counter.moves += replay.getMoveCount();
+    return verifier.verify(replay);
+  }
+
+  @Benchmark
+  public boolean modelReplay(VerifiedMoves counter) {
+
+    int index = next;
+    next = (next + 1) % DEALS;
+    FreeCellAbstractModel game = games[index].copy();
+    int[] moves = solutionMoves[index];
+    try {
+      for (int move : moves) {
+        game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+      }
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    counter.moves += moves.length;
+    return game.isGameOver();
+  }
+
+  @Benchmark
+  public Verdict[] verifyAll(VerifiedMoves counter) throws InterruptedException {
+    counter.moves += archiveMoves;
+    return ReplayVerifier.verifyAll(archive, threads);
+  }
+}
@@ -0,0 +1,211 @@
+package freecell.benchmark;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+
+import freecell.server.FreecellServer;
+
+/**
+ * A load test of {@link FreecellServer}: it keeps a number of sessions open at once, each of
+ * which sends a script of moves and reads the game states the server sends back until the
+ * server closes the connection, and opens a new session whenever one ends until the given
+ * number of sessions were played. The clients all run on one thread with a selector, so the
+ * threads of the process other than that one are the server's.
+ *
+ * <p>Each script moves the top card of the first cascade pile to an open pile and then moves it
+ * back and forth between two open piles, so every move is valid and makes the server send the
+ * game state, and ends with "q". The test prints the number of sessions and moves per second
+ * and the highest number of sessions the server hosted at once.</p>
+ *
+ * <p>It is run from the benchmarks jar, for example
+ * {@code java -cp benchmarks/target/benchmarks.jar freecell.benchmark.ServerLoadTest --sessions
+ * 50000 --concurrency 5000 --moves 100}. Each session uses two file descriptors of the process,
+ * one for each end of its connection, so the concurrency is bound by half the open files
+ * allowed to the process.</p>
+ */
+public final class ServerLoadTest {
+
+  private int sessions = 20_000;
+  private int concurrency = 5_000;
+  private int moves = 100;
+
+  private long started;
+  private long finished;
+  private long failed;
+  private long bytesReceived;
+  private int open;
+  private int peakSessions;
+
+  /**
+   * The state of the client of one session.
+   */
+  private static final class Client {
+    private final ByteBuffer script;
+
+    /**
+     * Constructs the client of a session that sends the given script.
+     * @param script the script of the session.
+     */
+    Client(ByteBuffer script) {
+      this.script = script;
+    }
+  }
+
+  /**
+   * Private constructor as the load test is only run through its main method.
+   */
+  private ServerLoadTest() {
+  }
+
+  /**
+   * Runs the load test. The options are "--sessions N", the number of sessions played,
+   * "--concurrency N", the number of sessions open at once, and "--moves N", the number of moves
+   * of each session.
+   * @param args the options.
+   * @throws IOException if the server or the clients can't use the network.
+   */
+  public static void main(String[] args) throws IOException {
+
+    ServerLoadTest test = new ServerLoadTest();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      int value = Integer.parseInt(args[i + 1]);
+      switch (args[i]) {
+        case "--sessions":
+          test.sessions = value;
+          break;
+        case "--concurrency":
+          test.concurrency = value;
+          break;
+        case "--moves":
+          test.moves = value;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    try (FreecellServer server = FreecellServer.getBuilder().port(0).deal(1).build().start()) {
+      test.run(server);
+    }
+  }
+
+  /**
+   * A helper method that plays all the sessions against the server and prints the results.
+   * @param server the started server.
+   * @throws IOException if the clients can't use the network.
+   */
+  private void run(FreecellServer server) throws IOException {
+
+    InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+            server.getPort());
+    ByteBuffer script = script();
+    ByteBuffer readBuffer = ByteBuffer.allocateDirect(1 << 16);
+    long startNanos = System.nanoTime();
+
+    try (Selector selector = Selector.open()) {
+      while (finished < sessions) {
+
+        while (open < concurrency && started < sessions) {
+          SocketChannel channel = SocketChannel.open();
+          channel.configureBlocking(false);
+          channel.connect(address);
+          channel.register(selector, SelectionKey.OP_CONNECT, new Client(script.duplicate()));
+          open++;
+          started++;
+        }
+
+        selector.select(1000);
+        peakSessions = Math.max(peakSessions, server.getActiveSessions());
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            serve(key, readBuffer);
+          } catch (IOException e) {
+            failed++;
+            end(key);
+          }
+        }
+      }
+    }
+
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    System.out.printf(Locale.ROOT, "%d sessions of %d moves on %s threads, up to %d at once,"
+                    + " in %.1f s%n", finished - failed, moves,
+            server.isVirtualThreads() ? "virtual" : "platform", peakSessions, seconds);
+    System.out.printf(Locale.ROOT, "%.0f sessions/s, %.0f moves/s, %.1f MB/s received,"
+                    + " %d failed sessions%n", (finished - failed) / seconds,
+            (finished - failed) * moves / seconds, bytesReceived / seconds / 1e6, failed);
+  }
+
+  /**
+   * A helper method that moves a session forward once its connection is ready.
+   * @param key the selection key of the connection.
+   * @param readBuffer the buffer into which the received bytes are read and dropped.
+   * @throws IOException if the connection fails.
+   */
+  private void serve(SelectionKey key, ByteBuffer readBuffer) throws IOException {
+
+    SocketChannel channel = (SocketChannel) key.channel();
+    Client client = (Client) key.attachment();
+
+    if (key.isConnectable()) {
+      channel.finishConnect();
+      key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      return;
+    }
+
+    if (key.isWritable()) {
+      channel.write(client.script);
+      if (!client.script.hasRemaining()) {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+
+    if (key.isReadable()) {
+      readBuffer.clear();
+      int bytesRead = channel.read(readBuffer);
+      if (bytesRead == -1) {
+        end(key);
+      } else {
+        bytesReceived += bytesRead;
+      }
+    }
+  }
+
+  /**
+   * A helper method that closes the connection of a session that ended.
+   * @param key the selection key of the connection.
+   * @throws IOException if the connection can't be closed.
+   */
+  private void end(SelectionKey key) throws IOException {
+    key.cancel();
+    key.channel().close();
+    open--;
+    finished++;
+  }
+
+  /**
+   * A helper method that writes the script of moves of the sessions.
+   * @return the script.
+   */
+  private ByteBuffer script() {
+
+    StringBuilder script = new StringBuilder("C1 7 O1\n");
+    for (int i = 1; i < moves; i++) {
+      script.append(i % 2 == 1 ? "O1 1 O2\n" : "O2 1 O1\n");
+    }
+    script.append("q\n");
+    return ByteBuffer.wrap(script.toString().getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+  }
+}
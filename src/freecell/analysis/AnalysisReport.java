@@ -0,0 +1,89 @@
+package freecell.analysis;
+
+import java.util.Locale;
+
+/**
+ * The totals of a run of the {@link SolvabilityAnalyzer}: how many deals were solved, found
+ * unsolvable or abandoned when their budget ran out, and how fast they were analyzed.
+ */
+public final class AnalysisReport {
+
+  private final long solved;
+  private final long unsolved;
+  private final long timedOut;
+  private final long elapsedNanos;
+
+  /**
+   * Constructs the report of a run.
+   * @param solved the number of solved deals.
+   * @param unsolved the number of deals whose every position was explored without winning.
+   * @param timedOut the number of deals abandoned when their node or time budget ran out.
+   * @param elapsedNanos the duration of the run in nanoseconds.
+   */
+  AnalysisReport(long solved, long unsolved, long timedOut, long elapsedNanos) {
+    this.solved = solved;
+    this.unsolved = unsolved;
+    this.timedOut = timedOut;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * A method that provides the number of analyzed deals.
+   * @return the number of deals.
+   */
+  public long getDeals() {
+    return solved + unsolved + timedOut;
+  }
+
+  /**
+   * A method that provides the number of solved deals.
+   * @return the number of solved deals.
+   */
+  public long getSolved() {
+    return solved;
+  }
+
+  /**
+   * A method that provides the number of deals found to be unsolvable.
+   * @return the number of unsolvable deals.
+   */
+  public long getUnsolved() {
+    return unsolved;
+  }
+
+  /**
+   * A method that provides the number of deals abandoned when their budget ran out.
+   * @return the number of abandoned deals.
+   */
+  public long getTimedOut() {
+    return timedOut;
+  }
+
+  /**
+   * A method that provides the duration of the run.
+   * @return the duration in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * A method that provides the throughput of the run.
+   * @return the number of deals analyzed per second.
+   */
+  public double getDealsPerSecond() {
+    return elapsedNanos == 0 ? 0 : getDeals() * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Provides a one line summary of the run, for example
+   * "1000 deals in 12.5 s (80.0 deals/s): 990 solved, 2 unsolved, 8 timeout".
+   * @return the summary.
+   */
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT,
+            "%d deals in %.1f s (%.1f deals/s): %d solved, %d unsolved, %d timeout",
+            getDeals(), elapsedNanos / 1e9, getDealsPerSecond(), solved, unsolved, timedOut);
+  }
+}
@@ -0,0 +1,462 @@
+package freecell.analysis;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.NumberedDeals;
+import freecell.solver.Solution;
+import freecell.solver.Solver;
+
+/**
+ * A headless runner that tells which of a range of numbered deals can be won with a given number
+ * of open and cascade piles. The deals are the ones of {@link NumberedDeals}; each is solved by a
+ * {@link Solver} within a budget of recorded positions and of time, on as many threads as
+ * configured. One result per deal is written as soon as it is known, so the results of a deal
+ * range come in the order the deals were finished rather than by deal number. Each result holds
+ * the deal number, whether the deal was solved, found unsolvable or abandoned when its budget ran
+ * out ("solved", "unsolved" or "timeout"), the number of moves of the solution and the number of
+ * positions the solver expanded.
+ *
+ * <p>The runner can be started from the command line, for example
+ * {@code java freecell.analysis.SolvabilityAnalyzer --deals 1-32000 --opens 4 --cascades 8
+ * --threads 8 --max-nodes 200000 --time-limit 10000 --format ndjson --out results.ndjson},
+ * which prints a summary with the throughput in deals per second once it is done.</p>
+ */
+public class SolvabilityAnalyzer {
+
+  /**
+   * The formats in which the results can be written.
+   */
+  public enum OutputFormat {
+    /** Comma separated values, with a header line. */
+    CSV,
+    /** One JSON object per line. */
+    NDJSON
+  }
+
+  private final int firstDeal;
+  private final int lastDeal;
+  private final int openPilesCount;
+  private final int cascadePilesCount;
+  private final boolean multiMove;
+  private final int threads;
+  private final Solver solver;
+  private final OutputFormat format;
+
+  /**
+   * Constructs an analyzer with the given configuration.
+   * @param builder the builder holding the configuration.
+   */
+  private SolvabilityAnalyzer(AnalyzerBuilder builder) {
+    this.firstDeal = builder.firstDeal;
+    this.lastDeal = builder.lastDeal;
+    this.openPilesCount = builder.openPilesCount;
+    this.cascadePilesCount = builder.cascadePilesCount;
+    this.multiMove = builder.multiMove;
+    this.threads = builder.threads;
+    this.format = builder.format;
+    this.solver = Solver.getBuilder()
+            .maxNodes(builder.maxNodes)
+            .tableCapacity(Math.min(Integer.highestOneBit(builder.maxNodes) << 1, 1 << 21))
+            .timeLimit(builder.timeLimitMillis, TimeUnit.MILLISECONDS)
+            .build();
+  }
+
+  /**
+   * A static inner class that helps in creating a SolvabilityAnalyzer. By default an analyzer
+   * analyzes deals 1 to 32000 of the single card move game with 4 open and 8 cascade piles, on
+   * one thread for each available processor, gives each deal a budget of 200,000 positions and
+   * 10 seconds and writes its results as CSV.
+   */
+  public static class AnalyzerBuilder {
+
+    private int firstDeal;
+    private int lastDeal;
+    private int openPilesCount;
+    private int cascadePilesCount;
+    private boolean multiMove;
+    private int threads;
+    private int maxNodes;
+    private long timeLimitMillis;
+    private OutputFormat format;
+
+    /**
+     * A default constructor that assigns the default configuration.
+     */
+    private AnalyzerBuilder() {
+      firstDeal = 1;
+      lastDeal = 32000;
+      openPilesCount = 4;
+      cascadePilesCount = 8;
+      multiMove = false;
+      threads = Runtime.getRuntime().availableProcessors();
+      maxNodes = 200_000;
+      timeLimitMillis = 10_000;
+      format = OutputFormat.CSV;
+    }
+
+    /**
+     * This method is used to configure the range of deals to be analyzed.
+     * @param firstDeal the number of the first deal.
+     * @param lastDeal the number of the last deal, included.
+     * @return this builder.
+     * @throws IllegalArgumentException if the first deal is less than 1 or the last deal is
+     *                                  before the first.
+     */
+    public AnalyzerBuilder deals(int firstDeal, int lastDeal) throws IllegalArgumentException {
+
+      if (firstDeal < 1 || lastDeal < firstDeal) {
+        throw new IllegalArgumentException("Deal range should be within 1 and "
+                + NumberedDeals.MAX_DEAL);
+      }
+      this.firstDeal = firstDeal;
+      this.lastDeal = lastDeal;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of open piles of the analyzed games.
+     * @param openPilesCount the number of open piles.
+     * @return this builder.
+     */
+    public AnalyzerBuilder opens(int openPilesCount) {
+      this.openPilesCount = openPilesCount;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of cascade piles of the analyzed games.
+     * @param cascadePilesCount the number of cascade piles.
+     * @return this builder.
+     */
+    public AnalyzerBuilder cascades(int cascadePilesCount) {
+      this.cascadePilesCount = cascadePilesCount;
+      return this;
+    }
+
+    /**
+     * This method is used to analyze the games that allow multi card moves, played by
+     * FreecellMultiMoveModel, instead of those of FreecellModel.
+     * @return this builder.
+     */
+    public AnalyzerBuilder multiMove() {
+      this.multiMove = true;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of deals solved at once.
+     * @param threads the number of threads.
+     * @return this builder.
+     * @throws IllegalArgumentException if the number of threads isn't positive.
+     */
+    public AnalyzerBuilder threads(int threads) throws IllegalArgumentException {
+
+      if (threads <= 0) {
+        throw new IllegalArgumentException("Number of threads should be positive");
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of positions the solver may record for a
+     * deal before the deal is abandoned.
+     * @param maxNodes the maximum number of positions.
+     * @return this builder.
+     * @throws IllegalArgumentException if the maximum isn't positive.
+     */
+    public AnalyzerBuilder maxNodes(int maxNodes) throws IllegalArgumentException {
+
+      if (maxNodes <= 0) {
+        throw new IllegalArgumentException("Maximum number of nodes should be positive");
+      }
+      this.maxNodes = maxNodes;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the time the solver may take for a deal before the deal
+     * is abandoned.
+     * @param timeLimit the time limit, 0 for no limit.
+     * @param unit the unit of the time limit.
+     * @return this builder.
+     * @throws IllegalArgumentException if the time limit is negative or the unit is null.
+     */
+    public AnalyzerBuilder timeLimit(long timeLimit, TimeUnit unit)
+            throws IllegalArgumentException {
+
+      if (timeLimit < 0) {
+        throw new IllegalArgumentException("Time limit can't be negative");
+      }
+      if (unit == null) {
+        throw new IllegalArgumentException("Time unit can't be null");
+      }
+      this.timeLimitMillis = unit.toMillis(timeLimit);
+      return this;
+    }
+
+    /**
+     * This method is used to configure the format of the results.
+     * @param format the format.
+     * @return this builder.
+     * @throws IllegalArgumentException if the format is null.
+     */
+    public AnalyzerBuilder format(OutputFormat format) throws IllegalArgumentException {
+
+      if (format == null) {
+        throw new IllegalArgumentException("Format can't be null");
+      }
+      this.format = format;
+      return this;
+    }
+
+    /**
+     * This method builds the analyzer.
+     * @return the analyzer.
+     * @throws IllegalArgumentException if the game can't be played with the configured number
+     *                                  of open and cascade piles.
+     */
+    public SolvabilityAnalyzer build() throws IllegalArgumentException {
+
+      SolvabilityAnalyzer analyzer = new SolvabilityAnalyzer(this);
+      analyzer.gameBuilder();
+      return analyzer;
+    }
+  }
+
+  /**
+   * A static method that can be used by any class to create an AnalyzerBuilder in order to
+   * further create a SolvabilityAnalyzer.
+   * @return a new AnalyzerBuilder.
+   */
+  public static AnalyzerBuilder getBuilder() {
+    return new AnalyzerBuilder();
+  }
+
+  /**
+   * Analyzes the configured range of deals and writes one result per deal to the given output,
+   * preceded by a header line for CSV. Writes to the output are made by one thread at a time;
+   * the output isn't flushed or closed.
+   *
+   * @param out the output to which the results are written.
+   * @return the totals of the run.
+   * @throws IllegalArgumentException if the output is null.
+   * @throws IOException if writing to the output fails, in which case the run stops.
+   */
+  public AnalysisReport analyze(Appendable out) throws IllegalArgumentException, IOException {
+
+    if (out == null) {
+      throw new IllegalArgumentException("Output can't be null");
+    }
+    if (format == OutputFormat.CSV) {
+      out.append("deal,result,moves,nodes_expanded\n");
+    }
+
+    AtomicInteger nextDeal = new AtomicInteger(firstDeal);
+    AtomicLong solved = new AtomicLong();
+    AtomicLong unsolved = new AtomicLong();
+    AtomicLong timedOut = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Future<?>[] workers = new Future<?>[threads];
+    long start = System.nanoTime();
+
+    try {
+      for (int i = 0; i < threads; i++) {
+        workers[i] = executor.submit(() -> {
+
+          FreeCellAbstractModel game = buildGame();
+          NumberedDeals deals = new NumberedDeals();
+          Card[] cards = new Card[52];
+          StringBuilder line = new StringBuilder();
+
+          for (int deal = nextDeal.getAndIncrement(); deal <= lastDeal && deal >= firstDeal;
+               deal = nextDeal.getAndIncrement()) {
+
+            deals.deal(deal, cards);
+            game.startGame(Arrays.asList(cards), false);
+            Solution solution = solver.solve(game);
+
+            String result;
+            if (solution.isSolved()) {
+              result = "solved";
+              solved.incrementAndGet();
+            } else if (solution.getStatus() == Solution.Status.EXHAUSTED) {
+              result = "unsolved";
+              unsolved.incrementAndGet();
+            } else {
+              result = "timeout";
+              timedOut.incrementAndGet();
+            }
+
+            line.setLength(0);
+            appendResult(line, deal, result, solution);
+            synchronized (out) {
+              out.append(line);
+            }
+          }
+          return null;
+        });
+      }
+
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Analysis was interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return new AnalysisReport(solved.get(), unsolved.get(), timedOut.get(),
+            System.nanoTime() - start);
+  }
+
+  /**
+   * A helper method that writes the result of a deal in the configured format.
+   * @param line the line to which the result is appended.
+   * @param deal the number of the deal.
+   * @param result "solved", "unsolved" or "timeout".
+   * @param solution the outcome of the solver.
+   */
+  private void appendResult(StringBuilder line, int deal, String result, Solution solution) {
+
+    if (format == OutputFormat.CSV) {
+      line.append(deal).append(',').append(result).append(',')
+              .append(solution.getMoveCount()).append(',')
+              .append(solution.getNodesExpanded()).append('\n');
+    } else {
+      line.append("{\"deal\":").append(deal)
+              .append(",\"result\":\"").append(result)
+              .append("\",\"moves\":").append(solution.getMoveCount())
+              .append(",\"nodesExpanded\":").append(solution.getNodesExpanded())
+              .append("}\n");
+    }
+  }
+
+  /**
+   * A helper method that provides a builder of the analyzed games.
+   * @return the builder.
+   * @throws IllegalArgumentException if the game can't be played with the configured number
+   *                                  of open and cascade piles.
+   */
+  private FreecellOperationsBuilder gameBuilder() throws IllegalArgumentException {
+
+    FreecellOperationsBuilder builder = multiMove ? FreecellMultiMoveModel.getBuilder()
+            : FreecellModel.getBuilder();
+    return builder.cascades(cascadePilesCount).opens(openPilesCount).packed();
+  }
+
+  /**
+   * A helper method that builds a game that can be dealt the analyzed deals.
+   * @return the game.
+   */
+  private FreeCellAbstractModel buildGame() {
+
+    FreecellOperations<Card> game = gameBuilder().build();
+    return (FreeCellAbstractModel) game;
+  }
+
+  /**
+   * Runs an analysis from the command line. The options are {@code --deals FIRST-LAST},
+   * {@code --opens N}, {@code --cascades N}, {@code --multi}, {@code --threads N},
+   * {@code --max-nodes N}, {@code --time-limit MILLISECONDS}, {@code --format csv|ndjson} and
+   * {@code --out FILE}; options that are left out keep the defaults of the AnalyzerBuilder and
+   * the results are written to the standard output unless a file is given. The summary of the
+   * run is written to the standard error.
+   *
+   * @param args the options.
+   * @throws IOException if the results can't be written.
+   */
+  public static void main(String[] args) throws IOException {
+
+    AnalyzerBuilder builder = getBuilder();
+    String outFile = null;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String option = args[i];
+
+        if ("--multi".equals(option)) {
+          builder.multiMove();
+          continue;
+        }
+        if (i + 1 == args.length) {
+          throw new IllegalArgumentException("Missing value of " + option);
+        }
+        String value = args[++i];
+
+        switch (option) {
+          case "--deals":
+            String[] range = value.split("-");
+            builder.deals(Integer.parseInt(range[0]),
+                    Integer.parseInt(range[range.length - 1]));
+            break;
+          case "--opens":
+            builder.opens(Integer.parseInt(value));
+            break;
+          case "--cascades":
+            builder.cascades(Integer.parseInt(value));
+            break;
+          case "--threads":
+            builder.threads(Integer.parseInt(value));
+            break;
+          case "--max-nodes":
+            builder.maxNodes(Integer.parseInt(value));
+            break;
+          case "--time-limit":
+            builder.timeLimit(Long.parseLong(value), TimeUnit.MILLISECONDS);
+            break;
+          case "--format":
+            builder.format(OutputFormat.valueOf(value.toUpperCase(Locale.ROOT)));
+            break;
+          case "--out":
+            outFile = value;
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + option);
+        }
+      }
+      builder.build();
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println("Usage: SolvabilityAnalyzer [--deals FIRST-LAST] [--opens N]"
+              + " [--cascades N] [--multi] [--threads N] [--max-nodes N]"
+              + " [--time-limit MILLISECONDS] [--format csv|ndjson] [--out FILE]");
+      System.exit(2);
+      return;
+    }
+
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(outFile == null
+            ? System.out : new FileOutputStream(outFile), StandardCharsets.UTF_8), 1 << 16)) {
+      AnalysisReport report = builder.build().analyze(out);
+      out.flush();
+      System.err.println(report);
+    }
+  }
+}
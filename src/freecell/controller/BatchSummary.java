@@ -0,0 +1,100 @@
+package freecell.controller;
+
+/**
+ * The outcome of a move script run by a {@link FreecellBatchController}: how the script ended,
+ * how many of its moves were valid and invalid, and which move was the first invalid one.
+ */
+public final class BatchSummary {
+
+  /**
+   * The ways in which a script can end.
+   */
+  public enum Ending {
+    /** The game was won. */
+    GAME_OVER,
+    /** The script quit the game with "q" or "Q". */
+    QUIT,
+    /** The script ended before the game was over. */
+    END_OF_INPUT,
+    /** The controller stopped at the first invalid move as it was asked to fail fast. */
+    FAILED
+  }
+
+  private final Ending ending;
+  private final int validMoves;
+  private final int invalidMoves;
+  private final int firstInvalidMoveNumber;
+  private final String firstInvalidMove;
+  private final String firstInvalidMoveReason;
+
+  /**
+   * Constructs the summary of a script.
+   * @param ending the way the script ended.
+   * @param validMoves the number of valid moves.
+   * @param invalidMoves the number of invalid moves.
+   * @param firstInvalidMoveNumber the number of the first invalid move among all the moves of
+   *                               the script, counted from 1, or 0 if all the moves were valid.
+   * @param firstInvalidMove the first invalid move, such as "C3 13 F2", or null.
+   * @param firstInvalidMoveReason the reason why the first invalid move was rejected, or null.
+   */
+  BatchSummary(Ending ending, int validMoves, int invalidMoves, int firstInvalidMoveNumber,
+               String firstInvalidMove, String firstInvalidMoveReason) {
+    this.ending = ending;
+    this.validMoves = validMoves;
+    this.invalidMoves = invalidMoves;
+    this.firstInvalidMoveNumber = firstInvalidMoveNumber;
+    this.firstInvalidMove = firstInvalidMove;
+    this.firstInvalidMoveReason = firstInvalidMoveReason;
+  }
+
+  /**
+   * A method that provides the way the script ended.
+   * @return the ending of the script.
+   */
+  public Ending getEnding() {
+    return ending;
+  }
+
+  /**
+   * A method that provides the number of valid moves of the script.
+   * @return the number of valid moves.
+   */
+  public int getValidMoves() {
+    return validMoves;
+  }
+
+  /**
+   * A method that provides the number of invalid moves of the script.
+   * @return the number of invalid moves.
+   */
+  public int getInvalidMoves() {
+    return invalidMoves;
+  }
+
+  /**
+   * A method that provides the number of the first invalid move among all the moves of the
+   * script, counted from 1.
+   * @return the number of the move, or 0 if all the moves were valid.
+   */
+  public int getFirstInvalidMoveNumber() {
+    return firstInvalidMoveNumber;
+  }
+
+  /**
+   * A method that provides the first invalid move of the script, as a source pile, a card index
+   * and a destination pile separated by spaces, such as "C3 13 F2".
+   * @return the move, or null if all the moves were valid.
+   */
+  public String getFirstInvalidMove() {
+    return firstInvalidMove;
+  }
+
+  /**
+   * A method that provides the reason why the first invalid move of the script was rejected,
+   * which is the message of the exception thrown by the model.
+   * @return the reason, or null if all the moves were valid.
+   */
+  public String getFirstInvalidMoveReason() {
+    return firstInvalidMoveReason;
+  }
+}
@@ -0,0 +1,28 @@
+package freecell.controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A package protected Flight Recorder event for the parsing of a command of the input of a
+ * controller. Its duration includes the time spent waiting for the input. The event is disabled
+ * by default and only committed while a recording enables it.
+ */
+@Name("freecell.Command")
+@Label("Command")
+@Category({"Freecell", "Controller"})
+@Description("A command read from the input of a controller")
+@Enabled(false)
+final class CommandEvent extends Event {
+
+  @Label("Command")
+  String command;
+
+  @Label("Tokens")
+  @Description("The number of tokens read for the command, skipped tokens included")
+  int tokens;
+}
@@ -0,0 +1,343 @@
+package freecell.controller;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import freecell.model.PileType;
+
+/**
+ * A package protected lexer that splits the input of the controller into tokens and tells what
+ * each token is, reading the input one character at a time from a buffer. Tokens are separated
+ * by whitespace, and a token is either a pile such as "C1", a card index such as "7", "q" or "Q"
+ * to quit, "h" or "H" to ask for a hint, or anything else, which is invalid. The pile number or
+ * the index of the last token is computed while the token is read, so no string is created for
+ * a token.
+ *
+ * <p>The tokens are also put together into the commands of the game: a move, which is a source
+ * pile, a card index and a destination pile, where the tokens that aren't expected at their
+ * place are skipped, asking for a hint and quitting. A hint or quit token ends the command being
+ * read, dropping the part of a move read before it. The parsing of each command is reported to
+ * the Flight Recorder as a freecell.Command event while a recording has the event enabled.</p>
+ *
+ * <p>The lexer waits for input without spinning. A Readable that blocks until characters are
+ * available, such as a Reader of a stream, is simply left to block. A Readable that doesn't block
+ * and reads no characters when none are available is polled again after parking the thread for
+ * a time that doubles after each empty read, from {@link #MIN_IDLE_NANOS} up to
+ * {@link #MAX_IDLE_NANOS}, so an idle input costs almost no CPU time.</p>
+ */
+final class CommandLexer {
+
+  /**
+   * The kinds of tokens recognized by the lexer.
+   */
+  enum TokenType {
+    PILE, INDEX, QUIT, HINT, INVALID, END
+  }
+
+  /**
+   * The kinds of commands recognized by the lexer.
+   */
+  enum CommandType {
+    MOVE, HINT, QUIT, END
+  }
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Readable in;
+  private final CharBuffer buffer;
+  private char pileCharacter;
+  private int number;
+  private PileType sourcePileType;
+  private int sourcePileNumber;
+  private int cardIndex;
+  private PileType destinationPileType;
+  private int destinationPileNumber;
+  private long idleNanos;
+  private int tokens;
+
+  /**
+   * Constructs a lexer that reads the given input.
+   * @param in the input to be read.
+   */
+  CommandLexer(Readable in) {
+    this.in = in;
+    this.buffer = CharBuffer.allocate(BUFFER_SIZE);
+    this.buffer.flip();
+  }
+
+  /**
+   * Reads the tokens of the next command of the input. For a move, the piles and the card index
+   * given in the command are provided by the getters of this lexer, counted from 1 as they were
+   * given.
+   * @return the kind of the command, or END if the input ends before a command is complete.
+   * @throws IllegalStateException if the input can't be read.
+   */
+  CommandType nextCommand() throws IllegalStateException {
+
+    CommandEvent event = new CommandEvent();
+    event.begin();
+    CommandType command = null;
+    try {
+      command = readCommand();
+      return command;
+    } finally {
+      if (event.shouldCommit()) {
+        event.command = command == null ? null : command.name();
+        event.tokens = tokens;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * A helper method that reads the tokens of the next command of the input, counting them.
+   * @return the kind of the command, or END if the input ends before a command is complete.
+   * @throws IllegalStateException if the input can't be read.
+   */
+  private CommandType readCommand() throws IllegalStateException {
+
+    boolean isSourcePileRead = false;
+    boolean isCardIndexRead = false;
+    tokens = 0;
+
+    while (true) {
+
+      TokenType token = next();
+
+      if (token == TokenType.END) {
+        return CommandType.END;
+      }
+      tokens++;
+      if (token == TokenType.QUIT) {
+        return CommandType.QUIT;
+      }
+      if (token == TokenType.HINT) {
+        return CommandType.HINT;
+      }
+
+      if (!isSourcePileRead) {
+        if (token == TokenType.PILE) {
+          sourcePileType = getPileType(pileCharacter);
+          sourcePileNumber = number;
+          isSourcePileRead = true;
+        }
+      } else if (!isCardIndexRead) {
+        if (token == TokenType.INDEX) {
+          cardIndex = number;
+          isCardIndexRead = true;
+        }
+      } else if (token == TokenType.PILE) {
+        destinationPileType = getPileType(pileCharacter);
+        destinationPileNumber = number;
+        return CommandType.MOVE;
+      }
+    }
+  }
+
+  /**
+   * A method that provides the source pile type of the last move.
+   * @return the source pile type.
+   */
+  PileType getSourcePileType() {
+    return sourcePileType;
+  }
+
+  /**
+   * A method that provides the source pile number of the last move, counted from 1.
+   * @return the source pile number.
+   */
+  int getSourcePileNumber() {
+    return sourcePileNumber;
+  }
+
+  /**
+   * A method that provides the card index of the last move, counted from 1.
+   * @return the card index.
+   */
+  int getCardIndex() {
+    return cardIndex;
+  }
+
+  /**
+   * A method that provides the destination pile type of the last move.
+   * @return the destination pile type.
+   */
+  PileType getDestinationPileType() {
+    return destinationPileType;
+  }
+
+  /**
+   * A method that provides the destination pile number of the last move, counted from 1.
+   * @return the destination pile number.
+   */
+  int getDestinationPileNumber() {
+    return destinationPileNumber;
+  }
+
+  /**
+   * Reads the next token of the input.
+   * @return the kind of the token, or END if there are no more tokens in the input.
+   * @throws IllegalStateException if the input can't be read.
+   */
+  TokenType next() throws IllegalStateException {
+
+    int character = read();
+    while (isDelimiter(character)) {
+      character = read();
+    }
+
+    if (character == -1) {
+      return TokenType.END;
+    }
+
+    char first = (char) character;
+    boolean isPile = first == 'O' || first == 'C' || first == 'F';
+    boolean isNumber = isPile || isDigit(first);
+    int length = 1;
+    number = isPile ? 0 : first - '0';
+
+    for (character = read(); character != -1 && !isDelimiter(character); character = read()) {
+      length++;
+      if (!isNumber) {
+        continue;
+      }
+      if (!isDigit(character) || number > (Integer.MAX_VALUE - (character - '0')) / 10) {
+        isNumber = false;
+      } else {
+        number = number * 10 + character - '0';
+      }
+    }
+
+    if (length == 1 && (first == 'q' || first == 'Q')) {
+      return TokenType.QUIT;
+    } else if (length == 1 && (first == 'h' || first == 'H')) {
+      return TokenType.HINT;
+    } else if (isNumber && isPile && length > 1) {
+      pileCharacter = first;
+      return TokenType.PILE;
+    } else if (isNumber && !isPile) {
+      return TokenType.INDEX;
+    }
+    return TokenType.INVALID;
+  }
+
+  /**
+   * A method that provides the pile character of the last PILE token.
+   * @return 'O', 'C' or 'F'.
+   */
+  char getPileCharacter() {
+    return pileCharacter;
+  }
+
+  /**
+   * A method that provides the pile number of the last PILE token or the value of the last
+   * INDEX token.
+   * @return the number.
+   */
+  int getNumber() {
+    return number;
+  }
+
+  /**
+   * A private helper method to return the pile type based on the character representing those
+   * piles.
+   *
+   * @param pileCharacter 'C' - cascade pile, 'O' - Open pile and 'F' - Foundation pile
+   * @return the corresponding pile type
+   */
+  private static PileType getPileType(char pileCharacter) {
+
+    switch (pileCharacter) {
+      case 'C':
+        return PileType.CASCADE;
+      case 'F':
+        return PileType.FOUNDATION;
+      default:
+        return PileType.OPEN;
+    }
+  }
+
+  /**
+   * A package protected helper method that provides the character that represents a type of
+   * pile in the input.
+   * @param pileType the type of pile.
+   * @return 'C', 'F' or 'O'.
+   */
+  static char characterOf(PileType pileType) {
+
+    switch (pileType) {
+      case CASCADE:
+        return 'C';
+      case FOUNDATION:
+        return 'F';
+      default:
+        return 'O';
+    }
+  }
+
+  /**
+   * A helper method that reads the next character of the input, filling the buffer again when
+   * all its characters were read and waiting for characters when none are available.
+   * @return the character, or -1 at the end of the input.
+   * @throws IllegalStateException if the input can't be read, or if the thread is interrupted
+   *                               while waiting for input.
+   */
+  private int read() throws IllegalStateException {
+
+    while (!buffer.hasRemaining()) {
+      buffer.clear();
+      int charactersRead;
+      try {
+        charactersRead = in.read(buffer);
+      } catch (IOException e) {
+        throw new IllegalStateException("controller is unable to read the input properly");
+      }
+      buffer.flip();
+      if (charactersRead == -1) {
+        return -1;
+      } else if (charactersRead == 0) {
+        waitForInput();
+      } else {
+        idleNanos = 0;
+      }
+    }
+    return buffer.get();
+  }
+
+  /**
+   * A helper method that parks the thread after a read that found no characters, for twice as
+   * long as after the previous empty read.
+   * @throws IllegalStateException if the thread is interrupted.
+   */
+  private void waitForInput() throws IllegalStateException {
+
+    idleNanos = Math.min(MAX_IDLE_NANOS, Math.max(MIN_IDLE_NANOS, idleNanos * 2));
+    LockSupport.parkNanos(this, idleNanos);
+    if (Thread.currentThread().isInterrupted()) {
+      throw new IllegalStateException("controller was interrupted while waiting for input");
+    }
+  }
+
+  /**
+   * A helper method that tells if a character separates two tokens, which the whitespace
+   * characters space, tab, newline, vertical tab, form feed and carriage return do.
+   * @param character the character, or -1 at the end of the input.
+   * @return true if the character is a delimiter.
+   */
+  private static boolean isDelimiter(int character) {
+    return character == ' ' || (character >= '\t' && character <= '\r');
+  }
+
+  /**
+   * A helper method that tells if a character is one of the digits 0 to 9.
+   * @param character the character.
+   * @return true if the character is a digit.
+   */
+  private static boolean isDigit(int character) {
+    return character >= '0' && character <= '9';
+  }
+}
@@ -0,0 +1,401 @@
+package freecell.controller;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveResult;
+import freecell.model.NumberedDeals;
+import freecell.model.PileType;
+
+/**
+ * A headless controller for the freecell game that runs a script of moves against a model
+ * without transmitting anything while the script runs. The script is read like the input of
+ * {@link FreecellController}: moves of three inputs, where the inputs that aren't expected at
+ * their place are skipped, and 'q' or 'Q' to quit; requests for hints are ignored, as no one
+ * reads them while the script runs. Once the script ends, by winning the game,
+ * by quitting, by running out of input or, if asked to fail fast, at the first invalid move, the
+ * controller transmits a summary made of the final state of the game, the number of valid and
+ * invalid moves, the first invalid move and the way the script ended, each of which but the last
+ * can be left out. The summary is gathered in a buffer and appended to the Appendable at once,
+ * which is then flushed if it can be.
+ *
+ * <p>For example the summary of a script quitting after one valid and one invalid move, without
+ * the final state, is:</p>
+ * <pre>
+ * Valid moves: 1
+ * Invalid moves: 1
+ * First invalid move: #2 C3 7 F5 (Destination Pile Number is invalid)
+ * Game quit prematurely.
+ * </pre>
+ *
+ * <p>The controller can be started from the command line to run a script read from the standard
+ * input, for example {@code java freecell.controller.FreecellBatchController --deal 617
+ * --fail-fast < moves.txt}.</p>
+ */
+public class FreecellBatchController implements IFreecellController<Card> {
+
+  private final Readable in;
+  private final Appendable out;
+  private final boolean showFinalState;
+  private final boolean showMoveCounts;
+  private final boolean showFirstInvalidMove;
+  private final boolean failFast;
+
+  /**
+   * Constructs a batch controller with the given configuration.
+   * @param builder the builder holding the configuration.
+   * @param rd Readable object for input
+   * @param ap Appendable object for output
+   */
+  private FreecellBatchController(BatchControllerBuilder builder, Readable rd, Appendable ap) {
+    this.in = rd;
+    this.out = ap;
+    this.showFinalState = builder.showFinalState;
+    this.showMoveCounts = builder.showMoveCounts;
+    this.showFirstInvalidMove = builder.showFirstInvalidMove;
+    this.failFast = builder.failFast;
+  }
+
+  /**
+   * A static inner class that helps in creating a FreecellBatchController. By default the
+   * controller runs the whole script and its summary holds all the parts.
+   */
+  public static class BatchControllerBuilder {
+
+    private boolean showFinalState;
+    private boolean showMoveCounts;
+    private boolean showFirstInvalidMove;
+    private boolean failFast;
+
+    /**
+     * A default constructor that assigns the default configuration.
+     */
+    private BatchControllerBuilder() {
+      showFinalState = true;
+      showMoveCounts = true;
+      showFirstInvalidMove = true;
+      failFast = false;
+    }
+
+    /**
+     * This method is used to choose if the summary holds the final state of the game.
+     * @param showFinalState true to transmit the final state.
+     * @return this builder.
+     */
+    public BatchControllerBuilder finalState(boolean showFinalState) {
+      this.showFinalState = showFinalState;
+      return this;
+    }
+
+    /**
+     * This method is used to choose if the summary holds the number of valid and invalid moves.
+     * @param showMoveCounts true to transmit the number of moves.
+     * @return this builder.
+     */
+    public BatchControllerBuilder moveCounts(boolean showMoveCounts) {
+      this.showMoveCounts = showMoveCounts;
+      return this;
+    }
+
+    /**
+     * This method is used to choose if the summary holds the first invalid move.
+     * @param showFirstInvalidMove true to transmit the first invalid move.
+     * @return this builder.
+     */
+    public BatchControllerBuilder firstInvalidMove(boolean showFirstInvalidMove) {
+      this.showFirstInvalidMove = showFirstInvalidMove;
+      return this;
+    }
+
+    /**
+     * This method is used to stop the script at its first invalid move.
+     * @return this builder.
+     */
+    public BatchControllerBuilder failFast() {
+      this.failFast = true;
+      return this;
+    }
+
+    /**
+     * This method builds the controller for the given input and output.
+     * @param rd Readable object for input
+     * @param ap Appendable object for output
+     * @return the controller.
+     * @throws IllegalArgumentException if any of them is null
+     */
+    public FreecellBatchController build(Readable rd, Appendable ap)
+            throws IllegalArgumentException {
+
+      if (rd == null) {
+        throw new IllegalArgumentException("Readable object can't be null");
+      }
+
+      if (ap == null) {
+        throw new IllegalArgumentException("Appendable object can't be null");
+      }
+      return new FreecellBatchController(this, rd, ap);
+    }
+  }
+
+  /**
+   * A static method that can be used by any class to create and use an object of type
+   * BatchControllerBuilder in order to further create a FreecellBatchController.
+   * @return an object of type BatchControllerBuilder
+   */
+  public static BatchControllerBuilder getBuilder() {
+    return new BatchControllerBuilder();
+  }
+
+  /**
+   * Start a new game of freecell with the provided deck and run the script of moves read from
+   * the Readable on it, transmitting only the summary of the script once it ends.
+   *
+   * @param deck    the deck to be used to play this game
+   * @param model   the model for the game
+   * @param shuffle shuffle the deck if true, false otherwise
+   * @throws IllegalArgumentException if the deck is null or invalid, or if the model is null
+   * @throws IllegalStateException    if the controller is unable to read input or transmit output
+   */
+  @Override
+  public void playGame(List<Card> deck, FreecellOperations<Card> model, boolean shuffle)
+          throws IllegalArgumentException, IllegalStateException {
+    playScript(deck, model, shuffle);
+  }
+
+  /**
+   * Start a new game of freecell with the provided deck and run the script of moves read from
+   * the Readable on it, transmitting only the summary of the script once it ends.
+   *
+   * @param deck    the deck to be used to play this game
+   * @param model   the model for the game
+   * @param shuffle shuffle the deck if true, false otherwise
+   * @return the summary of the script.
+   * @throws IllegalArgumentException if the deck is null or invalid, or if the model is null
+   * @throws IllegalStateException    if the controller is unable to read input or transmit output
+   */
+  public BatchSummary playScript(List<Card> deck, FreecellOperations<Card> model,
+                                 boolean shuffle)
+          throws IllegalArgumentException, IllegalStateException {
+
+    if (model == null) {
+      throw new IllegalArgumentException("model can't be null");
+    }
+
+    model.startGame(deck, shuffle);
+
+    CommandLexer lexer = new CommandLexer(this.in);
+    BatchSummary.Ending ending = null;
+    int validMoves = 0;
+    int invalidMoves = 0;
+    int firstInvalidMoveNumber = 0;
+    String firstInvalidMove = null;
+    String firstInvalidMoveReason = null;
+
+    while (ending == null) {
+
+      CommandLexer.CommandType command = lexer.nextCommand();
+
+      if (command == CommandLexer.CommandType.END) {
+        ending = BatchSummary.Ending.END_OF_INPUT;
+      } else if (command == CommandLexer.CommandType.QUIT) {
+        ending = BatchSummary.Ending.QUIT;
+      } else if (command == CommandLexer.CommandType.MOVE) {
+        String reason;
+        try {
+          MoveResult result = model.tryMove(lexer.getSourcePileType(),
+                  lexer.getSourcePileNumber() - 1, lexer.getCardIndex() - 1,
+                  lexer.getDestinationPileType(), lexer.getDestinationPileNumber() - 1);
+          reason = result.getMessage();
+        } catch (IllegalArgumentException e) {
+          reason = e.getMessage();
+        }
+
+        if (reason == null) {
+          validMoves++;
+          if (model.isGameOver()) {
+            ending = BatchSummary.Ending.GAME_OVER;
+          }
+        } else {
+          invalidMoves++;
+          if (firstInvalidMove == null) {
+            firstInvalidMoveNumber = validMoves + invalidMoves;
+            firstInvalidMove = formatMove(lexer);
+            firstInvalidMoveReason = reason;
+          }
+          if (failFast) {
+            ending = BatchSummary.Ending.FAILED;
+          }
+        }
+      }
+    }
+
+    BatchSummary summary = new BatchSummary(ending, validMoves, invalidMoves,
+            firstInvalidMoveNumber, firstInvalidMove, firstInvalidMoveReason);
+    writeSummary(summary, model);
+    return summary;
+  }
+
+  /**
+   * A helper method that writes the summary of a script to a buffer and transmits the buffer
+   * at once.
+   *
+   * @param summary the summary of the script.
+   * @param model   the model of the game.
+   * @throws IllegalStateException if the controller cannot transmit the output properly
+   */
+  private void writeSummary(BatchSummary summary, FreecellOperations<Card> model)
+          throws IllegalStateException {
+
+    StringBuilder buffer = new StringBuilder(1024);
+
+    try {
+      if (showFinalState) {
+        model.writeGameState(buffer);
+        buffer.append('\n');
+      }
+      if (showMoveCounts) {
+        buffer.append("Valid moves: ").append(summary.getValidMoves()).append('\n')
+                .append("Invalid moves: ").append(summary.getInvalidMoves()).append('\n');
+      }
+      if (showFirstInvalidMove) {
+        buffer.append("First invalid move: ");
+        if (summary.getFirstInvalidMove() == null) {
+          buffer.append("none");
+        } else {
+          buffer.append('#').append(summary.getFirstInvalidMoveNumber()).append(' ')
+                  .append(summary.getFirstInvalidMove())
+                  .append(" (").append(summary.getFirstInvalidMoveReason()).append(')');
+        }
+        buffer.append('\n');
+      }
+      buffer.append(endingMessage(summary.getEnding()));
+
+      this.out.append(buffer);
+      if (this.out instanceof Flushable) {
+        ((Flushable) this.out).flush();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("controller is unable to transmit the output properly");
+    }
+  }
+
+  /**
+   * A helper method that provides the last line of the summary, telling how the script ended.
+   * @param ending the way the script ended.
+   * @return the line.
+   */
+  private static String endingMessage(BatchSummary.Ending ending) {
+
+    switch (ending) {
+      case GAME_OVER:
+        return "Game over.";
+      case QUIT:
+        return "Game quit prematurely.";
+      case END_OF_INPUT:
+        return "Game quit prematurely. No more input.";
+      default:
+        return "Game stopped at the first invalid move.";
+    }
+  }
+
+  /**
+   * A helper method that writes the last move read by the lexer as it was given, such as
+   * "C3 13 F2".
+   * @param lexer the lexer.
+   * @return the move.
+   */
+  private static String formatMove(CommandLexer lexer) {
+    return CommandLexer.characterOf(lexer.getSourcePileType())
+            + String.valueOf(lexer.getSourcePileNumber()) + " " + lexer.getCardIndex() + " "
+            + CommandLexer.characterOf(lexer.getDestinationPileType())
+            + lexer.getDestinationPileNumber();
+  }
+
+  /**
+   * Runs a script of moves read from the standard input on a game and prints its summary.
+   * The options are "--deal N" to play the numbered deal N of {@link NumberedDeals} instead of
+   * the unshuffled deck, "--cascades N" and "--opens N" for the number of piles (8 and 4 by
+   * default), "--multi" to allow multi card moves, "--fail-fast" to stop at the first invalid
+   * move and "--no-state" to leave the final state out of the summary.
+   *
+   * @param args the options.
+   * @throws IOException if the standard output can't be written to.
+   */
+  public static void main(String[] args) throws IOException {
+
+    BatchControllerBuilder builder = getBuilder();
+    FreecellOperations<Card> model;
+    int deal = 0;
+    int cascadePilesCount = 8;
+    int openPilesCount = 4;
+    boolean multiMove = false;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String option = args[i];
+
+        switch (option) {
+          case "--multi":
+            multiMove = true;
+            continue;
+          case "--fail-fast":
+            builder.failFast();
+            continue;
+          case "--no-state":
+            builder.finalState(false);
+            continue;
+          default:
+            break;
+        }
+        if (i + 1 == args.length) {
+          throw new IllegalArgumentException("Missing value of " + option);
+        }
+        String value = args[++i];
+
+        switch (option) {
+          case "--deal":
+            deal = Integer.parseInt(value);
+            break;
+          case "--cascades":
+            cascadePilesCount = Integer.parseInt(value);
+            break;
+          case "--opens":
+            openPilesCount = Integer.parseInt(value);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + option);
+        }
+      }
+      FreecellOperationsBuilder modelBuilder = multiMove
+              ? FreecellMultiMoveModel.getBuilder() : FreecellModel.getBuilder();
+      model = modelBuilder.cascades(cascadePilesCount).opens(openPilesCount).undoLimit(0)
+              .build();
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println("Usage: FreecellBatchController [--deal N] [--cascades N] [--opens N]"
+              + " [--multi] [--fail-fast] [--no-state] < SCRIPT");
+      System.exit(2);
+      return;
+    }
+
+    List<Card> deck = deal > 0 ? NumberedDeals.deal(deal) : model.getDeck();
+
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(System.out,
+            StandardCharsets.UTF_8))) {
+      builder.build(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+              out).playGame(deck, model, false);
+    }
+  }
+}
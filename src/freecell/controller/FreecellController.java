@@ -3,11 +3,15 @@ package freecell.controller;
 import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
-import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 import freecell.model.Card;
 import freecell.model.FreecellOperations;
+import freecell.model.MoveResult;
+import freecell.model.MoveBuffer;
 import freecell.model.PileType;
+import freecell.solver.Hint;
+import freecell.solver.HintEngine;
 
 /**
  * This class is the controller for the freecell game and implements the IFreecellController
@@ -17,8 +21,11 @@ import freecell.model.PileType;
  */
 public class FreecellController implements IFreecellController<Card> {
 
+  private static final long HINT_BUDGET_MILLIS = 50;
+
   private final Readable in;
   private final Appendable out;
+  private final HintEngine hintEngine;
 
   /**
    * Constructs a FreecellController taking in Readable and Appendable objects as parameters for
@@ -41,11 +48,13 @@ public class FreecellController implements IFreecellController<Card> {
 
     this.in = rd;
     this.out = ap;
+    this.hintEngine = HintEngine.getBuilder().build();
   }
 
   /**
    * Start and play a new game of freecell with the provided deck. This deck should be used as-is.
-   * This method returns only when the game is over (either by winning or by quitting)
+   * This method returns only when the game is over (either by winning or by quitting) or when
+   * the input ends, in which case it transmits "Game quit prematurely. No more input.".
    *
    * <p>User input for a move is a sequence of three inputs (separated by spaces or newlines).
    * a. The source pile (e.g., "C1", as a single word). The pile number begins at 1.</p>
@@ -60,6 +69,13 @@ public class FreecellController implements IFreecellController<Card> {
    *
    * <p>Give 'q' or 'Q' to quit the game.</p>
    *
+   * <p>Give 'h' or 'H' for a hint: the move advised by a search of at most about 50 ms is
+   * transmitted in the form of the input, e.g. "Hint: C1 7 F1".</p>
+   *
+   * <p>Any other input that isn't expected at its place, such as a card index in place of a
+   * pile, is skipped. The input is read one character at a time, without creating strings for
+   * the inputs.</p>
+   *
    * @param deck    the deck to be used to play this game
    * @param model   the model for the game
    * @param shuffle shuffle the deck if true, if false doesn't shuffle.
@@ -69,88 +85,44 @@ public class FreecellController implements IFreecellController<Card> {
   public void playGame(List<Card> deck, FreecellOperations<Card> model,
                        boolean shuffle) throws IllegalArgumentException, IllegalStateException {
 
-    String input = new String();
-    PileType sourcePileType = PileType.CASCADE;
-    PileType destinationPileType = PileType.CASCADE;
-    int sourcePileNumber = 0;
-    int sourceCardIndex = 0;
-    int destinationPileNumber = 0;
-    boolean isSourcePileRead = false;
-    boolean isCardIndexRead = false;
-    boolean isDestinationPileRead = false;
-
     if (checkForNull(model)) {
       throw new IllegalArgumentException("model can't be null");
     }
 
     model.startGame(deck, shuffle);
 
-    writetoOut(model.getGameState());
+    writeGameStateToOut(model);
     writetoOut("\n");
 
-    Scanner scan = new Scanner(this.in).useDelimiter("\\s|\\n");
+    CommandLexer lexer = new CommandLexer(this.in);
 
     while (true) {
 
-      if (!scan.hasNext()) {
-        continue;
-      }
+      CommandLexer.CommandType command = lexer.nextCommand();
 
-      input = scan.next();
+      if (command == CommandLexer.CommandType.END) {
 
-      if (checkForNull(input)) {
-        continue;
-      }
+        writetoOut("Game quit prematurely. No more input.");
+        return;
 
-      if (input.length() == 0) {
-        continue;
       }
 
-      if (input.equals("q") || input.equals("Q")) {
+      if (command == CommandLexer.CommandType.QUIT) {
 
         writetoOut("Game quit prematurely.");
         return;
 
       }
 
-      if (!isSourcePileRead) {
-        if (!input.matches("^[OCF][0-9]+")) {
-          continue;
-        }
-        sourcePileType = getPileType(input.charAt(0));
-        sourcePileNumber = Integer.parseInt(input.substring(1));
-        isSourcePileRead = true;
-      }
-
-      if (!isCardIndexRead) {
-
-        if (!input.matches("[0-9]+")) {
-          continue;
-        }
-        sourceCardIndex = Integer.parseInt(input);
-
-        isCardIndexRead = true;
-
-      }
+      if (command == CommandLexer.CommandType.HINT) {
 
-      if (!isDestinationPileRead) {
+        writeHint(model);
+        continue;
 
-        if (!input.matches("^[OCF][0-9]+")) {
-          continue;
-        }
-        destinationPileType = getPileType(input.charAt(0));
-        destinationPileNumber = Integer.parseInt(input.substring(1));
-        isDestinationPileRead = true;
       }
 
-
-      if (isSourcePileRead && isCardIndexRead && isDestinationPileRead) {
-
-        isSourcePileRead = isCardIndexRead = isDestinationPileRead = false;
-        callMove(sourcePileType, sourcePileNumber, sourceCardIndex, destinationPileType,
-                destinationPileNumber, model);
-
-      }
+      callMove(lexer.getSourcePileType(), lexer.getSourcePileNumber(), lexer.getCardIndex(),
+              lexer.getDestinationPileType(), lexer.getDestinationPileNumber(), model);
 
       if (checkForGameOver(model)) {
         return;
@@ -161,35 +133,32 @@ public class FreecellController implements IFreecellController<Card> {
   }
 
   /**
-   * A private helper method to return the pile type based on the argument representing those
-   * piles.
+   * A private helper method to append the output to the Appendable object given the message as
+   * argument.
    *
-   * @param pileCharacter 'C' - cascade pile, 'O' - Open pile and 'F' - Foundation pile
-   * @return the corresponding pile type
+   * @param message string to be appended to the output.
+   * @throws IllegalStateException if the controller cannot transmit the output properly
    */
-  private PileType getPileType(char pileCharacter) {
-
-    switch (pileCharacter) {
-      case 'C':
-        return PileType.CASCADE;
-      case 'F':
-        return PileType.FOUNDATION;
-      default:
-        return PileType.OPEN;
+  private void writetoOut(String message) throws IllegalStateException {
+
+    try {
+      this.out.append(message);
+    } catch (IOException e) {
+      throw new IllegalStateException("controller is unable to transmit the output properly");
     }
   }
 
   /**
-   * A private helper method to append the output to the Appendable object given the message as
-   * argument.
+   * A private helper method to write the present state of the game to the Appendable object. The
+   * model writes the state straight to the Appendable, without building a string first.
    *
-   * @param message string to be appended to the output.
+   * @param model represents a Freecell game model
    * @throws IllegalStateException if the controller cannot transmit the output properly
    */
-  private void writetoOut(String message) throws IllegalStateException {
+  private void writeGameStateToOut(FreecellOperations<Card> model) throws IllegalStateException {
 
     try {
-      this.out.append(message);
+      model.writeGameState(this.out);
     } catch (IOException e) {
       throw new IllegalStateException("controller is unable to transmit the output properly");
     }
@@ -214,7 +183,9 @@ public class FreecellController implements IFreecellController<Card> {
   }
 
   /**
-   * Helper method to call move operation of model's move() method.
+   * Helper method to call move operation of model's tryMove() method. Models that tell why a
+   * move is rejected by its result don't throw an exception for it; the message of the result
+   * is transmitted, as is the message of the exception thrown by other models.
    *
    * @param sourcePileType        Type of the source pile.
    * @param sourcePileNumber      pile number of source card.
@@ -226,17 +197,66 @@ public class FreecellController implements IFreecellController<Card> {
 
   private void callMove(PileType sourcePileType, int sourcePileNumber, int sourceCardIndex,
                         PileType destinationPileType, int destinationPileNumber,
-                        FreecellOperations model) {
+                        FreecellOperations<Card> model) {
 
+    MoveResult result;
     try {
-      model.move(sourcePileType, sourcePileNumber - 1,
+      result = model.tryMove(sourcePileType, sourcePileNumber - 1,
               sourceCardIndex - 1, destinationPileType, destinationPileNumber - 1);
-      writetoOut(model.getGameState());
+    } catch (IllegalArgumentException e) {
+
+      writeInvalidMove(e.getMessage());
+      return;
+    }
+
+    if (result.isAccepted()) {
+      writeGameStateToOut(model);
       writetoOut("\n");
+    } else {
+      writeInvalidMove(result.getMessage());
+    }
+  }
+
+  /**
+   * A private helper method that searches for the move to be advised in the present position of
+   * the game and transmits it in the form of the input of a move. Models the hint engine can't
+   * search, such as mocks, get no hint.
+   *
+   * @param model represents a Freecell game model
+   * @throws IllegalStateException if the controller cannot transmit the output properly
+   */
+  private void writeHint(FreecellOperations<Card> model) throws IllegalStateException {
+
+    Hint hint;
+    try {
+      hint = hintEngine.hint(model, HINT_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
     } catch (IllegalArgumentException e) {
+      hint = null;
+    }
 
-      writetoOut("Invalid move. Try again." + " " + e.toString().substring(36) + "\n");
+    if (hint == null || !hint.hasMove()) {
+      writetoOut("No hint available.\n");
+      return;
     }
+
+    int move = hint.getMove();
+    writetoOut("Hint: " + CommandLexer.characterOf(MoveBuffer.source(move))
+            + (MoveBuffer.pileNumber(move) + 1) + " " + (MoveBuffer.cardIndex(move) + 1) + " "
+            + CommandLexer.characterOf(MoveBuffer.destination(move))
+            + (MoveBuffer.destPileNumber(move) + 1) + "\n");
+  }
+
+  /**
+   * A private helper method that tells the user that a move was invalid and why.
+   *
+   * @param reason the reason for which the move is invalid.
+   * @throws IllegalStateException if the controller cannot transmit the output properly
+   */
+  private void writeInvalidMove(String reason) throws IllegalStateException {
+
+    writetoOut("Invalid move. Try again. ");
+    writetoOut(reason);
+    writetoOut("\n");
   }
 
   /**
@@ -246,11 +266,11 @@ public class FreecellController implements IFreecellController<Card> {
    * @param model Represents a free cell model.
    * @return true if the game is over else false.
    */
-  private boolean checkForGameOver(FreecellOperations model) {
+  private boolean checkForGameOver(FreecellOperations<Card> model) {
 
     if (model.isGameOver()) {
 
-      writetoOut(model.getGameState());
+      writeGameStateToOut(model);
       writetoOut("\n");
       writetoOut("Game over.");
       return true;
@@ -12,7 +12,8 @@ public interface IFreecellController<K> {
 
   /**
    * Start and play a new game of freecell with the provided deck. This deck should be used as-is.
-   * This method returns only when the game is over (either by winning or by quitting)
+   * This method returns only when the game is over (either by winning or by quitting) or when
+   * there is no more input.
    *
    * @param deck    the deck to be used to play this game
    * @param model   the model for the game
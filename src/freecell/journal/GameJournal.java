@@ -0,0 +1,445 @@
+package freecell.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.NumberedDeals;
+import freecell.model.PileType;
+
+/**
+ * An append only journal of the games played by a process, from which the games in progress can
+ * be rebuilt once the process restarts. Each game is identified by a long chosen by the caller,
+ * and the journal records when it starts on one of the {@link NumberedDeals}, each move made,
+ * undone or redone in it and when it ends. A game is rebuilt by {@link #recover(Path)} by dealing
+ * its deal again and replaying its moves.
+ *
+ * <p>The records are written in segments, files of a fixed size in the journal's directory that
+ * are mapped in memory, so appending a record is two stores into memory: the operating system
+ * writes the pages to the file, and they survive the process crashing as soon as they are
+ * stored. When a segment is full it is forced to the disk and the journal rolls over to a new
+ * segment; {@link #sync()} forces the present segment whenever records must survive the machine
+ * crashing as well. A journal opened on a directory that holds segments starts a new segment
+ * after them, so the records of the previous runs of the process are kept.</p>
+ *
+ * <p>Each record is 16 bytes: the id of the game as a long, then a long holding a 32 bit payload
+ * (the deal number of a started game, whose sign bit tells if the game is played in autoplay
+ * mode, or the move packed by {@link MoveBuffer#pack}), 24 bits holding the kind of the record
+ * and, for a started game, its kind and numbers of piles, and a check byte computed from the
+ * rest of the record. The unused end of a segment is all zeros,
+ * and a record whose check byte doesn't match, torn by a crash while it was being stored, ends
+ * the records read from its segment.</p>
+ *
+ * <p>The methods that append records are synchronized, so a journal can be shared by the
+ * threads that play the games.</p>
+ */
+public final class GameJournal implements Closeable {
+
+  private static final int RECORD_SIZE = 16;
+  private static final String SEGMENT_SUFFIX = ".journal";
+  private static final int MAX_PILES = 1023;
+
+  private static final int START = 1;
+  private static final int MOVE = 2;
+  private static final int UNDO = 3;
+  private static final int REDO = 4;
+  private static final int END = 5;
+  private static final int MULTI_MOVE = 8;
+  private static final int AUTOPLAY = Integer.MIN_VALUE;
+
+  private final Path directory;
+  private final int segmentSize;
+  private long segmentNumber;
+  private MappedByteBuffer segment;
+  private int position;
+  private long recordCount;
+  private int segmentCount;
+  private boolean closed;
+
+  /**
+   * Constructs a journal with the given configuration, which opens its first segment when the
+   * first record is appended.
+   * @param directory the directory of the segments.
+   * @param segmentSize the size of the segments in bytes.
+   * @param segmentNumber the number of the last segment already in the directory.
+   */
+  private GameJournal(Path directory, int segmentSize, long segmentNumber) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.segmentNumber = segmentNumber;
+  }
+
+  /**
+   * A static inner class that helps in creating a GameJournal. By default the segments of a
+   * journal are 64 MB, which hold four million records each.
+   */
+  public static class JournalBuilder {
+
+    private int segmentSize;
+
+    /**
+     * A default constructor that assigns the default configuration.
+     */
+    private JournalBuilder() {
+      segmentSize = 64 << 20;
+    }
+
+    /**
+     * This method is used to configure the size of the segments of the journal.
+     * @param segmentSize the size of the segments in bytes, a positive multiple of 16.
+     * @return this builder.
+     * @throws IllegalArgumentException if the size isn't a positive multiple of 16.
+     */
+    public JournalBuilder segmentSize(int segmentSize) throws IllegalArgumentException {
+
+      if (segmentSize <= 0 || segmentSize % RECORD_SIZE != 0) {
+        throw new IllegalArgumentException("Segment size should be a positive multiple of 16");
+      }
+      this.segmentSize = segmentSize;
+      return this;
+    }
+
+    /**
+     * This method opens a journal in the given directory, which is created if it doesn't exist.
+     * @param directory the directory of the segments of the journal.
+     * @return the journal.
+     * @throws IOException if the directory can't be created or listed.
+     */
+    public GameJournal build(Path directory) throws IOException {
+
+      Files.createDirectories(directory);
+      List<Path> segments = segments(directory);
+      long lastSegment = segments.isEmpty() ? 0
+              : segmentNumber(segments.get(segments.size() - 1));
+      return new GameJournal(directory, segmentSize, lastSegment);
+    }
+  }
+
+  /**
+   * A static method that can be used by any class to create and use an object of type
+   * JournalBuilder.
+   * @return a new JournalBuilder.
+   */
+  public static JournalBuilder getBuilder() {
+    return new JournalBuilder();
+  }
+
+  /**
+   * Records that a game started on a numbered deal, dealt without shuffling. A game started
+   * again with the same id replaces the game that had it.
+   * @param gameId the id of the game.
+   * @param game the game, whose kind, numbers of piles and autoplay mode are recorded.
+   * @param deal the number of the deal.
+   * @throws IllegalArgumentException if the game has more than 1023 piles of a type or the deal
+   *                                  number isn't positive.
+   * @throws IOException if a new segment can't be created.
+   */
+  public synchronized void startGame(long gameId, FreeCellAbstractModel game, int deal)
+          throws IllegalArgumentException, IOException {
+
+    if (game.getOpenPilesCount() > MAX_PILES || game.getCascadePilesCount() > MAX_PILES) {
+      throw new IllegalArgumentException("Game has too many piles to be journaled");
+    }
+    if (deal <= 0) {
+      throw new IllegalArgumentException("Deal number should be positive");
+    }
+    append(gameId, deal | (game.isAutoplay() ? AUTOPLAY : 0),
+            START | (game instanceof FreecellMultiMoveModel ? MULTI_MOVE : 0)
+            | game.getOpenPilesCount() << 4 | game.getCascadePilesCount() << 14);
+  }
+
+  /**
+   * Records a valid move made in a game, with the arguments that were given to its move method.
+   * @param gameId the id of the game.
+   * @param source the type of the source pile.
+   * @param pileNumber the source pile number, starting at 0.
+   * @param cardIndex the index of the card moved, starting at 0.
+   * @param destination the type of the destination pile.
+   * @param destPileNumber the destination pile number, starting at 0.
+   * @throws IOException if a new segment can't be created.
+   */
+  public synchronized void move(long gameId, PileType source, int pileNumber, int cardIndex,
+                                PileType destination, int destPileNumber) throws IOException {
+    append(gameId, MoveBuffer.pack(source, pileNumber, cardIndex, destination, destPileNumber),
+            MOVE);
+  }
+
+  /**
+   * Records that the last move of a game was undone.
+   * @param gameId the id of the game.
+   * @throws IOException if a new segment can't be created.
+   */
+  public synchronized void undo(long gameId) throws IOException {
+    append(gameId, 0, UNDO);
+  }
+
+  /**
+   * Records that the last move undone in a game was redone.
+   * @param gameId the id of the game.
+   * @throws IOException if a new segment can't be created.
+   */
+  public synchronized void redo(long gameId) throws IOException {
+    append(gameId, 0, REDO);
+  }
+
+  /**
+   * Records that a game ended, so that it isn't rebuilt.
+   * @param gameId the id of the game.
+   * @throws IOException if a new segment can't be created.
+   */
+  public synchronized void endGame(long gameId) throws IOException {
+    append(gameId, 0, END);
+  }
+
+  /**
+   * Forces the records appended to the present segment to the disk.
+   */
+  public synchronized void sync() {
+    if (segment != null) {
+      segment.force();
+    }
+  }
+
+  /**
+   * Provides the number of records appended to this journal.
+   * @return the number of records.
+   */
+  public synchronized long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Provides the number of segments created by this journal.
+   * @return the number of segments.
+   */
+  public synchronized int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Forces the present segment to the disk and releases it. Records can't be appended once the
+   * journal is closed.
+   */
+  @Override
+  public synchronized void close() {
+    sync();
+    segment = null;
+    closed = true;
+  }
+
+  /**
+   * A helper method that appends a record to the present segment, rolling over to a new segment
+   * if it is full.
+   * @param gameId the id of the game.
+   * @param payload the payload of the record.
+   * @param info the kind of the record and its flags.
+   * @throws IOException if a new segment can't be created.
+   * @throws IllegalStateException if the journal is closed.
+   */
+  private void append(long gameId, int payload, int info) throws IOException {
+
+    if (segment == null || position == segmentSize) {
+      rollOver();
+    }
+    long content = (long) payload << 32 | (long) info << 8;
+    segment.putLong(position, gameId);
+    segment.putLong(position + 8, content | check(gameId, content));
+    position += RECORD_SIZE;
+    recordCount++;
+  }
+
+  /**
+   * A helper method that forces the present segment to the disk and maps a new one.
+   * @throws IOException if the new segment can't be created.
+   * @throws IllegalStateException if the journal is closed.
+   */
+  private void rollOver() throws IOException, IllegalStateException {
+
+    if (closed) {
+      throw new IllegalStateException("Journal is closed");
+    }
+    if (segment != null) {
+      segment.force();
+    }
+
+    segmentNumber++;
+    Path path = directory.resolve(String.format(Locale.ROOT, "%016d%s", segmentNumber,
+            SEGMENT_SUFFIX));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+    position = 0;
+    segmentCount++;
+  }
+
+  /**
+   * Rebuilds the games in progress recorded in the segments of a directory, as described by
+   * {@link #recover(Path, Map)}, dropping the games that can't be rebuilt.
+   * @param directory the directory of the segments of the journal.
+   * @return the games in progress by their ids.
+   * @throws IOException if the segments can't be read.
+   */
+  public static Map<Long, FreeCellAbstractModel> recover(Path directory) throws IOException {
+    return recover(directory, new HashMap<>());
+  }
+
+  /**
+   * Rebuilds the games in progress recorded in the segments of a directory, i.e. those that
+   * started and didn't end, by dealing their deals and replaying their moves in the order in
+   * which they were recorded. The games are stored in packed boards and can undo their moves
+   * replayed this way. A game with a record that can't be replayed, such as a move that isn't
+   * valid in it or a move of a game that didn't start, is dropped and its later records are
+   * skipped until it starts again, so that the other games are still rebuilt; the reason it was
+   * dropped is put in the given map.
+   * @param directory the directory of the segments of the journal.
+   * @param failures the map in which the reasons of the games dropped are put by their ids.
+   * @return the games in progress by their ids.
+   * @throws IOException if the segments can't be read.
+   */
+  public static Map<Long, FreeCellAbstractModel> recover(Path directory,
+                                                         Map<Long, String> failures)
+          throws IOException {
+
+    Map<Long, FreeCellAbstractModel> games = new HashMap<>();
+    if (!Files.isDirectory(directory)) {
+      return games;
+    }
+
+    for (Path path : segments(directory)) {
+      MappedByteBuffer segment;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+
+      for (int position = 0; position + RECORD_SIZE <= segment.limit();
+           position += RECORD_SIZE) {
+        long gameId = segment.getLong(position);
+        long content = segment.getLong(position + 8);
+        int info = (int) (content >>> 8) & 0xFFFFFF;
+        if ((info & 7) == 0 || (content & 0xFF) != check(gameId, content & ~0xFFL)) {
+          break;
+        }
+        if ((info & 7) != START && failures.containsKey(gameId) && !games.containsKey(gameId)) {
+          continue;
+        }
+        try {
+          replay(games, gameId, (int) (content >>> 32), info);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+          games.remove(gameId);
+          failures.put(gameId, "Record " + position / RECORD_SIZE + " of " + path.getFileName()
+                  + " can't be replayed: " + e.getMessage());
+        }
+      }
+    }
+    return games;
+  }
+
+  /**
+   * A helper method that applies a record to the games being rebuilt.
+   * @param games the games being rebuilt by their ids.
+   * @param gameId the id of the game of the record.
+   * @param payload the payload of the record.
+   * @param info the kind of the record and its flags.
+   * @throws IllegalArgumentException if the record is a move that isn't valid, or if its game
+   *                                  didn't start.
+   * @throws IllegalStateException if the record undoes or redoes a move that doesn't exist.
+   */
+  private static void replay(Map<Long, FreeCellAbstractModel> games, long gameId, int payload,
+                             int info) throws IllegalArgumentException, IllegalStateException {
+
+    int kind = info & 7;
+    if (kind == START) {
+      FreecellOperationsBuilder builder = (info & MULTI_MOVE) != 0
+              ? FreecellMultiMoveModel.getBuilder() : FreecellModel.getBuilder();
+      builder.opens(info >>> 4 & MAX_PILES).cascades(info >>> 14 & MAX_PILES).packed();
+      if ((payload & AUTOPLAY) != 0) {
+        builder.autoplay();
+      }
+      FreecellOperations<Card> built = builder.build();
+      FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+      game.startGame(NumberedDeals.deal(payload & ~AUTOPLAY), false);
+      games.put(gameId, game);
+      return;
+    }
+
+    FreeCellAbstractModel game = kind == END ? games.remove(gameId) : games.get(gameId);
+    if (game == null) {
+      throw new IllegalArgumentException("Game " + gameId + " didn't start");
+    }
+    switch (kind) {
+      case MOVE:
+        game.move(MoveBuffer.source(payload), MoveBuffer.pileNumber(payload),
+                MoveBuffer.cardIndex(payload), MoveBuffer.destination(payload),
+                MoveBuffer.destPileNumber(payload));
+        break;
+      case UNDO:
+        game.undo();
+        break;
+      case REDO:
+        game.redo();
+        break;
+      case END:
+        break;
+      default:
+        throw new IllegalArgumentException("Record kind " + kind + " is invalid");
+    }
+  }
+
+  /**
+   * A helper method that computes the check byte of a record.
+   * @param gameId the id of the game of the record.
+   * @param content the second long of the record, without its check byte.
+   * @return the check byte.
+   */
+  private static long check(long gameId, long content) {
+    return (gameId ^ Long.rotateLeft(content, 29)) * 0x9E3779B97F4A7C15L >>> 56;
+  }
+
+  /**
+   * A helper method that lists the segments of a directory in the order they were created.
+   * @param directory the directory.
+   * @return the paths of the segments.
+   * @throws IOException if the directory can't be listed.
+   */
+  private static List<Path> segments(Path directory) throws IOException {
+
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+            "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        segments.add(path);
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  /**
+   * A helper method that provides the number of a segment from its file name.
+   * @param path the path of the segment.
+   * @return the number of the segment.
+   */
+  private static long segmentNumber(Path path) {
+    String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
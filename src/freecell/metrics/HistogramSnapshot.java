@@ -0,0 +1,92 @@
+package freecell.metrics;
+
+import java.util.Locale;
+
+/**
+ * An immutable snapshot of a histogram of latencies in nanoseconds. Percentiles are reported as
+ * the highest value of the bucket that holds them, which is within 1/32 of the latencies that
+ * were recorded, and never above the highest latency recorded.
+ */
+public final class HistogramSnapshot {
+
+  private final long[] counts;
+  private final long count;
+  private final long total;
+  private final long max;
+
+  /**
+   * Constructs a snapshot from the counts of the buckets of a histogram.
+   * @param counts the count of each bucket, which isn't copied.
+   * @param total the sum of the latencies recorded.
+   * @param max the highest latency recorded.
+   */
+  HistogramSnapshot(long[] counts, long total, long max) {
+
+    long count = 0;
+    for (long bucketCount : counts) {
+      count += bucketCount;
+    }
+    this.counts = counts;
+    this.count = count;
+    this.total = total;
+    this.max = max;
+  }
+
+  /**
+   * A method that provides the number of latencies recorded.
+   * @return the number of latencies.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * A method that provides the highest latency recorded.
+   * @return the highest latency in nanoseconds, 0 if none was recorded.
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * A method that provides the mean of the latencies recorded.
+   * @return the mean latency in nanoseconds, 0 if none was recorded.
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  /**
+   * A method that provides a percentile of the latencies recorded, i.e. the latency that the
+   * given percentage of the latencies don't exceed.
+   * @param percentile the percentile, between 0 and 100.
+   * @return the latency in nanoseconds, 0 if none was recorded.
+   * @throws IllegalArgumentException if the percentile isn't between 0 and 100.
+   */
+  public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Percentile should be between 0 and 100");
+    }
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int bucket = 0; bucket < counts.length; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return Math.min(LatencyHistogram.highestValueOf(bucket), max);
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT,
+            "count=%d mean=%.0fns p50=%dns p99=%dns p99.9=%dns max=%dns", count, getMean(),
+            getValueAtPercentile(50), getValueAtPercentile(99), getValueAtPercentile(99.9), max);
+  }
+}
@@ -0,0 +1,251 @@
+package freecell.metrics;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import freecell.model.FreecellOperations;
+import freecell.model.MoveResult;
+import freecell.model.PileType;
+
+/**
+ * A FreecellOperations that wraps another one and measures it: it records the latency of each
+ * call of startGame, move, isGameOver, getGameState and writeGameState in a histogram of its
+ * operation, tryMove counting as move, records the latency of each move in a histogram of its
+ * source and destination pile types as well, and counts the moves and decks rejected, by the
+ * message of their exception or of the result of tryMove. Calls are passed to the wrapped
+ * operations unchanged, and exceptions are thrown back unchanged.
+ *
+ * <p>Measuring is switched on and off at runtime with setEnabled; when it is off, a call costs
+ * one volatile read more than a call of the wrapped operations. Recording is lock free, so the
+ * wrapped operations can be called by several threads, as long as they can be themselves, while
+ * another thread pulls snapshots of the measures.</p>
+ *
+ * @param <K> the type of the cards.
+ */
+public final class InstrumentedOperations<K> implements FreecellOperations<K> {
+
+  /**
+   * The operations whose latency is measured.
+   */
+  public enum Operation {
+    START_GAME, MOVE, IS_GAME_OVER, GET_GAME_STATE, WRITE_GAME_STATE
+  }
+
+  private static final int PILE_TYPES = PileType.values().length;
+  private static final String UNKNOWN_REASON = "Unknown";
+
+  private final FreecellOperations<K> delegate;
+  private final LatencyHistogram[] operations;
+  private final LatencyHistogram[] moves;
+  private final ConcurrentHashMap<String, LongAdder> rejections;
+  private volatile boolean enabled;
+
+  /**
+   * Constructs instrumented operations around the given ones, with measuring switched on.
+   * @param delegate the operations to be measured.
+   * @throws IllegalArgumentException if the operations are null.
+   */
+  public InstrumentedOperations(FreecellOperations<K> delegate) throws IllegalArgumentException {
+
+    if (delegate == null) {
+      throw new IllegalArgumentException("Operations can't be null");
+    }
+    this.delegate = delegate;
+    this.operations = new LatencyHistogram[Operation.values().length];
+    for (int index = 0; index < operations.length; index++) {
+      operations[index] = new LatencyHistogram();
+    }
+    this.moves = new LatencyHistogram[PILE_TYPES * PILE_TYPES];
+    for (int index = 0; index < moves.length; index++) {
+      moves[index] = new LatencyHistogram();
+    }
+    this.rejections = new ConcurrentHashMap<>();
+    this.enabled = true;
+  }
+
+  /**
+   * A method that provides the wrapped operations.
+   * @return the wrapped operations.
+   */
+  public FreecellOperations<K> getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * A method that switches measuring on or off. What was measured so far is kept.
+   * @param enabled true to measure the calls, false to only pass them on.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * A method that tells if measuring is switched on.
+   * @return true if the calls are measured.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * A method that takes a snapshot of what was measured so far. The snapshot doesn't change when
+   * more calls are measured; the measures are cumulative, so the calls measured between two
+   * snapshots are told by their difference.
+   * @return the snapshot.
+   */
+  public MetricsSnapshot snapshot() {
+
+    HistogramSnapshot[] operationSnapshots = new HistogramSnapshot[operations.length];
+    for (int index = 0; index < operations.length; index++) {
+      operationSnapshots[index] = operations[index].snapshot();
+    }
+    HistogramSnapshot[] moveSnapshots = new HistogramSnapshot[moves.length];
+    for (int index = 0; index < moves.length; index++) {
+      moveSnapshots[index] = moves[index].snapshot();
+    }
+    Map<String, Long> rejectionCounts = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : rejections.entrySet()) {
+      rejectionCounts.put(entry.getKey(), entry.getValue().sum());
+    }
+    return new MetricsSnapshot(operationSnapshots, moveSnapshots, rejectionCounts);
+  }
+
+  @Override
+  public List<K> getDeck() {
+    return delegate.getDeck();
+  }
+
+  @Override
+  public void startGame(List<K> deck, boolean shuffle) throws IllegalArgumentException {
+
+    if (!enabled) {
+      delegate.startGame(deck, shuffle);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      delegate.startGame(deck, shuffle);
+    } catch (IllegalArgumentException e) {
+      reject(e.getMessage());
+      throw e;
+    } finally {
+      operations[Operation.START_GAME.ordinal()].record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void move(PileType source, int pileNumber, int cardIndex, PileType destination,
+                   int destPileNumber) throws IllegalArgumentException, IllegalStateException {
+
+    if (!enabled) {
+      delegate.move(source, pileNumber, cardIndex, destination, destPileNumber);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      delegate.move(source, pileNumber, cardIndex, destination, destPileNumber);
+    } catch (IllegalArgumentException e) {
+      reject(e.getMessage());
+      throw e;
+    } finally {
+      recordMove(source, destination, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public MoveResult tryMove(PileType source, int pileNumber, int cardIndex, PileType destination,
+                            int destPileNumber) throws IllegalArgumentException,
+          IllegalStateException {
+
+    if (!enabled) {
+      return delegate.tryMove(source, pileNumber, cardIndex, destination, destPileNumber);
+    }
+    long start = System.nanoTime();
+    MoveResult result;
+    try {
+      result = delegate.tryMove(source, pileNumber, cardIndex, destination, destPileNumber);
+    } catch (IllegalArgumentException e) {
+      reject(e.getMessage());
+      throw e;
+    } finally {
+      recordMove(source, destination, System.nanoTime() - start);
+    }
+    if (!result.isAccepted()) {
+      reject(result.getMessage());
+    }
+    return result;
+  }
+
+  @Override
+  public boolean isGameOver() {
+
+    if (!enabled) {
+      return delegate.isGameOver();
+    }
+    long start = System.nanoTime();
+    try {
+      return delegate.isGameOver();
+    } finally {
+      operations[Operation.IS_GAME_OVER.ordinal()].record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public String getGameState() {
+
+    if (!enabled) {
+      return delegate.getGameState();
+    }
+    long start = System.nanoTime();
+    try {
+      return delegate.getGameState();
+    } finally {
+      operations[Operation.GET_GAME_STATE.ordinal()].record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void writeGameState(Appendable out) throws IOException {
+
+    if (!enabled) {
+      delegate.writeGameState(out);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      delegate.writeGameState(out);
+    } finally {
+      operations[Operation.WRITE_GAME_STATE.ordinal()].record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * A helper method that records the latency of a move, or of a tried move, in the histogram of
+   * the moves and in the histogram of its pile types.
+   */
+  private void recordMove(PileType source, PileType destination, long elapsed) {
+
+    operations[Operation.MOVE.ordinal()].record(elapsed);
+    if (source != null && destination != null) {
+      moves[source.ordinal() * PILE_TYPES + destination.ordinal()].record(elapsed);
+    }
+  }
+
+  /**
+   * A helper method that counts a rejection by its message. The counter of a message is only
+   * allocated the first time the message is seen.
+   */
+  private void reject(String message) {
+
+    String reason = message == null ? UNKNOWN_REASON : message;
+    LongAdder counter = rejections.get(reason);
+    if (counter == null) {
+      counter = rejections.computeIfAbsent(reason, key -> new LongAdder());
+    }
+    counter.increment();
+  }
+}
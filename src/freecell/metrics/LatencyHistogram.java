@@ -0,0 +1,99 @@
+package freecell.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A package protected histogram of latencies in nanoseconds, laid out like an HDR histogram:
+ * values below 64 have a bucket each, and each higher power of two is split into 32 buckets of
+ * equal width, so a value is known within 1/32 of itself whatever its magnitude. Values up to
+ * 2^40 nanoseconds, about 18 minutes, are told apart; higher values are counted in the last
+ * bucket.
+ *
+ * <p>Recording a value is lock free and allocates nothing: it increments the count of its bucket
+ * and adds it to the total with atomic operations, so many threads can record into the same
+ * histogram while another takes snapshots of it.</p>
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+  /**
+   * The number of buckets of a histogram.
+   */
+  static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final LongAdder total;
+  private final AtomicLong max;
+
+  /**
+   * Constructs an empty histogram.
+   */
+  LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKETS);
+    total = new LongAdder();
+    max = new AtomicLong();
+  }
+
+  /**
+   * Records a latency.
+   * @param nanos the latency in nanoseconds, negative latencies being recorded as 0.
+   */
+  void record(long nanos) {
+
+    long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+    counts.incrementAndGet(bucketOf(value));
+    total.add(value);
+    if (value > max.get()) {
+      max.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * Takes a snapshot of the histogram. The snapshot is consistent for each bucket, but values
+   * recorded while it is taken may be in some of its buckets and not yet in its total.
+   * @return the snapshot.
+   */
+  HistogramSnapshot snapshot() {
+
+    long[] bucketCounts = new long[BUCKETS];
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      bucketCounts[bucket] = counts.get(bucket);
+    }
+    return new HistogramSnapshot(bucketCounts, total.sum(), max.get());
+  }
+
+  /**
+   * Provides the bucket of a value.
+   * @param value the value, between 0 and 2^41 - 1.
+   * @return the index of its bucket.
+   */
+  static int bucketOf(long value) {
+
+    if (value < 2 * SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  /**
+   * Provides the highest value counted in a bucket.
+   * @param bucket the index of the bucket.
+   * @return the highest value of the bucket.
+   */
+  static long highestValueOf(int bucket) {
+
+    if (bucket < 2 * SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (bucket - shift * SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
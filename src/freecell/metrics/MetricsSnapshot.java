@@ -0,0 +1,111 @@
+package freecell.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+import freecell.metrics.InstrumentedOperations.Operation;
+import freecell.model.PileType;
+
+/**
+ * An immutable snapshot of the measures of instrumented operations: a latency histogram for
+ * each operation, a latency histogram of the moves for each pair of source and destination pile
+ * types, and the number of rejections for each reason.
+ */
+public final class MetricsSnapshot {
+
+  private static final int PILE_TYPES = PileType.values().length;
+
+  private final HistogramSnapshot[] operations;
+  private final HistogramSnapshot[] moves;
+  private final Map<String, Long> rejections;
+
+  /**
+   * Constructs a snapshot. The arrays and the map aren't copied.
+   * @param operations the histogram of each operation, by ordinal.
+   * @param moves the histogram of the moves of each pair of pile types, by source ordinal times
+   *              the number of pile types plus destination ordinal.
+   * @param rejections the number of rejections by reason.
+   */
+  MetricsSnapshot(HistogramSnapshot[] operations, HistogramSnapshot[] moves,
+                  Map<String, Long> rejections) {
+    this.operations = operations;
+    this.moves = moves;
+    this.rejections = Collections.unmodifiableMap(rejections);
+  }
+
+  /**
+   * A method that provides the latency histogram of an operation.
+   * @param operation the operation.
+   * @return the histogram of its latencies.
+   * @throws IllegalArgumentException if the operation is null.
+   */
+  public HistogramSnapshot getOperation(Operation operation) throws IllegalArgumentException {
+
+    if (operation == null) {
+      throw new IllegalArgumentException("Operation can't be null");
+    }
+    return operations[operation.ordinal()];
+  }
+
+  /**
+   * A method that provides the latency histogram of the moves from a type of pile to another,
+   * rejected moves included.
+   * @param source the type of the source piles.
+   * @param destination the type of the destination piles.
+   * @return the histogram of the latencies of these moves.
+   * @throws IllegalArgumentException if a pile type is null.
+   */
+  public HistogramSnapshot getMove(PileType source, PileType destination)
+          throws IllegalArgumentException {
+
+    if (source == null || destination == null) {
+      throw new IllegalArgumentException("Pile type can't be null");
+    }
+    return moves[source.ordinal() * PILE_TYPES + destination.ordinal()];
+  }
+
+  /**
+   * A method that provides the number of calls rejected with an IllegalArgumentException, by
+   * the message of the exception.
+   * @return an unmodifiable map from reasons to counts, sorted by reason.
+   */
+  public Map<String, Long> getRejections() {
+    return rejections;
+  }
+
+  /**
+   * A method that provides the total number of calls rejected with an IllegalArgumentException.
+   * @return the number of rejections.
+   */
+  public long getRejectionCount() {
+
+    long count = 0;
+    for (long reasonCount : rejections.values()) {
+      count += reasonCount;
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+
+    StringBuilder out = new StringBuilder();
+    for (Operation operation : Operation.values()) {
+      out.append(operation).append(": ").append(operations[operation.ordinal()]).append('\n');
+    }
+    for (PileType source : PileType.values()) {
+      for (PileType destination : PileType.values()) {
+        HistogramSnapshot histogram = getMove(source, destination);
+        if (histogram.getCount() > 0) {
+          out.append(source).append(" -> ").append(destination).append(": ").append(histogram)
+                  .append('\n');
+        }
+      }
+    }
+    for (Map.Entry<String, Long> entry : rejections.entrySet()) {
+      out.append("Rejected \"").append(entry.getKey()).append("\": ").append(entry.getValue())
+              .append('\n');
+    }
+    return out.toString();
+  }
+}
@@ -0,0 +1,114 @@
+package freecell.model;
+
+/**
+ * A package protected interface that represents the storage of the cards of a free cell game
+ * i.e. its foundation, open and cascade piles. The rules of the game are implemented by the
+ * models on top of this interface, so the way the piles are stored can be changed without
+ * changing the rules.
+ *
+ * <p>Pile numbers and card indices passed to these methods are expected to have already been
+ * validated by the model. Cards are always added to and removed from the top of a pile.</p>
+ */
+interface Board {
+
+  /**
+   * Removes all the cards from all the piles of the board.
+   */
+  void clear();
+
+  /**
+   * A method that tells if the board doesn't hold any card i.e. the game hasn't been started.
+   * @return true if there are no cards in any of the piles, false otherwise.
+   */
+  boolean isEmpty();
+
+  /**
+   * A method that provides the number of cards in a cascade pile.
+   * @param pileNumber the cascade pile number, starting at 0.
+   * @return the number of cards in the pile, 0 if it is empty.
+   */
+  int cascadeSize(int pileNumber);
+
+  /**
+   * A method that provides a card from a cascade pile.
+   * @param pileNumber the cascade pile number, starting at 0.
+   * @param cardIndex the index of the card in the pile, starting at 0.
+   * @return the card at the given position.
+   */
+  Card cascadeCard(int pileNumber, int cardIndex);
+
+  /**
+   * A method that provides the number of cards in a foundation pile.
+   * @param pileNumber the foundation pile number, starting at 0.
+   * @return the number of cards in the pile, 0 if it is empty.
+   */
+  int foundationSize(int pileNumber);
+
+  /**
+   * A method that provides a card from a foundation pile.
+   * @param pileNumber the foundation pile number, starting at 0.
+   * @param cardIndex the index of the card in the pile, starting at 0.
+   * @return the card at the given position.
+   */
+  Card foundationCard(int pileNumber, int cardIndex);
+
+  /**
+   * A method that provides the card held by an open pile.
+   * @param pileNumber the open pile number, starting at 0.
+   * @return the card in the open pile or null if the pile is empty.
+   */
+  Card openCard(int pileNumber);
+
+  /**
+   * A method that provides the number of cascade piles that don't hold any card.
+   * @return the number of empty cascade piles.
+   */
+  int emptyCascadePiles();
+
+  /**
+   * A method that provides the number of open piles that don't hold any card.
+   * @return the number of empty open piles.
+   */
+  int emptyOpenPiles();
+
+  /**
+   * Adds a card on top of a cascade pile.
+   * @param pileNumber the cascade pile number, starting at 0.
+   * @param card the card to be added.
+   */
+  void addToCascade(int pileNumber, Card card);
+
+  /**
+   * Adds a card on top of a foundation pile.
+   * @param pileNumber the foundation pile number, starting at 0.
+   * @param card the card to be added.
+   */
+  void addToFoundation(int pileNumber, Card card);
+
+  /**
+   * Places a card in an empty open pile.
+   * @param pileNumber the open pile number, starting at 0.
+   * @param card the card to be placed.
+   */
+  void addToOpen(int pileNumber, Card card);
+
+  /**
+   * Removes the card at the given index and all the cards above it from a cascade pile.
+   * @param pileNumber the cascade pile number, starting at 0.
+   * @param cardIndex the index of the lowest card to be removed.
+   */
+  void removeFromCascade(int pileNumber, int cardIndex);
+
+  /**
+   * Removes the card at the given index and all the cards above it from a foundation pile.
+   * @param pileNumber the foundation pile number, starting at 0.
+   * @param cardIndex the index of the lowest card to be removed.
+   */
+  void removeFromFoundation(int pileNumber, int cardIndex);
+
+  /**
+   * Removes the card held by an open pile.
+   * @param pileNumber the open pile number, starting at 0.
+   */
+  void removeFromOpen(int pileNumber);
+}
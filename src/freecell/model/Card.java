@@ -4,11 +4,29 @@ package freecell.model;
  * A package protected class that represents a card in a deck.
  * Each card has a face value,color and  suit associated with it and each card
  * has getter methods to retrieve it's color, suit and it's face value.
+ *
+ * <p>There are exactly 52 instances of this class, one for each card of the deck, which are
+ * created once and shared by all the games. Each card has a dense id between 0 and 51,
+ * {@code 13 * suit + face}, so two cards are equal only if they are the same instance and
+ * the id of a card is also its hash code.</p>
  */
 public class Card {
 
+  private static final Card[] CARDS = new Card[52];
+
+  static {
+    for (Suit suit : Suit.values()) {
+      for (Face face : Face.values()) {
+        Card card = new Card(suit, face);
+        CARDS[card.id] = card;
+      }
+    }
+  }
+
   private final Suit suit;
   private final Face faceValue;
+  private final int id;
+  private final String glyph;
 
   /**
    * A constructor to construct a card when
@@ -16,18 +34,44 @@ public class Card {
    * @param suit represent the suit of a card
    * @param faceValue represents the face value of a card.
    */
-  Card(Suit suit, Face faceValue) {
+  private Card(Suit suit, Face faceValue) {
 
     this.suit = suit;
     this.faceValue = faceValue;
+    this.id = suit.ordinal() * 13 + faceValue.ordinal();
+    this.glyph = faceValue.associatedValue() + suit.getSuitSymbol();
+  }
+
+  /**
+   * A method that provides the card of the given suit and face value.
+   * @param suit represent the suit of the card
+   * @param faceValue represents the face value of the card.
+   * @return the only instance of that card.
+   */
+  static Card valueOf(Suit suit, Face faceValue) {
+    return CARDS[suit.ordinal() * 13 + faceValue.ordinal()];
   }
 
   /**
-   * Default constructor that assigns default suit as Hearts and default face value as 'A'.
+   * A method that provides the card with the given id.
+   * @param id the id of the card, between 0 and 51.
+   * @return the only instance of that card.
+   * @throws IllegalArgumentException if the id isn't between 0 and 51.
    */
-  Card() {
-    this.suit = Suit.HEART;
-    this.faceValue = Face.A;
+  public static Card fromId(int id) throws IllegalArgumentException {
+
+    if (id < 0 || id >= CARDS.length) {
+      throw new IllegalArgumentException("Card id should be between 0 and 51");
+    }
+    return CARDS[id];
+  }
+
+  /**
+   * A method that provides the id of the card, which is {@code 13 * suit + face}.
+   * @return the id of the card, between 0 and 51.
+   */
+  public int getId() {
+    return id;
   }
 
   /**
@@ -63,33 +107,23 @@ public class Card {
   /**
    * provides string representation of each card.
    * Each card is represented in it's string form as
-   * Face value followed by it's suit's symbol.
+   * Face value followed by it's suit's symbol. The string is rendered once, when the card
+   * is created, so this method doesn't allocate.
    * @return
    */
   public String toString() {
-    return this.getFaceValue().associatedValue() + this.getSuit().getSuitSymbol();
+    return glyph;
   }
 
   @Override
   public boolean equals(Object o) {
-    if (this == o) {
-      return true;
-    }
-
-    if (!( o instanceof Card )) {
-      return false;
-    }
-
-    Card otherCard = (Card) o;
-
-    return ( this.getFaceValue() == otherCard.getFaceValue()
-            && this.getSuit() == otherCard.getSuit() );
+    return this == o;
   }
 
   @Override
   public int hashCode() {
 
-    return 32 * faceValue.ordinal() + 32 * suit.ordinal();
+    return id;
   }
 
 }
@@ -1,13 +1,10 @@
 package freecell.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 /**
  * An abstract class that implements the FreecellOperations interface
@@ -17,12 +14,25 @@ import java.util.TreeMap;
  */
 public abstract class FreeCellAbstractModel implements FreecellOperations<Card> {
 
+  private static final long FULL_DECK_MASK = (1L << 52) - 1;
+  private static final Suit[] SUITS = Suit.values();
+  private static final int RANKS = Face.values().length;
+  private static final int NOT_EXPOSED = -1;
+
   protected final List<Card> deck;
   protected final int openPilesCount;
   protected final int cascadePilesCount;
-  protected final SortedMap<Integer, List<Card>> foundationPiles;
-  protected final SortedMap<Integer, List<Card>> cascadePiles;
-  protected final SortedMap<Integer, Card> openPiles;
+  protected final boolean packed;
+  protected final int undoLimit;
+  protected final boolean autoplay;
+  protected final Board board;
+  private final GameStateCache gameStateCache;
+  private final MoveJournal journal;
+  private final MoveBuffer autoMoves;
+  private final int[] exposedCards;
+  private final int[] foundationOfSuit;
+  private final int[] foundationRanks;
+  private long positionHash;
 
   /**
    * Package protected constructor that is called as part of building the corresponding concrete
@@ -31,14 +41,32 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    *
    * @param openPilesCount    the number of open piles
    * @param casCadePilesCount the number of cascade piles
+   * @param packed            true if the piles are to be stored in a PackedBoard, false if they
+   *                          are to be stored in a MappedBoard
+   * @param undoLimit         the maximum number of moves that can be undone, or -1 if any number
+   *                          of moves can be undone
+   * @param autoplay          true if the cards that are safe to be moved to the foundation piles
+   *                          are moved there after the deal and after each move
    */
-  protected FreeCellAbstractModel(int openPilesCount,int casCadePilesCount) {
+  protected FreeCellAbstractModel(int openPilesCount,int casCadePilesCount, boolean packed,
+                                  int undoLimit, boolean autoplay) {
     deck = constructDeck();
     this.openPilesCount = openPilesCount;
     this.cascadePilesCount = casCadePilesCount;
-    foundationPiles = new TreeMap<>();
-    cascadePiles = new TreeMap<>();
-    openPiles = new TreeMap<>();
+    this.packed = packed;
+    this.undoLimit = undoLimit;
+    this.autoplay = autoplay;
+    if (packed) {
+      board = new PackedBoard(openPilesCount, casCadePilesCount);
+    } else {
+      board = new MappedBoard(openPilesCount, casCadePilesCount);
+    }
+    gameStateCache = new GameStateCache(openPilesCount, casCadePilesCount);
+    journal = new MoveJournal(undoLimit);
+    autoMoves = new MoveBuffer();
+    exposedCards = new int[52];
+    foundationOfSuit = new int[SUITS.length];
+    foundationRanks = new int[SUITS.length];
   }
 
   /**
@@ -51,10 +79,10 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
     List<Card> deck = new ArrayList<>();
 
     for (int i = 12; i >= 0; i--) {
-      deck.add(new Card(Suit.SPADE, Face.values()[i]));
-      deck.add(new Card(Suit.CLUB, Face.values()[i]));
-      deck.add(new Card(Suit.DIAMOND, Face.values()[i]));
-      deck.add(new Card(Suit.HEART, Face.values()[i]));
+      deck.add(Card.valueOf(Suit.SPADE, Face.values()[i]));
+      deck.add(Card.valueOf(Suit.CLUB, Face.values()[i]));
+      deck.add(Card.valueOf(Suit.DIAMOND, Face.values()[i]));
+      deck.add(Card.valueOf(Suit.HEART, Face.values()[i]));
     }
     return deck;
   }
@@ -78,7 +106,9 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    * 4th pile will get cards 3, 7, 11, .... Depending on the number of cascade
    * piles, they may have a different number of cards. This implementation also
    * resets the entire game at any state of game when this method is called once
-   * the game has already started.
+   * the game has already started, forgetting the moves that could be undone. Each call is
+   * reported to the Flight Recorder as a freecell.StartGame event while a recording has the
+   * event enabled.
    *
    * @param deck    the deck to be dealt
    * @param shuffle if true, shuffle the deck else deal the deck as-is
@@ -86,6 +116,36 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    */
   public void startGame(List<Card> deck, boolean shuffle) throws IllegalArgumentException {
 
+    StartGameEvent event = new StartGameEvent();
+    event.begin();
+    boolean succeeded = false;
+    try {
+      deal(deck, shuffle);
+      succeeded = true;
+      if (autoplay) {
+        autoMoves.clear();
+        autoplay(autoMoves);
+      }
+    } finally {
+      if (event.shouldCommit()) {
+        event.cascadePiles = cascadePilesCount;
+        event.openPiles = openPilesCount;
+        event.shuffled = shuffle;
+        event.succeeded = succeeded;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * A helper method that deals a game as described by startGame.
+   *
+   * @param deck    the deck to be dealt
+   * @param shuffle if true, shuffle the deck else deal the deck as-is
+   * @throws IllegalArgumentException if the deck is invalid
+   */
+  private void deal(List<Card> deck, boolean shuffle) throws IllegalArgumentException {
+
     if (deck == null) {
       throw new IllegalArgumentException("Provided deck of cards is invalid");
     }
@@ -96,35 +156,262 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
 
     }
 
-    cascadePiles.clear();
-    foundationPiles.clear();
-    openPiles.clear();
+    board.clear();
+    gameStateCache.invalidateAll();
+    journal.clear();
+    positionHash = 0L;
 
     //If shuffle is true, mixing the order of cards in the list using Collections.shuffle()
     if (shuffle) {
       Collections.shuffle(deck);
     }
 
-    for (int cascadePileNumber = 0; cascadePileNumber < cascadePilesCount; cascadePileNumber++) {
-
-      cascadePiles.put(cascadePileNumber, new ArrayList<>());
-    }
     //Distributing cards in round robin fashion
     for (int deckCount = 0; deckCount < deck.size(); deckCount++) {
 
-      int cascadePileNumber = deckCount % cascadePiles.size();
-      cascadePiles.get(cascadePileNumber).add(deck.get(deckCount));
+      int cascadePileNumber = deckCount % cascadePilesCount;
+      addToPile(PileType.CASCADE, cascadePileNumber, deck.get(deckCount));
 
     }
   }
 
+  /**
+   * Move cards from the given source pile to the given destination pile, if the move is valid,
+   * as described by makeMove. This method throws the exception of the result of
+   * {@link #tryMove} when the move is rejected.
+   *
+   * @param source         the type of the source pile
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @throws IllegalArgumentException if the move is not possible
+   * @throws IllegalStateException    if a move is attempted before the game has started
+   */
   @Override
-  public abstract void move(PileType source,
-                            int pileNumber,
-                            int cardIndex,
-                            PileType destination,
-                            int destPileNumber) throws IllegalArgumentException,
-          IllegalStateException;
+  public void move(PileType source, int pileNumber, int cardIndex, PileType destination,
+                   int destPileNumber) throws IllegalArgumentException, IllegalStateException {
+
+    MoveResult result = tryMove(source, pileNumber, cardIndex, destination, destPileNumber);
+
+    if (result == MoveResult.NOT_STARTED) {
+      throw new IllegalStateException(result.getMessage());
+    }
+    if (!result.isAccepted()) {
+      throw new IllegalArgumentException(result.getMessage());
+    }
+  }
+
+  /**
+   * Try to move cards from the given source pile to the given destination pile, as described by
+   * makeMove, without throwing or allocating when the move is rejected. Each call is reported to
+   * the Flight Recorder as a freecell.Move event while a recording has the event enabled.
+   *
+   * @param source         the type of the source pile
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @return the outcome of the move
+   */
+  @Override
+  public MoveResult tryMove(PileType source, int pileNumber, int cardIndex,
+                            PileType destination, int destPileNumber) {
+
+    MoveEvent event = new MoveEvent();
+    event.begin();
+    int cardsCount = event.isEnabled() ? cardsAbove(source, pileNumber, cardIndex) : 0;
+    MoveResult result = board.isEmpty() ? MoveResult.NOT_STARTED
+            : makeMove(source, pileNumber, cardIndex, destination, destPileNumber);
+
+    if (autoplay && result.isAccepted()) {
+      autoMoves.clear();
+      if (result == MoveResult.OK) {
+        autoplay(autoMoves);
+      }
+    }
+
+    if (event.shouldCommit()) {
+      event.source = source == null ? null : source.name();
+      event.destination = destination == null ? null : destination.name();
+      event.cardsCount = cardsCount;
+      event.succeeded = result.isAccepted();
+      event.commit();
+    }
+    return result;
+  }
+
+  /**
+   * Move cards from the given source pile to the given destination pile of a game that has
+   * started, if the move is valid as per the rules of the game. Nothing is changed when the move
+   * isn't valid.
+   *
+   * @param source         the type of the source pile
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @return OK or NO_OP if the move is valid, else the reason for which it isn't
+   */
+  protected abstract MoveResult makeMove(PileType source,
+                                         int pileNumber,
+                                         int cardIndex,
+                                         PileType destination,
+                                         int destPileNumber);
+
+  /**
+   * A helper method that provides the number of cards from the given card to the top of its
+   * pile, which are the cards a move of this card would move.
+   *
+   * @param pileType   the type of the pile, which may be null
+   * @param pileNumber the number of the pile
+   * @param cardIndex  the index of the card
+   * @return the number of cards, 0 if the pile or the card doesn't exist
+   */
+  private int cardsAbove(PileType pileType, int pileNumber, int cardIndex) {
+
+    if (pileType == null) {
+      return 0;
+    }
+    int size = pileSize(pileType, pileNumber);
+    return cardIndex >= 0 && cardIndex < size ? size - cardIndex : 0;
+  }
+
+  /**
+   * Move to the foundation piles, one by one, the cards that are safe to be moved there, until
+   * no such card is left on top of an open or cascade pile. A card is safe to be moved when it
+   * is an ace or a two, or when both foundation piles of the other color hold the card one less
+   * than it, so that no card of the other color could ever need to be built on it. The next card
+   * of each suit is found from the top most cards of the foundation piles, and only the card
+   * uncovered by each move is looked at again, so the piles are scanned once per call. Each card
+   * is moved as a move of its own, which can be undone like any other move.
+   *
+   * @param moves the buffer to which the moves made are added, packed as by
+   *              {@link MoveBuffer#pack}
+   * @return the number of cards moved, 0 if the game hasn't started
+   */
+  public int autoplay(MoveBuffer moves) {
+
+    if (board.isEmpty()) {
+      return 0;
+    }
+
+    Arrays.fill(foundationOfSuit, NOT_EXPOSED);
+    Arrays.fill(foundationRanks, 0);
+    for (int pileNumber = 0; pileNumber < SUITS.length; pileNumber++) {
+      int size = board.foundationSize(pileNumber);
+      if (size != 0) {
+        int suit = board.foundationCard(pileNumber, 0).getSuit().ordinal();
+        foundationOfSuit[suit] = pileNumber;
+        foundationRanks[suit] = size;
+      }
+    }
+
+    //Locating each exposed card by the index of its pile, cascade piles coming first
+    Arrays.fill(exposedCards, NOT_EXPOSED);
+    for (int pileNumber = 0; pileNumber < cascadePilesCount; pileNumber++) {
+      int size = board.cascadeSize(pileNumber);
+      if (size != 0) {
+        exposedCards[board.cascadeCard(pileNumber, size - 1).getId()] = pileNumber;
+      }
+    }
+    for (int pileNumber = 0; pileNumber < openPilesCount; pileNumber++) {
+      Card card = board.openCard(pileNumber);
+      if (card != null) {
+        exposedCards[card.getId()] = cascadePilesCount + pileNumber;
+      }
+    }
+
+    int movesCount = 0;
+    boolean moved = true;
+    while (moved) {
+      moved = false;
+      for (int suit = 0; suit < SUITS.length; suit++) {
+        int rank = foundationRanks[suit];
+        if (rank == RANKS || !isSafeToFound(suit, rank + 1)) {
+          continue;
+        }
+        int id = suit * RANKS + rank;
+        int location = exposedCards[id];
+        if (location == NOT_EXPOSED) {
+          continue;
+        }
+
+        PileType source = location < cascadePilesCount ? PileType.CASCADE : PileType.OPEN;
+        int pileNumber = location < cascadePilesCount ? location : location - cascadePilesCount;
+        int cardIndex = pileSize(source, pileNumber) - 1;
+        int destPileNumber = foundationOfSuit[suit] != NOT_EXPOSED ? foundationOfSuit[suit]
+                : emptyFoundationPile();
+        makeMove(source, pileNumber, cardIndex, PileType.FOUNDATION, destPileNumber);
+
+        exposedCards[id] = NOT_EXPOSED;
+        foundationOfSuit[suit] = destPileNumber;
+        foundationRanks[suit] = rank + 1;
+        if (source == PileType.CASCADE && cardIndex > 0) {
+          exposedCards[board.cascadeCard(pileNumber, cardIndex - 1).getId()] = pileNumber;
+        }
+        moves.add(MoveBuffer.pack(source, pileNumber, cardIndex, PileType.FOUNDATION,
+                destPileNumber));
+        movesCount++;
+        moved = true;
+      }
+    }
+    return movesCount;
+  }
+
+  /**
+   * A helper method that tells if the card of the given suit and rank can be moved to its
+   * foundation pile without ever being needed on a cascade pile, as per the foundation piles
+   * last read by autoplay.
+   *
+   * @param suit the ordinal of the suit of the card
+   * @param rank the rank of the card, 1 for an ace
+   * @return true if the card is safe to be moved
+   */
+  private boolean isSafeToFound(int suit, int rank) {
+
+    if (rank <= 2) {
+      return true;
+    }
+    //Spades and clubs are black, diamonds and hearts red
+    int otherColor = suit < 2 ? 2 : 0;
+    return foundationRanks[otherColor] >= rank - 1 && foundationRanks[otherColor + 1] >= rank - 1;
+  }
+
+  /**
+   * A helper method that provides the first foundation pile that holds no card.
+   *
+   * @return the number of the pile
+   */
+  private int emptyFoundationPile() {
+
+    int pileNumber = 0;
+    while (board.foundationSize(pileNumber) != 0) {
+      pileNumber++;
+    }
+    return pileNumber;
+  }
+
+  /**
+   * Provide the cards that were moved to the foundation piles by autoplay after the last
+   * accepted move, or after the deal if no move was accepted since. The buffer is empty when the
+   * game isn't played in autoplay mode, and it is reused, so it changes with the next move.
+   *
+   * @return the moves made by autoplay, packed as by {@link MoveBuffer#pack}
+   */
+  public MoveBuffer getAutoMoves() {
+    return autoMoves;
+  }
+
+  /**
+   * Tell if the cards that are safe to be moved to the foundation piles are moved there after
+   * the deal and after each move.
+   *
+   * @return true if the game is played in autoplay mode
+   */
+  public boolean isAutoplay() {
+    return autoplay;
+  }
 
   /**
    * Signal if the game is over or not. If this method
@@ -134,12 +421,9 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    */
   public boolean isGameOver() {
 
-    if (foundationPiles.size() != 4) {
-      return false;
-    }
-    for (int pileNumber = 0; pileNumber < foundationPiles.size(); pileNumber++) {
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
 
-      if (foundationPiles.get(pileNumber).size() != 13) {
+      if (board.foundationSize(pileNumber) != 13) {
         return false;
       }
 
@@ -169,111 +453,139 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    * newline on the last line
    * </pre>
    * An empty string will be returned if this method is called before the start of the game.
+   * The line of each pile is kept between calls, so only the lines of the piles changed since
+   * the last call are rendered again.
    *
    * @return the formatted string as above
    */
   public String getGameState() {
 
-    StringBuilder gameState = new StringBuilder();
-
-    if (cascadePiles.size() == 0 && foundationPiles.size() == 0 && openPiles.size() == 0) {
-      return gameState.toString();
+    if (board.isEmpty()) {
+      return "";
     }
 
-    this.formGameStateForFoundationCascadePiles(gameState,
-            'F', foundationPiles, 4);
-    this.formGameStateForOpenPile(gameState);
-    this.formGameStateForFoundationCascadePiles(gameState,
-            'C', cascadePiles, cascadePilesCount);
-    gameState.deleteCharAt(gameState.length() - 1);
-    return gameState.toString();
+    GameStateEvent event = new GameStateEvent();
+    event.begin();
+    String gameState = gameStateCache.getGameState(board);
+    event.commit();
+    return gameState;
   }
 
   /**
-   * Helper method to check if the deck is valid. Adds each of the card object
-   * from the deck to a new set and check after all cards from deck are added to the set, the
-   * set contains exactly 52 cards.
-   * @return boolean The deck is valid or not.
+   * Write the present state of the game to the given output, formatted as by
+   * {@link #getGameState()}. The state is written pile by pile and card by card, so no string
+   * holding the whole state is built; nothing is written if the game hasn't started.
+   *
+   * @param out the output to which the state is written
+   * @throws IOException if the output can't be written to
    */
-  private boolean ifDeckIsValid(List<Card> deck) {
-
-    Set<Card> cardSet = new HashSet<>(deck);
-
-    return cardSet.size() == 52;
+  @Override
+  public void writeGameState(Appendable out) throws IOException {
+
+    if (!board.isEmpty()) {
+      GameStateEvent event = new GameStateEvent();
+      event.begin();
+      gameStateCache.writeGameState(board, out);
+      event.written = true;
+      event.commit();
+    }
   }
 
   /**
-   * A helper method that builds game state for foundation and cascade piles.
-   * @param gameState game state string that will be returned by the getGameState method
-   * @param pileCharacter pileCharacter is 'C' for cascade and 'F' for foundation pile.
-   * @param pile helps to determine the type of pile. whether it's PileType.CASCADE or
-   *             PileType.FOUNDATION
-   * @param numberOfPiles represents the number of cascade or foundation piles present in
-   *                        a particular free cell game.
+   * Helper method to check if the deck is valid. Sets the bit of each card's id
+   * in a 64 bit mask and checks that the deck has exactly 52 cards, none of them
+   * repeated, so that all the 52 bits end up set.
+   * @return boolean The deck is valid or not.
    */
-  private void formGameStateForFoundationCascadePiles(StringBuilder gameState, char pileCharacter,
-                                                      Map<Integer, List<Card>> pile,
-                                                      int numberOfPiles) {
+  private boolean ifDeckIsValid(List<Card> deck) {
 
-    for (int pileNumber = 0; pileNumber < numberOfPiles; pileNumber++) {
-      gameState.append(pileCharacter).append(pileNumber + 1).append(':');
+    if (deck.size() != 52) {
+      return false;
+    }
 
-      if (pile.containsKey(pileNumber)) {
+    long cardMask = 0L;
 
-        gameState.append(" ");
-        List<Card> cardsInPile = pile.get(pileNumber);
+    for (Object card : deck) {
 
-        for (int cardCount = 0; cardCount < cardsInPile.size() - 1; cardCount++) {
-          gameState.append(cardsInPile.get(cardCount).toString()).append(", ");
+      if (!(card instanceof Card)) {
+        return false;
+      }
 
-        }
+      long cardBit = 1L << ((Card) card).getId();
 
-        gameState.append(cardsInPile.get(cardsInPile.size() - 1).toString());
+      if ((cardMask & cardBit) != 0) {
+        return false;
       }
-      gameState.append('\n');
+      cardMask |= cardBit;
     }
+
+    return cardMask == FULL_DECK_MASK;
   }
 
   /**
-   * Helper method to build a game state for Open Piles.
-   * @param gameState game state string that will be returned by the getGameState method.
+   * A helper method that provides the number of cards in a pile. Pile numbers that don't
+   * exist in this game are treated as empty piles.
+   * @param pileType represents one of the 3 piles in the game.
+   * @param pileNumber represents number of the pile.
+   * @return the number of cards in the pile.
    */
-  private void formGameStateForOpenPile(StringBuilder gameState) {
+  protected int pileSize(PileType pileType, int pileNumber) {
 
-    for (int openPileNumber = 0; openPileNumber < openPilesCount; openPileNumber++) {
-      gameState.append('O').append(openPileNumber + 1).append(':');
-      if (openPiles.containsKey(openPileNumber)) {
-        gameState.append(openPiles.get(openPileNumber).toString());
-      }
-      gameState.append("\n");
+    switch (pileType) {
+      case CASCADE:
+        if (pileNumber < 0 || pileNumber >= cascadePilesCount) {
+          return 0;
+        }
+        return board.cascadeSize(pileNumber);
+      case FOUNDATION:
+        if (pileNumber < 0 || pileNumber >= 4) {
+          return 0;
+        }
+        return board.foundationSize(pileNumber);
+      default:
+        if (pileNumber < 0 || pileNumber >= openPilesCount) {
+          return 0;
+        }
+        return board.openCard(pileNumber) == null ? 0 : 1;
     }
   }
 
+  /**
+   * A helper method that provides a card from a pile.
+   * @param pileType represents one of the 3 piles in the game.
+   * @param pileNumber represents number of the pile.
+   * @param cardIndex represents the index of the card in it's pile.
+   * @return the card at the given position.
+   */
+  protected Card pileCard(PileType pileType, int pileNumber, int cardIndex) {
+
+    switch (pileType) {
+      case CASCADE:
+        return board.cascadeCard(pileNumber, cardIndex);
+      case FOUNDATION:
+        return board.foundationCard(pileNumber, cardIndex);
+      default:
+        return board.openCard(pileNumber);
+    }
+  }
 
   /**
    *A helper method to validate  the source pile number
    * provided as an argument to the move method.
-   * @param pile represents one of the 3 piles in the game.
+   * @param pileType represents one of the 3 piles in the game.
    * @param pileNumber represents number of the pile from which a card
    *                   has to be moved.
-   * @throws IllegalArgumentException An exception is thrown if the pileNumber is
-   *                                  not in between 0 and No.of
-   *                                  open piles-1 in this game if the Pile is of
-   *                                  type open.An exception is thrown if the
-   *                                  pileNumber is not in between 0 and No.of
-   *                                  cascade piles-1 in this game if the Pile is
-   *                                  of type CASCADE. An exception is thrown
-   *                                  if the PileNumber is not in between 0 and 3
-   *                                  if the Pile is of type FOUNDATION.
-   *
+   * @return NO_SUCH_PILE if the pileNumber is not in between 0 and No.of open piles-1 in this
+   *         game if the Pile is of type open, not in between 0 and No.of cascade piles-1 if the
+   *         Pile is of type CASCADE, or not in between 0 and 3 if the Pile is of type FOUNDATION,
+   *         as well as if the pile is empty. OK otherwise.
    */
-  protected void validateSourcePileNumber(SortedMap<?, ?> pile, int pileNumber)
-          throws IllegalArgumentException {
+  protected MoveResult validateSourcePileNumber(PileType pileType, int pileNumber) {
 
-    if (!pile.containsKey(pileNumber)) {
-      throw new IllegalArgumentException("provided source pile number doesn't exist");
+    if (pileSize(pileType, pileNumber) == 0) {
+      return MoveResult.NO_SUCH_PILE;
     }
-
+    return MoveResult.OK;
   }
 
 
@@ -283,66 +595,57 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    * @param cardIndex represents the index of the card to be moved.
    * @param sourcePilesLastCardIndex represents the index of the top most card
    *                                 in a source pile.
-   * @throws IllegalArgumentException An exception is thrown
-   *                                  if {@code cardIndex!=sourcePilesLastCardIndex}
+   * @return NOT_TOP_CARD if {@code cardIndex!=sourcePilesLastCardIndex}, OK otherwise.
    */
-  protected void validateSourcecard(int cardIndex, int sourcePilesLastCardIndex)
-          throws IllegalArgumentException {
+  protected MoveResult validateSourcecard(int cardIndex, int sourcePilesLastCardIndex) {
 
     if (cardIndex != sourcePilesLastCardIndex) {
-      throw new IllegalArgumentException("provided source card isn't the last card in the "
-              + "source pile");
+      return MoveResult.NOT_TOP_CARD;
     }
-
+    return MoveResult.OK;
   }
 
   /**
    * A helper method that is called when a card needs to be moved to one of
    * the cascade piles.
    * @param sourceCard represents the card that needs to be moved.
-   * @param cascadePiles represent the group of cascade piles.
    * @param destPileNumber represents the destination pile number
-   * @return true if the source card is successfully moved and false if the
-   *              source card after move operation remains in the same position as before.
-   * @throws IllegalArgumentException an exception is thrown if the move to the cascade pile
-   *                                  is invalid.
+   * @return OK if the source card is successfully moved and NO_OP if the
+   *              source card after move operation remains in the same position as before,
+   *              else the reason for which the move to the cascade pile is invalid.
    */
-  protected boolean moveToCascade(Card sourceCard, SortedMap<Integer, List<Card>> cascadePiles,
-                                  int destPileNumber)
-          throws IllegalArgumentException {
+  protected MoveResult moveToCascade(Card sourceCard, int destPileNumber) {
 
 
-    if (cascadePiles.containsKey(destPileNumber)) {
+    int cardsListSizeInPile = pileSize(PileType.CASCADE, destPileNumber);
 
-      int cardsListSizeInPile = cascadePiles.get(destPileNumber).size();
-      Card destinationPilesLastCard = cascadePiles.get(destPileNumber).get(cardsListSizeInPile - 1);
+    if (cardsListSizeInPile != 0) {
 
-      if (sourceCard == destinationPilesLastCard) {
-        return false;
+      Card destinationPilesLastCard = board.cascadeCard(destPileNumber, cardsListSizeInPile - 1);
+
+      if (sourceCard.equals(destinationPilesLastCard)) {
+        return MoveResult.NO_OP;
       }
 
       if (sourceCard.getFaceValue().ordinal()
               != destinationPilesLastCard.getFaceValue().ordinal() - 1) {
-
-        throw new IllegalArgumentException("Face value  of the card"
-                + " you wanted to add should be one less than that of existing last card from the"
-                + " pile");
+        return MoveResult.BAD_RANK;
       }
 
       if (sourceCard.getColor() == destinationPilesLastCard.getColor()) {
-
-        throw new IllegalArgumentException("The card you wanted to add should have different color"
-                + " to the existing card");
+        return MoveResult.BAD_COLOR;
       }
 
-      cascadePiles.get(destPileNumber).add(sourceCard);
-      return true;
+      addToPile(PileType.CASCADE, destPileNumber, sourceCard);
+      return MoveResult.OK;
     } else {
-      validateDestinationPileNumber(PileType.CASCADE,destPileNumber);
-      cascadePiles.put(destPileNumber, new ArrayList<>());
-      cascadePiles.get(destPileNumber).add(sourceCard);
+      MoveResult result = validateDestinationPileNumber(PileType.CASCADE, destPileNumber);
+      if (result != MoveResult.OK) {
+        return result;
+      }
+      addToPile(PileType.CASCADE, destPileNumber, sourceCard);
 
-      return true;
+      return MoveResult.OK;
     }
 
   }
@@ -352,19 +655,26 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    * position, once it's successfully added to the destination pile.
    * This method is called if the source card belongs to either cascade
    * or Foundation pile.
-   * @param piles represent the group of piles.
+   * @param pileType represent the type of the source pile.
    * @param pileNumber represent the source card's pile number.
    * @param cardIndex represent the position of source card in it's pile.
    */
-  protected void removeFromCascadeFoundation(SortedMap<Integer, List<Card>> piles, int pileNumber,
+  protected void removeFromCascadeFoundation(PileType pileType, int pileNumber,
                                              int cardIndex) {
 
-    while (cardIndex <= piles.get(pileNumber).size() - 1) {
-      piles.get(pileNumber).remove(piles.get(pileNumber).size() - 1);
+    int cardsInPile = pileSize(pileType, pileNumber);
+
+    for (int cardCount = cardIndex; cardCount < cardsInPile; cardCount++) {
+      positionHash ^= placementKey(pileType, pileNumber, cardCount,
+              pileCard(pileType, pileNumber, cardCount));
     }
-    if (piles.get(pileNumber).size() == 0) {
-      piles.remove(pileNumber);
+
+    if (pileType == PileType.CASCADE) {
+      board.removeFromCascade(pileNumber, cardIndex);
+    } else {
+      board.removeFromFoundation(pileNumber, cardIndex);
     }
+    gameStateCache.invalidate(pileType, pileNumber);
 
   }
 
@@ -373,56 +683,49 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    * A helper method that is called when a move
    * operation with Foundation Pile as a destination is made.
    * @param sourceCard represents the card that needs to be moved.
-   * @param foundationPiles represent the group of foundation piles.
    * @param destPileNumber represents the destination pile number.
-   * @return true if the source card is successfully moved and false if the
-   *         source card after move operation remains in the same position as before.
-   * @throws IllegalArgumentException an exception is thrown if the move to the foundation
-   *                                  pile is invalid.
-   */
-  protected boolean moveToFoundation(Card sourceCard,
-                                     SortedMap<Integer, List<Card>> foundationPiles,
-                                     int destPileNumber)
-          throws IllegalArgumentException {
+   * @return OK if the source card is successfully moved and NO_OP if the
+   *         source card after move operation remains in the same position as before, else the
+   *         reason for which the move to the foundation pile is invalid.
+   */
+  protected MoveResult moveToFoundation(Card sourceCard, int destPileNumber) {
 
 
-    if (foundationPiles.containsKey(destPileNumber)) {
+    int cardsListSizeInPile = pileSize(PileType.FOUNDATION, destPileNumber);
 
-      int cardsListSizeInPile = foundationPiles.get(destPileNumber).size();
-      Card destinationPilesLastCard = foundationPiles.get(destPileNumber)
-              .get(cardsListSizeInPile - 1);
+    if (cardsListSizeInPile != 0) {
 
-      if (sourceCard == destinationPilesLastCard) {
-        return false;
+      Card destinationPilesLastCard = board.foundationCard(destPileNumber,
+              cardsListSizeInPile - 1);
+
+      if (sourceCard.equals(destinationPilesLastCard)) {
+        return MoveResult.NO_OP;
       }
 
       if (sourceCard.getFaceValue().ordinal()
               != destinationPilesLastCard.getFaceValue().ordinal() + 1) {
-
-        throw new IllegalArgumentException("Face value  of the card"
-                + " you wanted to add should be one less than that of existing last card"
-                + " from the pile");
+        return MoveResult.BAD_RANK;
       }
 
       if (sourceCard.getSuit() != destinationPilesLastCard.getSuit()) {
-
-        throw new IllegalArgumentException("The card you wanted to add should have different color"
-                + " to the existing card");
+        return MoveResult.BAD_SUIT;
       }
 
-      foundationPiles.get(destPileNumber).add(sourceCard);
-      return true;
+      addToPile(PileType.FOUNDATION, destPileNumber, sourceCard);
+      return MoveResult.OK;
     } else {
 
-      validateDestinationPileNumber(PileType.FOUNDATION,destPileNumber);
+      MoveResult result = validateDestinationPileNumber(PileType.FOUNDATION, destPileNumber);
+      if (result != MoveResult.OK) {
+        return result;
+      }
       if (sourceCard.getFaceValue() != Face.A) {
-        throw new IllegalArgumentException("The first card in a foundation pile should be an ace.");
+        return MoveResult.NOT_AN_ACE;
       }
 
-      foundationPiles.put(destPileNumber, new ArrayList<>());
-      foundationPiles.get(destPileNumber).add(sourceCard);
+      addToPile(PileType.FOUNDATION, destPileNumber, sourceCard);
 
-      return true;
+      return MoveResult.OK;
     }
 
   }
@@ -431,37 +734,33 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    * when a card needs to be moved to one of the
    * open piles.
    * @param sourceCard represents the card to be moved.
-   * @param openPiles represent the group of open piles in the game.
    * @param destPileNumber represents the destination pile number for card.
-   * @return true if the source card is successfully moved and false if the
-   *         source card after move operation remains in the same position as before.
-   * @throws IllegalArgumentException when an attempt to move a card to a pile that is already
-   *                                  containing a card.
+   * @return OK if the source card is successfully moved and NO_OP if the
+   *         source card after move operation remains in the same position as before,
+   *         NO_SUCH_CELL if the open pile doesn't exist and CELL_OCCUPIED if it already
+   *         contains a card.
    */
-  protected boolean moveToOpen(Card sourceCard, SortedMap<Integer, Card> openPiles,
-                               int destPileNumber)
-          throws IllegalArgumentException {
+  protected MoveResult moveToOpen(Card sourceCard, int destPileNumber) {
 
 
     if (destPileNumber < 0 || destPileNumber >= openPilesCount) {
-      throw new IllegalArgumentException("Destination pile number isn't valid");
+      return MoveResult.NO_SUCH_CELL;
     }
 
 
-    if (openPiles.containsKey(destPileNumber)) {
+    Card destinationPilesLastCard = board.openCard(destPileNumber);
 
-      Card destinationPilesLastCard = openPiles.get(destPileNumber);
+    if (destinationPilesLastCard != null) {
 
-      if (sourceCard == destinationPilesLastCard) {
-        return false;
+      if (sourceCard.equals(destinationPilesLastCard)) {
+        return MoveResult.NO_OP;
       }
 
-      throw new IllegalArgumentException("Destination Open Pile already holds a card");
+      return MoveResult.CELL_OCCUPIED;
     } else {
-      validateDestinationPileNumber(PileType.OPEN,destPileNumber);
-      openPiles.put(destPileNumber, sourceCard);
+      addToPile(PileType.OPEN, destPileNumber, sourceCard);
 
-      return true;
+      return MoveResult.OK;
     }
   }
 
@@ -469,40 +768,658 @@ public abstract class FreeCellAbstractModel implements FreecellOperations<Card>
    * A helper method that removes source card
    * from it's position if it's successfully added to it's destination pile.
    * This method is called if the source card is from Open Pile.
-   * @param openPiles represents a group of open piles.
    * @param pileNumber represents the source card's pile number
    * @param cardIndex represents the source card index in it's pile.
    */
-  protected void removeFromOpen(SortedMap<Integer, Card> openPiles, int pileNumber, int cardIndex) {
-    openPiles.remove(pileNumber);
+  protected void removeFromOpen(int pileNumber, int cardIndex) {
+    positionHash ^= placementKey(PileType.OPEN, pileNumber, 0, board.openCard(pileNumber));
+    board.removeFromOpen(pileNumber);
+    gameStateCache.invalidate(PileType.OPEN, pileNumber);
   }
 
+  /**
+   * A helper method that adds a card on top of a pile, updates the hash of the position
+   * with the card's new placement and marks the pile's line of the game state as stale. All the
+   * cards that are added to the board go through this method.
+   * @param pileType the type of the pile.
+   * @param pileNumber the pile number, which is expected to be valid.
+   * @param card the card to be added.
+   */
+  protected void addToPile(PileType pileType, int pileNumber, Card card) {
+
+    switch (pileType) {
+      case CASCADE:
+        positionHash ^= placementKey(pileType, pileNumber, board.cascadeSize(pileNumber), card);
+        board.addToCascade(pileNumber, card);
+        break;
+      case FOUNDATION:
+        positionHash ^= placementKey(pileType, pileNumber, board.foundationSize(pileNumber), card);
+        board.addToFoundation(pileNumber, card);
+        break;
+      default:
+        positionHash ^= placementKey(pileType, pileNumber, 0, card);
+        board.addToOpen(pileNumber, card);
+    }
+    gameStateCache.invalidate(pileType, pileNumber);
+  }
+
+  /**
+   * A helper method that records a valid move in the journal of moves that can be undone. It is
+   * called by the move method once the cards are added to the destination pile and before they
+   * are removed from the source pile.
+   * @param source the type of the source pile.
+   * @param pileNumber the source pile number.
+   * @param cardIndex the index of the bottom most card moved.
+   * @param destination the type of the destination pile.
+   * @param destPileNumber the destination pile number.
+   */
+  protected void recordMove(PileType source, int pileNumber, int cardIndex,
+                            PileType destination, int destPileNumber) {
+    journal.record(source, pileNumber, destination, destPileNumber,
+            pileSize(source, pileNumber) - cardIndex);
+  }
+
+  /**
+   * A package protected helper method that provides the journal of the moves of the game, which
+   * is saved with the game and restored by {@link GameSnapshot}.
+   * @return the journal of moves.
+   */
+  MoveJournal getJournal() {
+    return journal;
+  }
+
+  /**
+   * Signal if there is a move that can be undone, i.e. if a move was made since the game
+   * started and it wasn't undone or forgotten because of the undo limit of the game.
+   *
+   * @return true if {@link #undo()} can be called, false otherwise.
+   */
+  public boolean canUndo() {
+    return journal.canUndo();
+  }
+
+  /**
+   * Signal if there is a move that can be redone, i.e. if a move was undone and no other move
+   * was made since then.
+   *
+   * @return true if {@link #redo()} can be called, false otherwise.
+   */
+  public boolean canRedo() {
+    return journal.canRedo();
+  }
+
+  /**
+   * Take back the last move that was made, putting the cards it moved back on their source
+   * pile. The move isn't validated again, and it takes time proportional to the number of cards
+   * moved, so a multi card move is undone at once.
+   *
+   * @throws IllegalStateException if there is no move to be undone.
+   */
+  public void undo() throws IllegalStateException {
+
+    if (!journal.canUndo()) {
+      throw new IllegalStateException("There is no move to be undone");
+    }
+    long entry = journal.undo();
+    transferCards(MoveJournal.destination(entry), MoveJournal.destPileNumber(entry),
+            MoveJournal.cardsCount(entry), MoveJournal.source(entry),
+            MoveJournal.pileNumber(entry));
+  }
+
+  /**
+   * Make again the last move that was undone.
+   *
+   * @throws IllegalStateException if there is no move to be redone.
+   */
+  public void redo() throws IllegalStateException {
+
+    if (!journal.canRedo()) {
+      throw new IllegalStateException("There is no move to be redone");
+    }
+    long entry = journal.redo();
+    transferCards(MoveJournal.source(entry), MoveJournal.pileNumber(entry),
+            MoveJournal.cardsCount(entry), MoveJournal.destination(entry),
+            MoveJournal.destPileNumber(entry));
+  }
+
+  /**
+   * A package protected helper method that checks that the moves of the journal could have led
+   * to the present position, which is how {@link GameSnapshot} rejects a snapshot whose moves
+   * don't fit its cards. The moves made are taken back on a copy of the game from the last to
+   * the first, each only if the cards it moved are on top of its destination pile and can be put
+   * back on its source pile, and all the moves of the journal, including the undone ones, are
+   * then made again with the rules of the game.
+   * @return true if every move of the journal can be undone and redone, false otherwise.
+   */
+  boolean isJournalConsistent() {
+
+    if (journal.size() == 0) {
+      return true;
+    }
+    FreeCellAbstractModel game = copy();
+
+    for (int index = journal.applied() - 1; index >= 0; index--) {
+      long entry = journal.get(index);
+      PileType source = MoveJournal.source(entry);
+      int pileNumber = MoveJournal.pileNumber(entry);
+      PileType destination = MoveJournal.destination(entry);
+      int destPileNumber = MoveJournal.destPileNumber(entry);
+      int cardsCount = MoveJournal.cardsCount(entry);
+
+      if (source == destination && pileNumber == destPileNumber
+              || game.pileSize(destination, destPileNumber) < cardsCount
+              || source == PileType.OPEN
+              && (cardsCount != 1 || game.pileSize(source, pileNumber) != 0)
+              || source == PileType.FOUNDATION
+              && game.pileSize(source, pileNumber) + cardsCount > RANKS) {
+        return false;
+      }
+      game.transferCards(destination, destPileNumber, cardsCount, source, pileNumber);
+    }
+
+    for (int index = 0; index < journal.size(); index++) {
+      long entry = journal.get(index);
+      PileType source = MoveJournal.source(entry);
+      int pileNumber = MoveJournal.pileNumber(entry);
+      int cardIndex = game.pileSize(source, pileNumber) - MoveJournal.cardsCount(entry);
+
+      if (cardIndex < 0 || game.makeMove(source, pileNumber, cardIndex,
+              MoveJournal.destination(entry), MoveJournal.destPileNumber(entry))
+              != MoveResult.OK) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A helper method that moves the top most cards of a pile onto another pile, keeping their
+   * order, without checking that the move is valid.
+   * @param from the type of the pile the cards are taken from.
+   * @param fromPileNumber the number of the pile the cards are taken from.
+   * @param cardsCount the number of cards to be moved.
+   * @param to the type of the pile the cards are moved to.
+   * @param toPileNumber the number of the pile the cards are moved to.
+   */
+  private void transferCards(PileType from, int fromPileNumber, int cardsCount, PileType to,
+                             int toPileNumber) {
+
+    int cardIndex = pileSize(from, fromPileNumber) - cardsCount;
+
+    for (int cardCount = 0; cardCount < cardsCount; cardCount++) {
+      addToPile(to, toPileNumber, pileCard(from, fromPileNumber, cardIndex + cardCount));
+    }
+
+    if (from == PileType.OPEN) {
+      removeFromOpen(fromPileNumber, cardIndex);
+    } else {
+      removeFromCascadeFoundation(from, fromPileNumber, cardIndex);
+    }
+  }
+
+  /**
+   * Return a 64 bit hash of the present position of the game, i.e. of the cards in each of
+   * the foundation, open and cascade piles. Equal positions always have equal hashes, and
+   * distinct positions have distinct hashes with a very high probability. The hash is updated
+   * every time a card is added or removed from a pile, so this method takes constant time.
+   * The hash of a game that hasn't started is 0.
+   *
+   * @return the hash of the present position.
+   */
+  public long getPositionHash() {
+    return positionHash;
+  }
+
+  /**
+   * Computes the hash of the present position of the game from scratch, by visiting all the
+   * cards in all the piles. It always returns the same value as {@link #getPositionHash()}, but
+   * takes time proportional to the number of cards.
+   *
+   * @return the hash of the present position.
+   */
+  public long computePositionHash() {
+
+    long hash = 0L;
+
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      for (int cardIndex = 0; cardIndex < board.foundationSize(pileNumber); cardIndex++) {
+        hash ^= placementKey(PileType.FOUNDATION, pileNumber, cardIndex,
+                board.foundationCard(pileNumber, cardIndex));
+      }
+    }
+
+    for (int pileNumber = 0; pileNumber < openPilesCount; pileNumber++) {
+      if (board.openCard(pileNumber) != null) {
+        hash ^= placementKey(PileType.OPEN, pileNumber, 0, board.openCard(pileNumber));
+      }
+    }
+
+    for (int pileNumber = 0; pileNumber < cascadePilesCount; pileNumber++) {
+      for (int cardIndex = 0; cardIndex < board.cascadeSize(pileNumber); cardIndex++) {
+        hash ^= placementKey(PileType.CASCADE, pileNumber, cardIndex,
+                board.cascadeCard(pileNumber, cardIndex));
+      }
+    }
+
+    return hash;
+  }
+
+  /**
+   * A helper method that provides the Zobrist key of a card placed in a pile.
+   * @param pileType the type of the pile.
+   * @param pileNumber the pile number.
+   * @param cardIndex the index of the card in the pile.
+   * @param card the card.
+   * @return the key of the card's placement.
+   */
+  private long placementKey(PileType pileType, int pileNumber, int cardIndex, Card card) {
+
+    switch (pileType) {
+      case CASCADE:
+        return Zobrist.cascadeKey(pileNumber, cardIndex, card.getId());
+      case FOUNDATION:
+        return Zobrist.foundationKey(pileNumber, card.getId());
+      default:
+        return Zobrist.openKey(pileNumber, card.getId());
+    }
+  }
+
+
+  /**
+   * Fills the given buffer with every legal move of the present position of the game, i.e.
+   * every move that the move method would accept and that changes the position. Moves from the
+   * foundation piles are included as this game allows them. Apart from growing the buffer when
+   * it is too small, this method doesn't allocate any objects.
+   *
+   * @param buffer the buffer to be filled, whose previous moves are removed.
+   * @return the number of moves in the buffer.
+   */
+  public int generateMoves(MoveBuffer buffer) {
+
+    buffer.clear();
+
+    if (board.isEmpty()) {
+      return 0;
+    }
+
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      int cardsInPile = board.foundationSize(pileNumber);
+      if (cardsInPile != 0) {
+        generateMovesOfCard(buffer, PileType.FOUNDATION, pileNumber, cardsInPile - 1,
+                board.foundationCard(pileNumber, cardsInPile - 1));
+      }
+    }
+
+    for (int pileNumber = 0; pileNumber < openPilesCount; pileNumber++) {
+      Card card = board.openCard(pileNumber);
+      if (card != null) {
+        generateMovesOfCard(buffer, PileType.OPEN, pileNumber, 0, card);
+      }
+    }
+
+    int maxCardsToFilledPile = maxCardsToCascade(false);
+
+    for (int pileNumber = 0; pileNumber < cascadePilesCount; pileNumber++) {
+      int cardsInPile = board.cascadeSize(pileNumber);
+      if (cardsInPile == 0) {
+        continue;
+      }
+
+      generateMovesOfCard(buffer, PileType.CASCADE, pileNumber, cardsInPile - 1,
+              board.cascadeCard(pileNumber, cardsInPile - 1));
+
+      for (int cardIndex = cardsInPile - 2; cardIndex >= 0
+              && cardsInPile - cardIndex <= maxCardsToFilledPile
+              && canBuild(board.cascadeCard(pileNumber, cardIndex),
+              board.cascadeCard(pileNumber, cardIndex + 1)); cardIndex--) {
+
+        generateMovesOfBuild(buffer, pileNumber, cardIndex, cardsInPile - cardIndex);
+      }
+    }
+
+    return buffer.size();
+  }
+
+  /**
+   * Provides the maximum number of cards that can be moved at once to a cascade pile. This
+   * implementation only allows single card moves and returns 1, models that allow multi card
+   * moves override it.
+   *
+   * @param toEmptyPile true if the destination cascade pile is empty.
+   * @return the maximum number of cards that can be moved at once.
+   */
+  protected int maxCardsToCascade(boolean toEmptyPile) {
+    return 1;
+  }
+
+  /**
+   * A helper method that adds every legal move of a single card to the buffer.
+   * @param buffer the buffer to be filled.
+   * @param source the type of the card's pile.
+   * @param pileNumber the card's pile number.
+   * @param cardIndex the index of the card, which is the top most card of its pile.
+   * @param card the card to be moved.
+   */
+  private void generateMovesOfCard(MoveBuffer buffer, PileType source, int pileNumber,
+                                   int cardIndex, Card card) {
+
+    for (int destPileNumber = 0; destPileNumber < 4; destPileNumber++) {
+      if (source == PileType.FOUNDATION && destPileNumber == pileNumber) {
+        continue;
+      }
+
+      int cardsInPile = board.foundationSize(destPileNumber);
+
+      if (cardsInPile == 0 ? card.getFaceValue() == Face.A
+              : canFound(board.foundationCard(destPileNumber, cardsInPile - 1), card)) {
+        buffer.add(MoveBuffer.pack(source, pileNumber, cardIndex, PileType.FOUNDATION,
+                destPileNumber));
+      }
+    }
+
+    for (int destPileNumber = 0; destPileNumber < openPilesCount; destPileNumber++) {
+      if (board.openCard(destPileNumber) == null) {
+        buffer.add(MoveBuffer.pack(source, pileNumber, cardIndex, PileType.OPEN,
+                destPileNumber));
+      }
+    }
+
+    boolean canMoveToEmptyPile = maxCardsToCascade(true) >= 1;
+
+    for (int destPileNumber = 0; destPileNumber < cascadePilesCount; destPileNumber++) {
+      if (source == PileType.CASCADE && destPileNumber == pileNumber) {
+        continue;
+      }
+
+      int cardsInPile = board.cascadeSize(destPileNumber);
+
+      if (cardsInPile == 0 ? canMoveToEmptyPile
+              : canBuild(board.cascadeCard(destPileNumber, cardsInPile - 1), card)) {
+        buffer.add(MoveBuffer.pack(source, pileNumber, cardIndex, PileType.CASCADE,
+                destPileNumber));
+      }
+    }
+  }
+
+  /**
+   * A helper method that adds every legal move of a build of several cards to the buffer. The
+   * build is expected to be valid and small enough to be moved to a filled cascade pile.
+   * @param buffer the buffer to be filled.
+   * @param pileNumber the cascade pile number of the build.
+   * @param cardIndex the index of the bottom most card of the build.
+   * @param cardsCount the number of cards in the build.
+   */
+  private void generateMovesOfBuild(MoveBuffer buffer, int pileNumber, int cardIndex,
+                                    int cardsCount) {
+
+    Card card = board.cascadeCard(pileNumber, cardIndex);
+    boolean canMoveToEmptyPile = cardsCount <= maxCardsToCascade(true);
+
+    for (int destPileNumber = 0; destPileNumber < cascadePilesCount; destPileNumber++) {
+      if (destPileNumber == pileNumber) {
+        continue;
+      }
+
+      int cardsInPile = board.cascadeSize(destPileNumber);
+
+      if (cardsInPile == 0 ? canMoveToEmptyPile
+              : canBuild(board.cascadeCard(destPileNumber, cardsInPile - 1), card)) {
+        buffer.add(MoveBuffer.pack(PileType.CASCADE, pileNumber, cardIndex, PileType.CASCADE,
+                destPileNumber));
+      }
+    }
+  }
+
+  /**
+   * A helper method that checks if a card can be placed on another card of a cascade pile.
+   * @param bottomCard the card on which the other card is placed.
+   * @param topCard the card to be placed.
+   * @return true if the top card is one less than the bottom card and of different color.
+   */
+  private boolean canBuild(Card bottomCard, Card topCard) {
+    return topCard.getFaceValue().ordinal() == bottomCard.getFaceValue().ordinal() - 1
+            && topCard.getColor() != bottomCard.getColor();
+  }
+
+  /**
+   * A helper method that checks if a card can be placed on another card of a foundation pile.
+   * @param bottomCard the card on which the other card is placed.
+   * @param topCard the card to be placed.
+   * @return true if the top card is one more than the bottom card and of the same suit.
+   */
+  private boolean canFound(Card bottomCard, Card topCard) {
+    return topCard.getFaceValue().ordinal() == bottomCard.getFaceValue().ordinal() + 1
+            && topCard.getSuit() == bottomCard.getSuit();
+  }
+
+  /**
+   * A method that provides the number of open piles of this game.
+   * @return the number of open piles.
+   */
+  public int getOpenPilesCount() {
+    return openPilesCount;
+  }
+
+  /**
+   * A method that provides the number of cascade piles of this game.
+   * @return the number of cascade piles.
+   */
+  public int getCascadePilesCount() {
+    return cascadePilesCount;
+  }
+
+  /**
+   * A method that provides the number of cards in a pile.
+   * @param pileType the type of the pile.
+   * @param pileNumber the pile number, starting at 0.
+   * @return the number of cards in the pile, 0 if the pile is empty or doesn't exist.
+   */
+  public int getPileSize(PileType pileType, int pileNumber) {
+    return pileSize(pileType, pileNumber);
+  }
+
+  /**
+   * A method that provides the id of a card in a pile, see {@link Card#getId()}.
+   * @param pileType the type of the pile.
+   * @param pileNumber the pile number, starting at 0.
+   * @param cardIndex the index of the card in the pile, starting at 0.
+   * @return the id of the card.
+   * @throws IllegalArgumentException if there is no card at the given position.
+   */
+  public int getCardId(PileType pileType, int pileNumber, int cardIndex)
+          throws IllegalArgumentException {
+
+    if (cardIndex < 0 || cardIndex >= pileSize(pileType, pileNumber)) {
+      throw new IllegalArgumentException("There is no card at the given position");
+    }
+    return pileCard(pileType, pileNumber, cardIndex).getId();
+  }
+
+  /**
+   * Creates a new game of the same kind as this one, with the same number of piles and the same
+   * board, that hasn't started yet.
+   * @return the new game.
+   */
+  protected abstract FreeCellAbstractModel newGame();
+
+  /**
+   * Creates a copy of this game that holds the same cards in the same piles. The copy can be
+   * played independently of this game.
+   * @return the copy of this game.
+   */
+  public FreeCellAbstractModel copy() {
+
+    FreeCellAbstractModel game = newGame();
+
+    if (!board.isEmpty()) {
+      byte[] position = new byte[positionSize()];
+      writePosition(position, 0);
+      game.readPosition(position, 0);
+    }
+    return game;
+  }
+
+  /**
+   * Provides the maximum number of bytes that {@link #writePosition(byte[], int)} writes for a
+   * game with this number of piles.
+   * @return the maximum size of an encoded position.
+   */
+  public int positionSize() {
+    return 4 + openPilesCount + cascadePilesCount + 52;
+  }
+
+  /**
+   * Writes the present position of the game in a compact form, one byte per card. The position
+   * is written as the id of the top most card of each foundation pile, the id of the card in each
+   * open pile and then the number of cards of each cascade pile followed by their ids, where an
+   * empty foundation or open pile is written as -1.
+   *
+   * @param buffer the array in which the position is written.
+   * @param offset the index in the array at which the position starts.
+   * @return the number of bytes written, at most {@link #positionSize()}.
+   * @throws IllegalStateException if the game hasn't started.
+   */
+  public int writePosition(byte[] buffer, int offset) throws IllegalStateException {
+
+    if (board.isEmpty()) {
+      throw new IllegalStateException("Position can't be written before the game has started");
+    }
+
+    int index = offset;
+
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      int cardsInPile = board.foundationSize(pileNumber);
+      buffer[index++] = (byte) (cardsInPile == 0 ? -1
+              : board.foundationCard(pileNumber, cardsInPile - 1).getId());
+    }
+
+    for (int pileNumber = 0; pileNumber < openPilesCount; pileNumber++) {
+      Card card = board.openCard(pileNumber);
+      buffer[index++] = (byte) (card == null ? -1 : card.getId());
+    }
+
+    for (int pileNumber = 0; pileNumber < cascadePilesCount; pileNumber++) {
+      int cardsInPile = board.cascadeSize(pileNumber);
+      buffer[index++] = (byte) cardsInPile;
+      for (int cardIndex = 0; cardIndex < cardsInPile; cardIndex++) {
+        buffer[index++] = (byte) board.cascadeCard(pileNumber, cardIndex).getId();
+      }
+    }
+
+    return index - offset;
+  }
+
+  /**
+   * Replaces the present position of the game by a position written by
+   * {@link #writePosition(byte[], int)} of a game with the same number of piles. The game is
+   * started if it wasn't, and the moves that could be undone are forgotten.
+   *
+   * @param buffer the array from which the position is read.
+   * @param offset the index in the array at which the position starts.
+   * @return the number of bytes read.
+   * @throws IllegalArgumentException if the bytes don't describe a position holding each of the
+   *                                  52 cards exactly once.
+   */
+  public int readPosition(byte[] buffer, int offset) throws IllegalArgumentException {
+
+    int index = offset;
+    long cardMask = 0L;
+
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      int id = buffer[index++];
+      for (int face = 0; id != -1 && face <= id % 13; face++) {
+        cardMask = addToMask(cardMask, id - id % 13 + face);
+      }
+    }
+
+    for (int pileNumber = 0; pileNumber < openPilesCount; pileNumber++) {
+      int id = buffer[index++];
+      if (id != -1) {
+        cardMask = addToMask(cardMask, id);
+      }
+    }
+
+    for (int pileNumber = 0; pileNumber < cascadePilesCount; pileNumber++) {
+      int cardsInPile = buffer[index++];
+      if (cardsInPile < 0 || cardsInPile > 52) {
+        throw new IllegalArgumentException("Position doesn't hold each of the 52 cards once");
+      }
+      for (int cardIndex = 0; cardIndex < cardsInPile; cardIndex++) {
+        cardMask = addToMask(cardMask, buffer[index++]);
+      }
+    }
+
+    if (cardMask != FULL_DECK_MASK) {
+      throw new IllegalArgumentException("Position doesn't hold each of the 52 cards once");
+    }
+
+    board.clear();
+    gameStateCache.invalidateAll();
+    journal.clear();
+    positionHash = 0L;
+    index = offset;
+
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      int id = buffer[index++];
+      for (int face = 0; id != -1 && face <= id % 13; face++) {
+        addToPile(PileType.FOUNDATION, pileNumber, Card.fromId(id - id % 13 + face));
+      }
+    }
+
+    for (int pileNumber = 0; pileNumber < openPilesCount; pileNumber++) {
+      int id = buffer[index++];
+      if (id != -1) {
+        addToPile(PileType.OPEN, pileNumber, Card.fromId(id));
+      }
+    }
+
+    for (int pileNumber = 0; pileNumber < cascadePilesCount; pileNumber++) {
+      int cardsInPile = buffer[index++];
+      for (int cardIndex = 0; cardIndex < cardsInPile; cardIndex++) {
+        addToPile(PileType.CASCADE, pileNumber, Card.fromId(buffer[index++]));
+      }
+    }
+
+    return index - offset;
+  }
+
+  /**
+   * A helper method that sets the bit of a card in a mask of cards.
+   * @param cardMask the mask of cards.
+   * @param id the id of the card.
+   * @return the mask with the card's bit set.
+   * @throws IllegalArgumentException if the id isn't valid or the card is already in the mask.
+   */
+  private long addToMask(long cardMask, int id) throws IllegalArgumentException {
+
+    if (id < 0 || id >= 52 || (cardMask & (1L << id)) != 0) {
+      throw new IllegalArgumentException("Position doesn't hold each of the 52 cards once");
+    }
+    return cardMask | (1L << id);
+  }
 
   /**
    * A helper method to check if the destination pile number is valid.
    * @param pileType The type of pile i.e. CASCADE or FOUNDATION or OPEN
    * @param destPileNumber pileNumber of the destination pile.
+   * @return NO_SUCH_DESTINATION if the pile doesn't exist, OK otherwise.
    */
-  protected void validateDestinationPileNumber(PileType pileType, int destPileNumber) {
+  protected MoveResult validateDestinationPileNumber(PileType pileType, int destPileNumber) {
+
+    int pilesCount;
     switch (pileType) {
       case CASCADE:
-        if (destPileNumber < 0 || destPileNumber > this.cascadePilesCount - 1) {
-          throw new IllegalArgumentException("Destination Pile Number is invalid");
-        }
+        pilesCount = this.cascadePilesCount;
         break;
       case OPEN:
-        if (destPileNumber < 0 || destPileNumber > this.openPilesCount - 1) {
-          throw new IllegalArgumentException("Destination Pile Number is invalid");
-        }
-        break;
-
-      case FOUNDATION:
-        if (destPileNumber < 0 || destPileNumber > 3) {
-          throw new IllegalArgumentException("Destination Pile Number is invalid");
-        }
+        pilesCount = this.openPilesCount;
         break;
       default:
-        throw new IllegalArgumentException("Invalid PileType");
+        pilesCount = 4;
+    }
+    if (destPileNumber < 0 || destPileNumber > pilesCount - 1) {
+      return MoveResult.NO_SUCH_DESTINATION;
     }
+    return MoveResult.OK;
   }
 }
@@ -60,10 +60,15 @@ public class FreecellModel extends FreeCellAbstractModel {
    * open piles and cascade piles for that game.
    * @param openPilesCount No.of open piles required for a free cell game.
    * @param casCadePilesCount No.of cascade piles required for a free cell game.
+   * @param packed true if the piles of the game are to be stored in flat primitive arrays.
+   * @param undoLimit the maximum number of moves that can be undone, or -1 for no limit.
+   * @param autoplay true if safe cards are to be moved to the foundation piles
+   *                 after each move.
    */
-  private FreecellModel(int openPilesCount, int casCadePilesCount) {
+  private FreecellModel(int openPilesCount, int casCadePilesCount, boolean packed,
+                int undoLimit, boolean autoplay) {
 
-    super(openPilesCount,casCadePilesCount);
+    super(openPilesCount, casCadePilesCount, packed, undoLimit, autoplay);
   }
 
 
@@ -76,6 +81,9 @@ public class FreecellModel extends FreeCellAbstractModel {
 
     private int cascadePilesCount;
     private int openPilesCount;
+    private boolean packed;
+    private int undoLimit;
+    private boolean autoplay;
 
     /**
      * A default constructor that assigns the no.of
@@ -85,6 +93,9 @@ public class FreecellModel extends FreeCellAbstractModel {
     private FreeCellBuilder() {
       cascadePilesCount = 4;
       openPilesCount = 1;
+      packed = false;
+      undoLimit = -1;
+      autoplay = false;
     }
 
     /**
@@ -127,15 +138,60 @@ public class FreecellModel extends FreeCellAbstractModel {
       return this;
     }
 
+    /**
+     * This method is used to choose the packed board for the game, which stores
+     * the cards of all the piles as byte ids in flat primitive arrays so that
+     * moving cards doesn't allocate any objects.
+     * @return FreecellOperationsBuilder object
+     */
+    public FreecellOperationsBuilder packed() {
+
+      this.packed = true;
+      return this;
+    }
+
+    /**
+     * This method is used to bound the number of moves that can be undone in the game,
+     * which otherwise is only bound by the number of moves made. Once the limit is
+     * reached, every new move forgets the oldest move that could be undone.
+     * @param undoLimit the maximum number of moves that can be undone, 0 to disable undo.
+     * @return FreecellOperationsBuilder object
+     * @throws IllegalArgumentException is thrown when the undoLimit is negative.
+     */
+    public FreecellOperationsBuilder undoLimit(int undoLimit) throws IllegalArgumentException {
+
+      if (undoLimit < 0) {
+        throw new IllegalArgumentException("Undo limit shouldn't be negative");
+      }
+      this.undoLimit = undoLimit;
+      return this;
+    }
+
+    /**
+     * This method is used to play the game in autoplay mode, in which the cards that are safe to
+     * be moved to the foundation piles are moved there after the deal and after each move.
+     * @return FreecellOperationsBuilder object
+     */
+    public FreecellOperationsBuilder autoplay() {
+
+      this.autoplay = true;
+      return this;
+    }
+
     @Override
     public FreecellOperations<Card> build() {
 
-      return new FreecellModel(openPilesCount, cascadePilesCount);
+      return new FreecellModel(openPilesCount, cascadePilesCount, packed, undoLimit, autoplay);
 
     }
 
   }
 
+  @Override
+  protected FreeCellAbstractModel newGame() {
+    return new FreecellModel(openPilesCount, cascadePilesCount, packed, undoLimit, autoplay);
+  }
+
   /**
    * A static method that can be used by any class to create and use
    * an object of type FreecellOperationsBuilder in order to further create
@@ -154,9 +210,8 @@ public class FreecellModel extends FreeCellAbstractModel {
    * Note: In this implementation of move method a move from foundation piles to any other piles
    * is allowed as long is it's a valid move as per the class' description.
    *
-   * <p>In this implementation moving multiple cards from any pile is not a valid move and will
-   * throw IllegalArgumentException. Always only one card can be moved and that is the top most
-   * card in each pile.</p>
+   * <p>In this implementation moving multiple cards from any pile is not a valid move and is
+   * rejected. Always only one card can be moved and that is the top most card in each pile.</p>
    *
    *
    * @param source         The type of the source pile see @link{PileType}
@@ -165,59 +220,52 @@ public class FreecellModel extends FreeCellAbstractModel {
    *                       pile, starting at 0
    * @param destination    The type of the destination pile (see
    * @param destPileNumber The pile number of the given type, starting at 0
-   * @throws IllegalArgumentException If the move is not possible {@link
-   *                                  PileType})
-   * @throws IllegalStateException    If a move is attempted before the game has
-   *                                  started
+   * @return OK or NO_OP if the move is valid, else the reason for which it isn't {@link
+   *         PileType})
    */
-  public void move(PileType source, int pileNumber, int cardIndex, PileType destination,
-                   int destPileNumber)
-          throws IllegalArgumentException, IllegalStateException {
+  @Override
+  protected MoveResult makeMove(PileType source, int pileNumber, int cardIndex,
+                                PileType destination, int destPileNumber) {
 
-    boolean isMoved;
-    Card sourceCard;
+    MoveResult result;
+    PileType sourceType = source == PileType.CASCADE || source == PileType.FOUNDATION
+            ? source : PileType.OPEN;
 
-    if (openPiles.size() == 0 && foundationPiles.size() == 0 && cascadePiles.size() == 0) {
-      throw new IllegalStateException("Move can't be called before the game has started");
+    result = validateSourcePileNumber(sourceType, pileNumber);
+    if (result != MoveResult.OK) {
+      return result;
     }
-
-    if (source == PileType.CASCADE) {
-      validateSourcePileNumber(cascadePiles, pileNumber);
-      validateSourcecard(cardIndex, cascadePiles.get(pileNumber).size() - 1);
-      sourceCard = cascadePiles.get(pileNumber).get(cardIndex);
-    } else if (source == PileType.FOUNDATION) {
-      validateSourcePileNumber(foundationPiles, pileNumber);
-      validateSourcecard(cardIndex, foundationPiles.get(pileNumber).size() - 1);
-      sourceCard = foundationPiles.get(pileNumber).get(cardIndex);
-    } else {
-      validateSourcePileNumber(openPiles, pileNumber);
-      validateSourcecard(cardIndex, 0);
-      sourceCard = openPiles.get(pileNumber);
+    result = validateSourcecard(cardIndex, pileSize(sourceType, pileNumber) - 1);
+    if (result != MoveResult.OK) {
+      return result;
     }
+    Card sourceCard = pileCard(sourceType, pileNumber, cardIndex);
+
 
+    PileType destinationType = destination == PileType.CASCADE
+            || destination == PileType.FOUNDATION ? destination : PileType.OPEN;
 
-    if (destination == PileType.CASCADE) {
-      isMoved = moveToCascade(sourceCard, cascadePiles, destPileNumber);
-    } else if (destination == PileType.FOUNDATION) {
-      isMoved = moveToFoundation(sourceCard, foundationPiles, destPileNumber);
+    if (destinationType == PileType.CASCADE) {
+      result = moveToCascade(sourceCard, destPileNumber);
+    } else if (destinationType == PileType.FOUNDATION) {
+      result = moveToFoundation(sourceCard, destPileNumber);
     } else {
-      isMoved = moveToOpen(sourceCard, openPiles, destPileNumber);
+      result = moveToOpen(sourceCard, destPileNumber);
     }
 
 
-    if (isMoved) {
+    if (result == MoveResult.OK) {
 
-      if (source == PileType.CASCADE) {
-        removeFromCascadeFoundation(cascadePiles, pileNumber, cardIndex);
-      } else if (source == PileType.FOUNDATION) {
-        removeFromCascadeFoundation(foundationPiles, pileNumber, cardIndex);
+      recordMove(sourceType, pileNumber, cardIndex, destinationType, destPileNumber);
+
+      if (sourceType == PileType.OPEN) {
+        removeFromOpen(pileNumber, cardIndex);
       } else {
-        removeFromOpen(openPiles, pileNumber, cardIndex);
+        removeFromCascadeFoundation(sourceType, pileNumber, cardIndex);
       }
 
     }
-
-
+    return result;
   }
 
 
@@ -1,12 +1,5 @@
 package freecell.model;
 
-import java.util.ArrayList;
-
-import java.util.List;
-
-import java.util.SortedMap;
-
-
 /**
  * Represents a multi move model which is nothing but a  Free cell model
  * that allows movement of multiple cards at a time from one cascade pile
@@ -26,7 +19,8 @@ import java.util.SortedMap;
  * obeys the above two conditions, if there aren’t enough of these intermediate slots.
  * More specifically, it can be proved that the maximum number of cards that can be moved
  * when there are 𝑁 free open piles and 𝐾 empty cascade piles is (𝑁+1)∗2𝐾. Your implementation
- * of this variation should work within all these three conditions.</p>
+ * of this variation should work within all these three conditions. {@link SupermovePlanner}
+ * expands a multi-card move into these single-card moves.</p>
  *
  * <p>In order to use an empty cascade pile as an intermediary for multi-card moves,
  * we will allow any card to move to an empty cascade pile (not just a king,
@@ -42,10 +36,16 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
    *
    * @param openPilesCount    No.of open piles required for a multi move free cell game.
    * @param casCadePilesCount No.of cascade piles required for multi move free cell game.
+   * @param packed            true if the piles of the game are to be stored in flat primitive
+   *                          arrays.
+   * @param undoLimit         the maximum number of moves that can be undone, or -1 for no limit.
+   * @param autoplay         true if safe cards are to be moved to the foundation piles
+   *                         after each move.
    */
-  private FreecellMultiMoveModel(int openPilesCount, int casCadePilesCount) {
+  private FreecellMultiMoveModel(int openPilesCount, int casCadePilesCount, boolean packed,
+                                 int undoLimit, boolean autoplay) {
 
-    super(openPilesCount, casCadePilesCount);
+    super(openPilesCount, casCadePilesCount, packed, undoLimit, autoplay);
   }
 
 
@@ -57,6 +57,9 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
 
     private int cascadePilesCount;
     private int openPilesCount;
+    private boolean packed;
+    private int undoLimit;
+    private boolean autoplay;
 
     /**
      * A default constructor that assigns the no.of cascade piles and no. of open piles required
@@ -65,6 +68,9 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
     private FreeCellBuilder() {
       cascadePilesCount = 4;
       openPilesCount = 1;
+      packed = false;
+      undoLimit = -1;
+      autoplay = false;
     }
 
     /**
@@ -102,15 +108,64 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
       return this;
     }
 
+    /**
+     * This method is used to choose the packed board for the game, which stores the cards of all
+     * the piles as byte ids in flat primitive arrays so that moving cards doesn't allocate any
+     * objects.
+     *
+     * @return FreecellOperationsBuilder object
+     */
+    public FreecellOperationsBuilder packed() {
+
+      this.packed = true;
+      return this;
+    }
+
+    /**
+     * This method is used to bound the number of moves that can be undone in the game, which
+     * otherwise is only bound by the number of moves made. Once the limit is reached, every new
+     * move forgets the oldest move that could be undone.
+     *
+     * @param undoLimit the maximum number of moves that can be undone, 0 to disable undo.
+     * @return FreecellOperationsBuilder object
+     * @throws IllegalArgumentException is thrown when the undoLimit is negative.
+     */
+    public FreecellOperationsBuilder undoLimit(int undoLimit) throws IllegalArgumentException {
+
+      if (undoLimit < 0) {
+        throw new IllegalArgumentException("Undo limit shouldn't be negative");
+      }
+      this.undoLimit = undoLimit;
+      return this;
+    }
+
+    /**
+     * This method is used to play the game in autoplay mode, in which the cards that are safe to
+     * be moved to the foundation piles are moved there after the deal and after each move.
+     * @return FreecellOperationsBuilder object
+     */
+    public FreecellOperationsBuilder autoplay() {
+
+      this.autoplay = true;
+      return this;
+    }
+
     @Override
     public FreecellOperations<Card> build() {
 
-      return new FreecellMultiMoveModel(openPilesCount, cascadePilesCount);
+      return new FreecellMultiMoveModel(openPilesCount, cascadePilesCount, packed, undoLimit,
+              autoplay);
 
     }
 
   }
 
+  @Override
+  protected FreeCellAbstractModel newGame() {
+    return new FreecellMultiMoveModel(openPilesCount, cascadePilesCount, packed, undoLimit,
+            autoplay);
+  }
+
   /**
    * A static method that can be used by any class to create and use an object of type
    * FreecellOperationsBuilder in order to further create a FreecellMultiMoveModel.
@@ -134,111 +189,152 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
    * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
    * @param destination    the type of the destination pile (see
    * @param destPileNumber the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
-   * @throws IllegalStateException    if a move is attempted before the game has starts
+   * @return OK or NO_OP if the move is valid, else the reason for which it isn't {@link
+   *         PileType})
    */
-  public void move(PileType source, int pileNumber, int cardIndex, PileType destination,
-                   int destPileNumber)
-          throws IllegalArgumentException, IllegalStateException {
-
-    boolean isMoved;
-    Card sourceCard = new Card();
-    List<Card> sourceCards = new ArrayList<>();
-
-    if (openPiles.size() == 0 && foundationPiles.size() == 0 && cascadePiles.size() == 0) {
-      throw new IllegalStateException("Move can't be called before the game has started");
+  @Override
+  protected MoveResult makeMove(PileType source, int pileNumber, int cardIndex,
+                                PileType destination, int destPileNumber) {
+
+    MoveResult result;
+    int sourceCardsCount = 1;
+    PileType sourceType = source == PileType.CASCADE || source == PileType.FOUNDATION
+            ? source : PileType.OPEN;
+    PileType destinationType = destination == PileType.CASCADE
+            || destination == PileType.FOUNDATION ? destination : PileType.OPEN;
+
+    result = validateSourcePileNumber(sourceType, pileNumber);
+    if (result != MoveResult.OK) {
+      return result;
     }
-
-    if (source == PileType.CASCADE) {
-      validateSourcePileNumber(cascadePiles, pileNumber);
-      validateSourceCascadecards(cardIndex, pileNumber, destination);
-      sourceCards = cascadePiles.get(pileNumber)
-              .subList(cardIndex, cascadePiles.get(pileNumber).size());
-      sourceCard = cascadePiles.get(pileNumber).get(cardIndex);
-    } else if (source == PileType.FOUNDATION) {
-      validateSourcePileNumber(foundationPiles, pileNumber);
-      validateSourcecard(cardIndex, foundationPiles.get(pileNumber)
-              .size() - 1);
-      sourceCard = foundationPiles.get(pileNumber).get(cardIndex);
-      sourceCards.add(sourceCard);
+    if (sourceType == PileType.CASCADE) {
+      result = validateSourceCascadecards(cardIndex, pileNumber, destinationType);
+      sourceCardsCount = board.cascadeSize(pileNumber) - cardIndex;
     } else {
-      validateSourcePileNumber(openPiles, pileNumber);
-      validateSourcecard(cardIndex, 0);
-      sourceCard = openPiles.get(pileNumber);
-      sourceCards.add(sourceCard);
+      result = validateSourcecard(cardIndex, pileSize(sourceType, pileNumber) - 1);
     }
+    if (result != MoveResult.OK) {
+      return result;
+    }
+    Card sourceCard = pileCard(sourceType, pileNumber, cardIndex);
 
 
-    if (destination == PileType.CASCADE) {
-      isMoved = moveToCascade(sourceCards, cascadePiles, destPileNumber);
-    } else if (destination == PileType.FOUNDATION) {
-      isMoved = moveToFoundation(sourceCard, foundationPiles, destPileNumber);
+    if (destinationType == PileType.CASCADE) {
+      result = moveToCascade(sourceType, pileNumber, cardIndex, sourceCardsCount,
+              destPileNumber);
+    } else if (destinationType == PileType.FOUNDATION) {
+      result = moveToFoundation(sourceCard, destPileNumber);
     } else {
-      isMoved = moveToOpen(sourceCard, openPiles, destPileNumber);
+      result = moveToOpen(sourceCard, destPileNumber);
     }
 
 
-    if (isMoved) {
+    if (result == MoveResult.OK) {
+
+      recordMove(sourceType, pileNumber, cardIndex, destinationType, destPileNumber);
 
-      if (source == PileType.CASCADE) {
-        removeFromCascadeFoundation(cascadePiles, pileNumber, cardIndex);
-      } else if (source == PileType.FOUNDATION) {
-        removeFromCascadeFoundation(foundationPiles, pileNumber, cardIndex);
+      if (sourceType == PileType.OPEN) {
+        removeFromOpen(pileNumber, cardIndex);
       } else {
-        removeFromOpen(openPiles, pileNumber, cardIndex);
+        removeFromCascadeFoundation(sourceType, pileNumber, cardIndex);
       }
 
     }
-
+    return result;
   }
 
 
   /**
-   * A helper method that is called when a card needs to be moved to one of the cascade piles.
+   * A helper method that is called when one or more cards need to be moved to one of the cascade
+   * piles. The cards to be moved are the card at the given index of the source pile and all the
+   * cards above it.
    *
-   * @param sourceCards    represents the list of cards that needs to be moved.
-   * @param cascadePiles   represent the group of cascade piles.
-   * @param destPileNumber represents the destination pile number
-   * @return true if the source card is successfully moved and false if the source card after move
-   *         operation remains in the same position as before.
-   * @throws IllegalArgumentException an exception is thrown if the move to the cascade pile is
-   *                                  invalid.
+   * @param source           the type of the source pile
+   * @param pileNumber       the source pile number
+   * @param cardIndex        the index of the bottom most card to be moved
+   * @param sourceCardsCount the number of cards to be moved
+   * @param destPileNumber   represents the destination pile number
+   * @return OK if the cards are successfully moved and NO_OP if the source card after move
+   *         operation remains in the same position as before, else the reason for which the
+   *         move to the cascade pile is invalid.
    */
-  private boolean moveToCascade(List<Card> sourceCards, SortedMap<Integer, List<Card>> cascadePiles,
-                                int destPileNumber)
-          throws IllegalArgumentException {
+  private MoveResult moveToCascade(PileType source, int pileNumber, int cardIndex,
+                                   int sourceCardsCount, int destPileNumber) {
 
-    int openPilesNumber = openPilesCount - openPiles.size();
-    int cascadePilesNumber = cascadePilesCount - cascadePiles.size();
+    int openPilesNumber = board.emptyOpenPiles();
+    int cascadePilesNumber = board.emptyCascadePiles();
+    Card sourceCard = pileCard(source, pileNumber, cardIndex);
+    int cardsListSizeInPile = pileSize(PileType.CASCADE, destPileNumber);
+    MoveResult result;
 
-    if (cascadePiles.containsKey(destPileNumber)) {
+    if (cardsListSizeInPile != 0) {
 
-      int cardsListSizeInPile = cascadePiles.get(destPileNumber).size();
-      Card destinationPilesLastCard = cascadePiles.get(destPileNumber).get(cardsListSizeInPile - 1);
+      Card destinationPilesLastCard = board.cascadeCard(destPileNumber, cardsListSizeInPile - 1);
 
-      if (sourceCards.get(0) == destinationPilesLastCard) {
-        return false;
+      if (sourceCard.equals(destinationPilesLastCard)) {
+        return MoveResult.NO_OP;
       }
 
-      validateBuild(destinationPilesLastCard, sourceCards.get(0));
-
-      validateIntermediateSlotsAvailability(openPilesNumber, cascadePilesNumber,
-              sourceCards.size());
-      cascadePiles.get(destPileNumber).addAll(sourceCards);
-      return true;
+      result = validateBuild(destinationPilesLastCard, sourceCard);
+      if (result == MoveResult.OK) {
+        result = validateIntermediateSlotsAvailability(openPilesNumber, cascadePilesNumber,
+                sourceCardsCount);
+      }
     } else {
 
-      validateIntermediateSlotsAvailability(openPilesNumber,
-              cascadePilesNumber - 1, sourceCards.size());
-      cascadePiles.put(destPileNumber, new ArrayList<>());
-      cascadePiles.get(destPileNumber).addAll(sourceCards);
+      result = validateDestinationPileNumber(PileType.CASCADE, destPileNumber);
+      if (result == MoveResult.OK) {
+        result = validateIntermediateSlotsAvailability(openPilesNumber,
+                cascadePilesNumber - 1, sourceCardsCount);
+      }
+    }
+    if (result != MoveResult.OK) {
+      return result;
+    }
 
-      return true;
+    for (int cardCount = 0; cardCount < sourceCardsCount; cardCount++) {
+      addToPile(PileType.CASCADE, destPileNumber,
+              pileCard(source, pileNumber, cardIndex + cardCount));
     }
+    return MoveResult.OK;
 
   }
 
 
+  /**
+   * Provides the maximum number of cards that can be moved at once to a cascade pile, which is
+   * (N+1)*2^K when there are N free open piles and K empty cascade piles other than the
+   * destination pile.
+   *
+   * @param toEmptyPile true if the destination cascade pile is empty.
+   * @return the maximum number of cards that can be moved at once.
+   */
+  @Override
+  protected int maxCardsToCascade(boolean toEmptyPile) {
+
+    int emptyCascadePiles = board.emptyCascadePiles();
+
+    if (toEmptyPile && emptyCascadePiles > 0) {
+      emptyCascadePiles--;
+    }
+    return supermoveCapacity(board.emptyOpenPiles(), emptyCascadePiles);
+  }
+
+  /**
+   * A package protected helper method that provides the maximum number of cards that can be
+   * moved at once onto a cascade pile, (N+1)*2^K for N free open piles and K empty cascade piles
+   * other than the destination, in integer arithmetic. Six empty cascade piles already allow
+   * more cards than a deck holds, so more of them aren't counted and the product can't overflow.
+   *
+   * @param emptyOpenPiles    the number of free open piles
+   * @param emptyCascadePiles the number of empty cascade piles that aren't the destination
+   * @return the maximum number of cards that can be moved at once
+   */
+  static int supermoveCapacity(int emptyOpenPiles, int emptyCascadePiles) {
+    return (emptyOpenPiles + 1) << Math.min(emptyCascadePiles, 6);
+  }
+
+
   /**
    * A private helper method that validates the source cascade cards if the card index and the
    * multiple cards form a valid build.
@@ -246,32 +342,31 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
    * @param cardIndex       the card/bottom card of a build to be moved
    * @param pileNumber      the source cascade pile number from which the card has to be moved
    * @param destinationPile the destination pile to which the card has to be moved
-   * @throws IllegalArgumentException if the card index is not valid or the in the multi card move
-   *                                  the build is not valid.
+   * @return NOT_TOP_CARD if the card isn't the top card and the destination isn't a cascade
+   *         pile, NO_SUCH_CARD if the card index is not valid, NOT_A_BUILD if in the multi card
+   *         move the build is not valid, OK otherwise.
    */
-  private void validateSourceCascadecards(int cardIndex, int pileNumber, PileType destinationPile)
-          throws IllegalArgumentException {
+  private MoveResult validateSourceCascadecards(int cardIndex, int pileNumber,
+                                                PileType destinationPile) {
 
-    if (destinationPile != PileType.CASCADE && cardIndex
-            != cascadePiles.get(pileNumber).size() - 1) {
+    int sourceCardsCount = board.cascadeSize(pileNumber);
 
-      throw new IllegalArgumentException("Invalid card index.");
+    if (destinationPile != PileType.CASCADE && cardIndex
+            != sourceCardsCount - 1) {
+      return MoveResult.NOT_TOP_CARD;
     }
 
-    if (cardIndex < 0 || cardIndex > cascadePiles.get(pileNumber).size() - 1) {
-      throw new IllegalArgumentException("Invalid card index.");
+    if (cardIndex < 0 || cardIndex > sourceCardsCount - 1) {
+      return MoveResult.NO_SUCH_CARD;
     }
 
-    List<Card> sourceCards = cascadePiles.get(pileNumber);
-
-    for (int i = cardIndex; i < sourceCards.size() - 1; i++) {
-      try {
-        validateBuild(sourceCards.get(i), sourceCards.get(i + 1));
-      } catch (IllegalArgumentException e) {
-        throw new IllegalArgumentException("Source cards doesn't form a valid build");
+    for (int i = cardIndex; i < sourceCardsCount - 1; i++) {
+      if (validateBuild(board.cascadeCard(pileNumber, i), board.cascadeCard(pileNumber, i + 1))
+              != MoveResult.OK) {
+        return MoveResult.NOT_A_BUILD;
       }
     }
-
+    return MoveResult.OK;
   }
 
 
@@ -282,25 +377,20 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
    * @param bottomCard the bottom card in the case of a multi card move or the last card in case of
    *                   a single card move to be compared with top card
    * @param topCard    the card which is placed over bottom card
-   * @throws IllegalArgumentException if the top card is not exactly one less than the bottom card
-   *                                  or they are of the same colour.
+   * @return BAD_RANK if the top card is not exactly one less than the bottom card, BAD_COLOR if
+   *         they are of the same colour, OK otherwise.
    */
-  private void validateBuild(Card bottomCard, Card topCard) throws IllegalArgumentException {
+  private MoveResult validateBuild(Card bottomCard, Card topCard) {
 
     if (topCard.getFaceValue().ordinal()
             != bottomCard.getFaceValue().ordinal() - 1) {
-
-      throw new IllegalArgumentException("Face value  of the card"
-              + " you wanted to add should be one less than that of existing last card from the"
-              + " pile");
+      return MoveResult.BAD_RANK;
     }
 
     if (topCard.getColor() == bottomCard.getColor()) {
-
-      throw new IllegalArgumentException("The card you wanted to add should have different color"
-              + " to the existing card");
+      return MoveResult.BAD_COLOR;
     }
-
+    return MoveResult.OK;
   }
 
   /**
@@ -310,21 +400,17 @@ public class FreecellMultiMoveModel extends FreeCellAbstractModel {
    * @param emptyOpenPilesNumber    Number of empty open piles available
    * @param emptyCascadePilesNumber Number of empty cascade piles available
    * @param numberOfSourceCards     Number of cards to be moved
-   * @throws IllegalArgumentException If the number of cards to be moved is greater than maximum
-   *                                  number of cards that can be moved at any time as described in
-   *                                  this class's description.
+   * @return INSUFFICIENT_CAPACITY if the number of cards to be moved is greater than maximum
+   *         number of cards that can be moved at any time as described in this class's
+   *         description, OK otherwise.
    */
-  private void validateIntermediateSlotsAvailability(int emptyOpenPilesNumber,
-                                                     int emptyCascadePilesNumber,
-                                                     int numberOfSourceCards)
-          throws IllegalArgumentException {
-
-    if (numberOfSourceCards > (emptyOpenPilesNumber + 1) * Math.pow(2, emptyCascadePilesNumber)) {
-      throw new IllegalArgumentException("No.of card you wanted to move are greater than the"
-              + "available intermediate slots");
-    }
+  private MoveResult validateIntermediateSlotsAvailability(int emptyOpenPilesNumber,
+                                                           int emptyCascadePilesNumber,
+                                                           int numberOfSourceCards) {
 
+    if (numberOfSourceCards > supermoveCapacity(emptyOpenPilesNumber, emptyCascadePilesNumber)) {
+      return MoveResult.INSUFFICIENT_CAPACITY;
+    }
+    return MoveResult.OK;
   }
-
-
 }
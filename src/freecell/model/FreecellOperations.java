@@ -1,5 +1,6 @@
 package freecell.model;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -59,6 +60,33 @@ public interface FreecellOperations<K> {
             int destPileNumber) throws IllegalArgumentException,
           IllegalStateException;
 
+  /**
+   * Try to move a card from the given source pile to the given destination pile, as by
+   * {@link #move}, and tell the outcome instead of throwing an exception for a move that isn't
+   * valid. The models of this package neither throw nor allocate for a rejected move; by
+   * default, the move is made by move, whose exceptions are passed on.
+   *
+   * @param source         the type of the source pile see @link{PileType}
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source
+   *                       pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @return the outcome of the move
+   * @throws IllegalArgumentException if the move is not possible, by default only
+   * @throws IllegalStateException    if a move is attempted before the game has
+   *                                  started, by default only
+   */
+  default MoveResult tryMove(PileType source,
+                             int pileNumber,
+                             int cardIndex,
+                             PileType destination,
+                             int destPileNumber) throws IllegalArgumentException,
+          IllegalStateException {
+    move(source, pileNumber, cardIndex, destination, destPileNumber);
+    return MoveResult.OK;
+  }
+
   /**
    * Signal if the game is over or not.
    *
@@ -92,5 +120,18 @@ public interface FreecellOperations<K> {
    */
   String getGameState();
 
+  /**
+   * Write the present state of the game to the given output, formatted as
+   * by getGameState(). Implementations may write the state piece by piece
+   * without building the whole string first; by default the string returned
+   * by getGameState is appended.
+   *
+   * @param out the output to which the state is written
+   * @throws IOException if the output can't be written to
+   */
+  default void writeGameState(Appendable out) throws IOException {
+    out.append(getGameState());
+  }
+
 
 }
\ No newline at end of file
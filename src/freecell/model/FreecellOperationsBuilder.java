@@ -23,6 +23,30 @@ public interface FreecellOperationsBuilder {
    */
   FreecellOperationsBuilder opens(int openPilesCount);
 
+  /**
+   * This method is used to choose the packed board for the game,
+   * which stores all the piles in flat primitive arrays instead of
+   * maps of lists.
+   * @return FreecellOperationsBuilder object.
+   */
+  FreecellOperationsBuilder packed();
+
+  /**
+   * This method is used to bound the number of moves that can be
+   * undone in the game, keeping only the most recent ones.
+   * @param undoLimit the maximum number of moves that can be undone.
+   * @return FreecellOperationsBuilder object.
+   */
+  FreecellOperationsBuilder undoLimit(int undoLimit);
+
+  /**
+   * This method is used to play the game in autoplay mode, in which
+   * the cards that are safe to be moved to the foundation piles are
+   * moved there after the deal and after each move.
+   * @return FreecellOperationsBuilder object.
+   */
+  FreecellOperationsBuilder autoplay();
+
   /**
    * This method builds the model for the free cell
    * and return it.
@@ -0,0 +1,336 @@
+package freecell.model;
+
+/**
+ * This class saves a game, started or not, in a compact binary snapshot and restores games from
+ * such snapshots, so that a game in progress can be persisted or sent elsewhere and resumed
+ * exactly where it was left. A snapshot is written into and read from an array supplied by the
+ * caller; neither uses reflection, and reading a snapshot allocates nothing but the restored
+ * game.
+ *
+ * <p>All numbers of a snapshot are big endian. A snapshot is made of:</p>
+ * <ul>
+ *   <li>a header of 18 bytes: the magic number "FCSN", the version of the format (1), flags
+ *   telling if the game is a multi move game, if its piles are packed, if it has started,
+ *   if the snapshot holds its moves and if the game plays safe cards automatically, the
+ *   length of the snapshot in bytes as an int, the numbers of open and cascade piles as
+ *   unsigned shorts and the undo limit of the game as an int;</li>
+ *   <li>the position of a started game as written by
+ *   {@link FreeCellAbstractModel#writePosition(byte[], int)}, one byte per card: the top most
+ *   card of each foundation pile, the card of each open pile and the cards of each cascade pile
+ *   preceded by their number;</li>
+ *   <li>optionally, the moves that can be undone and redone: their number and the number of
+ *   them that weren't undone as ints, then 6 bytes for each move, oldest first, holding the
+ *   types of its source and destination piles, their numbers as unsigned shorts and the number
+ *   of cards moved;</li>
+ *   <li>the CRC-32C checksum of all the bytes before it, as an int.</li>
+ * </ul>
+ */
+public final class GameSnapshot {
+
+  /**
+   * The version of the format written by this class.
+   */
+  public static final int VERSION = 1;
+
+  private static final int MAGIC = 0x4643534E;
+  private static final int HEADER_SIZE = 18;
+  private static final int CHECKSUM_SIZE = 4;
+  private static final int MOVE_SIZE = 6;
+  private static final int MAX_PILES = 0xFFFF;
+
+  private static final int MULTI_MOVE = 1;
+  private static final int PACKED = 2;
+  private static final int STARTED = 4;
+  private static final int HISTORY = 8;
+  private static final int AUTOPLAY = 16;
+
+  private static final PileType[] PILE_TYPES = PileType.values();
+  private static final int[] CRC_TABLE = new int[256];
+
+  static {
+    for (int value = 0; value < 256; value++) {
+      int crc = value;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = (crc & 1) != 0 ? crc >>> 1 ^ 0x82F63B78 : crc >>> 1;
+      }
+      CRC_TABLE[value] = crc;
+    }
+  }
+
+  /**
+   * Private constructor as this class only has static methods.
+   */
+  private GameSnapshot() {
+  }
+
+  /**
+   * Provides the maximum number of bytes that {@link #write(FreeCellAbstractModel, byte[], int,
+   * boolean)} writes for the game in its present state.
+   * @param game the game to be saved.
+   * @param withMoves true if the moves that can be undone and redone are to be saved.
+   * @return the maximum size of the snapshot.
+   */
+  public static int maxSize(FreeCellAbstractModel game, boolean withMoves) {
+
+    int size = HEADER_SIZE + game.positionSize() + CHECKSUM_SIZE;
+    if (withMoves) {
+      size += 8 + MOVE_SIZE * game.getJournal().size();
+    }
+    return size;
+  }
+
+  /**
+   * Writes a snapshot of a game.
+   * @param game the game to be saved.
+   * @param buffer the array in which the snapshot is written.
+   * @param offset the index in the array at which the snapshot starts.
+   * @param withMoves true if the moves that can be undone and redone are to be saved.
+   * @return the number of bytes written, at most {@link #maxSize(FreeCellAbstractModel,
+   *         boolean)}.
+   * @throws IllegalArgumentException if the game has more than 65535 open or cascade piles, or
+   *                                  if the array can't hold the snapshot.
+   */
+  public static int write(FreeCellAbstractModel game, byte[] buffer, int offset,
+                          boolean withMoves) throws IllegalArgumentException {
+
+    if (game.openPilesCount > MAX_PILES || game.cascadePilesCount > MAX_PILES) {
+      throw new IllegalArgumentException("Game has too many piles to be saved");
+    }
+    if (offset < 0 || buffer.length - offset < maxSize(game, withMoves)) {
+      throw new IllegalArgumentException("Buffer is too small for the snapshot");
+    }
+
+    boolean started = !game.board.isEmpty();
+    int flags = (game instanceof FreecellMultiMoveModel ? MULTI_MOVE : 0)
+            | (game.packed ? PACKED : 0)
+            | (started ? STARTED : 0)
+            | (withMoves ? HISTORY : 0)
+            | (game.autoplay ? AUTOPLAY : 0);
+
+    putInt(buffer, offset, MAGIC);
+    buffer[offset + 4] = (byte) VERSION;
+    buffer[offset + 5] = (byte) flags;
+    putShort(buffer, offset + 10, game.openPilesCount);
+    putShort(buffer, offset + 12, game.cascadePilesCount);
+    putInt(buffer, offset + 14, game.undoLimit);
+    int index = offset + HEADER_SIZE;
+
+    if (started) {
+      index += game.writePosition(buffer, index);
+    }
+
+    if (withMoves) {
+      MoveJournal journal = game.getJournal();
+      putInt(buffer, index, journal.size());
+      putInt(buffer, index + 4, journal.applied());
+      index += 8;
+
+      for (int moveIndex = 0; moveIndex < journal.size(); moveIndex++) {
+        long entry = journal.get(moveIndex);
+        buffer[index] = (byte) (MoveJournal.source(entry).ordinal()
+                | MoveJournal.destination(entry).ordinal() << 2);
+        putShort(buffer, index + 1, MoveJournal.pileNumber(entry));
+        putShort(buffer, index + 3, MoveJournal.destPileNumber(entry));
+        buffer[index + 5] = (byte) MoveJournal.cardsCount(entry);
+        index += MOVE_SIZE;
+      }
+    }
+
+    int length = index + CHECKSUM_SIZE - offset;
+    putInt(buffer, offset + 6, length);
+    putInt(buffer, index, checksum(buffer, offset, index - offset));
+    return length;
+  }
+
+  /**
+   * Restores a game from a snapshot. The game is of the same kind as the saved game, with the
+   * same piles, board, undo limit and autoplay mode, holds the same cards in the same piles
+   * and, if the snapshot holds the moves of the game, can undo and redo the same moves.
+   * @param buffer the array from which the snapshot is read.
+   * @param offset the index in the array at which the snapshot starts.
+   * @return the restored game.
+   * @throws IllegalArgumentException if the bytes don't hold a snapshot of this version, or if
+   *                                  the snapshot is truncated or corrupt.
+   */
+  public static FreeCellAbstractModel read(byte[] buffer, int offset)
+          throws IllegalArgumentException {
+
+    if (offset < 0 || buffer.length - offset < HEADER_SIZE + CHECKSUM_SIZE
+            || getInt(buffer, offset) != MAGIC) {
+      throw new IllegalArgumentException("Bytes don't hold a game snapshot");
+    }
+    if (buffer[offset + 4] != VERSION) {
+      throw new IllegalArgumentException("Snapshot version isn't supported");
+    }
+
+    int length = getInt(buffer, offset + 6);
+    if (length < HEADER_SIZE + CHECKSUM_SIZE || length > buffer.length - offset) {
+      throw new IllegalArgumentException("Snapshot is truncated");
+    }
+    int end = offset + length - CHECKSUM_SIZE;
+    if (getInt(buffer, end) != checksum(buffer, offset, end - offset)) {
+      throw new IllegalArgumentException("Snapshot checksum doesn't match");
+    }
+
+    int flags = buffer[offset + 5];
+    int openPilesCount = getShort(buffer, offset + 10);
+    int cascadePilesCount = getShort(buffer, offset + 12);
+    int undoLimit = getInt(buffer, offset + 14);
+    if ((flags & ~(MULTI_MOVE | PACKED | STARTED | HISTORY | AUTOPLAY)) != 0 || undoLimit < -1) {
+      throw new IllegalArgumentException("Snapshot is corrupt");
+    }
+
+    FreecellOperationsBuilder builder = (flags & MULTI_MOVE) != 0
+            ? FreecellMultiMoveModel.getBuilder() : FreecellModel.getBuilder();
+    builder.opens(openPilesCount).cascades(cascadePilesCount);
+    if ((flags & PACKED) != 0) {
+      builder.packed();
+    }
+    if (undoLimit >= 0) {
+      builder.undoLimit(undoLimit);
+    }
+    if ((flags & AUTOPLAY) != 0) {
+      builder.autoplay();
+    }
+    FreecellOperations<Card> built = builder.build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    int index = offset + HEADER_SIZE;
+
+    if ((flags & STARTED) != 0) {
+      if (end - index < 4 + openPilesCount + cascadePilesCount) {
+        throw new IllegalArgumentException("Snapshot is corrupt");
+      }
+      index += game.readPosition(buffer, index);
+    }
+
+    if ((flags & HISTORY) != 0) {
+      index = readMoves(game, buffer, index, end, (flags & STARTED) != 0);
+    }
+
+    if (index != end) {
+      throw new IllegalArgumentException("Snapshot is corrupt");
+    }
+    return game;
+  }
+
+  /**
+   * A helper method that restores the journal of moves of a game from a snapshot, checking that
+   * each move is between piles of the game and that the moves can be undone from the restored
+   * position and redone as per the rules of the game.
+   * @param game the restored game, whose position was read.
+   * @param buffer the array holding the snapshot.
+   * @param index the index in the array at which the moves start.
+   * @param end the index in the array at which the checksum of the snapshot starts.
+   * @param started true if the game has started.
+   * @return the index in the array following the moves.
+   * @throws IllegalArgumentException if the moves are corrupt.
+   */
+  private static int readMoves(FreeCellAbstractModel game, byte[] buffer, int index, int end,
+                               boolean started) throws IllegalArgumentException {
+
+    if (end - index < 8) {
+      throw new IllegalArgumentException("Snapshot is corrupt");
+    }
+    MoveJournal journal = game.getJournal();
+    int size = getInt(buffer, index);
+    int applied = getInt(buffer, index + 4);
+    index += 8;
+
+    if (size < 0 || applied < 0 || applied > size || (size > 0 && !started)
+            || (journal.limit() >= 0 && size > journal.limit())
+            || (end - index) / MOVE_SIZE < size) {
+      throw new IllegalArgumentException("Snapshot is corrupt");
+    }
+
+    for (int moveIndex = 0; moveIndex < size; moveIndex++) {
+      int types = buffer[index];
+      int source = types & 3;
+      int destination = types >> 2 & 3;
+      int pileNumber = getShort(buffer, index + 1);
+      int destPileNumber = getShort(buffer, index + 3);
+      int cardsCount = buffer[index + 5];
+
+      if ((types & ~15) != 0 || !isPile(game, source, pileNumber)
+              || !isPile(game, destination, destPileNumber)
+              || cardsCount < 1 || cardsCount > 52) {
+        throw new IllegalArgumentException("Snapshot is corrupt");
+      }
+      journal.append(MoveJournal.entry(PILE_TYPES[source], pileNumber,
+              PILE_TYPES[destination], destPileNumber, cardsCount));
+      index += MOVE_SIZE;
+    }
+
+    journal.setApplied(applied);
+    if (!game.isJournalConsistent()) {
+      throw new IllegalArgumentException("Snapshot is corrupt");
+    }
+    return index;
+  }
+
+  /**
+   * A helper method that checks if a game has a pile.
+   * @param game the game.
+   * @param pileType the ordinal of the type of the pile.
+   * @param pileNumber the pile number.
+   * @return true if the game has the pile.
+   */
+  private static boolean isPile(FreeCellAbstractModel game, int pileType, int pileNumber) {
+
+    if (pileType == PileType.OPEN.ordinal()) {
+      return pileNumber < game.openPilesCount;
+    } else if (pileType == PileType.CASCADE.ordinal()) {
+      return pileNumber < game.cascadePilesCount;
+    } else {
+      return pileType == PileType.FOUNDATION.ordinal() && pileNumber < 4;
+    }
+  }
+
+  /**
+   * A helper method that computes the CRC-32C checksum of bytes of an array.
+   * @param buffer the array.
+   * @param offset the index of the first byte.
+   * @param length the number of bytes.
+   * @return the checksum.
+   */
+  private static int checksum(byte[] buffer, int offset, int length) {
+
+    int crc = -1;
+    for (int index = offset; index < offset + length; index++) {
+      crc = crc >>> 8 ^ CRC_TABLE[(crc ^ buffer[index]) & 0xFF];
+    }
+    return ~crc;
+  }
+
+  /**
+   * A helper method that writes an int in four bytes, most significant first.
+   */
+  private static void putInt(byte[] buffer, int index, int value) {
+    buffer[index] = (byte) (value >>> 24);
+    buffer[index + 1] = (byte) (value >>> 16);
+    buffer[index + 2] = (byte) (value >>> 8);
+    buffer[index + 3] = (byte) value;
+  }
+
+  /**
+   * A helper method that reads an int written by putInt.
+   */
+  private static int getInt(byte[] buffer, int index) {
+    return buffer[index] << 24 | (buffer[index + 1] & 0xFF) << 16
+            | (buffer[index + 2] & 0xFF) << 8 | buffer[index + 3] & 0xFF;
+  }
+
+  /**
+   * A helper method that writes an unsigned short in two bytes, most significant first.
+   */
+  private static void putShort(byte[] buffer, int index, int value) {
+    buffer[index] = (byte) (value >>> 8);
+    buffer[index + 1] = (byte) value;
+  }
+
+  /**
+   * A helper method that reads an unsigned short written by putShort.
+   */
+  private static int getShort(byte[] buffer, int index) {
+    return (buffer[index] & 0xFF) << 8 | buffer[index + 1] & 0xFF;
+  }
+}
@@ -0,0 +1,201 @@
+package freecell.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A package protected cache of the game state string of a game. It keeps the rendered line of
+ * each pile, and the model marks the lines of the piles it changes as stale, so rendering the
+ * state after a move only renders the one or two piles the move touched again, and rendering it
+ * again without any move in between returns the same string.
+ *
+ * <p>The state can also be written straight to an Appendable. Lines that are up to date are
+ * appended as they are and the others are written card by card from the board, using the
+ * strings each card holds for itself, so writing the state creates no strings.</p>
+ *
+ * <p>The lines are indexed with the 4 foundation piles first, then the open piles and then the
+ * cascade piles, which is the order in which they appear in the game state.</p>
+ */
+final class GameStateCache {
+
+  private final int openPilesCount;
+  private final String[] lines;
+  private final StringBuilder line;
+  private String gameState;
+
+  /**
+   * Constructs an empty cache for a game with the given number of piles.
+   * @param openPilesCount the number of open piles.
+   * @param cascadePilesCount the number of cascade piles.
+   */
+  GameStateCache(int openPilesCount, int cascadePilesCount) {
+    this.openPilesCount = openPilesCount;
+    this.lines = new String[4 + openPilesCount + cascadePilesCount];
+    this.line = new StringBuilder();
+  }
+
+  /**
+   * Marks the line of a pile as stale.
+   * @param pileType the type of the pile.
+   * @param pileNumber the pile number.
+   */
+  void invalidate(PileType pileType, int pileNumber) {
+    lines[lineIndex(pileType, pileNumber)] = null;
+    gameState = null;
+  }
+
+  /**
+   * Marks the lines of all the piles as stale.
+   */
+  void invalidateAll() {
+    Arrays.fill(lines, null);
+    gameState = null;
+  }
+
+  /**
+   * Provides the game state of a started game in the format of
+   * {@link FreeCellAbstractModel#getGameState()}, rendering only the lines of the piles that
+   * changed since the last call.
+   * @param board the piles of the game.
+   * @return the game state.
+   */
+  String getGameState(Board board) {
+
+    if (gameState != null) {
+      return gameState;
+    }
+
+    int length = lines.length - 1;
+
+    for (int index = 0; index < lines.length; index++) {
+      if (lines[index] == null) {
+        lines[index] = renderLine(board, index);
+      }
+      length += lines[index].length();
+    }
+
+    StringBuilder state = new StringBuilder(length);
+    state.append(lines[0]);
+    for (int index = 1; index < lines.length; index++) {
+      state.append('\n').append(lines[index]);
+    }
+
+    gameState = state.toString();
+    return gameState;
+  }
+
+  /**
+   * Writes the game state of a started game in the format of
+   * {@link FreeCellAbstractModel#getGameState()} to the given output.
+   * @param board the piles of the game.
+   * @param out the output to which the state is written.
+   * @throws IOException if the output can't be written to.
+   */
+  void writeGameState(Board board, Appendable out) throws IOException {
+
+    if (gameState != null) {
+      out.append(gameState);
+      return;
+    }
+
+    for (int index = 0; index < lines.length; index++) {
+      if (index != 0) {
+        out.append('\n');
+      }
+      if (lines[index] != null) {
+        out.append(lines[index]);
+      } else {
+        writeLine(board, index, out);
+      }
+    }
+  }
+
+  /**
+   * A helper method that renders the line of a pile.
+   * @param board the piles of the game.
+   * @param index the index of the pile's line.
+   * @return the line, without its newline.
+   */
+  private String renderLine(Board board, int index) {
+
+    line.setLength(0);
+    try {
+      writeLine(board, index, line);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return line.toString();
+  }
+
+  /**
+   * A helper method that writes the line of a pile, without its newline.
+   * @param board the piles of the game.
+   * @param index the index of the pile's line.
+   * @param out the output to which the line is written.
+   * @throws IOException if the output can't be written to.
+   */
+  private void writeLine(Board board, int index, Appendable out) throws IOException {
+
+    if (index < 4) {
+      writePileName(out, 'F', index + 1);
+      int cardsInPile = board.foundationSize(index);
+      for (int cardIndex = 0; cardIndex < cardsInPile; cardIndex++) {
+        out.append(cardIndex == 0 ? " " : ", ")
+                .append(board.foundationCard(index, cardIndex).toString());
+      }
+    } else if (index < 4 + openPilesCount) {
+      int pileNumber = index - 4;
+      writePileName(out, 'O', pileNumber + 1);
+      if (board.openCard(pileNumber) != null) {
+        out.append(board.openCard(pileNumber).toString());
+      }
+    } else {
+      int pileNumber = index - 4 - openPilesCount;
+      writePileName(out, 'C', pileNumber + 1);
+      int cardsInPile = board.cascadeSize(pileNumber);
+      for (int cardIndex = 0; cardIndex < cardsInPile; cardIndex++) {
+        out.append(cardIndex == 0 ? " " : ", ")
+                .append(board.cascadeCard(pileNumber, cardIndex).toString());
+      }
+    }
+  }
+
+  /**
+   * A helper method that writes the name of a pile, such as "C12:", one character at a time.
+   * @param out the output to which the name is written.
+   * @param pileCharacter 'F', 'O' or 'C'.
+   * @param number the pile number, counted from 1.
+   * @throws IOException if the output can't be written to.
+   */
+  private static void writePileName(Appendable out, char pileCharacter, int number)
+          throws IOException {
+
+    out.append(pileCharacter);
+    int divisor = 1;
+    while (divisor <= number / 10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      out.append((char) ('0' + number / divisor % 10));
+    }
+    out.append(':');
+  }
+
+  /**
+   * A helper method that provides the index of the line of a pile.
+   * @param pileType the type of the pile.
+   * @param pileNumber the pile number.
+   * @return the index of the line.
+   */
+  private int lineIndex(PileType pileType, int pileNumber) {
+
+    switch (pileType) {
+      case FOUNDATION:
+        return pileNumber;
+      case OPEN:
+        return 4 + pileNumber;
+      default:
+        return 4 + openPilesCount + pileNumber;
+    }
+  }
+}
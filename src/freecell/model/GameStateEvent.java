@@ -0,0 +1,25 @@
+package freecell.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A package protected Flight Recorder event for a rendering of the state of a game, either as a
+ * string by getGameState or straight to an output by writeGameState. The event is disabled by
+ * default and only committed while a recording enables it.
+ */
+@Name("freecell.GameState")
+@Label("Game State")
+@Category({"Freecell", "Model"})
+@Description("A rendering of the state of a game")
+@Enabled(false)
+final class GameStateEvent extends Event {
+
+  @Label("Written")
+  @Description("True if the state was written to an output rather than returned as a string")
+  boolean written;
+}
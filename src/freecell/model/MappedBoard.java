@@ -0,0 +1,154 @@
+package freecell.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A package protected class that implements the Board interface by keeping every non empty pile
+ * in a sorted map, keyed by the pile number. Foundation and cascade piles are stored as lists of
+ * cards, whereas open piles map directly to the card they hold. An empty pile has no entry in
+ * its map.
+ */
+class MappedBoard implements Board {
+
+  private final int openPilesCount;
+  private final int cascadePilesCount;
+  private final SortedMap<Integer, List<Card>> foundationPiles;
+  private final SortedMap<Integer, List<Card>> cascadePiles;
+  private final SortedMap<Integer, Card> openPiles;
+
+  /**
+   * Constructs an empty board for the given number of open and cascade piles.
+   * @param openPilesCount    the number of open piles
+   * @param cascadePilesCount the number of cascade piles
+   */
+  MappedBoard(int openPilesCount, int cascadePilesCount) {
+    this.openPilesCount = openPilesCount;
+    this.cascadePilesCount = cascadePilesCount;
+    foundationPiles = new TreeMap<>();
+    cascadePiles = new TreeMap<>();
+    openPiles = new TreeMap<>();
+  }
+
+  @Override
+  public void clear() {
+    cascadePiles.clear();
+    foundationPiles.clear();
+    openPiles.clear();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return cascadePiles.size() == 0 && foundationPiles.size() == 0 && openPiles.size() == 0;
+  }
+
+  @Override
+  public int cascadeSize(int pileNumber) {
+    return pileSize(cascadePiles, pileNumber);
+  }
+
+  @Override
+  public Card cascadeCard(int pileNumber, int cardIndex) {
+    return cascadePiles.get(pileNumber).get(cardIndex);
+  }
+
+  @Override
+  public int foundationSize(int pileNumber) {
+    return pileSize(foundationPiles, pileNumber);
+  }
+
+  @Override
+  public Card foundationCard(int pileNumber, int cardIndex) {
+    return foundationPiles.get(pileNumber).get(cardIndex);
+  }
+
+  @Override
+  public Card openCard(int pileNumber) {
+    return openPiles.get(pileNumber);
+  }
+
+  @Override
+  public int emptyCascadePiles() {
+    return cascadePilesCount - cascadePiles.size();
+  }
+
+  @Override
+  public int emptyOpenPiles() {
+    return openPilesCount - openPiles.size();
+  }
+
+  @Override
+  public void addToCascade(int pileNumber, Card card) {
+    addToPile(cascadePiles, pileNumber, card);
+  }
+
+  @Override
+  public void addToFoundation(int pileNumber, Card card) {
+    addToPile(foundationPiles, pileNumber, card);
+  }
+
+  @Override
+  public void addToOpen(int pileNumber, Card card) {
+    openPiles.put(pileNumber, card);
+  }
+
+  @Override
+  public void removeFromCascade(int pileNumber, int cardIndex) {
+    removeFromPile(cascadePiles, pileNumber, cardIndex);
+  }
+
+  @Override
+  public void removeFromFoundation(int pileNumber, int cardIndex) {
+    removeFromPile(foundationPiles, pileNumber, cardIndex);
+  }
+
+  @Override
+  public void removeFromOpen(int pileNumber) {
+    openPiles.remove(pileNumber);
+  }
+
+  /**
+   * A helper method that provides the number of cards in a pile of the given map.
+   * @param piles represent the group of piles.
+   * @param pileNumber represents the pile number.
+   * @return the number of cards in the pile, 0 if the pile has no entry.
+   */
+  private int pileSize(SortedMap<Integer, List<Card>> piles, int pileNumber) {
+    List<Card> pile = piles.get(pileNumber);
+    return pile == null ? 0 : pile.size();
+  }
+
+  /**
+   * A helper method that adds a card on top of a pile, creating the pile's entry if the pile
+   * was empty.
+   * @param piles represent the group of piles.
+   * @param pileNumber represents the pile number.
+   * @param card the card to be added.
+   */
+  private void addToPile(SortedMap<Integer, List<Card>> piles, int pileNumber, Card card) {
+    if (!piles.containsKey(pileNumber)) {
+      piles.put(pileNumber, new ArrayList<>());
+    }
+    piles.get(pileNumber).add(card);
+  }
+
+  /**
+   * A helper method that removes the cards from the given index to the top of a pile and removes
+   * the pile's entry once it doesn't hold any card.
+   * @param piles represent the group of piles.
+   * @param pileNumber represent the pile number.
+   * @param cardIndex represent the position of the lowest card to be removed.
+   */
+  private void removeFromPile(SortedMap<Integer, List<Card>> piles, int pileNumber,
+                              int cardIndex) {
+
+    while (cardIndex <= piles.get(pileNumber).size() - 1) {
+      piles.get(pileNumber).remove(piles.get(pileNumber).size() - 1);
+    }
+    if (piles.get(pileNumber).size() == 0) {
+      piles.remove(pileNumber);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package freecell.model;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of moves, filled by {@link FreeCellAbstractModel#generateMoves(MoveBuffer)}.
+ * Each move is packed in a single int holding the source pile type, source pile number, card
+ * index, destination pile type and destination pile number, so a buffer can be filled again and
+ * again without allocating any objects. The static methods of this class can be used to pack and
+ * unpack these ints.
+ *
+ * <p>Pile numbers are stored in 10 bits and card indices in 6 bits, which covers games with up to
+ * 1024 piles of each type.</p>
+ */
+public final class MoveBuffer {
+
+  private static final PileType[] PILE_TYPES = PileType.values();
+
+  private int[] moves;
+  private int size;
+
+  /**
+   * Constructs an empty buffer that can hold 64 moves before it has to grow.
+   */
+  public MoveBuffer() {
+    this(64);
+  }
+
+  /**
+   * Constructs an empty buffer that can hold the given number of moves before it has to grow.
+   * @param capacity the initial capacity of the buffer.
+   * @throws IllegalArgumentException if the capacity isn't positive.
+   */
+  public MoveBuffer(int capacity) throws IllegalArgumentException {
+
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity of the buffer should be positive");
+    }
+    moves = new int[capacity];
+  }
+
+  /**
+   * Removes all the moves from the buffer, keeping its capacity.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * A method that provides the number of moves in the buffer.
+   * @return the number of moves in the buffer.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * A method that provides a packed move from the buffer.
+   * @param index the index of the move, starting at 0.
+   * @return the packed move.
+   * @throws IndexOutOfBoundsException if the index isn't less than the size of the buffer.
+   */
+  public int get(int index) throws IndexOutOfBoundsException {
+
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Move index " + index + " is out of bounds");
+    }
+    return moves[index];
+  }
+
+  /**
+   * Adds a packed move at the end of the buffer, growing it if it is full.
+   * @param move the packed move.
+   */
+  public void add(int move) {
+
+    if (size == moves.length) {
+      moves = Arrays.copyOf(moves, moves.length * 2);
+    }
+    moves[size++] = move;
+  }
+
+  /**
+   * Packs a move into an int.
+   * @param source the type of the source pile.
+   * @param pileNumber the source pile number, starting at 0.
+   * @param cardIndex the index of the card to be moved, starting at 0.
+   * @param destination the type of the destination pile.
+   * @param destPileNumber the destination pile number, starting at 0.
+   * @return the packed move.
+   */
+  public static int pack(PileType source, int pileNumber, int cardIndex, PileType destination,
+                         int destPileNumber) {
+
+    return source.ordinal() | destination.ordinal() << 2 | cardIndex << 4 | pileNumber << 10
+            | destPileNumber << 20;
+  }
+
+  /**
+   * Unpacks the type of the source pile of a move.
+   * @param move the packed move.
+   * @return the type of the source pile.
+   */
+  public static PileType source(int move) {
+    return PILE_TYPES[move & 3];
+  }
+
+  /**
+   * Unpacks the source pile number of a move.
+   * @param move the packed move.
+   * @return the source pile number.
+   */
+  public static int pileNumber(int move) {
+    return (move >>> 10) & 1023;
+  }
+
+  /**
+   * Unpacks the index of the card to be moved.
+   * @param move the packed move.
+   * @return the index of the card in its source pile.
+   */
+  public static int cardIndex(int move) {
+    return (move >>> 4) & 63;
+  }
+
+  /**
+   * Unpacks the type of the destination pile of a move.
+   * @param move the packed move.
+   * @return the type of the destination pile.
+   */
+  public static PileType destination(int move) {
+    return PILE_TYPES[(move >>> 2) & 3];
+  }
+
+  /**
+   * Unpacks the destination pile number of a move.
+   * @param move the packed move.
+   * @return the destination pile number.
+   */
+  public static int destPileNumber(int move) {
+    return (move >>> 20) & 1023;
+  }
+}
@@ -0,0 +1,36 @@
+package freecell.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A package protected Flight Recorder event for a call of the move method of a model. Like the
+ * other events of the game, it is disabled by default and only committed while a recording
+ * enables it, as jfr/freecell.jfc does; otherwise creating it, beginning it and committing it
+ * cost nothing once compiled.
+ */
+@Name("freecell.Move")
+@Label("Move")
+@Category({"Freecell", "Model"})
+@Description("A move of one or more cards between two piles")
+@Enabled(false)
+final class MoveEvent extends Event {
+
+  @Label("Source")
+  String source;
+
+  @Label("Destination")
+  String destination;
+
+  @Label("Cards Count")
+  @Description("The number of cards moved, or that were to be moved if the move was rejected")
+  int cardsCount;
+
+  @Label("Succeeded")
+  @Description("False if the move was rejected")
+  boolean succeeded;
+}
@@ -0,0 +1,228 @@
+package freecell.model;
+
+import java.util.Arrays;
+
+/**
+ * A package protected journal of the moves made in a game, which lets the game take its moves
+ * back and make them again. Each move is kept as a single long holding the source pile, the
+ * destination pile and the number of cards moved, which is all that is needed to move the cards
+ * back as they are always the top most cards of the destination pile.
+ *
+ * <p>The journal keeps the moves that were undone after the ones that weren't, so that they can
+ * be redone, until a new move is recorded. It can keep any number of moves, or at most a given
+ * number of moves in which case the oldest move is forgotten when a new one doesn't fit.</p>
+ */
+final class MoveJournal {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final long PILE_MASK = (1L << 24) - 1;
+  private static final PileType[] PILE_TYPES = PileType.values();
+
+  private final int limit;
+  private long[] entries;
+  private int first;
+  private int size;
+  private int applied;
+
+  /**
+   * Constructs an empty journal.
+   * @param limit the maximum number of moves kept, or -1 to keep any number of moves.
+   */
+  MoveJournal(int limit) {
+    this.limit = limit;
+    this.entries = new long[limit < 0 ? INITIAL_CAPACITY : limit];
+  }
+
+  /**
+   * Forgets all the moves of the journal.
+   */
+  void clear() {
+    first = 0;
+    size = 0;
+    applied = 0;
+  }
+
+  /**
+   * Records a move that was just made, forgetting the moves that were undone before it.
+   * @param source the type of the source pile.
+   * @param pileNumber the source pile number.
+   * @param destination the type of the destination pile.
+   * @param destPileNumber the destination pile number.
+   * @param cardsCount the number of cards moved.
+   */
+  void record(PileType source, int pileNumber, PileType destination, int destPileNumber,
+              int cardsCount) {
+
+    size = applied;
+
+    if (size == entries.length) {
+      if (limit == 0) {
+        return;
+      } else if (limit > 0) {
+        first = (first + 1) % entries.length;
+        size--;
+      } else {
+        entries = Arrays.copyOf(entries, entries.length * 2);
+      }
+    }
+
+    entries[(first + size) % entries.length] = entry(source, pileNumber, destination,
+            destPileNumber, cardsCount);
+    size++;
+    applied = size;
+  }
+
+  /**
+   * Appends a move to the end of the journal as one that was made, which is how a journal saved
+   * in a snapshot of the game is restored. The journal is expected to have room for the move.
+   * @param entry the entry of the move.
+   */
+  void append(long entry) {
+
+    if (size == entries.length) {
+      entries = Arrays.copyOf(entries, entries.length * 2);
+    }
+    entries[(first + size) % entries.length] = entry;
+    size++;
+    applied = size;
+  }
+
+  /**
+   * Marks the last moves of the journal as undone, so that only the given number of moves
+   * remain made.
+   * @param applied the number of moves made, at most the size of the journal.
+   */
+  void setApplied(int applied) {
+    this.applied = applied;
+  }
+
+  /**
+   * Provides the number of moves kept by the journal, whether they were undone or not.
+   * @return the number of moves.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Provides the number of moves of the journal that are made, i.e. that weren't undone.
+   * @return the number of moves made.
+   */
+  int applied() {
+    return applied;
+  }
+
+  /**
+   * Provides the maximum number of moves kept by the journal.
+   * @return the maximum number of moves, or -1 if any number of moves is kept.
+   */
+  int limit() {
+    return limit;
+  }
+
+  /**
+   * Provides a move of the journal.
+   * @param index the index of the move, 0 being the oldest move kept.
+   * @return the entry of the move.
+   */
+  long get(int index) {
+    return entries[(first + index) % entries.length];
+  }
+
+  /**
+   * Signals if there is a move that can be undone.
+   * @return true if a move can be undone.
+   */
+  boolean canUndo() {
+    return applied > 0;
+  }
+
+  /**
+   * Signals if there is an undone move that can be redone.
+   * @return true if a move can be redone.
+   */
+  boolean canRedo() {
+    return applied < size;
+  }
+
+  /**
+   * Steps back over the last move that was made, which is expected to exist.
+   * @return the entry of the move.
+   */
+  long undo() {
+    applied--;
+    return entries[(first + applied) % entries.length];
+  }
+
+  /**
+   * Steps forward over the last move that was undone, which is expected to exist.
+   * @return the entry of the move.
+   */
+  long redo() {
+    applied++;
+    return entries[(first + applied - 1) % entries.length];
+  }
+
+  /**
+   * Provides the entry of a move.
+   * @param source the type of the source pile.
+   * @param pileNumber the source pile number.
+   * @param destination the type of the destination pile.
+   * @param destPileNumber the destination pile number.
+   * @param cardsCount the number of cards moved.
+   * @return the entry of the move.
+   */
+  static long entry(PileType source, int pileNumber, PileType destination, int destPileNumber,
+                    int cardsCount) {
+    return (long) source.ordinal()
+            | (pileNumber & PILE_MASK) << 2
+            | (long) destination.ordinal() << 26
+            | (destPileNumber & PILE_MASK) << 28
+            | (long) cardsCount << 52;
+  }
+
+  /**
+   * Provides the type of the source pile of a move.
+   * @param entry the entry of the move.
+   * @return the type of the source pile.
+   */
+  static PileType source(long entry) {
+    return PILE_TYPES[(int) (entry & 3)];
+  }
+
+  /**
+   * Provides the source pile number of a move.
+   * @param entry the entry of the move.
+   * @return the source pile number.
+   */
+  static int pileNumber(long entry) {
+    return (int) (entry >>> 2 & PILE_MASK);
+  }
+
+  /**
+   * Provides the type of the destination pile of a move.
+   * @param entry the entry of the move.
+   * @return the type of the destination pile.
+   */
+  static PileType destination(long entry) {
+    return PILE_TYPES[(int) (entry >>> 26 & 3)];
+  }
+
+  /**
+   * Provides the destination pile number of a move.
+   * @param entry the entry of the move.
+   * @return the destination pile number.
+   */
+  static int destPileNumber(long entry) {
+    return (int) (entry >>> 28 & PILE_MASK);
+  }
+
+  /**
+   * Provides the number of cards moved by a move.
+   * @param entry the entry of the move.
+   * @return the number of cards.
+   */
+  static int cardsCount(long entry) {
+    return (int) (entry >>> 52);
+  }
+}
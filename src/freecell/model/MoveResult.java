@@ -0,0 +1,50 @@
+package freecell.model;
+
+/**
+ * The outcome of a move tried by {@link FreecellOperations#tryMove}. OK and NO_OP are accepted
+ * moves, NO_OP being a move of a card onto itself, which leaves the game as it was. All the other
+ * results are the reasons for which a move is rejected, each with the message of the exception
+ * that {@link FreecellOperations#move} throws for it.
+ */
+public enum MoveResult {
+
+  OK(null),
+  NO_OP(null),
+  NOT_STARTED("Move can't be called before the game has started"),
+  NO_SUCH_PILE("provided source pile number doesn't exist"),
+  NO_SUCH_DESTINATION("Destination Pile Number is invalid"),
+  NO_SUCH_CELL("Destination pile number isn't valid"),
+  NO_SUCH_CARD("Invalid card index."),
+  NOT_TOP_CARD("provided source card isn't the last card in the source pile"),
+  NOT_A_BUILD("Source cards doesn't form a valid build"),
+  BAD_RANK("Face value  of the card you wanted to add should be one less than that of existing"
+          + " last card from the pile"),
+  NOT_AN_ACE("The first card in a foundation pile should be an ace."),
+  BAD_COLOR("The card you wanted to add should have different color to the existing card"),
+  BAD_SUIT("The card you wanted to add should have the same suit as the existing card"),
+  CELL_OCCUPIED("Destination Open Pile already holds a card"),
+  INSUFFICIENT_CAPACITY("No.of card you wanted to move are greater than theavailable"
+          + " intermediate slots");
+
+  private final String message;
+
+  MoveResult(String message) {
+    this.message = message;
+  }
+
+  /**
+   * A method that tells if the move was accepted.
+   * @return true for OK and NO_OP, false for the reasons of rejecting a move.
+   */
+  public boolean isAccepted() {
+    return message == null;
+  }
+
+  /**
+   * A method that provides the message that describes why a move was rejected.
+   * @return the message, or null if the move was accepted.
+   */
+  public String getMessage() {
+    return message;
+  }
+}
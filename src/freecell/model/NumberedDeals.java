@@ -0,0 +1,139 @@
+package freecell.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class produces the numbered deals of the free cell game shipped with Microsoft Windows,
+ * so that a deal can be reproduced, shared and its results cached by its number alone. Deal n is
+ * the deck shuffled by the linear congruential generator of the Microsoft C library seeded with
+ * n, in the order in which {@link FreeCellAbstractModel#startGame(List, boolean)} deals its cards
+ * round robin: with 8 cascade piles, deal 1 starts with J♦ 2♦ 9♥ J♣ 5♦ 7♥ 7♣ 5♥, the bottom
+ * most cards of the 8 piles, exactly as in the original game. With any other number of cascade
+ * piles the same deck is dealt round robin among them.
+ *
+ * <p>The static {@link #deal(int)} method returns a new list for each deal. For batch work an
+ * instance of this class deals into arrays supplied by the caller and allocates nothing, which
+ * is how millions of deals per second are produced; an instance isn't safe for use by many
+ * threads at once, so each thread should have its own.</p>
+ */
+public final class NumberedDeals {
+
+  /**
+   * The number of the highest deal.
+   */
+  public static final int MAX_DEAL = Integer.MAX_VALUE;
+
+  private static final int DECK_SIZE = 52;
+
+  /**
+   * The id of each card of the original game's deck, which holds the aces first then the twos
+   * and so on, each face in the order clubs, diamonds, hearts, spades.
+   */
+  private static final byte[] ORIGINAL_IDS = new byte[DECK_SIZE];
+
+  static {
+    Suit[] suits = {Suit.CLUB, Suit.DIAMOND, Suit.HEART, Suit.SPADE};
+
+    for (int index = 0; index < DECK_SIZE; index++) {
+      ORIGINAL_IDS[index] = (byte) (suits[index % 4].ordinal() * 13 + index / 4);
+    }
+  }
+
+  private final byte[] remaining;
+
+  /**
+   * Constructs a generator that deals into arrays supplied by the caller.
+   */
+  public NumberedDeals() {
+    remaining = new byte[DECK_SIZE];
+  }
+
+  /**
+   * A static method that provides the cards of a numbered deal.
+   * @param dealNumber the number of the deal, between 1 and {@link #MAX_DEAL}.
+   * @return a new list of the 52 cards, in the order they are to be dealt.
+   * @throws IllegalArgumentException if there is no deal with the given number.
+   */
+  public static List<Card> deal(int dealNumber) throws IllegalArgumentException {
+
+    Card[] cards = new Card[DECK_SIZE];
+    new NumberedDeals().deal(dealNumber, cards);
+
+    List<Card> deck = new ArrayList<>(DECK_SIZE);
+    for (Card card : cards) {
+      deck.add(card);
+    }
+    return deck;
+  }
+
+  /**
+   * Writes the cards of a numbered deal into an array, in the order they are to be dealt.
+   * @param dealNumber the number of the deal, between 1 and {@link #MAX_DEAL}.
+   * @param cards the array whose first 52 elements receive the cards.
+   * @throws IllegalArgumentException if there is no deal with the given number or the array has
+   *                                  fewer than 52 elements.
+   */
+  public void deal(int dealNumber, Card[] cards) throws IllegalArgumentException {
+
+    if (cards == null || cards.length < DECK_SIZE) {
+      throw new IllegalArgumentException("Array should have room for 52 cards");
+    }
+    shuffle(dealNumber);
+
+    for (int index = 0; index < DECK_SIZE; index++) {
+      cards[index] = Card.fromId(remaining[index]);
+    }
+  }
+
+  /**
+   * Writes the ids of the cards of a numbered deal into an array, in the order they are to be
+   * dealt. The id of a card is the one given by {@link Card#getId()}.
+   * @param dealNumber the number of the deal, between 1 and {@link #MAX_DEAL}.
+   * @param ids the array that receives the ids.
+   * @param offset the index in the array at which the 52 ids start.
+   * @throws IllegalArgumentException if there is no deal with the given number or the array has
+   *                                  no room for 52 ids from the offset.
+   */
+  public void dealIds(int dealNumber, byte[] ids, int offset) throws IllegalArgumentException {
+
+    if (ids == null || offset < 0 || offset > ids.length - DECK_SIZE) {
+      throw new IllegalArgumentException("Array should have room for 52 cards");
+    }
+    shuffle(dealNumber);
+    System.arraycopy(remaining, 0, ids, offset, DECK_SIZE);
+  }
+
+  /**
+   * A helper method that shuffles the original deck for a deal. Each draw picks one of the cards
+   * left, which is dealt next, and the last card left takes its place, so once all the cards
+   * are drawn the array holds them in the order they were drawn, reversed. The reversal is
+   * undone in place.
+   * @param dealNumber the number of the deal.
+   * @throws IllegalArgumentException if there is no deal with the given number.
+   */
+  private void shuffle(int dealNumber) throws IllegalArgumentException {
+
+    if (dealNumber < 1) {
+      throw new IllegalArgumentException("Deal number should be between 1 and " + MAX_DEAL);
+    }
+
+    System.arraycopy(ORIGINAL_IDS, 0, remaining, 0, DECK_SIZE);
+    long seed = dealNumber;
+
+    for (int left = DECK_SIZE; left > 0; left--) {
+      seed = (seed * 214013 + 2531011) & 0x7fffffffL;
+      int drawn = (int) (seed >>> 16) % left;
+
+      byte card = remaining[drawn];
+      remaining[drawn] = remaining[left - 1];
+      remaining[left - 1] = card;
+    }
+
+    for (int low = 0, high = DECK_SIZE - 1; low < high; low++, high--) {
+      byte card = remaining[low];
+      remaining[low] = remaining[high];
+      remaining[high] = card;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package freecell.model;
+
+import java.util.Arrays;
+
+/**
+ * A package protected class that implements the Board interface using flat primitive arrays.
+ * Each card is stored as its byte id, see {@link Card#getId()}. Cascade piles share one array in
+ * which every pile owns a fixed slice of 52 slots, and foundation piles share another one with a
+ * slice of 13 slots each. The number of cards in each pile is kept in a separate array, so
+ * adding or removing cards never allocates.
+ */
+class PackedBoard implements Board {
+
+  private static final byte EMPTY = -1;
+  private static final int CASCADE_CAPACITY = 52;
+  private static final int FOUNDATION_CAPACITY = 13;
+
+  private final byte[] cascades;
+  private final int[] cascadeSizes;
+  private final byte[] foundations;
+  private final int[] foundationSizes;
+  private final byte[] opens;
+  private int emptyCascadePiles;
+  private int emptyOpenPiles;
+  private int foundationCardsCount;
+
+  /**
+   * Constructs an empty board for the given number of open and cascade piles.
+   * @param openPilesCount    the number of open piles
+   * @param cascadePilesCount the number of cascade piles
+   */
+  PackedBoard(int openPilesCount, int cascadePilesCount) {
+    cascades = new byte[cascadePilesCount * CASCADE_CAPACITY];
+    cascadeSizes = new int[cascadePilesCount];
+    foundations = new byte[4 * FOUNDATION_CAPACITY];
+    foundationSizes = new int[4];
+    opens = new byte[openPilesCount];
+    clear();
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(cascadeSizes, 0);
+    Arrays.fill(foundationSizes, 0);
+    Arrays.fill(opens, EMPTY);
+    emptyCascadePiles = cascadeSizes.length;
+    emptyOpenPiles = opens.length;
+    foundationCardsCount = 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return emptyCascadePiles == cascadeSizes.length && emptyOpenPiles == opens.length
+            && foundationCardsCount == 0;
+  }
+
+  @Override
+  public int cascadeSize(int pileNumber) {
+    return cascadeSizes[pileNumber];
+  }
+
+  @Override
+  public Card cascadeCard(int pileNumber, int cardIndex) {
+    return Card.fromId(cascades[pileNumber * CASCADE_CAPACITY + cardIndex]);
+  }
+
+  @Override
+  public int foundationSize(int pileNumber) {
+    return foundationSizes[pileNumber];
+  }
+
+  @Override
+  public Card foundationCard(int pileNumber, int cardIndex) {
+    return Card.fromId(foundations[pileNumber * FOUNDATION_CAPACITY + cardIndex]);
+  }
+
+  @Override
+  public Card openCard(int pileNumber) {
+    byte id = opens[pileNumber];
+    return id == EMPTY ? null : Card.fromId(id);
+  }
+
+  @Override
+  public int emptyCascadePiles() {
+    return emptyCascadePiles;
+  }
+
+  @Override
+  public int emptyOpenPiles() {
+    return emptyOpenPiles;
+  }
+
+  @Override
+  public void addToCascade(int pileNumber, Card card) {
+    if (cascadeSizes[pileNumber] == 0) {
+      emptyCascadePiles--;
+    }
+    cascades[pileNumber * CASCADE_CAPACITY + cascadeSizes[pileNumber]++] = idOf(card);
+  }
+
+  @Override
+  public void addToFoundation(int pileNumber, Card card) {
+    foundations[pileNumber * FOUNDATION_CAPACITY + foundationSizes[pileNumber]++] = idOf(card);
+    foundationCardsCount++;
+  }
+
+  @Override
+  public void addToOpen(int pileNumber, Card card) {
+    opens[pileNumber] = idOf(card);
+    emptyOpenPiles--;
+  }
+
+  @Override
+  public void removeFromCascade(int pileNumber, int cardIndex) {
+    cascadeSizes[pileNumber] = cardIndex;
+    if (cardIndex == 0) {
+      emptyCascadePiles++;
+    }
+  }
+
+  @Override
+  public void removeFromFoundation(int pileNumber, int cardIndex) {
+    foundationCardsCount -= foundationSizes[pileNumber] - cardIndex;
+    foundationSizes[pileNumber] = cardIndex;
+  }
+
+  @Override
+  public void removeFromOpen(int pileNumber) {
+    opens[pileNumber] = EMPTY;
+    emptyOpenPiles++;
+  }
+
+  /**
+   * A helper method that provides the byte id of a card.
+   * @param card the card whose id is needed.
+   * @return the id of the card.
+   */
+  private static byte idOf(Card card) {
+    return (byte) card.getId();
+  }
+}
@@ -0,0 +1,432 @@
+package freecell.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class verifies recorded games, i.e. sequences of moves played on one of the
+ * {@link NumberedDeals}, such as the solutions found by the solver or submitted by players,
+ * before their scores are accepted. A replay is verified with exactly the rules of
+ * {@link FreecellModel} or {@link FreecellMultiMoveModel}: every move the model would accept,
+ * including the moves that leave the position as it is, is accepted, every move for which the
+ * model would throw an exception is rejected, and the replay is won if the game is over after its
+ * last move.
+ *
+ * <p>Unlike replaying the moves on a model, the verifier never throws an exception for an
+ * invalid move nor renders a card as a string. It holds the piles as card ids in flat arrays
+ * that are reused from one replay to the next, so verifying replays allocates nothing once the
+ * arrays are large enough for the largest game. A verifier isn't safe for use by many threads at
+ * once; {@link #verifyAll(List, int)} verifies a whole archive of replays on many threads, each
+ * with its own verifier.</p>
+ *
+ * <p>The moves of a replay are packed by {@link MoveBuffer#pack}.</p>
+ */
+public final class ReplayVerifier {
+
+  /**
+   * The outcomes of the verification of a replay.
+   */
+  public enum Verdict {
+    /** All the moves were valid and the game is over after the last one. */
+    WON,
+    /** All the moves were valid but the game isn't over after the last one. */
+    NOT_WON,
+    /** A move was invalid, whose index is given by {@link #getMovesPlayed()}. */
+    INVALID_MOVE,
+    /** The deal or the number of piles doesn't describe a game that can be built. */
+    INVALID_GAME
+  }
+
+  /**
+   * A recorded game: a numbered deal played with a number of piles by one of the two models,
+   * and the moves played on it.
+   */
+  public static final class Replay {
+
+    private final int deal;
+    private final int openPilesCount;
+    private final int cascadePilesCount;
+    private final boolean multiMove;
+    private final int[] moves;
+
+    /**
+     * Constructs a replay. The array of moves isn't copied.
+     * @param deal the number of the deal.
+     * @param openPilesCount the number of open piles.
+     * @param cascadePilesCount the number of cascade piles.
+     * @param multiMove true if the game is played by FreecellMultiMoveModel, false if it is
+     *                  played by FreecellModel.
+     * @param moves the moves packed by {@link MoveBuffer#pack}.
+     */
+    public Replay(int deal, int openPilesCount, int cascadePilesCount, boolean multiMove,
+                  int[] moves) {
+      this.deal = deal;
+      this.openPilesCount = openPilesCount;
+      this.cascadePilesCount = cascadePilesCount;
+      this.multiMove = multiMove;
+      this.moves = moves;
+    }
+
+    /**
+     * A method that provides the number of moves of this replay.
+     * @return the number of moves.
+     */
+    public int getMoveCount() {
+      return moves.length;
+    }
+  }
+
+  private static final int MAX_PILES = 1024;
+  private static final int CASCADE_CAPACITY = 64;
+  private static final int EMPTY = -1;
+  private static final int ACE = 0;
+
+  private static final int OPEN = PileType.OPEN.ordinal();
+  private static final int CASCADE = PileType.CASCADE.ordinal();
+  private static final int FOUNDATION = PileType.FOUNDATION.ordinal();
+
+  private static final boolean[] RED = new boolean[52];
+
+  static {
+    for (int id = 0; id < 52; id++) {
+      RED[id] = Card.fromId(id).getColor() == Color.RED;
+    }
+  }
+
+  private final NumberedDeals deals;
+  private final byte[] deck;
+  private byte[] cascades;
+  private int[] cascadeSizes;
+  private byte[] opens;
+  private final int[] foundationTops;
+  private int openPilesCount;
+  private int cascadePilesCount;
+  private boolean multiMove;
+  private int emptyOpenPiles;
+  private int emptyCascadePiles;
+  private int foundationCards;
+  private int movesPlayed;
+
+  /**
+   * Constructs a verifier, whose arrays grow with the games it verifies.
+   */
+  public ReplayVerifier() {
+    deals = new NumberedDeals();
+    deck = new byte[52];
+    cascades = new byte[8 * CASCADE_CAPACITY];
+    cascadeSizes = new int[8];
+    opens = new byte[4];
+    foundationTops = new int[4];
+  }
+
+  /**
+   * Verifies a replay.
+   * @param replay the replay.
+   * @return the outcome of the verification.
+   */
+  public Verdict verify(Replay replay) {
+    return verify(replay.deal, replay.openPilesCount, replay.cascadePilesCount,
+            replay.multiMove, replay.moves, 0, replay.moves.length);
+  }
+
+  /**
+   * Verifies a sequence of moves played on a numbered deal.
+   * @param deal the number of the deal.
+   * @param openPilesCount the number of open piles, at least 1.
+   * @param cascadePilesCount the number of cascade piles, at least 4.
+   * @param multiMove true if the game is played by FreecellMultiMoveModel, false if it is
+   *                  played by FreecellModel.
+   * @param moves the array holding the moves packed by {@link MoveBuffer#pack}.
+   * @param offset the index in the array of the first move.
+   * @param length the number of moves.
+   * @return the outcome of the verification.
+   */
+  public Verdict verify(int deal, int openPilesCount, int cascadePilesCount, boolean multiMove,
+                        int[] moves, int offset, int length) {
+
+    movesPlayed = 0;
+    if (deal < 1 || openPilesCount < 1 || openPilesCount > MAX_PILES || cascadePilesCount < 4
+            || cascadePilesCount > MAX_PILES) {
+      return Verdict.INVALID_GAME;
+    }
+    start(deal, openPilesCount, cascadePilesCount, multiMove);
+
+    for (int index = offset; index < offset + length; index++) {
+      if (!play(moves[index])) {
+        return Verdict.INVALID_MOVE;
+      }
+      movesPlayed++;
+    }
+    return foundationCards == 52 ? Verdict.WON : Verdict.NOT_WON;
+  }
+
+  /**
+   * A method that provides the number of valid moves of the last replay that was verified,
+   * which is the index of its invalid move if it had one.
+   * @return the number of valid moves.
+   */
+  public int getMovesPlayed() {
+    return movesPlayed;
+  }
+
+  /**
+   * Verifies an archive of replays on the given number of threads.
+   * @param archive the replays.
+   * @param threads the number of threads.
+   * @return the outcome of the verification of each replay, in the order of the archive.
+   * @throws IllegalArgumentException if the number of threads isn't positive.
+   * @throws InterruptedException if the thread is interrupted while the replays are verified.
+   */
+  public static Verdict[] verifyAll(List<Replay> archive, int threads)
+          throws IllegalArgumentException, InterruptedException {
+
+    if (threads <= 0) {
+      throw new IllegalArgumentException("No. of threads should be positive");
+    }
+
+    Verdict[] verdicts = new Verdict[archive.size()];
+    AtomicInteger next = new AtomicInteger();
+    int batch = Math.max(1, Math.min(1024, archive.size() / (threads * 16)));
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+        workers.add(executor.submit(() -> {
+          ReplayVerifier verifier = new ReplayVerifier();
+          for (int first = next.getAndAdd(batch); first < verdicts.length;
+               first = next.getAndAdd(batch)) {
+            for (int index = first; index < Math.min(first + batch, verdicts.length); index++) {
+              verdicts[index] = verifier.verify(archive.get(index));
+            }
+          }
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Replays couldn't be verified", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return verdicts;
+  }
+
+  /**
+   * A helper method that deals a game, growing the arrays of the piles if they are too small.
+   * @param deal the number of the deal.
+   * @param openPilesCount the number of open piles.
+   * @param cascadePilesCount the number of cascade piles.
+   * @param multiMove true if the game allows multi card moves.
+   */
+  private void start(int deal, int openPilesCount, int cascadePilesCount, boolean multiMove) {
+
+    if (cascadeSizes.length < cascadePilesCount) {
+      cascadeSizes = new int[cascadePilesCount];
+      cascades = new byte[cascadePilesCount * CASCADE_CAPACITY];
+    }
+    if (opens.length < openPilesCount) {
+      opens = new byte[openPilesCount];
+    }
+    this.openPilesCount = openPilesCount;
+    this.cascadePilesCount = cascadePilesCount;
+    this.multiMove = multiMove;
+
+    deals.dealIds(deal, deck, 0);
+    for (int pileNumber = 0; pileNumber < cascadePilesCount; pileNumber++) {
+      cascadeSizes[pileNumber] = 0;
+    }
+    for (int index = 0; index < 52; index++) {
+      int pileNumber = index % cascadePilesCount;
+      cascades[pileNumber * CASCADE_CAPACITY + cascadeSizes[pileNumber]++] = deck[index];
+    }
+    for (int pileNumber = 0; pileNumber < openPilesCount; pileNumber++) {
+      opens[pileNumber] = EMPTY;
+    }
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      foundationTops[pileNumber] = EMPTY;
+    }
+
+    emptyOpenPiles = openPilesCount;
+    emptyCascadePiles = Math.max(0, cascadePilesCount - 52);
+    foundationCards = 0;
+  }
+
+  /**
+   * A helper method that plays a move if the model would accept it.
+   * @param move the packed move.
+   * @return true if the move is valid, whether it changed the position or not.
+   */
+  private boolean play(int move) {
+
+    int source = move & 3;
+    int destination = move >>> 2 & 3;
+    int cardIndex = move >>> 4 & 63;
+    int pileNumber = move >>> 10 & 1023;
+    int destPileNumber = move >>> 20 & 1023;
+    int cardsCount = 1;
+    int card;
+
+    if (source == CASCADE) {
+      int cardsInPile = pileNumber < cascadePilesCount ? cascadeSizes[pileNumber] : 0;
+      if (cardsInPile == 0) {
+        return false;
+      }
+      if (multiMove && destination == CASCADE) {
+        if (cardIndex > cardsInPile - 1) {
+          return false;
+        }
+        int base = pileNumber * CASCADE_CAPACITY;
+        for (int index = cardIndex; index < cardsInPile - 1; index++) {
+          if (!canBuild(cascades[base + index], cascades[base + index + 1])) {
+            return false;
+          }
+        }
+        cardsCount = cardsInPile - cardIndex;
+      } else if (cardIndex != cardsInPile - 1) {
+        return false;
+      }
+      card = cascades[pileNumber * CASCADE_CAPACITY + cardIndex];
+    } else if (source == FOUNDATION) {
+      if (pileNumber >= 4 || foundationTops[pileNumber] == EMPTY
+              || cardIndex != foundationTops[pileNumber] % 13) {
+        return false;
+      }
+      card = foundationTops[pileNumber];
+    } else if (source == OPEN) {
+      if (pileNumber >= openPilesCount || opens[pileNumber] == EMPTY || cardIndex != 0) {
+        return false;
+      }
+      card = opens[pileNumber];
+    } else {
+      return false;
+    }
+
+    if (destination == CASCADE) {
+      int cardsInPile = destPileNumber < cascadePilesCount ? cascadeSizes[destPileNumber] : 0;
+      if (cardsInPile != 0) {
+        int topCard = cascades[destPileNumber * CASCADE_CAPACITY + cardsInPile - 1];
+        if (card == topCard) {
+          return true;
+        }
+        if (!canBuild(topCard, card) || (multiMove
+                && !canMoveCards(emptyOpenPiles, emptyCascadePiles, cardsCount))) {
+          return false;
+        }
+      } else if (destPileNumber >= cascadePilesCount || (multiMove
+              && !canMoveCards(emptyOpenPiles, emptyCascadePiles - 1, cardsCount))) {
+        return false;
+      }
+      moveToCascade(source, pileNumber, cardIndex, cardsCount, destPileNumber);
+    } else if (destination == FOUNDATION) {
+      if (destPileNumber >= 4) {
+        return false;
+      }
+      int topCard = foundationTops[destPileNumber];
+      if (topCard == card) {
+        return true;
+      }
+      if (topCard == EMPTY ? card % 13 != ACE
+              : card != topCard + 1 || topCard % 13 == 12) {
+        return false;
+      }
+      remove(source, pileNumber, cardIndex);
+      foundationTops[destPileNumber] = card;
+      foundationCards++;
+    } else if (destination == OPEN) {
+      if (destPileNumber >= openPilesCount) {
+        return false;
+      }
+      if (opens[destPileNumber] != EMPTY) {
+        return opens[destPileNumber] == card;
+      }
+      remove(source, pileNumber, cardIndex);
+      opens[destPileNumber] = (byte) card;
+      emptyOpenPiles--;
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * A helper method that moves cards onto a cascade pile, the move being valid.
+   * @param source the ordinal of the type of the source pile.
+   * @param pileNumber the source pile number.
+   * @param cardIndex the index of the bottom most card moved.
+   * @param cardsCount the number of cards moved.
+   * @param destPileNumber the destination cascade pile number.
+   */
+  private void moveToCascade(int source, int pileNumber, int cardIndex, int cardsCount,
+                             int destPileNumber) {
+
+    int destBase = destPileNumber * CASCADE_CAPACITY;
+    int cardsInPile = cascadeSizes[destPileNumber];
+    if (cardsInPile == 0) {
+      emptyCascadePiles--;
+    }
+
+    if (source == CASCADE) {
+      System.arraycopy(cascades, pileNumber * CASCADE_CAPACITY + cardIndex, cascades,
+              destBase + cardsInPile, cardsCount);
+    } else if (source == FOUNDATION) {
+      cascades[destBase + cardsInPile] = (byte) foundationTops[pileNumber];
+    } else {
+      cascades[destBase + cardsInPile] = opens[pileNumber];
+    }
+    cascadeSizes[destPileNumber] = cardsInPile + cardsCount;
+    remove(source, pileNumber, cardIndex);
+  }
+
+  /**
+   * A helper method that removes the moved cards from their source pile.
+   * @param source the ordinal of the type of the source pile.
+   * @param pileNumber the source pile number.
+   * @param cardIndex the index of the bottom most card moved.
+   */
+  private void remove(int source, int pileNumber, int cardIndex) {
+
+    if (source == CASCADE) {
+      cascadeSizes[pileNumber] = cardIndex;
+      if (cardIndex == 0) {
+        emptyCascadePiles++;
+      }
+    } else if (source == FOUNDATION) {
+      foundationTops[pileNumber] = cardIndex == 0 ? EMPTY : foundationTops[pileNumber] - 1;
+      foundationCards--;
+    } else {
+      opens[pileNumber] = EMPTY;
+      emptyOpenPiles++;
+    }
+  }
+
+  /**
+   * A helper method that checks if a card can be placed on another card of a cascade pile.
+   * @param bottomCard the id of the card on which the other card is placed.
+   * @param topCard the id of the card to be placed.
+   * @return true if the top card is one less than the bottom card and of different color.
+   */
+  private static boolean canBuild(int bottomCard, int topCard) {
+    return topCard % 13 == bottomCard % 13 - 1 && RED[topCard] != RED[bottomCard];
+  }
+
+  /**
+   * A helper method that checks if a number of cards can be moved at once to a cascade pile,
+   * i.e. if they are at most (N+1)*2^K when there are N free open piles and K empty cascade
+   * piles other than the destination pile.
+   * @param emptyOpenPiles the number of free open piles.
+   * @param emptyCascadePiles the number of empty cascade piles other than the destination pile.
+   * @param cardsCount the number of cards to be moved.
+   * @return true if the cards can be moved.
+   */
+  private static boolean canMoveCards(int emptyOpenPiles, int emptyCascadePiles,
+                                      int cardsCount) {
+    return emptyCascadePiles >= 6 || cardsCount <= (emptyOpenPiles + 1) << emptyCascadePiles;
+  }
+}
@@ -0,0 +1,33 @@
+package freecell.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A package protected Flight Recorder event for a call of the startGame method of a model. The
+ * event is disabled by default and only committed while a recording enables it.
+ */
+@Name("freecell.StartGame")
+@Label("Start Game")
+@Category({"Freecell", "Model"})
+@Description("A game dealt from a deck")
+@Enabled(false)
+final class StartGameEvent extends Event {
+
+  @Label("Cascade Piles")
+  int cascadePiles;
+
+  @Label("Open Piles")
+  int openPiles;
+
+  @Label("Shuffled")
+  boolean shuffled;
+
+  @Label("Succeeded")
+  @Description("False if the deck was rejected")
+  boolean succeeded;
+}
@@ -0,0 +1,195 @@
+package freecell.model;
+
+/**
+ * This class expands the multi card moves of {@link FreecellMultiMoveModel}, or supermoves, into
+ * the single card moves they stand for, which are all valid in {@link FreecellModel}, so that the
+ * games of the multi move model can be animated card by card or replayed with the rules of the
+ * single move model.
+ *
+ * <p>A build of cards is moved with the classic recursive plan. When the free open piles are
+ * enough, all the cards but the bottom one are parked in them, the bottom card is moved and the
+ * parked cards are moved back onto it. Otherwise the top half of the build, as many cards as the
+ * other intermediate slots can move, is moved to an empty cascade pile, the rest of the build is
+ * moved to the destination and the parked half follows it, each time with one empty cascade pile
+ * less. This moves any build of as many cards as the multi move model allows, (N+1)*2^K for N
+ * free open piles and K empty cascade piles, and leaves the intermediate slots empty again.</p>
+ *
+ * <p>The expansion only looks at the numbers of cards in the piles, which it keeps in arrays that
+ * are reused from one expansion to the next, so a planner isn't safe for use by many threads at
+ * once. The moves are packed by {@link MoveBuffer#pack}.</p>
+ */
+public final class SupermovePlanner {
+
+  private int[] cascadeSizes;
+  private int[] freeOpenPiles;
+  private int[] emptyCascadePiles;
+  private int freeOpenPilesCount;
+  private int emptyCascadePilesCount;
+
+  /**
+   * Constructs a planner whose arrays fit games of up to 8 cascade and 4 open piles, growing them
+   * for larger games.
+   */
+  public SupermovePlanner() {
+    cascadeSizes = new int[8];
+    freeOpenPiles = new int[4];
+    emptyCascadePiles = new int[8];
+  }
+
+  /**
+   * Expands a move the given game accepts in its present position into single card moves that
+   * make the same move, one after the other, from the same position. A move of a single card is
+   * added as it is. The game isn't changed.
+   *
+   * @param game  the game, in the position before the move.
+   * @param move  the packed move, which should be valid in the game.
+   * @param steps the buffer to which the single card moves are added.
+   * @return the number of single card moves added.
+   * @throws IllegalArgumentException if the game hasn't started, or if the move is a multi card
+   *                                  move between piles that don't exist or of more cards than
+   *                                  the free open piles and empty cascade piles can move.
+   */
+  public int expand(FreeCellAbstractModel game, int move, MoveBuffer steps)
+          throws IllegalArgumentException {
+
+    if (game.board.isEmpty()) {
+      throw new IllegalArgumentException("Moves of a game that hasn't started can't be expanded");
+    }
+
+    PileType source = MoveBuffer.source(move);
+    PileType destination = MoveBuffer.destination(move);
+    int pileNumber = MoveBuffer.pileNumber(move);
+    int destPileNumber = MoveBuffer.destPileNumber(move);
+    int cascadesCount = game.getCascadePilesCount();
+
+    if (source != PileType.CASCADE || destination != PileType.CASCADE
+            || pileNumber < 0 || pileNumber >= cascadesCount
+            || MoveBuffer.cardIndex(move) >= game.getPileSize(source, pileNumber) - 1) {
+      steps.add(move);
+      return 1;
+    }
+    if (destPileNumber < 0 || destPileNumber >= cascadesCount || destPileNumber == pileNumber) {
+      throw new IllegalArgumentException("Destination Pile Number is invalid");
+    }
+
+    readPiles(game, destPileNumber);
+    int cardsCount = cascadeSizes[pileNumber] - MoveBuffer.cardIndex(move);
+    if (cardsCount > FreecellMultiMoveModel.supermoveCapacity(freeOpenPilesCount,
+            emptyCascadePilesCount)) {
+      throw new IllegalArgumentException(MoveResult.INSUFFICIENT_CAPACITY.getMessage());
+    }
+
+    int size = steps.size();
+    moveBuild(cardsCount, pileNumber, destPileNumber, emptyCascadePilesCount, steps);
+    return steps.size() - size;
+  }
+
+  /**
+   * Expands a sequence of moves made on the given game, such as a solution found by the solver,
+   * into single card moves. The moves are made one after the other on a copy of the game, and
+   * the cards that a game in autoplay mode moves to the foundation piles after a move are added
+   * after its expansion, so the single card moves can be replayed on a game that doesn't play
+   * automatically. The game itself isn't changed.
+   *
+   * @param game  the game, in the position before the first move.
+   * @param moves the packed moves, in the order they are to be made.
+   * @param steps the buffer to which the single card moves are added.
+   * @return the number of single card moves added.
+   * @throws IllegalArgumentException if one of the moves isn't valid for the game.
+   */
+  public int expandAll(FreeCellAbstractModel game, int[] moves, MoveBuffer steps)
+          throws IllegalArgumentException {
+
+    FreeCellAbstractModel work = game.copy();
+    int size = steps.size();
+
+    for (int move : moves) {
+      expand(work, move, steps);
+      work.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+              MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+              MoveBuffer.destPileNumber(move));
+      MoveBuffer autoMoves = work.getAutoMoves();
+      for (int index = 0; index < autoMoves.size(); index++) {
+        steps.add(autoMoves.get(index));
+      }
+    }
+    return steps.size() - size;
+  }
+
+  /**
+   * A helper method that reads the numbers of cards of the cascade piles and which piles can
+   * hold cards during the move.
+   *
+   * @param game           the game.
+   * @param destPileNumber the destination pile, which isn't an intermediate slot even if it is
+   *                       empty.
+   */
+  private void readPiles(FreeCellAbstractModel game, int destPileNumber) {
+
+    int cascadesCount = game.getCascadePilesCount();
+    int opensCount = game.getOpenPilesCount();
+    if (cascadeSizes.length < cascadesCount) {
+      cascadeSizes = new int[cascadesCount];
+      emptyCascadePiles = new int[cascadesCount];
+    }
+    if (freeOpenPiles.length < opensCount) {
+      freeOpenPiles = new int[opensCount];
+    }
+
+    emptyCascadePilesCount = 0;
+    for (int pile = 0; pile < cascadesCount; pile++) {
+      cascadeSizes[pile] = game.getPileSize(PileType.CASCADE, pile);
+      if (cascadeSizes[pile] == 0 && pile != destPileNumber) {
+        emptyCascadePiles[emptyCascadePilesCount++] = pile;
+      }
+    }
+
+    freeOpenPilesCount = 0;
+    for (int pile = 0; pile < opensCount; pile++) {
+      if (game.getPileSize(PileType.OPEN, pile) == 0) {
+        freeOpenPiles[freeOpenPilesCount++] = pile;
+      }
+    }
+  }
+
+  /**
+   * A helper method that adds the single card moves that move a build from the top of a cascade
+   * pile onto another cascade pile, using the free open piles and the first empty cascade piles
+   * as intermediate slots. Each intermediate slot is as empty after these moves as before.
+   *
+   * @param cardsCount   the number of cards of the build.
+   * @param from         the cascade pile holding the build.
+   * @param to           the cascade pile the build is moved to.
+   * @param emptiesCount the number of empty cascade piles that can be used.
+   * @param steps        the buffer to which the moves are added.
+   */
+  private void moveBuild(int cardsCount, int from, int to, int emptiesCount, MoveBuffer steps) {
+
+    int cells = freeOpenPilesCount;
+    while (emptiesCount > 0
+            && cardsCount <= FreecellMultiMoveModel.supermoveCapacity(cells, emptiesCount - 1)) {
+      emptiesCount--;
+    }
+
+    if (emptiesCount == 0) {
+      for (int cell = 0; cell < cardsCount - 1; cell++) {
+        steps.add(MoveBuffer.pack(PileType.CASCADE, from, --cascadeSizes[from], PileType.OPEN,
+                freeOpenPiles[cell]));
+      }
+      steps.add(MoveBuffer.pack(PileType.CASCADE, from, --cascadeSizes[from], PileType.CASCADE,
+              to));
+      cascadeSizes[to]++;
+      for (int cell = cardsCount - 2; cell >= 0; cell--) {
+        steps.add(MoveBuffer.pack(PileType.OPEN, freeOpenPiles[cell], 0, PileType.CASCADE, to));
+        cascadeSizes[to]++;
+      }
+      return;
+    }
+
+    int parking = emptyCascadePiles[emptiesCount - 1];
+    int parkedCount = FreecellMultiMoveModel.supermoveCapacity(cells, emptiesCount - 1);
+    moveBuild(parkedCount, from, parking, emptiesCount - 1, steps);
+    moveBuild(cardsCount - parkedCount, from, to, emptiesCount - 1, steps);
+    moveBuild(parkedCount, parking, to, emptiesCount - 1, steps);
+  }
+}
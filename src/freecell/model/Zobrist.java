@@ -0,0 +1,72 @@
+package freecell.model;
+
+/**
+ * A package protected class that provides the Zobrist keys used to hash the position of a free
+ * cell game. Every possible placement of a card, i.e. a card at a given depth of a cascade pile,
+ * a card in a foundation pile or a card in an open pile, has its own pseudo random 64 bit key,
+ * and the hash of a position is the exclusive or of the keys of all the placements in it. Adding
+ * or removing a card therefore updates the hash with a single exclusive or.
+ *
+ * <p>The keys are computed on demand by mixing the placement's index with the SplitMix64
+ * finalizer instead of being stored in a table, so they are the same for every game and for any
+ * number of cascade and open piles.</p>
+ */
+final class Zobrist {
+
+  private static final long SEED = 0x2545F4914F6CDD1DL;
+
+  /**
+   * Private constructor as this class only has static methods.
+   */
+  private Zobrist() {
+  }
+
+  /**
+   * Provides the key of a card placed at the given depth of a cascade pile.
+   * @param pileNumber the cascade pile number, starting at 0.
+   * @param cardIndex the index of the card in the pile, starting at 0.
+   * @param cardId the id of the card.
+   * @return the key of the placement.
+   */
+  static long cascadeKey(int pileNumber, int cardIndex, int cardId) {
+    return key(0, pileNumber, cardIndex, cardId);
+  }
+
+  /**
+   * Provides the key of a card placed in a foundation pile. The position of the card in a
+   * foundation pile is given by its face value, so it isn't part of the key.
+   * @param pileNumber the foundation pile number, starting at 0.
+   * @param cardId the id of the card.
+   * @return the key of the placement.
+   */
+  static long foundationKey(int pileNumber, int cardId) {
+    return key(1, pileNumber, 0, cardId);
+  }
+
+  /**
+   * Provides the key of a card placed in an open pile.
+   * @param pileNumber the open pile number, starting at 0.
+   * @param cardId the id of the card.
+   * @return the key of the placement.
+   */
+  static long openKey(int pileNumber, int cardId) {
+    return key(2, pileNumber, 0, cardId);
+  }
+
+  /**
+   * A helper method that computes the key of a placement from a unique index of the placement.
+   * @param pileKind 0 for cascade, 1 for foundation and 2 for open piles.
+   * @param pileNumber the pile number, starting at 0.
+   * @param cardIndex the index of the card in the pile.
+   * @param cardId the id of the card.
+   * @return the key of the placement.
+   */
+  private static long key(int pileKind, int pileNumber, int cardIndex, int cardId) {
+
+    long placement = (((long) pileNumber * 52 + cardIndex) * 52 + cardId) * 3 + pileKind;
+    long z = SEED + placement * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
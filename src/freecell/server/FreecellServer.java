@@ -0,0 +1,534 @@
+package freecell.server;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import freecell.controller.FreecellController;
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.NumberedDeals;
+
+/**
+ * A TCP server that hosts games of freecell. Each connection is a session that plays one game
+ * with its own model through a {@link FreecellController}, so it speaks the text protocol of the
+ * controller: the server sends the state of the game after each move, reads moves such as
+ * "C1 7 O1", and closes the connection once the game is over, quit with "q" or the client stops
+ * sending input. The output of the controller is buffered and sent whenever the session waits
+ * for input, so each move costs one write to the socket.
+ *
+ * <p>Each session runs on its own thread: a virtual thread when the Java runtime provides them,
+ * and otherwise a platform thread with a small stack, so that the number of sessions is bound by
+ * the memory and the open files allowed to the process rather than by the number of processors.
+ * Each session deals one of the {@link NumberedDeals}, chosen at random or fixed for all
+ * sessions.</p>
+ *
+ * <p>The server can be started from the command line, for example
+ * {@code java freecell.server.FreecellServer --port 7000 --cascades 8 --opens 4 --multi}.</p>
+ */
+public class FreecellServer implements Closeable {
+
+  private static final int OUTPUT_BUFFER_SIZE = 2048;
+  private static final long ACCEPT_RETRY_MILLIS = 10;
+  private static final int MAX_RANDOM_DEAL = 32000;
+
+  private final int port;
+  private final int backlog;
+  private final int cascadePilesCount;
+  private final int openPilesCount;
+  private final boolean multiMove;
+  private final int deal;
+  private final long stackSize;
+  private final Set<Socket> sockets;
+  private final AtomicLong sessionsStarted;
+  private final AtomicLong sessionsFinished;
+  private final AtomicInteger threadCount;
+  private ServerSocket serverSocket;
+  private ExecutorService sessions;
+  private boolean virtualThreads;
+  private Thread acceptor;
+
+  /**
+   * Constructs a server with the given configuration, which doesn't listen until it is started.
+   * @param builder the builder holding the configuration.
+   */
+  private FreecellServer(ServerBuilder builder) {
+    this.port = builder.port;
+    this.backlog = builder.backlog;
+    this.cascadePilesCount = builder.cascadePilesCount;
+    this.openPilesCount = builder.openPilesCount;
+    this.multiMove = builder.multiMove;
+    this.deal = builder.deal;
+    this.stackSize = builder.stackSize;
+    this.sockets = ConcurrentHashMap.newKeySet();
+    this.sessionsStarted = new AtomicLong();
+    this.sessionsFinished = new AtomicLong();
+    this.threadCount = new AtomicInteger();
+  }
+
+  /**
+   * A static inner class that helps in creating a FreecellServer. By default a server listens on
+   * port 7000 of the loopback address with a backlog of 4096 connections, and hosts games with 8
+   * cascade piles and 4 open piles that allow single card moves, on a random deal.
+   */
+  public static class ServerBuilder {
+
+    private int port;
+    private int backlog;
+    private int cascadePilesCount;
+    private int openPilesCount;
+    private boolean multiMove;
+    private int deal;
+    private long stackSize;
+
+    /**
+     * A default constructor that assigns the default configuration.
+     */
+    private ServerBuilder() {
+      port = 7000;
+      backlog = 4096;
+      cascadePilesCount = 8;
+      openPilesCount = 4;
+      multiMove = false;
+      deal = 0;
+      stackSize = 256 * 1024;
+    }
+
+    /**
+     * This method is used to configure the port on which the server listens.
+     * @param port the port, 0 for any free port.
+     * @return this builder.
+     * @throws IllegalArgumentException if the port isn't within 0 and 65535.
+     */
+    public ServerBuilder port(int port) throws IllegalArgumentException {
+
+      if (port < 0 || port > 65535) {
+        throw new IllegalArgumentException("Port should be within 0 and 65535");
+      }
+      this.port = port;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of connections that may wait to be accepted.
+     * @param backlog the number of connections.
+     * @return this builder.
+     * @throws IllegalArgumentException if the backlog isn't positive.
+     */
+    public ServerBuilder backlog(int backlog) throws IllegalArgumentException {
+
+      if (backlog <= 0) {
+        throw new IllegalArgumentException("Backlog should be positive");
+      }
+      this.backlog = backlog;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of cascade piles of the hosted games.
+     * @param cascadePilesCount the number of cascade piles.
+     * @return this builder.
+     */
+    public ServerBuilder cascades(int cascadePilesCount) {
+      this.cascadePilesCount = cascadePilesCount;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of open piles of the hosted games.
+     * @param openPilesCount the number of open piles.
+     * @return this builder.
+     */
+    public ServerBuilder opens(int openPilesCount) {
+      this.openPilesCount = openPilesCount;
+      return this;
+    }
+
+    /**
+     * This method is used to host games that allow multi card moves, played by
+     * FreecellMultiMoveModel, instead of those of FreecellModel.
+     * @return this builder.
+     */
+    public ServerBuilder multiMove() {
+      this.multiMove = true;
+      return this;
+    }
+
+    /**
+     * This method is used to deal the same numbered deal in every session.
+     * @param deal the number of the deal, 0 for a random deal in each session.
+     * @return this builder.
+     * @throws IllegalArgumentException if the deal is negative.
+     */
+    public ServerBuilder deal(int deal) throws IllegalArgumentException {
+
+      if (deal < 0) {
+        throw new IllegalArgumentException("Deal number shouldn't be negative");
+      }
+      this.deal = deal;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the stack size of the session threads when they are
+     * platform threads.
+     * @param stackSize the stack size in bytes, 0 for the default stack size of the runtime.
+     * @return this builder.
+     * @throws IllegalArgumentException if the stack size is negative.
+     */
+    public ServerBuilder stackSize(long stackSize) throws IllegalArgumentException {
+
+      if (stackSize < 0) {
+        throw new IllegalArgumentException("Stack size shouldn't be negative");
+      }
+      this.stackSize = stackSize;
+      return this;
+    }
+
+    /**
+     * This method builds the server, checking that games with the configured piles can be
+     * built.
+     * @return the server, which isn't started.
+     * @throws IllegalArgumentException if the number of piles isn't valid.
+     */
+    public FreecellServer build() throws IllegalArgumentException {
+
+      FreecellServer server = new FreecellServer(this);
+      server.newModel();
+      return server;
+    }
+  }
+
+  /**
+   * A static method that can be used by any class to create and use an object of type
+   * ServerBuilder in order to further create a FreecellServer.
+   * @return an object of type ServerBuilder
+   */
+  public static ServerBuilder getBuilder() {
+    return new ServerBuilder();
+  }
+
+  /**
+   * Starts listening on the loopback address and accepting sessions.
+   * @return this server.
+   * @throws IOException if the server can't listen on its port.
+   * @throws IllegalStateException if the server was already started.
+   */
+  public synchronized FreecellServer start() throws IOException, IllegalStateException {
+    return start(InetAddress.getLoopbackAddress());
+  }
+
+  /**
+   * Starts listening on the given address and accepting sessions.
+   * @param address the address on which the server listens.
+   * @return this server.
+   * @throws IOException if the server can't listen on its port.
+   * @throws IllegalStateException if the server was already started.
+   */
+  public synchronized FreecellServer start(InetAddress address)
+          throws IOException, IllegalStateException {
+
+    if (serverSocket != null) {
+      throw new IllegalStateException("Server has already been started");
+    }
+
+    serverSocket = new ServerSocket();
+    serverSocket.setReuseAddress(true);
+    serverSocket.bind(new InetSocketAddress(address, port), backlog);
+    sessions = newSessionExecutor();
+
+    acceptor = new Thread(this::acceptSessions, "freecell-server-" + serverSocket.getLocalPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+    return this;
+  }
+
+  /**
+   * A method that provides the port on which the server listens.
+   * @return the port.
+   * @throws IllegalStateException if the server wasn't started.
+   */
+  public synchronized int getPort() throws IllegalStateException {
+
+    if (serverSocket == null) {
+      throw new IllegalStateException("Server hasn't been started");
+    }
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * A method that tells if the sessions run on virtual threads.
+   * @return true for virtual threads, false for platform threads.
+   */
+  public synchronized boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * A method that provides the number of sessions accepted since the server started.
+   * @return the number of sessions.
+   */
+  public long getSessionsStarted() {
+    return sessionsStarted.get();
+  }
+
+  /**
+   * A method that provides the number of sessions that ended since the server started.
+   * @return the number of sessions.
+   */
+  public long getSessionsFinished() {
+    return sessionsFinished.get();
+  }
+
+  /**
+   * A method that provides the number of sessions going on.
+   * @return the number of sessions.
+   */
+  public int getActiveSessions() {
+    return sockets.size();
+  }
+
+  /**
+   * Stops accepting sessions and closes the connections of the sessions going on, waiting up to
+   * a second for their threads to end.
+   * @throws IOException if the server socket can't be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+
+    if (serverSocket == null || serverSocket.isClosed()) {
+      return;
+    }
+    serverSocket.close();
+    for (Socket socket : sockets) {
+      socket.close();
+    }
+    sessions.shutdown();
+    try {
+      acceptor.join(TimeUnit.SECONDS.toMillis(1));
+      sessions.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A helper method that accepts connections until the server socket is closed, starting a
+   * session for each of them.
+   */
+  private void acceptSessions() {
+
+    while (!serverSocket.isClosed()) {
+      Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        // The server is closing, or it is out of file descriptors and waits for sessions to end.
+        if (!serverSocket.isClosed()) {
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(ACCEPT_RETRY_MILLIS));
+        }
+        continue;
+      }
+      sockets.add(socket);
+      sessionsStarted.incrementAndGet();
+      try {
+        sessions.execute(() -> playSession(socket));
+      } catch (RuntimeException e) {
+        endSession(socket);
+      }
+    }
+  }
+
+  /**
+   * A helper method that plays the game of a session on its connection.
+   * @param socket the connection of the session.
+   */
+  private void playSession(Socket socket) {
+
+    try {
+      socket.setTcpNoDelay(true);
+      Reader in = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
+      Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+              StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+      FreecellOperations<Card> model = newModel();
+      List<Card> deck = NumberedDeals.deal(deal > 0 ? deal
+              : ThreadLocalRandom.current().nextInt(MAX_RANDOM_DEAL) + 1);
+
+      new FreecellController(new FlushingReadable(in, out), out).playGame(deck, model, false);
+      out.flush();
+    } catch (IOException | IllegalStateException e) {
+      // The client went away or the server is closing; the session just ends.
+    } finally {
+      endSession(socket);
+    }
+  }
+
+  /**
+   * A helper method that closes the connection of a session and counts the session as ended.
+   * @param socket the connection of the session.
+   */
+  private void endSession(Socket socket) {
+
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // Nothing more can be done with the connection.
+    }
+    if (sockets.remove(socket)) {
+      sessionsFinished.incrementAndGet();
+    }
+  }
+
+  /**
+   * A helper method that builds the model of a session.
+   * @return the model, which isn't started.
+   * @throws IllegalArgumentException if the number of piles isn't valid.
+   */
+  private FreecellOperations<Card> newModel() throws IllegalArgumentException {
+
+    FreecellOperationsBuilder builder = multiMove
+            ? FreecellMultiMoveModel.getBuilder() : FreecellModel.getBuilder();
+    return builder.cascades(cascadePilesCount).opens(openPilesCount).undoLimit(0).build();
+  }
+
+  /**
+   * A helper method that creates the executor running the sessions, one thread per session. The
+   * virtual thread executor of the runtime is looked up by reflection so that the server also
+   * runs on runtimes that don't have virtual threads, where it falls back to platform threads.
+   * @return the executor.
+   */
+  private ExecutorService newSessionExecutor() {
+
+    try {
+      ExecutorService executor = (ExecutorService) Executors.class
+              .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      virtualThreads = true;
+      return executor;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      virtualThreads = false;
+    }
+
+    ThreadFactory factory = task -> {
+      Thread thread = new Thread(null, task, "freecell-session-" + threadCount.incrementAndGet(),
+              stackSize);
+      thread.setDaemon(true);
+      return thread;
+    };
+    return Executors.newCachedThreadPool(factory);
+  }
+
+  /**
+   * A Readable that flushes the output of a session before reading its input, so the client
+   * receives all that the controller wrote before it waits for the next move.
+   */
+  private static final class FlushingReadable implements Readable {
+
+    private final Reader in;
+    private final Writer out;
+
+    /**
+     * Constructs a Readable reading the given input and flushing the given output.
+     * @param in the input of the session.
+     * @param out the output of the session.
+     */
+    FlushingReadable(Reader in, Writer out) {
+      this.in = in;
+      this.out = out;
+    }
+
+    @Override
+    public int read(CharBuffer cb) throws IOException {
+      out.flush();
+      return in.read(cb);
+    }
+  }
+
+  /**
+   * Starts a server from the command line and keeps it running until the process is stopped.
+   * The options are "--port N", "--cascades N", "--opens N", "--deal N" and "--multi".
+   *
+   * @param args the options.
+   * @throws IOException if the server can't listen on its port.
+   * @throws InterruptedException if the main thread is interrupted.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+
+    ServerBuilder builder = getBuilder();
+    FreecellServer server;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String option = args[i];
+
+        if ("--multi".equals(option)) {
+          builder.multiMove();
+          continue;
+        }
+        if (i + 1 == args.length) {
+          throw new IllegalArgumentException("Missing value of " + option);
+        }
+        String value = args[++i];
+
+        switch (option) {
+          case "--port":
+            builder.port(Integer.parseInt(value));
+            break;
+          case "--cascades":
+            builder.cascades(Integer.parseInt(value));
+            break;
+          case "--opens":
+            builder.opens(Integer.parseInt(value));
+            break;
+          case "--deal":
+            builder.deal(Integer.parseInt(value));
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + option);
+        }
+      }
+      server = builder.build();
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println("Usage: FreecellServer [--port N] [--cascades N] [--opens N]"
+              + " [--deal N] [--multi]");
+      System.exit(2);
+      return;
+    }
+
+    server.start();
+    System.err.println("Listening on port " + server.getPort() + " with "
+            + (server.isVirtualThreads() ? "virtual" : "platform") + " threads");
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        server.close();
+      } catch (IOException e) {
+        // The process is ending anyway.
+      }
+    }));
+    server.acceptor.join();
+  }
+}
@@ -0,0 +1,55 @@
+package freecell.solver;
+
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.PileType;
+
+/**
+ * The default heuristic of the solver. It estimates the moves still needed as the number of
+ * cards that aren't in the foundation piles, plus the number of cards in the cascade piles that
+ * lie on top of a card of a lower face value, since each of those has to be moved out of the way
+ * before the lower card can reach its foundation pile, plus the number of cards that cover the
+ * next card needed by each foundation pile.
+ */
+public class BlockedCardsHeuristic implements Heuristic {
+
+  @Override
+  public int estimate(FreeCellAbstractModel game) {
+
+    //The next face of each suit, 4 bits per suit, so that no array is allocated per position
+    int nextFaces = 0;
+    int cardsLeft = 52;
+
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      int cardsInPile = game.getPileSize(PileType.FOUNDATION, pileNumber);
+      if (cardsInPile != 0) {
+        int suit = game.getCardId(PileType.FOUNDATION, pileNumber, 0) / 13;
+        nextFaces |= cardsInPile << (suit << 2);
+        cardsLeft -= cardsInPile;
+      }
+    }
+
+    int estimate = cardsLeft;
+
+    for (int pileNumber = 0; pileNumber < game.getCascadePilesCount(); pileNumber++) {
+      int cardsInPile = game.getPileSize(PileType.CASCADE, pileNumber);
+      int lowestFace = 13;
+
+      for (int cardIndex = 0; cardIndex < cardsInPile; cardIndex++) {
+        int id = game.getCardId(PileType.CASCADE, pileNumber, cardIndex);
+        int face = id % 13;
+
+        if (face > lowestFace) {
+          estimate++;
+        } else {
+          lowestFace = face;
+        }
+
+        if (face == (nextFaces >>> (id / 13 << 2) & 15)) {
+          estimate += cardsInPile - 1 - cardIndex;
+        }
+      }
+    }
+
+    return estimate;
+  }
+}
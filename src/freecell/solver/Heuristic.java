@@ -0,0 +1,20 @@
+package freecell.solver;
+
+import freecell.model.FreeCellAbstractModel;
+
+/**
+ * This is the interface of the estimates used by the solver to decide which position to explore
+ * next. An implementation estimates how many moves are still needed to win the game from a
+ * position; positions with lower estimates are explored first.
+ */
+public interface Heuristic {
+
+  /**
+   * Estimate the number of moves still needed to win the game from its present position. The
+   * estimate of a won game should be 0. This method must not change the game.
+   *
+   * @param game a started game
+   * @return the estimated number of moves, never negative
+   */
+  int estimate(FreeCellAbstractModel game);
+}
@@ -0,0 +1,105 @@
+package freecell.solver;
+
+import freecell.model.MoveBuffer;
+
+/**
+ * The outcome of a search for a hint by the {@link HintEngine}: the move that is advised next,
+ * packed as described in {@link MoveBuffer}, with how it was found.
+ */
+public final class Hint {
+
+  /**
+   * The ways a search for a hint can end.
+   */
+  public enum Status {
+    /** The advised move is the first move of a sequence of moves that wins the game. */
+    SOLVED,
+    /** The advised move leads towards the most promising position reached within the budget. */
+    BEST_FOUND,
+    /** There is no move to advise, as the game hasn't started, is over or is stuck. */
+    NO_MOVE
+  }
+
+  private final Status status;
+  private final int move;
+  private final int solutionLength;
+  private final int estimate;
+  private final long nodesExpanded;
+  private final long elapsedNanos;
+
+  /**
+   * Constructs the outcome of a search for a hint.
+   * @param status the way the search ended.
+   * @param move the packed move advised, -1 if there is none.
+   * @param solutionLength the number of moves of the solution found, 0 unless it was solved.
+   * @param estimate the heuristic estimate of the position the advised move leads towards.
+   * @param nodesExpanded the number of positions whose moves were explored.
+   * @param elapsedNanos the time taken by the search.
+   */
+  Hint(Status status, int move, int solutionLength, int estimate, long nodesExpanded,
+       long elapsedNanos) {
+    this.status = status;
+    this.move = move;
+    this.solutionLength = solutionLength;
+    this.estimate = estimate;
+    this.nodesExpanded = nodesExpanded;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * A method that provides the way the search ended.
+   * @return the status of the search.
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * A method that tells if a move is advised.
+   * @return true unless the status is NO_MOVE.
+   */
+  public boolean hasMove() {
+    return status != Status.NO_MOVE;
+  }
+
+  /**
+   * A method that provides the move advised.
+   * @return the packed move, -1 if there is none.
+   */
+  public int getMove() {
+    return move;
+  }
+
+  /**
+   * A method that provides the number of moves of the solution whose first move is advised.
+   * @return the number of moves, 0 if no solution was found.
+   */
+  public int getSolutionLength() {
+    return solutionLength;
+  }
+
+  /**
+   * A method that provides the heuristic estimate of the position the advised move leads
+   * towards, which is 0 for a won game.
+   * @return the estimated number of moves still needed from that position.
+   */
+  public int getEstimate() {
+    return estimate;
+  }
+
+  /**
+   * A method that provides the number of positions whose moves were explored by the search.
+   * @return the number of expanded nodes.
+   */
+  public long getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * A method that provides the time taken by the search.
+   * @return the elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+}
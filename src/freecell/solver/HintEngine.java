@@ -0,0 +1,241 @@
+package freecell.solver;
+
+import java.util.concurrent.TimeUnit;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellOperations;
+import freecell.model.MoveBuffer;
+
+/**
+ * An anytime search for the next move to advise in a game of free cell. It runs the weighted
+ * best-first search of the {@link Solver} for as long as a wall-clock budget allows, and keeps
+ * track of the position with the lowest heuristic estimate reached so far. When the budget runs
+ * out, the first move on the way to that position is advised; if a solution is found first, its
+ * first move is advised at once. At least the moves of the present position are explored, so a
+ * move is advised whenever a useful one exists, however short the budget.
+ *
+ * <p>An engine holds no state between searches, so it can be shared by many threads, each
+ * searching for hints in its own games.</p>
+ */
+public class HintEngine {
+
+  private static final int CLOCK_CHECK_MASK = 31;
+
+  private final Heuristic heuristic;
+  private final int weight;
+  private final int maxNodes;
+  private final int tableCapacity;
+
+  /**
+   * Constructs an engine with the given configuration.
+   * @param heuristic the estimate of the moves needed from a position.
+   * @param weight the weight of the heuristic estimate in the score of a position.
+   * @param maxNodes the maximum number of positions recorded by a search.
+   * @param tableCapacity the number of positions the transposition table holds.
+   */
+  private HintEngine(Heuristic heuristic, int weight, int maxNodes, int tableCapacity) {
+    this.heuristic = heuristic;
+    this.weight = weight;
+    this.maxNodes = maxNodes;
+    this.tableCapacity = tableCapacity;
+  }
+
+  /**
+   * A static inner class that helps in creating a HintEngine. By default an engine uses the
+   * BlockedCardsHeuristic with a weight of 4, records up to 200,000 positions and has a
+   * transposition table of 131,072 positions, which is about as much as a search of a few tens
+   * of milliseconds can fill.
+   */
+  public static class HintEngineBuilder {
+
+    private Heuristic heuristic;
+    private int weight;
+    private int maxNodes;
+    private int tableCapacity;
+
+    /**
+     * A default constructor that assigns the default configuration.
+     */
+    private HintEngineBuilder() {
+      heuristic = new BlockedCardsHeuristic();
+      weight = 4;
+      maxNodes = 200_000;
+      tableCapacity = 1 << 17;
+    }
+
+    /**
+     * This method is used to configure the heuristic of the engine.
+     * @param heuristic the estimate of the moves needed from a position.
+     * @return this builder.
+     * @throws IllegalArgumentException if the heuristic is null.
+     */
+    public HintEngineBuilder heuristic(Heuristic heuristic) throws IllegalArgumentException {
+
+      if (heuristic == null) {
+        throw new IllegalArgumentException("Heuristic can't be null");
+      }
+      this.heuristic = heuristic;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the weight of the heuristic estimate.
+     * @param weight the weight, 1 for the A* search.
+     * @return this builder.
+     * @throws IllegalArgumentException if the weight is less than 1.
+     */
+    public HintEngineBuilder weight(int weight) throws IllegalArgumentException {
+
+      if (weight < 1) {
+        throw new IllegalArgumentException("Weight should be at least 1");
+      }
+      this.weight = weight;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the maximum number of positions recorded by a search,
+     * after which the best move found so far is advised.
+     * @param maxNodes the maximum number of positions.
+     * @return this builder.
+     * @throws IllegalArgumentException if the maximum isn't positive.
+     */
+    public HintEngineBuilder maxNodes(int maxNodes) throws IllegalArgumentException {
+
+      if (maxNodes <= 0) {
+        throw new IllegalArgumentException("Maximum number of nodes should be positive");
+      }
+      this.maxNodes = maxNodes;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of positions held by the transposition table.
+     * @param tableCapacity the number of positions, rounded up to a power of 2.
+     * @return this builder.
+     * @throws IllegalArgumentException if the capacity isn't positive.
+     */
+    public HintEngineBuilder tableCapacity(int tableCapacity) throws IllegalArgumentException {
+
+      if (tableCapacity <= 0) {
+        throw new IllegalArgumentException("Capacity of the table should be positive");
+      }
+      this.tableCapacity = tableCapacity;
+      return this;
+    }
+
+    /**
+     * This method builds the engine.
+     * @return the engine.
+     */
+    public HintEngine build() {
+      return new HintEngine(heuristic, weight, maxNodes, tableCapacity);
+    }
+  }
+
+  /**
+   * A static method that can be used by any class to create a HintEngineBuilder in order to
+   * further create a HintEngine.
+   * @return a new HintEngineBuilder.
+   */
+  public static HintEngineBuilder getBuilder() {
+    return new HintEngineBuilder();
+  }
+
+  /**
+   * Searches for the next move to advise in the present position of the given game, for no
+   * longer than the given budget, give or take the time to explore a few dozen positions. The
+   * game itself isn't changed; the search plays on a copy of it.
+   *
+   * @param game a game of the free cell model, played through its own move method.
+   * @param budget the time the search may take.
+   * @param unit the unit of the budget.
+   * @return the outcome of the search.
+   * @throws IllegalArgumentException if the game is null or isn't a game of the free cell model,
+   *                                  if the budget is negative or the unit is null.
+   */
+  public Hint hint(FreecellOperations<Card> game, long budget, TimeUnit unit)
+          throws IllegalArgumentException {
+
+    if (!(game instanceof FreeCellAbstractModel)) {
+      throw new IllegalArgumentException("Hints can only be given for games of the free cell"
+              + " model");
+    }
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget can't be negative");
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Time unit can't be null");
+    }
+
+    long start = System.nanoTime();
+    long deadline = start + unit.toNanos(budget);
+    FreeCellAbstractModel work = ((FreeCellAbstractModel) game).copy();
+    MoveBuffer buffer = new MoveBuffer();
+
+    if (work.isGameOver() || work.generateMoves(buffer) == 0) {
+      return new Hint(Hint.Status.NO_MOVE, -1, 0, 0, 0, System.nanoTime() - start);
+    }
+
+    SearchTree tree = new SearchTree(work.positionSize());
+    TranspositionTable table = new TranspositionTable(tableCapacity);
+    NodeQueue queue = new NodeQueue();
+    long expanded = 0;
+    int bestNode = -1;
+    int bestEstimate = Integer.MAX_VALUE;
+
+    int root = tree.add(-1, 0, 0, work);
+    table.offer(work.getPositionHash(), 0);
+    queue.add(root, 0);
+
+    while (!queue.isEmpty() && tree.size() < maxNodes) {
+      //Reading the clock once the root is expanded, then every 32 positions
+      if ((expanded & CLOCK_CHECK_MASK) == 1 && System.nanoTime() - deadline > 0) {
+        break;
+      }
+
+      int node = queue.poll();
+      int depth = tree.depth(node) + 1;
+      expanded++;
+
+      tree.restore(node, work);
+      int movesCount = work.generateMoves(buffer);
+
+      for (int i = 0; i < movesCount && tree.size() < maxNodes; i++) {
+        int move = buffer.get(i);
+
+        if (!Solver.isUseful(work, move)) {
+          continue;
+        }
+
+        Solver.makeMove(work, move);
+
+        if (work.isGameOver()) {
+          int[] path = tree.path(tree.add(node, move, depth, work));
+          return new Hint(Hint.Status.SOLVED, path[0], path.length, 0, expanded,
+                  System.nanoTime() - start);
+        }
+
+        if (table.offer(work.getPositionHash(), depth)) {
+          int estimate = heuristic.estimate(work);
+          int child = tree.add(node, move, depth, work);
+          queue.add(child, depth + weight * estimate);
+          if (estimate < bestEstimate
+                  || estimate == bestEstimate && depth < tree.depth(bestNode)) {
+            bestNode = child;
+            bestEstimate = estimate;
+          }
+        }
+
+        tree.restore(node, work);
+      }
+    }
+
+    if (bestNode == -1) {
+      return new Hint(Hint.Status.NO_MOVE, -1, 0, 0, expanded, System.nanoTime() - start);
+    }
+    return new Hint(Hint.Status.BEST_FOUND, tree.path(bestNode)[0], 0, bestEstimate, expanded,
+            System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,91 @@
+package freecell.solver;
+
+import java.util.Arrays;
+
+/**
+ * A package protected priority queue of search nodes, ordered by their score. It is a binary
+ * heap of longs, each holding the score of a node in its upper half and the node's number in its
+ * lower half, so nodes are queued without boxing them.
+ */
+final class NodeQueue {
+
+  private long[] heap;
+  private int size;
+
+  /**
+   * Constructs an empty queue.
+   */
+  NodeQueue() {
+    heap = new long[1024];
+  }
+
+  /**
+   * A method that tells if the queue has no nodes.
+   * @return true if the queue is empty.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all the nodes from the queue.
+   */
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * Adds a node to the queue.
+   * @param node the node's number, not negative.
+   * @param score the node's score, not negative; nodes with lower scores leave the queue first.
+   */
+  void add(int node, int score) {
+
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, heap.length * 2);
+    }
+
+    long entry = (long) score << 32 | node;
+    int index = size++;
+
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (heap[parent] <= entry) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = entry;
+  }
+
+  /**
+   * Removes the node with the lowest score from the queue. Among nodes with the same score the
+   * one with the lowest number leaves first.
+   * @return the node's number.
+   */
+  int poll() {
+
+    long first = heap[0];
+    long last = heap[--size];
+    int index = 0;
+
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (last <= heap[child]) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = last;
+
+    return (int) first;
+  }
+}
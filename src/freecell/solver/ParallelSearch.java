@@ -0,0 +1,137 @@
+package freecell.solver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveBuffer;
+
+/**
+ * The package protected state shared by the tasks of one parallel search: the transposition
+ * table, the node counters, the first solution found and a game and move buffer for each thread.
+ */
+final class ParallelSearch {
+
+  private final Heuristic heuristic;
+  private final SharedTranspositionTable table;
+  private final long maxNodes;
+  private final int positionSize;
+  private final ThreadLocal<FreeCellAbstractModel> games;
+  private final ThreadLocal<MoveBuffer> buffers;
+  private final AtomicLong nodesExpanded;
+  private final AtomicLong nodesGenerated;
+  private final AtomicReference<int[]> solution;
+  private volatile boolean stopped;
+  private volatile boolean limitReached;
+
+  /**
+   * Constructs the state of a search of the given game.
+   * @param game the started game whose position is searched; it isn't changed by the search.
+   * @param heuristic the estimate used to order the moves of a position.
+   * @param maxNodes the number of recorded positions after which the search gives up.
+   * @param tableCapacity the number of positions the transposition table holds.
+   */
+  ParallelSearch(FreeCellAbstractModel game, Heuristic heuristic, long maxNodes,
+                 int tableCapacity) {
+    this.heuristic = heuristic;
+    this.table = new SharedTranspositionTable(tableCapacity);
+    this.maxNodes = maxNodes;
+    this.positionSize = game.positionSize();
+    FreeCellAbstractModel start = game.copy();
+    this.games = ThreadLocal.withInitial(start::copy);
+    this.buffers = ThreadLocal.withInitial(MoveBuffer::new);
+    this.nodesExpanded = new AtomicLong();
+    this.nodesGenerated = new AtomicLong();
+    this.solution = new AtomicReference<>();
+  }
+
+  /**
+   * A method that provides the game on which the calling thread explores positions.
+   * @return the game of the calling thread.
+   */
+  FreeCellAbstractModel game() {
+    return games.get();
+  }
+
+  /**
+   * A method that provides the move buffer of the calling thread.
+   * @return the move buffer of the calling thread.
+   */
+  MoveBuffer buffer() {
+    return buffers.get();
+  }
+
+  /**
+   * A method that provides the estimate used to order the moves of a position.
+   * @return the heuristic of the search.
+   */
+  Heuristic heuristic() {
+    return heuristic;
+  }
+
+  /**
+   * A method that provides the positions already reached by any task.
+   * @return the transposition table of the search.
+   */
+  SharedTranspositionTable table() {
+    return table;
+  }
+
+  /**
+   * A method that provides the maximum size of an encoded position of the searched game.
+   * @return the size of a position.
+   */
+  int positionSize() {
+    return positionSize;
+  }
+
+  /**
+   * A method that tells if the tasks should stop, because a solution was found or the node
+   * limit was reached.
+   * @return true if the search is over.
+   */
+  boolean isStopped() {
+    return stopped;
+  }
+
+  /**
+   * Adds the nodes counted by a task to the totals of the search, and stops the search once the
+   * number of recorded positions reaches the limit.
+   * @param expanded the number of positions whose moves the task explored.
+   * @param generated the number of positions the task recorded.
+   */
+  void count(long expanded, long generated) {
+
+    nodesExpanded.addAndGet(expanded);
+    if (nodesGenerated.addAndGet(generated) >= maxNodes) {
+      limitReached = true;
+      stopped = true;
+    }
+  }
+
+  /**
+   * Records a solution and stops the search. Only the first solution found is kept.
+   * @param moves the packed moves that win the game.
+   */
+  void solved(int[] moves) {
+
+    solution.compareAndSet(null, moves);
+    stopped = true;
+  }
+
+  /**
+   * A method that provides the outcome of the search once all its tasks are done.
+   * @return the outcome of the search.
+   */
+  Solution outcome() {
+
+    int[] moves = solution.get();
+
+    if (moves != null) {
+      return new Solution(Solution.Status.SOLVED, moves, nodesExpanded.get(),
+              nodesGenerated.get());
+    }
+    return new Solution(limitReached ? Solution.Status.NODE_LIMIT : Solution.Status.EXHAUSTED,
+            new int[0], nodesExpanded.get(), nodesGenerated.get());
+  }
+}
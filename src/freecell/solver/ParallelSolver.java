@@ -0,0 +1,189 @@
+package freecell.solver;
+
+import java.util.concurrent.ForkJoinPool;
+
+import freecell.model.FreeCellAbstractModel;
+
+/**
+ * A solver for games of free cell that searches on many threads at once. The search is depth
+ * first, trying the moves of each position in the order of the heuristic estimate of the
+ * positions they lead to, and is split into tasks of a ForkJoinPool: whenever a thread runs out
+ * of work it steals the untried moves of a position explored by another thread. The threads
+ * share one transposition table, updated without locks, so that each position is explored by
+ * one thread only.
+ *
+ * <p>Unlike the {@link Solver}, the solutions found aren't the shortest ones, and which solution
+ * is found may change from one search to the next. The moves and the pruning of useless moves are
+ * the same as those of the {@link Solver}. The node limit is checked as the threads report their
+ * counts, so a search may record a few thousand positions more than the limit.</p>
+ */
+public class ParallelSolver {
+
+  private final Heuristic heuristic;
+  private final int threads;
+  private final int maxNodes;
+  private final int tableCapacity;
+
+  /**
+   * Constructs a solver with the given configuration.
+   * @param heuristic the estimate used to order the moves of a position.
+   * @param threads the number of threads of a search.
+   * @param maxNodes the number of positions recorded by a search after which it gives up.
+   * @param tableCapacity the number of positions the transposition table holds.
+   */
+  private ParallelSolver(Heuristic heuristic, int threads, int maxNodes, int tableCapacity) {
+    this.heuristic = heuristic;
+    this.threads = threads;
+    this.maxNodes = maxNodes;
+    this.tableCapacity = tableCapacity;
+  }
+
+  /**
+   * A static inner class that helps in creating a ParallelSolver. By default a solver uses the
+   * BlockedCardsHeuristic, one thread for each available processor, records up to 1,000,000
+   * positions and has a transposition table of 2,097,152 positions.
+   */
+  public static class ParallelSolverBuilder {
+
+    private Heuristic heuristic;
+    private int threads;
+    private int maxNodes;
+    private int tableCapacity;
+
+    /**
+     * A default constructor that assigns the default configuration.
+     */
+    private ParallelSolverBuilder() {
+      heuristic = new BlockedCardsHeuristic();
+      threads = Runtime.getRuntime().availableProcessors();
+      maxNodes = 1_000_000;
+      tableCapacity = 1 << 21;
+    }
+
+    /**
+     * This method is used to configure the heuristic of the solver. The heuristic is used by
+     * all the threads at once.
+     * @param heuristic the estimate used to order the moves of a position.
+     * @return this builder.
+     * @throws IllegalArgumentException if the heuristic is null.
+     */
+    public ParallelSolverBuilder heuristic(Heuristic heuristic) throws IllegalArgumentException {
+
+      if (heuristic == null) {
+        throw new IllegalArgumentException("Heuristic can't be null");
+      }
+      this.heuristic = heuristic;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of threads of a search.
+     * @param threads the number of threads.
+     * @return this builder.
+     * @throws IllegalArgumentException if the number of threads isn't positive.
+     */
+    public ParallelSolverBuilder threads(int threads) throws IllegalArgumentException {
+
+      if (threads <= 0) {
+        throw new IllegalArgumentException("Number of threads should be positive");
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the maximum number of positions recorded by a search,
+     * after which the search gives up.
+     * @param maxNodes the maximum number of positions.
+     * @return this builder.
+     * @throws IllegalArgumentException if the maximum isn't positive.
+     */
+    public ParallelSolverBuilder maxNodes(int maxNodes) throws IllegalArgumentException {
+
+      if (maxNodes <= 0) {
+        throw new IllegalArgumentException("Maximum number of nodes should be positive");
+      }
+      this.maxNodes = maxNodes;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of positions held by the transposition table.
+     * @param tableCapacity the number of positions, rounded up to a power of 2.
+     * @return this builder.
+     * @throws IllegalArgumentException if the capacity isn't positive.
+     */
+    public ParallelSolverBuilder tableCapacity(int tableCapacity)
+            throws IllegalArgumentException {
+
+      if (tableCapacity <= 0) {
+        throw new IllegalArgumentException("Capacity of the table should be positive");
+      }
+      this.tableCapacity = tableCapacity;
+      return this;
+    }
+
+    /**
+     * This method builds the solver.
+     * @return the solver.
+     */
+    public ParallelSolver build() {
+      return new ParallelSolver(heuristic, threads, maxNodes, tableCapacity);
+    }
+  }
+
+  /**
+   * A static method that can be used by any class to create a ParallelSolverBuilder in order to
+   * further create a ParallelSolver.
+   * @return a new ParallelSolverBuilder.
+   */
+  public static ParallelSolverBuilder getBuilder() {
+    return new ParallelSolverBuilder();
+  }
+
+  /**
+   * A method that provides the number of threads of a search.
+   * @return the number of threads.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Searches for a sequence of moves that wins the given game from its present position. The
+   * game itself isn't changed; the threads play on copies of it. The method returns once every
+   * thread of the search has stopped.
+   *
+   * @param game a started game.
+   * @return the outcome of the search.
+   * @throws IllegalArgumentException if the game is null.
+   * @throws IllegalStateException if the game hasn't started.
+   */
+  public Solution solve(FreeCellAbstractModel game)
+          throws IllegalArgumentException, IllegalStateException {
+
+    if (game == null) {
+      throw new IllegalArgumentException("Game can't be null");
+    }
+
+    byte[] root = new byte[game.positionSize()];
+    game.writePosition(root, 0);
+
+    if (game.isGameOver()) {
+      return new Solution(Solution.Status.SOLVED, new int[0], 0, 1);
+    }
+
+    ParallelSearch search = new ParallelSearch(game, heuristic, maxNodes, tableCapacity);
+    search.table().offer(game.getPositionHash());
+    search.count(0, 1);
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      pool.invoke(new SubtreeTask(search, root, null));
+    } finally {
+      pool.shutdown();
+    }
+
+    return search.outcome();
+  }
+}
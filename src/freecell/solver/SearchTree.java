@@ -0,0 +1,108 @@
+package freecell.solver;
+
+import java.util.Arrays;
+
+import freecell.model.FreeCellAbstractModel;
+
+/**
+ * A package protected store of the nodes of a search. Each node records the position it stands
+ * for, in the compact form written by {@link FreeCellAbstractModel#writePosition(byte[], int)},
+ * the node it was reached from, the move that reached it and the number of moves from the root.
+ * Positions are kept in fixed size chunks of bytes so the store grows without copying them.
+ */
+final class SearchTree {
+
+  private static final int CHUNK_NODES = 4096;
+
+  private final int positionSize;
+  private byte[][] chunks;
+  private int[] parents;
+  private int[] moves;
+  private int[] depths;
+  private int size;
+
+  /**
+   * Constructs an empty store for positions of the given size.
+   * @param positionSize the maximum size of an encoded position.
+   */
+  SearchTree(int positionSize) {
+    this.positionSize = positionSize;
+    chunks = new byte[16][];
+    parents = new int[CHUNK_NODES];
+    moves = new int[CHUNK_NODES];
+    depths = new int[CHUNK_NODES];
+  }
+
+  /**
+   * A method that provides the number of nodes in the store.
+   * @return the number of nodes.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Adds a node for the present position of a game.
+   * @param parent the node the position was reached from, -1 for the root.
+   * @param move the packed move that reached the position, ignored for the root.
+   * @param depth the number of moves from the root.
+   * @param game the game whose position is recorded.
+   * @return the new node's number.
+   */
+  int add(int parent, int move, int depth, FreeCellAbstractModel game) {
+
+    int node = size++;
+    int chunk = node / CHUNK_NODES;
+
+    if (chunk == chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunks.length * 2);
+    }
+    if (chunks[chunk] == null) {
+      chunks[chunk] = new byte[CHUNK_NODES * positionSize];
+    }
+    if (node == parents.length) {
+      parents = Arrays.copyOf(parents, parents.length * 2);
+      moves = Arrays.copyOf(moves, moves.length * 2);
+      depths = Arrays.copyOf(depths, depths.length * 2);
+    }
+
+    game.writePosition(chunks[chunk], (node % CHUNK_NODES) * positionSize);
+    parents[node] = parent;
+    moves[node] = move;
+    depths[node] = depth;
+    return node;
+  }
+
+  /**
+   * Brings a game to the position of a node.
+   * @param node the node's number.
+   * @param game a game with the same number of piles as the recorded ones.
+   */
+  void restore(int node, FreeCellAbstractModel game) {
+    game.readPosition(chunks[node / CHUNK_NODES], (node % CHUNK_NODES) * positionSize);
+  }
+
+  /**
+   * A method that provides the number of moves from the root to a node.
+   * @param node the node's number.
+   * @return the depth of the node.
+   */
+  int depth(int node) {
+    return depths[node];
+  }
+
+  /**
+   * A method that provides the moves that lead from the root to a node.
+   * @param node the node's number.
+   * @return the packed moves, in the order they are to be made.
+   */
+  int[] path(int node) {
+
+    int[] path = new int[depths[node]];
+
+    for (int current = node; parents[current] != -1; current = parents[current]) {
+      path[depths[current] - 1] = moves[current];
+    }
+    return path;
+  }
+}
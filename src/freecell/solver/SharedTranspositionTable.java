@@ -0,0 +1,64 @@
+package freecell.solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A package protected, fixed size set of the positions already reached by a search, keyed by
+ * their position hash, that many threads can use at once without locking. A position is claimed
+ * by compare and set on an empty slot, so two threads reaching the same position only explore it
+ * once. When all the slots probed for a new position are taken, the first of them is overwritten,
+ * so a search may explore a position again but its memory stays bounded.
+ */
+final class SharedTranspositionTable {
+
+  private static final int PROBES = 4;
+
+  private final AtomicLongArray hashes;
+  private final int mask;
+
+  /**
+   * Constructs an empty table.
+   * @param capacity the number of positions the table can hold, rounded up to a power of 2.
+   * @throws IllegalArgumentException if the capacity isn't positive.
+   */
+  SharedTranspositionTable(int capacity) throws IllegalArgumentException {
+
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity of the table should be positive");
+    }
+    int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    hashes = new AtomicLongArray(Math.max(size, PROBES));
+    mask = hashes.length() - 1;
+  }
+
+  /**
+   * Records that a position was reached.
+   * @param hash the hash of the position.
+   * @return true if no thread reached the position before, i.e. if it is worth exploring, false
+   *         otherwise.
+   */
+  boolean offer(long hash) {
+
+    long key = hash == 0 ? 1 : hash;
+    int index = (int) (key ^ (key >>> 32)) & mask;
+
+    for (int probe = 0; probe < PROBES; probe++) {
+      int slot = (index + probe) & mask;
+      long current = hashes.get(slot);
+
+      if (current == 0) {
+        if (hashes.compareAndSet(slot, 0, key)) {
+          return true;
+        }
+        current = hashes.get(slot);
+      }
+
+      if (current == key) {
+        return false;
+      }
+    }
+
+    hashes.set(index, key);
+    return true;
+  }
+}
@@ -0,0 +1,111 @@
+package freecell.solver;
+
+import java.util.Arrays;
+
+import freecell.model.Card;
+import freecell.model.FreecellOperations;
+import freecell.model.MoveBuffer;
+
+/**
+ * The outcome of a search for a solution of a free cell game. When the search succeeds it holds
+ * the moves that win the game, packed as described in {@link MoveBuffer}, which can be replayed
+ * through the move method of the game the search started from.
+ */
+public final class Solution {
+
+  /**
+   * The ways a search can end.
+   */
+  public enum Status {
+    /** A sequence of moves that wins the game was found. */
+    SOLVED,
+    /** Every position reachable from the game was explored without winning it. */
+    EXHAUSTED,
+    /** The search stopped after recording as many positions as it was allowed to. */
+    NODE_LIMIT,
+    /** The search stopped after running for as long as it was allowed to. */
+    TIME_LIMIT
+  }
+
+  private final Status status;
+  private final int[] moves;
+  private final long nodesExpanded;
+  private final long nodesGenerated;
+
+  /**
+   * Constructs the outcome of a search.
+   * @param status the way the search ended.
+   * @param moves the packed moves that win the game, empty unless the game was solved.
+   * @param nodesExpanded the number of positions whose moves were explored.
+   * @param nodesGenerated the number of positions recorded by the search.
+   */
+  Solution(Status status, int[] moves, long nodesExpanded, long nodesGenerated) {
+    this.status = status;
+    this.moves = moves;
+    this.nodesExpanded = nodesExpanded;
+    this.nodesGenerated = nodesGenerated;
+  }
+
+  /**
+   * A method that provides the way the search ended.
+   * @return the status of the search.
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * A method that tells if the search found a way to win the game.
+   * @return true if the game was solved.
+   */
+  public boolean isSolved() {
+    return status == Status.SOLVED;
+  }
+
+  /**
+   * A method that provides the number of moves of the solution.
+   * @return the number of moves, 0 if the game wasn't solved.
+   */
+  public int getMoveCount() {
+    return moves.length;
+  }
+
+  /**
+   * A method that provides the moves of the solution.
+   * @return a copy of the packed moves, in the order they are to be made.
+   */
+  public int[] getMoves() {
+    return Arrays.copyOf(moves, moves.length);
+  }
+
+  /**
+   * A method that provides the number of positions whose moves were explored by the search.
+   * @return the number of expanded nodes.
+   */
+  public long getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * A method that provides the number of positions recorded by the search.
+   * @return the number of generated nodes.
+   */
+  public long getNodesGenerated() {
+    return nodesGenerated;
+  }
+
+  /**
+   * Makes the moves of the solution on a game through its move method. Given the game, or an
+   * equal game, that was solved, the game is over once this method returns.
+   *
+   * @param game the game on which the moves are made.
+   * @throws IllegalArgumentException if one of the moves isn't valid for the game.
+   */
+  public void replay(FreecellOperations<Card> game) throws IllegalArgumentException {
+
+    for (int move : moves) {
+      game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move), MoveBuffer.cardIndex(move),
+              MoveBuffer.destination(move), MoveBuffer.destPileNumber(move));
+    }
+  }
+}
@@ -0,0 +1,276 @@
+package freecell.solver;
+
+import java.util.concurrent.TimeUnit;
+
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveBuffer;
+import freecell.model.PileType;
+
+/**
+ * A best-first solver for games of free cell. Starting from the position of a game, it keeps
+ * exploring the recorded position with the lowest score, where the score of a position is the
+ * number of moves that reached it plus its heuristic estimate times a weight, until it reaches a
+ * position where the game is over. With a weight of 1 and a heuristic that never overestimates,
+ * this is the A* search and finds the shortest solution; larger weights find solutions much
+ * faster but longer.
+ *
+ * <p>The moves are those of the game's own move generator, so the solution of a
+ * FreecellMultiMoveModel may contain multi card moves. Moves that never help, such as moving a
+ * card out of a foundation pile or from an open pile to another open pile, are skipped.
+ * Positions already reached are remembered in a transposition table of bounded size.</p>
+ */
+public class Solver {
+
+  private final Heuristic heuristic;
+  private final int weight;
+  private final int maxNodes;
+  private final int tableCapacity;
+  private final long timeLimitNanos;
+
+  /**
+   * Constructs a solver with the given configuration.
+   * @param heuristic the estimate of the moves needed from a position.
+   * @param weight the weight of the heuristic estimate in the score of a position.
+   * @param maxNodes the maximum number of positions recorded by a search.
+   * @param tableCapacity the number of positions the transposition table holds.
+   * @param timeLimitNanos the time after which a search gives up, 0 for no limit.
+   */
+  private Solver(Heuristic heuristic, int weight, int maxNodes, int tableCapacity,
+                 long timeLimitNanos) {
+    this.heuristic = heuristic;
+    this.weight = weight;
+    this.maxNodes = maxNodes;
+    this.tableCapacity = tableCapacity;
+    this.timeLimitNanos = timeLimitNanos;
+  }
+
+  /**
+   * A static inner class that helps in creating a Solver. By default a solver uses the
+   * BlockedCardsHeuristic with a weight of 4, records up to 1,000,000 positions, has a
+   * transposition table of 2,097,152 positions and no time limit.
+   */
+  public static class SolverBuilder {
+
+    private Heuristic heuristic;
+    private int weight;
+    private int maxNodes;
+    private int tableCapacity;
+    private long timeLimitNanos;
+
+    /**
+     * A default constructor that assigns the default configuration.
+     */
+    private SolverBuilder() {
+      heuristic = new BlockedCardsHeuristic();
+      weight = 4;
+      maxNodes = 1_000_000;
+      tableCapacity = 1 << 21;
+      timeLimitNanos = 0;
+    }
+
+    /**
+     * This method is used to configure the heuristic of the solver.
+     * @param heuristic the estimate of the moves needed from a position.
+     * @return this builder.
+     * @throws IllegalArgumentException if the heuristic is null.
+     */
+    public SolverBuilder heuristic(Heuristic heuristic) throws IllegalArgumentException {
+
+      if (heuristic == null) {
+        throw new IllegalArgumentException("Heuristic can't be null");
+      }
+      this.heuristic = heuristic;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the weight of the heuristic estimate.
+     * @param weight the weight, 1 for the A* search.
+     * @return this builder.
+     * @throws IllegalArgumentException if the weight is less than 1.
+     */
+    public SolverBuilder weight(int weight) throws IllegalArgumentException {
+
+      if (weight < 1) {
+        throw new IllegalArgumentException("Weight should be at least 1");
+      }
+      this.weight = weight;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the maximum number of positions recorded by a search,
+     * after which the search gives up.
+     * @param maxNodes the maximum number of positions.
+     * @return this builder.
+     * @throws IllegalArgumentException if the maximum isn't positive.
+     */
+    public SolverBuilder maxNodes(int maxNodes) throws IllegalArgumentException {
+
+      if (maxNodes <= 0) {
+        throw new IllegalArgumentException("Maximum number of nodes should be positive");
+      }
+      this.maxNodes = maxNodes;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the number of positions held by the transposition table.
+     * @param tableCapacity the number of positions, rounded up to a power of 2.
+     * @return this builder.
+     * @throws IllegalArgumentException if the capacity isn't positive.
+     */
+    public SolverBuilder tableCapacity(int tableCapacity) throws IllegalArgumentException {
+
+      if (tableCapacity <= 0) {
+        throw new IllegalArgumentException("Capacity of the table should be positive");
+      }
+      this.tableCapacity = tableCapacity;
+      return this;
+    }
+
+    /**
+     * This method is used to configure the time after which a search gives up.
+     * @param timeLimit the time limit, 0 for no limit.
+     * @param unit the unit of the time limit.
+     * @return this builder.
+     * @throws IllegalArgumentException if the time limit is negative or the unit is null.
+     */
+    public SolverBuilder timeLimit(long timeLimit, TimeUnit unit)
+            throws IllegalArgumentException {
+
+      if (timeLimit < 0) {
+        throw new IllegalArgumentException("Time limit can't be negative");
+      }
+      if (unit == null) {
+        throw new IllegalArgumentException("Time unit can't be null");
+      }
+      this.timeLimitNanos = unit.toNanos(timeLimit);
+      return this;
+    }
+
+    /**
+     * This method builds the solver.
+     * @return the solver.
+     */
+    public Solver build() {
+      return new Solver(heuristic, weight, maxNodes, tableCapacity, timeLimitNanos);
+    }
+  }
+
+  /**
+   * A static method that can be used by any class to create a SolverBuilder in order to further
+   * create a Solver.
+   * @return a new SolverBuilder.
+   */
+  public static SolverBuilder getBuilder() {
+    return new SolverBuilder();
+  }
+
+  /**
+   * Searches for a sequence of moves that wins the given game from its present position. The
+   * game itself isn't changed; the search plays on a copy of it.
+   *
+   * @param game a started game.
+   * @return the outcome of the search.
+   * @throws IllegalArgumentException if the game is null.
+   * @throws IllegalStateException if the game hasn't started.
+   */
+  public Solution solve(FreeCellAbstractModel game)
+          throws IllegalArgumentException, IllegalStateException {
+
+    if (game == null) {
+      throw new IllegalArgumentException("Game can't be null");
+    }
+
+    FreeCellAbstractModel work = game.copy();
+    SearchTree tree = new SearchTree(work.positionSize());
+    TranspositionTable table = new TranspositionTable(tableCapacity);
+    NodeQueue queue = new NodeQueue();
+    MoveBuffer buffer = new MoveBuffer();
+    long expanded = 0;
+    long deadline = System.nanoTime() + timeLimitNanos;
+
+    int root = tree.add(-1, 0, 0, work);
+
+    if (work.isGameOver()) {
+      return new Solution(Solution.Status.SOLVED, new int[0], 0, 1);
+    }
+
+    table.offer(work.getPositionHash(), 0);
+    queue.add(root, weight * heuristic.estimate(work));
+
+    while (!queue.isEmpty()) {
+      if (timeLimitNanos != 0 && (expanded & 255) == 0 && System.nanoTime() - deadline > 0) {
+        return new Solution(Solution.Status.TIME_LIMIT, new int[0], expanded, tree.size());
+      }
+
+      int node = queue.poll();
+      int depth = tree.depth(node) + 1;
+      expanded++;
+
+      tree.restore(node, work);
+      int movesCount = work.generateMoves(buffer);
+
+      for (int i = 0; i < movesCount; i++) {
+        int move = buffer.get(i);
+
+        if (!isUseful(work, move)) {
+          continue;
+        }
+
+        makeMove(work, move);
+
+        if (work.isGameOver()) {
+          int child = tree.add(node, move, depth, work);
+          return new Solution(Solution.Status.SOLVED, tree.path(child), expanded, tree.size());
+        }
+
+        if (table.offer(work.getPositionHash(), depth)) {
+          if (tree.size() == maxNodes) {
+            return new Solution(Solution.Status.NODE_LIMIT, new int[0], expanded, tree.size());
+          }
+          int child = tree.add(node, move, depth, work);
+          queue.add(child, depth + weight * heuristic.estimate(work));
+        }
+
+        tree.restore(node, work);
+      }
+    }
+
+    return new Solution(Solution.Status.EXHAUSTED, new int[0], expanded, tree.size());
+  }
+
+  /**
+   * A helper method that tells if a legal move is worth exploring. Moving a card out of a
+   * foundation pile, from an open pile to another open pile, or moving a whole cascade pile to
+   * an empty cascade pile never brings the game closer to its end.
+   * @param game the game in the position where the move is legal.
+   * @param move the packed move.
+   * @return true if the move is worth exploring.
+   */
+  static boolean isUseful(FreeCellAbstractModel game, int move) {
+
+    PileType source = MoveBuffer.source(move);
+    PileType destination = MoveBuffer.destination(move);
+
+    if (source == PileType.FOUNDATION) {
+      return false;
+    }
+    if (source == PileType.OPEN) {
+      return destination != PileType.OPEN;
+    }
+    return destination != PileType.CASCADE || MoveBuffer.cardIndex(move) != 0
+            || game.getPileSize(PileType.CASCADE, MoveBuffer.destPileNumber(move)) != 0;
+  }
+
+  /**
+   * A helper method that makes a packed move on a game.
+   * @param game the game.
+   * @param move the packed move.
+   */
+  static void makeMove(FreeCellAbstractModel game, int move) {
+    game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move), MoveBuffer.cardIndex(move),
+            MoveBuffer.destination(move), MoveBuffer.destPileNumber(move));
+  }
+}
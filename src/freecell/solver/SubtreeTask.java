@@ -0,0 +1,261 @@
+package freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.MoveBuffer;
+
+/**
+ * A package protected task of a parallel search that explores the positions reachable from one
+ * position, depth first, trying the moves of each position in the order of their heuristic
+ * estimate. Whenever the pool runs short of queued work, the task hands the untried moves of its
+ * shallowest position over to new tasks, which idle threads can steal.
+ */
+@SuppressWarnings("serial")
+final class SubtreeTask extends RecursiveAction {
+
+  private static final int FLUSH_NODES = 1024;
+
+  private final ParallelSearch search;
+  private final byte[] position;
+  private final MovePath prefix;
+  private final List<SubtreeTask> forked;
+
+  private byte[][] positions;
+  private int[][] children;
+  private int[] counts;
+  private int[] next;
+  private int[] moves;
+  private int[] scores;
+  private long expanded;
+  private long generated;
+
+  /**
+   * Constructs a task that explores the positions reachable from the given one.
+   * @param search the state shared by the tasks of the search.
+   * @param position the position, as written by
+   *                 {@link FreeCellAbstractModel#writePosition(byte[], int)}.
+   * @param prefix the moves that lead from the searched game to the position, null if none.
+   */
+  SubtreeTask(ParallelSearch search, byte[] position, MovePath prefix) {
+    this.search = search;
+    this.position = position;
+    this.prefix = prefix;
+    this.forked = new ArrayList<>();
+  }
+
+  @Override
+  protected void compute() {
+
+    FreeCellAbstractModel game = search.game();
+    positions = new byte[16][];
+    children = new int[16][];
+    counts = new int[16];
+    next = new int[16];
+    moves = new int[16];
+    scores = new int[64];
+
+    game.readPosition(position, 0);
+    expand(game, 0);
+    int level = 0;
+
+    while (level >= 0 && !search.isStopped()) {
+
+      if (next[level] == counts[level]) {
+        level--;
+        continue;
+      }
+
+      if (getSurplusQueuedTaskCount() <= 0) {
+        split(game, level);
+      }
+
+      int move = children[level][next[level]++];
+      game.readPosition(positions[level], 0);
+      Solver.makeMove(game, move);
+
+      level++;
+      ensureLevels(level);
+      moves[level] = move;
+      expand(game, level);
+    }
+
+    search.count(expanded, generated);
+
+    for (SubtreeTask task : forked) {
+      task.join();
+    }
+  }
+
+  /**
+   * A helper method that records the present position of the game at the given level of the
+   * task's stack, along with its useful moves to positions not reached before, sorted by the
+   * heuristic estimate of the positions they lead to.
+   * @param game the game in the position to be expanded.
+   * @param level the level of the position in the stack.
+   */
+  private void expand(FreeCellAbstractModel game, int level) {
+
+    if (positions[level] == null) {
+      positions[level] = new byte[search.positionSize()];
+    }
+    game.writePosition(positions[level], 0);
+    counts[level] = 0;
+    next[level] = 0;
+    expanded++;
+
+    MoveBuffer buffer = search.buffer();
+    int movesCount = game.generateMoves(buffer);
+
+    if (children[level] == null || children[level].length < movesCount) {
+      children[level] = new int[Math.max(movesCount, 16)];
+    }
+    if (scores.length < movesCount) {
+      scores = new int[movesCount];
+    }
+
+    int[] levelChildren = children[level];
+    int count = 0;
+
+    for (int i = 0; i < movesCount; i++) {
+      int move = buffer.get(i);
+
+      if (!Solver.isUseful(game, move)) {
+        continue;
+      }
+
+      Solver.makeMove(game, move);
+
+      if (game.isGameOver()) {
+        search.solved(path(level, move));
+        return;
+      }
+
+      if (search.table().offer(game.getPositionHash())) {
+        int score = search.heuristic().estimate(game);
+        int index = count++;
+
+        while (index > 0 && scores[index - 1] > score) {
+          scores[index] = scores[index - 1];
+          levelChildren[index] = levelChildren[index - 1];
+          index--;
+        }
+        scores[index] = score;
+        levelChildren[index] = move;
+        generated++;
+      }
+
+      game.readPosition(positions[level], 0);
+    }
+
+    counts[level] = count;
+
+    if (generated >= FLUSH_NODES) {
+      search.count(expanded, generated);
+      expanded = 0;
+      generated = 0;
+    }
+  }
+
+  /**
+   * A helper method that hands the untried moves of the shallowest position of the stack that
+   * has any over to new tasks, one for each move.
+   * @param game a game on which the moves can be made.
+   * @param level the level of the position being explored.
+   */
+  private void split(FreeCellAbstractModel game, int level) {
+
+    int splitLevel = 0;
+
+    while (splitLevel <= level && next[splitLevel] == counts[splitLevel]) {
+      splitLevel++;
+    }
+    if (splitLevel > level
+            || (splitLevel == level && counts[splitLevel] - next[splitLevel] < 2)) {
+      return;
+    }
+
+    MovePath base = prefix;
+    for (int i = 1; i <= splitLevel; i++) {
+      base = new MovePath(moves[i], base);
+    }
+
+    int first = splitLevel == level ? next[splitLevel] + 1 : next[splitLevel];
+
+    for (int i = first; i < counts[splitLevel]; i++) {
+      int move = children[splitLevel][i];
+      game.readPosition(positions[splitLevel], 0);
+      Solver.makeMove(game, move);
+
+      byte[] childPosition = new byte[search.positionSize()];
+      game.writePosition(childPosition, 0);
+      SubtreeTask task = new SubtreeTask(search, childPosition, new MovePath(move, base));
+      task.fork();
+      forked.add(task);
+    }
+
+    counts[splitLevel] = first;
+  }
+
+  /**
+   * A helper method that provides the moves that lead from the searched game to the position
+   * reached by making the given move at the given level of the stack.
+   * @param level the level of the position the move is made from.
+   * @param move the last move.
+   * @return the packed moves, in the order they are to be made.
+   */
+  private int[] path(int level, int move) {
+
+    int prefixLength = prefix == null ? 0 : prefix.length;
+    int[] path = new int[prefixLength + level + 1];
+
+    for (MovePath node = prefix; node != null; node = node.parent) {
+      path[node.length - 1] = node.move;
+    }
+    System.arraycopy(moves, 1, path, prefixLength, level);
+    path[path.length - 1] = move;
+    return path;
+  }
+
+  /**
+   * A helper method that grows the stack so it has room for the given level.
+   * @param level the level.
+   */
+  private void ensureLevels(int level) {
+
+    if (level < counts.length) {
+      return;
+    }
+    int size = counts.length * 2;
+    positions = Arrays.copyOf(positions, size);
+    children = Arrays.copyOf(children, size);
+    counts = Arrays.copyOf(counts, size);
+    next = Arrays.copyOf(next, size);
+    moves = Arrays.copyOf(moves, size);
+  }
+
+  /**
+   * An immutable list of moves, linked from the last move to the first, through which the tasks
+   * created by a split share the moves that lead to their positions.
+   */
+  static final class MovePath {
+
+    private final int move;
+    private final MovePath parent;
+    private final int length;
+
+    /**
+     * Constructs the list of moves made of the given list followed by one more move.
+     * @param move the packed move.
+     * @param parent the moves made before it, null if none.
+     */
+    MovePath(int move, MovePath parent) {
+      this.move = move;
+      this.parent = parent;
+      this.length = parent == null ? 1 : parent.length + 1;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package freecell.solver;
+
+/**
+ * A package protected, fixed size table of the positions already reached by a search, keyed by
+ * their position hash, with the fewest moves in which each one was reached. The table never
+ * grows: when all the slots probed for a new position are taken, the slot holding the position
+ * reached in the most moves is replaced, so a search may explore a position again but its memory
+ * stays bounded.
+ */
+final class TranspositionTable {
+
+  private static final int PROBES = 4;
+
+  private final long[] hashes;
+  private final int[] depths;
+  private final int mask;
+
+  /**
+   * Constructs an empty table.
+   * @param capacity the number of positions the table can hold, rounded up to a power of 2.
+   * @throws IllegalArgumentException if the capacity isn't positive.
+   */
+  TranspositionTable(int capacity) throws IllegalArgumentException {
+
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity of the table should be positive");
+    }
+    int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    hashes = new long[Math.max(size, PROBES)];
+    depths = new int[hashes.length];
+    mask = hashes.length - 1;
+  }
+
+  /**
+   * Records that a position was reached in the given number of moves.
+   * @param hash the hash of the position.
+   * @param depth the number of moves in which the position was reached.
+   * @return true if the position is new or was previously reached in more moves, i.e. if it is
+   *         worth exploring, false otherwise.
+   */
+  boolean offer(long hash, int depth) {
+
+    long key = hash == 0 ? 1 : hash;
+    int index = (int) (key ^ (key >>> 32)) & mask;
+    int replaced = index;
+
+    for (int probe = 0; probe < PROBES; probe++) {
+      int slot = (index + probe) & mask;
+
+      if (hashes[slot] == key) {
+        if (depth < depths[slot]) {
+          depths[slot] = depth;
+          return true;
+        }
+        return false;
+      }
+
+      if (hashes[slot] == 0) {
+        replaced = slot;
+        break;
+      }
+
+      if (depths[slot] > depths[replaced]) {
+        replaced = slot;
+      }
+    }
+
+    hashes[replaced] = key;
+    depths[replaced] = depth;
+    return true;
+  }
+}
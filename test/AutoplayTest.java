@@ -0,0 +1,174 @@
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.GameSnapshot;
+import freecell.model.MoveBuffer;
+import freecell.model.MoveResult;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the autoplay mode, which should move the safe cards to the foundation piles after
+ * the deal and after each move, and report these moves.
+ */
+public class AutoplayTest {
+
+  @Test
+  public void testAutoplayAfterDeal() {
+
+    // The unshuffled deal puts every ace on top of a cascade pile and every 2 on top of another,
+    // which uncovers the 3s and 4s, so the black 3s are safe once the red 2s are founded.
+    FreeCellAbstractModel game = game(false, true);
+    game.startGame(game.getDeck(), false);
+
+    MoveBuffer autoMoves = game.getAutoMoves();
+    assertTrue(autoMoves.size() >= 8);
+    for (int index = 0; index < autoMoves.size(); index++) {
+      assertEquals(PileType.FOUNDATION, MoveBuffer.destination(autoMoves.get(index)));
+    }
+    int founded = 0;
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      founded += game.getPileSize(PileType.FOUNDATION, pileNumber);
+    }
+    assertEquals(autoMoves.size(), founded);
+
+    FreeCellAbstractModel manual = game(false, false);
+    manual.startGame(manual.getDeck(), false);
+    for (int index = 0; index < autoMoves.size(); index++) {
+      int move = autoMoves.get(index);
+      assertEquals(MoveResult.OK, manual.tryMove(MoveBuffer.source(move),
+              MoveBuffer.pileNumber(move), MoveBuffer.cardIndex(move),
+              MoveBuffer.destination(move), MoveBuffer.destPileNumber(move)));
+    }
+    assertEquals(manual.getGameState(), game.getGameState());
+    assertEquals(0, manual.getAutoMoves().size());
+  }
+
+  @Test
+  public void testOnlySafeCardsAreMoved() {
+
+    Random random = new Random(11);
+    for (int round = 0; round < 50; round++) {
+      FreeCellAbstractModel game = game(round % 2 == 0, true);
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, random);
+      game.startGame(deck, false);
+      checkFoundations(game);
+
+      MoveBuffer moves = new MoveBuffer();
+      for (int attempt = 0; attempt < 40 && game.generateMoves(moves) > 0; attempt++) {
+        int move = moves.get(random.nextInt(moves.size()));
+        game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+        checkFoundations(game);
+        assertEquals(game.computePositionHash(), game.getPositionHash());
+        assertEquals(0, game.autoplay(new MoveBuffer()));
+      }
+    }
+  }
+
+  @Test
+  public void testAutoMovesCanBeUndone() {
+
+    FreeCellAbstractModel game = game(false, true);
+    FreeCellAbstractModel manual = game(false, false);
+    game.startGame(game.getDeck(), false);
+    manual.startGame(manual.getDeck(), false);
+
+    int autoMovesCount = game.getAutoMoves().size();
+    for (int move = 0; move < autoMovesCount; move++) {
+      game.undo();
+    }
+    assertFalse(game.canUndo());
+    assertEquals(manual.getGameState(), game.getGameState());
+    assertEquals(manual.getPositionHash(), game.getPositionHash());
+  }
+
+  @Test
+  public void testAutoplayIsCopiedAndSaved() {
+
+    FreeCellAbstractModel game = game(true, true);
+    assertEquals(0, game.autoplay(new MoveBuffer()));
+    game.startGame(game.getDeck(), false);
+
+    FreeCellAbstractModel copy = game.copy();
+    assertTrue(copy.isAutoplay());
+    assertEquals(game.getGameState(), copy.getGameState());
+
+    byte[] buffer = new byte[GameSnapshot.maxSize(game, true)];
+    GameSnapshot.write(game, buffer, 0, true);
+    FreeCellAbstractModel restored = GameSnapshot.read(buffer, 0);
+    assertTrue(restored.isAutoplay());
+    assertEquals(game.getGameState(), restored.getGameState());
+    assertFalse(game(true, false).isAutoplay());
+  }
+
+  /**
+   * Builds an 8 cascade, 4 open game that hasn't started.
+   */
+  private FreeCellAbstractModel game(boolean multiMove, boolean autoplay) {
+
+    FreecellOperationsBuilder builder = multiMove ? FreecellMultiMoveModel.getBuilder()
+            : FreecellModel.getBuilder();
+    builder.cascades(8).opens(4);
+    if (autoplay) {
+      builder.autoplay();
+    }
+    FreecellOperations<Card> built = builder.build();
+    return (FreeCellAbstractModel) built;
+  }
+
+  /**
+   * Checks that no card on top of an open or cascade pile is safe to be moved to its foundation
+   * pile, i.e. that autoplay left none behind.
+   */
+  private void checkFoundations(FreeCellAbstractModel game) {
+
+    int[] ranks = new int[4];
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      int size = game.getPileSize(PileType.FOUNDATION, pileNumber);
+      if (size > 0) {
+        ranks[game.getCardId(PileType.FOUNDATION, pileNumber, 0) / 13] = size;
+      }
+    }
+    for (int pileNumber = 0; pileNumber < 8; pileNumber++) {
+      checkNotSafe(game, PileType.CASCADE, pileNumber, ranks);
+    }
+    for (int pileNumber = 0; pileNumber < 4; pileNumber++) {
+      checkNotSafe(game, PileType.OPEN, pileNumber, ranks);
+    }
+  }
+
+  /**
+   * Checks that the top most card of a pile, if any, isn't safe to be moved to its foundation
+   * pile.
+   */
+  private void checkNotSafe(FreeCellAbstractModel game, PileType pileType, int pileNumber,
+                            int[] ranks) {
+
+    int size = game.getPileSize(pileType, pileNumber);
+    if (size == 0) {
+      return;
+    }
+    int id = game.getCardId(pileType, pileNumber, size - 1);
+    int suit = id / 13;
+    int rank = id % 13 + 1;
+    int otherColor = suit < 2 ? 2 : 0;
+    boolean safe = rank == ranks[suit] + 1 && (rank <= 2
+            || ranks[otherColor] >= rank - 1 && ranks[otherColor + 1] >= rank - 1);
+    assertFalse("Safe card left on " + pileType + " " + pileNumber, safe);
+  }
+}
@@ -0,0 +1,73 @@
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the shared card instances and their ids.
+ */
+public class CardTest {
+
+  @Test
+  public void testIdsAreDenseAndUnique() {
+
+    FreecellOperations<Card> game = FreecellModel.getBuilder().build();
+    List<Card> deck = game.getDeck();
+    Set<Integer> ids = new HashSet<>();
+    Set<Integer> hashCodes = new HashSet<>();
+
+    for (Card card : deck) {
+      ids.add(card.getId());
+      hashCodes.add(card.hashCode());
+      assertSame(card, Card.fromId(card.getId()));
+    }
+
+    assertEquals(52, ids.size());
+    assertEquals(52, hashCodes.size());
+    for (int id = 0; id < 52; id++) {
+      assertEquals(true, ids.contains(id));
+    }
+  }
+
+  @Test
+  public void testCardsAreSharedBetweenGames() {
+
+    FreecellOperations<Card> game = FreecellModel.getBuilder().build();
+    List<Card> deck = game.getDeck();
+    FreecellOperations<Card> anotherGame = FreecellMultiMoveModel.getBuilder().opens(4).build();
+    List<Card> anotherDeck = anotherGame.getDeck();
+
+    for (int i = 0; i < deck.size(); i++) {
+      assertSame(deck.get(i), anotherDeck.get(i));
+      assertEquals(deck.get(i), anotherDeck.get(i));
+    }
+  }
+
+  @Test
+  public void testInvalidId() {
+
+    try {
+      Card.fromId(52);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      Card.fromId(-1);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+  }
+}
@@ -0,0 +1,156 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import freecell.controller.FreecellController;
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.PileType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the Flight Recorder events of the models and the controller, which are recorded
+ * while a recording has them enabled.
+ */
+public class FlightRecorderEventsTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testModelEvents() throws IOException {
+
+    FreecellOperations<Card> game = FreecellMultiMoveModel.getBuilder().cascades(8).opens(4)
+            .build();
+    List<RecordedEvent> events;
+
+    try (Recording recording = startRecording()) {
+      game.startGame(game.getDeck(), false);
+      game.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      try {
+        game.move(PileType.CASCADE, 0, 0, PileType.CASCADE, 1);
+        fail("Move should be rejected");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      game.getGameState();
+      events = stopRecording(recording);
+    }
+
+    List<RecordedEvent> starts = named(events, "freecell.StartGame");
+    assertEquals(1, starts.size());
+    assertEquals(8, starts.get(0).getInt("cascadePiles"));
+    assertEquals(4, starts.get(0).getInt("openPiles"));
+    assertTrue(starts.get(0).getBoolean("succeeded"));
+
+    List<RecordedEvent> moves = named(events, "freecell.Move");
+    assertEquals(2, moves.size());
+    assertEquals("CASCADE", moves.get(0).getString("source"));
+    assertEquals("OPEN", moves.get(0).getString("destination"));
+    assertEquals(1, moves.get(0).getInt("cardsCount"));
+    assertTrue(moves.get(0).getBoolean("succeeded"));
+    assertEquals(6, moves.get(1).getInt("cardsCount"));
+    assertFalse(moves.get(1).getBoolean("succeeded"));
+
+    List<RecordedEvent> states = named(events, "freecell.GameState");
+    assertEquals(1, states.size());
+    assertFalse(states.get(0).getBoolean("written"));
+  }
+
+  @Test
+  public void testControllerEvents() throws IOException {
+
+    FreecellOperations<Card> game = FreecellModel.getBuilder().build();
+    List<RecordedEvent> events;
+
+    try (Recording recording = startRecording()) {
+      new FreecellController(new StringReader("C1 x 13 O1 q"), new StringBuilder())
+              .playGame(game.getDeck(), game, false);
+      events = stopRecording(recording);
+    }
+
+    List<RecordedEvent> commands = named(events, "freecell.Command");
+    assertEquals(2, commands.size());
+    assertEquals("MOVE", commands.get(0).getString("command"));
+    assertEquals(4, commands.get(0).getInt("tokens"));
+    assertEquals("QUIT", commands.get(1).getString("command"));
+    assertEquals(1, commands.get(1).getInt("tokens"));
+
+    assertEquals(1, named(events, "freecell.StartGame").size());
+    assertEquals(1, named(events, "freecell.Move").size());
+    assertEquals(2, named(events, "freecell.GameState").size());
+  }
+
+  @Test
+  public void testNothingRecordedWhenDisabled() throws IOException {
+
+    FreecellOperations<Card> game = FreecellModel.getBuilder().build();
+    List<RecordedEvent> events;
+
+    try (Recording recording = new Recording()) {
+      recording.enable("freecell.StartGame").withoutThreshold();
+      recording.start();
+      game.startGame(game.getDeck(), false);
+      game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+      events = stopRecording(recording);
+    }
+
+    assertEquals(1, named(events, "freecell.StartGame").size());
+    assertTrue(named(events, "freecell.Move").isEmpty());
+  }
+
+  /**
+   * Starts a recording of all the events of the game, without thresholds.
+   */
+  private Recording startRecording() {
+
+    Recording recording = new Recording();
+    for (String name : new String[] {"freecell.StartGame", "freecell.Move",
+        "freecell.GameState", "freecell.Command"}) {
+      recording.enable(name).withoutThreshold();
+    }
+    recording.start();
+    return recording;
+  }
+
+  /**
+   * Stops a recording and reads its events back.
+   */
+  private List<RecordedEvent> stopRecording(Recording recording) throws IOException {
+
+    recording.stop();
+    Path file = folder.newFile().toPath();
+    recording.dump(file);
+    return RecordingFile.readAllEvents(file);
+  }
+
+  /**
+   * Provides the events of the given name, in the order in which they started.
+   */
+  private List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+
+    List<RecordedEvent> found = new ArrayList<>();
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals(name)) {
+        found.add(event);
+      }
+    }
+    found.sort((first, second) -> first.getStartTime().compareTo(second.getStartTime()));
+    return found;
+  }
+}
@@ -0,0 +1,180 @@
+import org.junit.Test;
+
+import java.io.Flushable;
+import java.io.StringReader;
+
+import freecell.controller.BatchSummary;
+import freecell.controller.FreecellBatchController;
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellOperations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the batch controller, which runs a script of moves and transmits only its summary.
+ */
+public class FreecellBatchControllerTest {
+
+  @Test
+  public void testSummary() {
+
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    StringBuilder out = new StringBuilder();
+    BatchSummary summary = FreecellBatchController.getBuilder()
+            .build(new StringReader("C3 13 F2 C1 13 F5 x C4 13 O1 q C2 13 F1"), out)
+            .playScript(model.getDeck(), model, false);
+
+    assertEquals(BatchSummary.Ending.QUIT, summary.getEnding());
+    assertEquals(2, summary.getValidMoves());
+    assertEquals(1, summary.getInvalidMoves());
+    assertEquals(2, summary.getFirstInvalidMoveNumber());
+    assertEquals("C1 13 F5", summary.getFirstInvalidMove());
+    assertEquals("Destination Pile Number is invalid", summary.getFirstInvalidMoveReason());
+    assertEquals(model.getGameState() + "\n"
+            + "Valid moves: 2\n"
+            + "Invalid moves: 1\n"
+            + "First invalid move: #2 C1 13 F5 (Destination Pile Number is invalid)\n"
+            + "Game quit prematurely.", out.toString());
+  }
+
+  @Test
+  public void testFailFast() {
+
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    StringBuilder out = new StringBuilder();
+    BatchSummary summary = FreecellBatchController.getBuilder().failFast().finalState(false)
+            .build(new StringReader("C3 13 F2 C1 13 F5 C4 13 O1 q"), out)
+            .playScript(model.getDeck(), model, false);
+
+    assertEquals(BatchSummary.Ending.FAILED, summary.getEnding());
+    assertEquals(1, summary.getValidMoves());
+    assertEquals(0, model.getGameState().indexOf("F1:\nF2: A♦\nF3:\nF4:\nO1:\n"));
+    assertEquals("Valid moves: 1\n"
+            + "Invalid moves: 1\n"
+            + "First invalid move: #2 C1 13 F5 (Destination Pile Number is invalid)\n"
+            + "Game stopped at the first invalid move.", out.toString());
+  }
+
+  @Test
+  public void testSummaryParts() {
+
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    StringBuilder out = new StringBuilder();
+    FreecellBatchController.getBuilder().finalState(false).moveCounts(false)
+            .firstInvalidMove(false).build(new StringReader("C3 13 F2"), out)
+            .playGame(model.getDeck(), model, false);
+    assertEquals("Game quit prematurely. No more input.", out.toString());
+
+    out = new StringBuilder();
+    BatchSummary summary = FreecellBatchController.getBuilder().finalState(false)
+            .build(new StringReader("C3 13 F2\n"), out)
+            .playScript(model.getDeck(), model, false);
+    assertEquals(BatchSummary.Ending.END_OF_INPUT, summary.getEnding());
+    assertNull(summary.getFirstInvalidMove());
+    assertEquals("Valid moves: 1\nInvalid moves: 0\nFirst invalid move: none\n"
+            + "Game quit prematurely. No more input.", out.toString());
+  }
+
+  @Test
+  public void testGameOver() {
+
+    StringBuilder input = new StringBuilder();
+    for (int i = 1; i <= 4; i++) {
+      for (int j = 13; j >= 1; j--) {
+        input.append("C").append(i).append(" ").append(j).append(" F").append(i).append("\n");
+      }
+    }
+    input.append("C1 1 O1");
+
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    StringBuilder out = new StringBuilder();
+    BatchSummary summary = FreecellBatchController.getBuilder().firstInvalidMove(false)
+            .build(new StringReader(input.toString()), out)
+            .playScript(model.getDeck(), model, false);
+
+    assertEquals(BatchSummary.Ending.GAME_OVER, summary.getEnding());
+    assertEquals(52, summary.getValidMoves());
+    assertEquals(model.getGameState() + "\nValid moves: 52\nInvalid moves: 0\nGame over.",
+            out.toString());
+  }
+
+  @Test
+  public void testSummaryIsTransmittedAtOnce() {
+
+    RecordingAppendable out = new RecordingAppendable();
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    FreecellBatchController.getBuilder()
+            .build(new StringReader("C3 13 F2 C1 13 F5 C4 13 O1 q"), out)
+            .playGame(model.getDeck(), model, false);
+
+    assertEquals(1, out.appends);
+    assertEquals(1, out.flushes);
+    assertEquals(model.getGameState() + "\n", out.text.substring(0,
+            model.getGameState().length() + 1));
+  }
+
+  @Test
+  public void testInvalidArguments() {
+
+    try {
+      FreecellBatchController.getBuilder().build(null, new StringBuilder());
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      FreecellBatchController.getBuilder().build(new StringReader("q"), null);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      FreecellBatchController.getBuilder().build(new StringReader("q"), new StringBuilder())
+              .playGame(null, null, false);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+  }
+
+  /**
+   * An Appendable that counts the calls to append and flush.
+   */
+  private static class RecordingAppendable implements Appendable, Flushable {
+
+    private final StringBuilder text = new StringBuilder();
+    private int appends;
+    private int flushes;
+
+    @Override
+    public Appendable append(CharSequence csq) {
+      appends++;
+      text.append(csq);
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      appends++;
+      text.append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      appends++;
+      text.append(c);
+      return this;
+    }
+
+    @Override
+    public void flush() {
+      flushes++;
+    }
+  }
+}
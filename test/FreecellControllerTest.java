@@ -1,9 +1,17 @@
+import org.junit.Assume;
 import org.junit.Test;
 
 
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
 import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import freecell.controller.FreecellController;
 import freecell.controller.IFreecellController;
@@ -13,6 +21,8 @@ import freecell.model.FreecellOperations;
 
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class FreecellControllerTest {
@@ -402,6 +412,134 @@ public class FreecellControllerTest {
             out.toString());
   }
 
+  @Test
+  public void testIgnoreMalformedInputs() {
+
+    String input = "\tC3x c3 C 3C C3\r\n99999999999 -13 013 F2q F99999999999 F2\fq";
+    FreecellOperations model = FreecellModel.getBuilder().build();
+
+    assertEquals(playedGame(model, "C3 13 F2 q"), playedGame(model, input));
+  }
+
+  @Test
+  public void testForLongInput() {
+
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 8190; i++) {
+      input.append(i % 2 == 0 ? 'x' : ' ');
+    }
+    input.append(" C3 ");
+    for (int i = 0; i < 10000; i++) {
+      input.append('1');
+    }
+    input.append(" 13\nF2 q");
+    FreecellOperations model = FreecellModel.getBuilder().build();
+
+    assertEquals(playedGame(model, "C3 13 F2 q"), playedGame(model, input.toString()));
+  }
+
+  @Test
+  public void testForEndOfInput() {
+
+    FreecellOperations model = FreecellModel.getBuilder().build();
+
+    assertEquals(getExpectedDeal(model.getDeck(), 4, 1)
+            + "\nGame quit prematurely. No more input.", playedGame(model, ""));
+    assertEquals(playedGame(model, "C3 13 F2 q").replace("Game quit prematurely.",
+            "Game quit prematurely. No more input."), playedGame(model, "C3 13 F2 C1\n"));
+  }
+
+  @Test
+  public void testIdleNonBlockingInputUsesNoCpu() throws Exception {
+
+    IdleReadable in = new IdleReadable();
+    checkIdleInputUsesNoCpu(in, () -> in.supply("C3 13 F2 q"));
+  }
+
+  @Test
+  public void testIdleBlockingInputUsesNoCpu() throws Exception {
+
+    PipedWriter writer = new PipedWriter();
+    PipedReader in = new PipedReader(writer);
+    checkIdleInputUsesNoCpu(in, () -> {
+      try {
+        writer.write("C3 13 F2 q");
+        writer.close();
+      } catch (IOException e) {
+        fail("Pipe shouldn't fail");
+      }
+    });
+  }
+
+  /**
+   * A Readable that has no characters to read until some are supplied, and then ends.
+   */
+  private static class IdleReadable implements Readable {
+
+    private volatile String input;
+    private boolean isEnded;
+
+    void supply(String input) {
+      this.input = input;
+    }
+
+    @Override
+    public int read(CharBuffer cb) {
+
+      if (isEnded) {
+        return -1;
+      }
+      if (input == null) {
+        return 0;
+      }
+      cb.append(input);
+      isEnded = true;
+      return input.length();
+    }
+  }
+
+  /**
+   * Plays a game with an input that has nothing to read for a second, and checks that the
+   * controller used almost no CPU time during that second before playing the input supplied
+   * afterwards.
+   */
+  private void checkIdleInputUsesNoCpu(Readable in, Runnable supply) throws Exception {
+
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threads.isThreadCpuTimeSupported());
+    threads.setThreadCpuTimeEnabled(true);
+
+    StringBuffer out = new StringBuffer();
+    FreecellOperations model = FreecellModel.getBuilder().build();
+    Thread player = new Thread(() ->
+            new FreecellController(in, out).playGame(model.getDeck(), model, false));
+    player.start();
+
+    Thread.sleep(200);
+    long cpuTimeBefore = threads.getThreadCpuTime(player.getId());
+    Thread.sleep(1000);
+    long idleCpuTime = threads.getThreadCpuTime(player.getId()) - cpuTimeBefore;
+
+    supply.run();
+    player.join(TimeUnit.SECONDS.toMillis(10));
+
+    assertFalse(player.isAlive());
+    assertEquals(playedGame(model, "C3 13 F2 q"), out.toString());
+    assertTrue("idle controller used " + idleCpuTime + " ns of CPU time",
+            idleCpuTime < TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  /**
+   * Plays a game of the given model on its unshuffled deck with the given input.
+   */
+  private String playedGame(FreecellOperations model, String input) {
+
+    StringBuffer out = new StringBuffer();
+    IFreecellController controller = new FreecellController(new StringReader(input), out);
+    controller.playGame(model.getDeck(), model, false);
+    return out.toString();
+  }
+
   @Test
   public void testForGameOver() {
 
@@ -438,5 +576,19 @@ public class FreecellControllerTest {
             actualOutput.substring(0, actualOutput.length() - 1));
   }
 
+  @Test
+  public void testForHint() {
+
+    StringBuffer out = new StringBuffer();
+    IFreecellController controller = new FreecellController(new StringReader("C1 h H q"), out);
+    FreecellOperations model = FreecellModel.getBuilder().build();
+
+    controller.playGame(model.getDeck(), model, false);
+
+    String[] output = out.toString().split("\\n");
+    assertTrue(output[output.length - 3].matches("Hint: [COF]\\d+ \\d+ [COF]\\d+"));
+    assertEquals(output[output.length - 3], output[output.length - 2]);
+    assertEquals("Game quit prematurely.", output[output.length - 1]);
+  }
 
-}
\ No newline at end of file
+}
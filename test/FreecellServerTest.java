@@ -0,0 +1,167 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import freecell.controller.FreecellController;
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.NumberedDeals;
+import freecell.server.FreecellServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the game server, whose sessions are checked against games played by a controller on
+ * the same deal with the same input.
+ */
+public class FreecellServerTest {
+
+  private static final String SCRIPT = "C1 7 O1\nC2 7 O2\nC2 6 F5\nC3 7 C4\nq\n";
+
+  @Test
+  public void testSession() throws Exception {
+
+    try (FreecellServer server = FreecellServer.getBuilder().port(0).deal(1).build().start()) {
+      assertEquals(expectedOutput(FreecellModel.getBuilder().cascades(8).opens(4).build(), 1,
+              SCRIPT), play(server.getPort(), SCRIPT));
+    }
+  }
+
+  @Test
+  public void testMultiMoveSessions() throws Exception {
+
+    try (FreecellServer server = FreecellServer.getBuilder().port(0).deal(617).cascades(6)
+            .opens(2).multiMove().build().start()) {
+
+      String expected = expectedOutput(FreecellMultiMoveModel.getBuilder().cascades(6).opens(2)
+              .build(), 617, SCRIPT);
+      ExecutorService clients = Executors.newFixedThreadPool(16);
+      List<Future<String>> outputs = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        outputs.add(clients.submit(() -> play(server.getPort(), SCRIPT)));
+      }
+      for (Future<String> output : outputs) {
+        assertEquals(expected, output.get(10, TimeUnit.SECONDS));
+      }
+      clients.shutdown();
+
+      assertEquals(64, server.getSessionsStarted());
+      awaitSessionsEnd(server);
+      assertEquals(64, server.getSessionsFinished());
+    }
+  }
+
+  @Test
+  public void testClientLeaves() throws Exception {
+
+    try (FreecellServer server = FreecellServer.getBuilder().port(0).build().start()) {
+      String output = play(server.getPort(), "C1 7 O1");
+      assertTrue(output.endsWith("Game quit prematurely. No more input."));
+      awaitSessionsEnd(server);
+    }
+  }
+
+  @Test
+  public void testCloseEndsSessions() throws Exception {
+
+    FreecellServer server = FreecellServer.getBuilder().port(0).build().start();
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      socket.getInputStream().read();
+      server.close();
+      assertEquals(0, server.getActiveSessions());
+
+      InputStream in = socket.getInputStream();
+      socket.setSoTimeout(5000);
+      while (in.read() != -1) {
+        // Reads what is left of the first game state.
+      }
+    }
+
+    try {
+      new Socket(InetAddress.getLoopbackAddress(), server.getPort()).close();
+      fail("Server shouldn't accept connections once closed");
+    } catch (IOException e) {
+      //Do Nothing
+    }
+  }
+
+  @Test
+  public void testInvalidConfiguration() throws Exception {
+
+    try {
+      FreecellServer.getBuilder().cascades(2).build();
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      FreecellServer.getBuilder().port(65536);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      FreecellServer.getBuilder().port(0).build().getPort();
+      fail("Above line should have thrown exception");
+    } catch (IllegalStateException e) {
+      //Do Nothing
+    }
+  }
+
+  /**
+   * Plays the given input on a numbered deal with a controller and provides its output.
+   */
+  private String expectedOutput(FreecellOperations<Card> model, int deal, String input) {
+
+    StringBuilder out = new StringBuilder();
+    new FreecellController(new StringReader(input), out).playGame(NumberedDeals.deal(deal),
+            model, false);
+    return out.toString();
+  }
+
+  /**
+   * Connects to the server, sends the given input and provides all that the server sent until
+   * it closed the connection.
+   */
+  private String play(int port, String input) throws IOException {
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.setSoTimeout(10000);
+      OutputStream out = socket.getOutputStream();
+      out.write(input.getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      socket.shutdownOutput();
+      return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Waits up to 10 seconds for all the sessions of the server to end.
+   */
+  private void awaitSessionsEnd(FreecellServer server) throws InterruptedException {
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (server.getActiveSessions() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, server.getActiveSessions());
+  }
+}
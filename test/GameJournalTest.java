@@ -0,0 +1,238 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import freecell.journal.GameJournal;
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.NumberedDeals;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the journal of games, which are checked by comparing the games rebuilt from a
+ * journal with the games whose moves were journaled.
+ */
+public class GameJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRecoveryFollowsRandomPlay() throws IOException {
+
+    Path directory = folder.getRoot().toPath().resolve("journal");
+    Map<Long, FreeCellAbstractModel> games = new HashMap<>();
+    Random random = new Random(5);
+    MoveBuffer moves = new MoveBuffer();
+
+    try (GameJournal journal = GameJournal.getBuilder().segmentSize(1024).build(directory)) {
+      for (long gameId = 1; gameId <= 12; gameId++) {
+        FreecellOperationsBuilder builder = gameId % 2 == 0
+                ? FreecellMultiMoveModel.getBuilder().cascades(8).opens(4)
+                : FreecellModel.getBuilder().cascades(6).opens(2);
+        games.put(gameId, startedGame(journal, gameId, builder, (int) gameId * 1000));
+      }
+
+      for (int i = 0; i < 600; i++) {
+        long gameId = 1 + random.nextInt(12);
+        FreeCellAbstractModel game = games.get(gameId);
+        if (game.canUndo() && random.nextInt(8) == 0) {
+          game.undo();
+          journal.undo(gameId);
+        } else if (game.canRedo() && random.nextInt(4) == 0) {
+          game.redo();
+          journal.redo(gameId);
+        } else if (game.generateMoves(moves) > 0) {
+          int move = moves.get(random.nextInt(moves.size()));
+          game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                  MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                  MoveBuffer.destPileNumber(move));
+          journal.move(gameId, MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                  MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                  MoveBuffer.destPileNumber(move));
+        }
+      }
+
+      journal.endGame(3);
+      games.remove(3L);
+      assertTrue(journal.getSegmentCount() > 1);
+    }
+
+    Map<Long, FreeCellAbstractModel> recovered = GameJournal.recover(directory);
+    assertEquals(games.keySet(), recovered.keySet());
+    for (Map.Entry<Long, FreeCellAbstractModel> entry : games.entrySet()) {
+      FreeCellAbstractModel game = entry.getValue();
+      FreeCellAbstractModel rebuilt = recovered.get(entry.getKey());
+      assertEquals(game.getClass(), rebuilt.getClass());
+      assertEquals(game.getGameState(), rebuilt.getGameState());
+      assertEquals(game.canUndo(), rebuilt.canUndo());
+    }
+  }
+
+  @Test
+  public void testReopenedJournalKeepsRecords() throws IOException {
+
+    Path directory = folder.getRoot().toPath();
+    FreeCellAbstractModel game;
+    try (GameJournal journal = GameJournal.getBuilder().build(directory)) {
+      game = startedGame(journal, 7L, FreecellModel.getBuilder().cascades(8).opens(4), 1);
+      game.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      journal.move(7L, PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    }
+
+    try (GameJournal journal = GameJournal.getBuilder().build(directory)) {
+      game.move(PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+      journal.move(7L, PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+      startedGame(journal, 8L, FreecellModel.getBuilder(), 2);
+      journal.endGame(8L);
+    }
+
+    try (Stream<Path> segments = Files.list(directory)) {
+      assertEquals(2, segments.count());
+    }
+    Map<Long, FreeCellAbstractModel> recovered = GameJournal.recover(directory);
+    assertEquals(1, recovered.size());
+    assertEquals(game.getGameState(), recovered.get(7L).getGameState());
+  }
+
+  @Test
+  public void testTornRecordIsDropped() throws IOException {
+
+    Path directory = folder.getRoot().toPath();
+    FreeCellAbstractModel game;
+    try (GameJournal journal = GameJournal.getBuilder().segmentSize(4096).build(directory)) {
+      game = startedGame(journal, 1L, FreecellMultiMoveModel.getBuilder(), 11982);
+      game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+      journal.move(1L, PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+      journal.move(1L, PileType.CASCADE, 1, 12, PileType.OPEN, 0);
+      assertEquals(3, journal.getRecordCount());
+    }
+
+    Path segment;
+    try (Stream<Path> segments = Files.list(directory)) {
+      segment = segments.findFirst().get();
+    }
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.seek(2 * 16 + 4);
+      file.write(0x55);
+    }
+
+    assertEquals(game.getGameState(), GameJournal.recover(directory).get(1L).getGameState());
+  }
+
+  @Test
+  public void testInvalidMoveDropsOnlyItsGame() throws IOException {
+
+    Path directory = folder.getRoot().toPath();
+    FreeCellAbstractModel game;
+    try (GameJournal journal = GameJournal.getBuilder().build(directory)) {
+      startedGame(journal, 1L, FreecellModel.getBuilder(), 1);
+      game = startedGame(journal, 2L, FreecellModel.getBuilder().cascades(8).opens(4), 2);
+      journal.move(1L, PileType.CASCADE, 0, 12, PileType.CASCADE, 1);
+      game.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      journal.move(2L, PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      journal.move(1L, PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+      journal.undo(3L);
+    }
+
+    Map<Long, String> failures = new HashMap<>();
+    Map<Long, FreeCellAbstractModel> recovered = GameJournal.recover(directory, failures);
+    assertEquals(1, recovered.size());
+    assertEquals(game.getGameState(), recovered.get(2L).getGameState());
+    assertEquals(2, failures.size());
+    assertTrue(failures.containsKey(1L));
+    assertTrue(failures.containsKey(3L));
+    assertEquals(recovered.keySet(), GameJournal.recover(directory).keySet());
+  }
+
+  @Test
+  public void testAutoplayGameIsRecovered() throws IOException {
+
+    Path directory = folder.getRoot().toPath();
+    Random random = new Random(23);
+    MoveBuffer moves = new MoveBuffer();
+    FreeCellAbstractModel game;
+    try (GameJournal journal = GameJournal.getBuilder().build(directory)) {
+      game = startedGame(journal, 1L,
+              FreecellModel.getBuilder().cascades(8).opens(4).autoplay(), 2);
+      assertTrue(game.getAutoMoves().size() > 0);
+
+      for (int turn = 0; turn < 200 && game.generateMoves(moves) > 0; turn++) {
+        if (game.canUndo() && random.nextInt(4) == 0) {
+          game.undo();
+          journal.undo(1L);
+          continue;
+        }
+        int move = moves.get(random.nextInt(moves.size()));
+        game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+        journal.move(1L, MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+      }
+    }
+
+    Map<Long, String> failures = new HashMap<>();
+    FreeCellAbstractModel recovered = GameJournal.recover(directory, failures).get(1L);
+    assertTrue(failures.isEmpty());
+    assertTrue(recovered.isAutoplay());
+    assertEquals(game.getGameState(), recovered.getGameState());
+    assertEquals(game.getPositionHash(), recovered.getPositionHash());
+  }
+
+  @Test
+  public void testClosedJournal() throws IOException {
+
+    GameJournal journal = GameJournal.getBuilder().build(folder.getRoot().toPath());
+    journal.close();
+    try {
+      journal.endGame(1L);
+      fail("Above line should have thrown exception");
+    } catch (IllegalStateException e) {
+      //Do Nothing
+    }
+    assertFalse(GameJournal.recover(folder.getRoot().toPath()).containsKey(1L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSegmentSize() {
+    GameJournal.getBuilder().segmentSize(1000);
+  }
+
+  /**
+   * Builds a game, starts it on a numbered deal and journals its start.
+   */
+  private FreeCellAbstractModel startedGame(GameJournal journal, long gameId,
+                                            FreecellOperationsBuilder builder, int deal)
+          throws IOException {
+
+    FreecellOperations<Card> built = builder.build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    List<Card> deck = new ArrayList<>(NumberedDeals.deal(deal));
+    game.startGame(deck, false);
+    journal.startGame(gameId, game, deal);
+    return game;
+  }
+}
@@ -0,0 +1,263 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.GameSnapshot;
+import freecell.model.MoveBuffer;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the binary snapshots of games, which are checked by comparing the restored games
+ * with the saved ones, including the moves they can undo and redo.
+ */
+public class GameSnapshotTest {
+
+  @Test
+  public void testRoundTripFollowsRandomPlay() {
+
+    checkRoundTrip(FreecellModel.getBuilder().cascades(8).opens(4), FreecellModel.class);
+    checkRoundTrip(FreecellModel.getBuilder().opens(2).packed(), FreecellModel.class);
+    checkRoundTrip(FreecellMultiMoveModel.getBuilder().cascades(8).opens(4),
+            FreecellMultiMoveModel.class);
+    checkRoundTrip(FreecellMultiMoveModel.getBuilder().cascades(6).opens(2).packed()
+            .undoLimit(20), FreecellMultiMoveModel.class);
+  }
+
+  @Test
+  public void testGameNotStarted() {
+
+    FreecellOperations<Card> built = FreecellMultiMoveModel.getBuilder().cascades(5).build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    byte[] buffer = new byte[GameSnapshot.maxSize(game, true)];
+    GameSnapshot.write(game, buffer, 0, true);
+
+    FreeCellAbstractModel restored = GameSnapshot.read(buffer, 0);
+    assertTrue(restored instanceof FreecellMultiMoveModel);
+    assertEquals(5, restored.getCascadePilesCount());
+    assertEquals("", restored.getGameState());
+    assertFalse(restored.canUndo());
+
+    restored.startGame(restored.getDeck(), false);
+    assertEquals(10, restored.getPileSize(PileType.CASCADE, 4));
+  }
+
+  @Test
+  public void testSnapshotWithoutMoves() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder().opens(2));
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    game.move(PileType.CASCADE, 1, 12, PileType.OPEN, 1);
+
+    byte[] withMoves = new byte[GameSnapshot.maxSize(game, true)];
+    byte[] withoutMoves = new byte[GameSnapshot.maxSize(game, false)];
+    int length = GameSnapshot.write(game, withMoves, 0, true);
+    assertEquals(length - 8 - 2 * 6, GameSnapshot.write(game, withoutMoves, 0, false));
+
+    FreeCellAbstractModel restored = GameSnapshot.read(withoutMoves, 0);
+    assertEquals(game.getGameState(), restored.getGameState());
+    assertFalse(restored.canUndo());
+  }
+
+  @Test
+  public void testRingJournalAtOffset() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder().opens(2).undoLimit(3));
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    for (int i = 0; i < 5; i++) {
+      game.move(PileType.OPEN, i % 2, 0, PileType.OPEN, 1 - i % 2);
+    }
+    game.undo();
+
+    byte[] buffer = new byte[7 + GameSnapshot.maxSize(game, true)];
+    GameSnapshot.write(game, buffer, 7, true);
+    FreeCellAbstractModel restored = GameSnapshot.read(buffer, 7);
+    assertSameGame(game, restored);
+
+    restored.move(PileType.CASCADE, 1, 12, PileType.OPEN, 1);
+    restored.undo();
+    restored.undo();
+    restored.undo();
+    assertFalse(restored.canUndo());
+  }
+
+  @Test
+  public void testCorruptSnapshots() {
+
+    FreeCellAbstractModel game = startedGame(FreecellMultiMoveModel.getBuilder());
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    byte[] buffer = new byte[GameSnapshot.maxSize(game, true)];
+    int length = GameSnapshot.write(game, buffer, 0, true);
+
+    for (int index = 0; index < length; index++) {
+      byte[] corrupt = buffer.clone();
+      corrupt[index] ^= 0x10;
+      assertRejected(corrupt);
+    }
+
+    assertRejected(Arrays.copyOf(buffer, length - 1));
+    assertRejected(new byte[3]);
+    assertEquals(game.getGameState(), GameSnapshot.read(buffer, 0).getGameState());
+  }
+
+  @Test
+  public void testForgedMovesWithValidChecksum() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder());
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    byte[] buffer = new byte[GameSnapshot.maxSize(game, true)];
+    int length = GameSnapshot.write(game, buffer, 0, true);
+
+    // The move is the last 6 bytes before the checksum, the number of cards moved last of all.
+    byte[] forged = buffer.clone();
+    forged[length - 5] = 5;
+    assertRejected(withChecksum(forged, length));
+
+    // An undone move of the ace onto the top most card of another cascade pile.
+    game.undo();
+    length = GameSnapshot.write(game, buffer, 0, true);
+    forged = buffer.clone();
+    forged[length - 10] = (byte) (PileType.CASCADE.ordinal() | PileType.CASCADE.ordinal() << 2);
+    forged[length - 6] = 1;
+    assertRejected(withChecksum(forged, length));
+
+    assertSameGame(game, GameSnapshot.read(withChecksum(buffer.clone(), length), 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBufferTooSmall() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder());
+    GameSnapshot.write(game, new byte[GameSnapshot.maxSize(game, false) - 1], 0, false);
+  }
+
+  /**
+   * Builds a game and starts it with an unshuffled deck.
+   */
+  private FreeCellAbstractModel startedGame(FreecellOperationsBuilder builder) {
+
+    FreecellOperations<Card> built = builder.build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    game.startGame(game.getDeck(), false);
+    return game;
+  }
+
+  /**
+   * Checks that reading the given bytes as a snapshot throws IllegalArgumentException.
+   */
+  private void assertRejected(byte[] buffer) {
+
+    try {
+      GameSnapshot.read(buffer, 0);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+  }
+
+  /**
+   * Writes again the checksum of a snapshot that starts at the beginning of an array, so that a
+   * snapshot whose bytes were changed passes the checksum check.
+   */
+  private byte[] withChecksum(byte[] buffer, int length) {
+
+    CRC32C crc = new CRC32C();
+    crc.update(buffer, 0, length - 4);
+    int checksum = (int) crc.getValue();
+    for (int index = 0; index < 4; index++) {
+      buffer[length - 4 + index] = (byte) (checksum >>> (24 - 8 * index));
+    }
+    return buffer;
+  }
+
+  /**
+   * Checks that two games hold the same cards, are of the same kind and undo and redo the same
+   * moves, leaving both games as they were.
+   */
+  private void assertSameGame(FreeCellAbstractModel game, FreeCellAbstractModel restored) {
+
+    assertEquals(game.getClass(), restored.getClass());
+    assertEquals(game.getOpenPilesCount(), restored.getOpenPilesCount());
+    assertEquals(game.getCascadePilesCount(), restored.getCascadePilesCount());
+    assertEquals(game.getGameState(), restored.getGameState());
+    assertEquals(game.getPositionHash(), restored.getPositionHash());
+
+    int undone = 0;
+    while (game.canUndo()) {
+      assertTrue(restored.canUndo());
+      game.undo();
+      restored.undo();
+      assertEquals(game.getGameState(), restored.getGameState());
+      undone++;
+    }
+    assertFalse(restored.canUndo());
+
+    int redone = 0;
+    while (game.canRedo()) {
+      assertTrue(restored.canRedo());
+      game.redo();
+      restored.redo();
+      assertEquals(game.getGameState(), restored.getGameState());
+      redone++;
+    }
+    assertFalse(restored.canRedo());
+
+    for (int i = 0; i < redone - undone; i++) {
+      game.undo();
+      restored.undo();
+    }
+    assertEquals(game.getPositionHash(), restored.getPositionHash());
+  }
+
+  /**
+   * Plays random legal moves on shuffled deals of games built by the given builder, undoing a
+   * few of them, and checks that games restored from their snapshots are the same games.
+   */
+  private void checkRoundTrip(FreecellOperationsBuilder builder,
+                              Class<? extends FreeCellAbstractModel> kind) {
+
+    Random random = new Random(11);
+    MoveBuffer moves = new MoveBuffer();
+
+    for (int deal = 0; deal < 10; deal++) {
+      FreecellOperations<Card> built = builder.build();
+      FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, random);
+      game.startGame(deck, false);
+
+      for (int i = 0; i < 60 && game.generateMoves(moves) > 0; i++) {
+        int move = moves.get(random.nextInt(moves.size()));
+        game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+      }
+      for (int i = random.nextInt(5); i > 0 && game.canUndo(); i--) {
+        game.undo();
+      }
+
+      byte[] buffer = new byte[GameSnapshot.maxSize(game, true)];
+      int length = GameSnapshot.write(game, buffer, 0, true);
+      assertTrue(length <= buffer.length);
+
+      FreeCellAbstractModel restored = GameSnapshot.read(buffer, 0);
+      assertEquals(kind, restored.getClass());
+      assertSameGame(game, restored);
+      assertEquals(restored.computePositionHash(), restored.getPositionHash());
+    }
+  }
+}
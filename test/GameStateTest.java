@@ -0,0 +1,136 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.NumberedDeals;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the game state kept between calls of getGameState and for the game state written by
+ * writeGameState, which are checked against the game state of a copy of the game, rendered from
+ * scratch.
+ */
+public class GameStateTest {
+
+  @Test
+  public void testGameStateFollowsRandomPlay() {
+
+    checkGameStateFollowsRandomPlay(FreecellModel.getBuilder().cascades(8).opens(4));
+    checkGameStateFollowsRandomPlay(FreecellModel.getBuilder().cascades(5).opens(2).packed());
+    checkGameStateFollowsRandomPlay(FreecellMultiMoveModel.getBuilder().cascades(8).opens(4));
+    checkGameStateFollowsRandomPlay(FreecellMultiMoveModel.getBuilder().opens(3).packed());
+  }
+
+  @Test
+  public void testGameStateIsReusedUntilMove() {
+
+    FreecellOperations<Card> game = FreecellModel.getBuilder().build();
+    game.startGame(game.getDeck(), false);
+    String state = game.getGameState();
+    assertSame(state, game.getGameState());
+
+    try {
+      game.move(PileType.CASCADE, 0, 12, PileType.CASCADE, 1);
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+    assertSame(state, game.getGameState());
+
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    String stateAfterMove = game.getGameState();
+    assertNotEquals(state, stateAfterMove);
+    assertTrue(stateAfterMove.contains("\nO1:" + game.getDeck().get(48) + "\n"));
+    assertEquals(((FreeCellAbstractModel) game).copy().getGameState(), stateAfterMove);
+
+    game.startGame(game.getDeck(), false);
+    assertEquals(state, game.getGameState());
+  }
+
+  @Test
+  public void testWriteGameState() throws IOException {
+
+    FreecellOperations<Card> game = FreecellMultiMoveModel.getBuilder().cascades(8).opens(4)
+            .packed().build();
+    StringBuilder out = new StringBuilder();
+    game.writeGameState(out);
+    assertEquals("", out.toString());
+
+    game.startGame(NumberedDeals.deal(1), false);
+    CharBuffer buffer = CharBuffer.allocate(1024);
+    game.writeGameState(buffer);
+    buffer.flip();
+    assertEquals(game.getGameState(), buffer.toString());
+
+    try {
+      game.writeGameState(CharBuffer.allocate(16));
+      fail("Above line should have thrown exception");
+    } catch (BufferOverflowException e) {
+      //Do Nothing
+    }
+  }
+
+  /**
+   * Writes the game state of a game with writeGameState.
+   */
+  private String written(FreecellOperations<Card> game) {
+
+    StringBuilder out = new StringBuilder();
+    try {
+      game.writeGameState(out);
+    } catch (IOException e) {
+      fail("StringBuilder doesn't throw IOException");
+    }
+    return out.toString();
+  }
+
+  /**
+   * Plays random legal moves on shuffled deals of games built by the given builder and checks
+   * after each move that the game state is the one rendered by a copy of the game.
+   */
+  private void checkGameStateFollowsRandomPlay(FreecellOperationsBuilder builder) {
+
+    Random random = new Random(42);
+    MoveBuffer buffer = new MoveBuffer();
+
+    for (int deal = 0; deal < 10; deal++) {
+      FreecellOperations<Card> built = builder.build();
+      FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, random);
+      game.startGame(deck, false);
+      assertEquals(game.copy().getGameState(), game.getGameState());
+
+      for (int i = 0; i < 100 && game.generateMoves(buffer) > 0; i++) {
+        int move = buffer.get(random.nextInt(buffer.size()));
+        game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+        String expected = game.copy().getGameState();
+        assertEquals(expected, written(game));
+        if (random.nextInt(3) != 0) {
+          assertEquals(expected, game.getGameState());
+          assertEquals(expected, written(game));
+        }
+      }
+      assertEquals(game.copy().getGameState(), game.getGameState());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.MoveBuffer;
+import freecell.model.PileType;
+import freecell.solver.Hint;
+import freecell.solver.HintEngine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the hint engine, which should advise a valid move within its budget without changing
+ * the game, and lead to a win when its hints are followed in an easy game.
+ */
+public class HintEngineTest {
+
+  private final HintEngine engine = HintEngine.getBuilder().build();
+
+  @Test
+  public void testHintIsValidAndLeavesGameUnchanged() {
+
+    Random random = new Random(24);
+    for (int round = 0; round < 6; round++) {
+      FreecellOperations<Card> game = round % 2 == 0
+              ? FreecellModel.getBuilder().cascades(8).opens(4).build()
+              : FreecellMultiMoveModel.getBuilder().cascades(8).opens(4).build();
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, random);
+      game.startGame(deck, false);
+      String state = game.getGameState();
+
+      Hint hint = engine.hint(game, 20, TimeUnit.MILLISECONDS);
+      assertEquals(state, game.getGameState());
+      assertTrue(hint.hasMove());
+      assertTrue(hint.getNodesExpanded() > 0);
+      makeMove(game, hint.getMove());
+    }
+  }
+
+  @Test
+  public void testFollowingHintsWinsEasyGame() {
+
+    // The unshuffled deal is solved within the first search, so every hint is the first move of
+    // a solution of the position it is given for.
+    FreecellOperations<Card> game = FreecellModel.getBuilder().cascades(8).opens(4).build();
+    game.startGame(game.getDeck(), false);
+
+    for (int move = 0; move < 200 && !game.isGameOver(); move++) {
+      Hint hint = engine.hint(game, 1, TimeUnit.SECONDS);
+      assertEquals(Hint.Status.SOLVED, hint.getStatus());
+      makeMove(game, hint.getMove());
+    }
+    assertTrue(game.isGameOver());
+
+    Hint hint = engine.hint(game, 1, TimeUnit.SECONDS);
+    assertEquals(Hint.Status.NO_MOVE, hint.getStatus());
+    assertFalse(hint.hasMove());
+  }
+
+  @Test
+  public void testBudgetIsKept() {
+
+    HintEngine slowEngine = HintEngine.getBuilder().weight(1).maxNodes(Integer.MAX_VALUE)
+            .build();
+    FreecellOperations<Card> game = FreecellModel.getBuilder().cascades(8).opens(4).build();
+    List<Card> deck = game.getDeck();
+    Collections.shuffle(deck, new Random(7));
+    game.startGame(deck, false);
+
+    // A budget of 0 still explores the moves of the present position, so a move is advised.
+    Hint hint = slowEngine.hint(game, 0, TimeUnit.MILLISECONDS);
+    assertTrue(hint.hasMove());
+    assertEquals(1, hint.getNodesExpanded());
+
+    hint = slowEngine.hint(game, 30, TimeUnit.MILLISECONDS);
+    assertTrue(hint.hasMove());
+    assertTrue(hint.getElapsedNanos() < TimeUnit.MILLISECONDS.toNanos(500));
+  }
+
+  @Test
+  public void testNoHintBeforeGameStarts() {
+
+    Hint hint = engine.hint(FreecellModel.getBuilder().build(), 10, TimeUnit.MILLISECONDS);
+    assertEquals(Hint.Status.NO_MOVE, hint.getStatus());
+    assertEquals(-1, hint.getMove());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    engine.hint(FreecellModel.getBuilder().build(), -1, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Makes a packed move on a game.
+   */
+  private void makeMove(FreecellOperations<Card> game, int move) {
+
+    PileType source = MoveBuffer.source(move);
+    game.move(source, MoveBuffer.pileNumber(move), MoveBuffer.cardIndex(move),
+            MoveBuffer.destination(move), MoveBuffer.destPileNumber(move));
+  }
+}
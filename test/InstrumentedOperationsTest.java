@@ -0,0 +1,172 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import freecell.metrics.HistogramSnapshot;
+import freecell.metrics.InstrumentedOperations;
+import freecell.metrics.InstrumentedOperations.Operation;
+import freecell.metrics.MetricsSnapshot;
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellOperations;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the instrumented operations, which should pass calls on unchanged and count them in
+ * their histograms and rejection counters.
+ */
+public class InstrumentedOperationsTest {
+
+  @Test
+  public void testCallsAreCounted() throws IOException {
+
+    FreecellOperations<Card> built = FreecellModel.getBuilder().cascades(8).opens(4).build();
+    InstrumentedOperations<Card> game = new InstrumentedOperations<>(built);
+    game.startGame(game.getDeck(), false);
+    game.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    game.move(PileType.OPEN, 0, 0, PileType.OPEN, 1);
+    assertFalse(game.isGameOver());
+    assertEquals(built.getGameState(), game.getGameState());
+    StringBuilder out = new StringBuilder();
+    game.writeGameState(out);
+    assertEquals(built.getGameState(), out.toString());
+
+    MetricsSnapshot snapshot = game.snapshot();
+    assertEquals(1, snapshot.getOperation(Operation.START_GAME).getCount());
+    assertEquals(2, snapshot.getOperation(Operation.MOVE).getCount());
+    assertEquals(1, snapshot.getOperation(Operation.IS_GAME_OVER).getCount());
+    assertEquals(1, snapshot.getOperation(Operation.GET_GAME_STATE).getCount());
+    assertEquals(1, snapshot.getOperation(Operation.WRITE_GAME_STATE).getCount());
+    assertEquals(1, snapshot.getMove(PileType.CASCADE, PileType.OPEN).getCount());
+    assertEquals(1, snapshot.getMove(PileType.OPEN, PileType.OPEN).getCount());
+    assertEquals(0, snapshot.getMove(PileType.CASCADE, PileType.FOUNDATION).getCount());
+    assertEquals(0, snapshot.getRejectionCount());
+  }
+
+  @Test
+  public void testRejectionsAreCountedByReason() {
+
+    InstrumentedOperations<Card> game = new InstrumentedOperations<>(
+            FreecellModel.getBuilder().cascades(8).opens(4).build());
+    List<Card> deck = new ArrayList<>(game.getDeck());
+    deck.remove(0);
+    String deckReason = rejectedStart(game, deck);
+    game.startGame(game.getDeck(), false);
+
+    String pileReason = rejectedMove(game, PileType.CASCADE, 9, 0, PileType.OPEN, 0);
+    rejectedMove(game, PileType.CASCADE, 9, 0, PileType.OPEN, 0);
+    rejectedMove(game, PileType.CASCADE, 10, 0, PileType.FOUNDATION, 0);
+    String openReason = rejectedMove(game, PileType.OPEN, 0, 0, PileType.CASCADE, 0);
+
+    MetricsSnapshot snapshot = game.snapshot();
+    Map<String, Long> rejections = snapshot.getRejections();
+    assertEquals(Long.valueOf(1), rejections.get(deckReason));
+    if (pileReason.equals(openReason)) {
+      assertEquals(Long.valueOf(4), rejections.get(pileReason));
+    } else {
+      assertEquals(Long.valueOf(3), rejections.get(pileReason));
+      assertEquals(Long.valueOf(1), rejections.get(openReason));
+    }
+    assertEquals(5, snapshot.getRejectionCount());
+    assertEquals(4, snapshot.getOperation(Operation.MOVE).getCount());
+    assertEquals(2, snapshot.getOperation(Operation.START_GAME).getCount());
+    assertEquals(2, snapshot.getMove(PileType.CASCADE, PileType.OPEN).getCount());
+    assertEquals(1, snapshot.getMove(PileType.CASCADE, PileType.FOUNDATION).getCount());
+    assertEquals(1, snapshot.getMove(PileType.OPEN, PileType.CASCADE).getCount());
+  }
+
+  @Test
+  public void testDisabledCallsAreNotCounted() {
+
+    InstrumentedOperations<Card> game = new InstrumentedOperations<>(
+            FreecellModel.getBuilder().build());
+    game.setEnabled(false);
+    assertFalse(game.isEnabled());
+    game.startGame(game.getDeck(), false);
+    game.getGameState();
+    rejectedMove(game, PileType.OPEN, 0, 0, PileType.CASCADE, 0);
+
+    MetricsSnapshot before = game.snapshot();
+    for (Operation operation : Operation.values()) {
+      assertEquals(0, before.getOperation(operation).getCount());
+    }
+    assertTrue(before.getRejections().isEmpty());
+
+    game.setEnabled(true);
+    game.getGameState();
+    assertEquals(1, game.snapshot().getOperation(Operation.GET_GAME_STATE).getCount());
+    assertEquals(0, before.getOperation(Operation.GET_GAME_STATE).getCount());
+  }
+
+  @Test
+  public void testPercentilesAreOrdered() {
+
+    InstrumentedOperations<Card> game = new InstrumentedOperations<>(
+            FreecellModel.getBuilder().build());
+    game.startGame(game.getDeck(), false);
+    for (int call = 0; call < 10_000; call++) {
+      game.isGameOver();
+    }
+
+    HistogramSnapshot histogram = game.snapshot().getOperation(Operation.IS_GAME_OVER);
+    assertEquals(10_000, histogram.getCount());
+    long previous = histogram.getValueAtPercentile(0);
+    for (double percentile : new double[] {10, 50, 90, 99, 99.9, 100}) {
+      long value = histogram.getValueAtPercentile(percentile);
+      assertTrue(value >= previous);
+      previous = value;
+    }
+    assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    assertTrue(histogram.getMean() <= histogram.getMax());
+    assertEquals(0, game.snapshot().getOperation(Operation.MOVE).getValueAtPercentile(99));
+
+    try {
+      histogram.getValueAtPercentile(101);
+      fail("Percentile above 100 should be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullOperations() {
+    new InstrumentedOperations<Card>(null);
+  }
+
+  /**
+   * Starts a game with a deck that should be rejected and provides the reason.
+   */
+  private String rejectedStart(FreecellOperations<Card> game, List<Card> deck) {
+
+    try {
+      game.startGame(deck, false);
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+    fail("Deck should be rejected");
+    return null;
+  }
+
+  /**
+   * Makes a move that should be rejected and provides the reason.
+   */
+  private String rejectedMove(FreecellOperations<Card> game, PileType source, int pileNumber,
+                              int cardIndex, PileType destination, int destPileNumber) {
+
+    try {
+      game.move(source, pileNumber, cardIndex, destination, destPileNumber);
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+    fail("Move should be rejected");
+    return null;
+  }
+}
@@ -0,0 +1,158 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the move generator produces exactly the moves that the move method accepts, by
+ * trying every possible move on positions reached by random play.
+ */
+public class MoveGeneratorTest {
+
+  private final Random r = new Random(11);
+
+  @Test
+  public void testMoveBuffer() {
+
+    MoveBuffer buffer = new MoveBuffer(1);
+    int move = MoveBuffer.pack(PileType.CASCADE, 7, 51, PileType.FOUNDATION, 3);
+    buffer.add(move);
+    buffer.add(MoveBuffer.pack(PileType.OPEN, 0, 0, PileType.CASCADE, 1023));
+
+    assertEquals(2, buffer.size());
+    assertEquals(move, buffer.get(0));
+    assertEquals(PileType.CASCADE, MoveBuffer.source(move));
+    assertEquals(7, MoveBuffer.pileNumber(move));
+    assertEquals(51, MoveBuffer.cardIndex(move));
+    assertEquals(PileType.FOUNDATION, MoveBuffer.destination(move));
+    assertEquals(3, MoveBuffer.destPileNumber(move));
+    assertEquals(1023, MoveBuffer.destPileNumber(buffer.get(1)));
+
+    buffer.clear();
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void testNoMovesBeforeStart() {
+
+    MoveBuffer buffer = new MoveBuffer();
+    assertEquals(0, build(FreecellModel.getBuilder()).generateMoves(buffer));
+  }
+
+  @Test
+  public void testSingleMoveModel() {
+
+    checkRandomGames(FreecellModel.getBuilder());
+    checkRandomGames(FreecellModel.getBuilder().cascades(8).opens(4).packed());
+  }
+
+  @Test
+  public void testMultiMoveModel() {
+
+    checkRandomGames(FreecellMultiMoveModel.getBuilder().opens(2));
+    checkRandomGames(FreecellMultiMoveModel.getBuilder().cascades(8).opens(4).packed());
+  }
+
+  /**
+   * Builds a game with the given builder.
+   */
+  private FreeCellAbstractModel build(FreecellOperationsBuilder builder) {
+
+    FreecellOperations<Card> game = builder.build();
+    return (FreeCellAbstractModel) game;
+  }
+
+  /**
+   * Plays random moves chosen from the generated moves and compares the generated moves of each
+   * position with the moves found by trying every possible move.
+   */
+  private void checkRandomGames(FreecellOperationsBuilder builder) {
+
+    MoveBuffer buffer = new MoveBuffer();
+
+    for (int gameCount = 0; gameCount < 2; gameCount++) {
+      FreeCellAbstractModel game = build(builder);
+      List<Card> deck = game.getDeck();
+      game.startGame(deck, true);
+      List<Integer> history = new ArrayList<>();
+
+      for (int moveCount = 0; moveCount < 30; moveCount++) {
+        int movesCount = game.generateMoves(buffer);
+        Set<Integer> generated = new HashSet<>();
+
+        for (int i = 0; i < movesCount; i++) {
+          generated.add(buffer.get(i));
+        }
+        assertEquals(movesCount, generated.size());
+        assertEquals(findMovesByTrying(game, deck, history), generated);
+
+        if (movesCount == 0) {
+          break;
+        }
+        int move = buffer.get(r.nextInt(movesCount));
+        applyMove(game, move);
+        history.add(move);
+      }
+    }
+  }
+
+  /**
+   * Tries every possible move on the given game and returns the moves that changed the position,
+   * restoring the position after each of them by replaying the history of the game.
+   */
+  private Set<Integer> findMovesByTrying(FreeCellAbstractModel game, List<Card> deck,
+                                         List<Integer> history) {
+
+    Set<Integer> moves = new HashSet<>();
+    long hash = game.getPositionHash();
+
+    for (PileType source : PileType.values()) {
+      for (int pileNumber = 0; pileNumber < 8; pileNumber++) {
+        for (int cardIndex = 0; cardIndex < (source == PileType.OPEN ? 2 : 24); cardIndex++) {
+          for (PileType destination : PileType.values()) {
+            for (int destPileNumber = 0; destPileNumber < 8; destPileNumber++) {
+              int move = MoveBuffer.pack(source, pileNumber, cardIndex, destination,
+                      destPileNumber);
+              try {
+                applyMove(game, move);
+              } catch (IllegalArgumentException e) {
+                continue;
+              }
+              if (game.getPositionHash() != hash) {
+                moves.add(move);
+                game.startGame(deck, false);
+                for (int playedMove : history) {
+                  applyMove(game, playedMove);
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    return moves;
+  }
+
+  /**
+   * Makes a packed move on the given game.
+   */
+  private void applyMove(FreeCellAbstractModel game, int move) {
+
+    game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move), MoveBuffer.cardIndex(move),
+            MoveBuffer.destination(move), MoveBuffer.destPileNumber(move));
+  }
+}
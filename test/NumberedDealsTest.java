@@ -0,0 +1,103 @@
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellOperations;
+import freecell.model.NumberedDeals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the numbered deals, which are checked against deals of the original game.
+ */
+public class NumberedDealsTest {
+
+  @Test
+  public void testDealOne() {
+
+    assertEquals("[J♦, 2♦, 9♥, J♣, 5♦, 7♥, 7♣, 5♥, "
+                    + "K♦, K♣, 9♠, 5♠, A♦, Q♣, K♥, 3♥, "
+                    + "2♠, K♠, 9♦, Q♦, J♠, A♠, A♥, 3♣, "
+                    + "4♣, 5♣, 10♠, Q♥, 4♥, A♣, 4♦, 7♠, "
+                    + "3♠, 10♦, 4♠, 10♥, 8♥, 2♣, J♥, 7♦, "
+                    + "6♦, 8♠, 8♦, Q♠, 6♣, 3♦, 8♣, 10♣, "
+                    + "6♠, 9♣, 2♥, 6♥]",
+            NumberedDeals.deal(1).toString());
+  }
+
+  @Test
+  public void testDealSixHundredSeventeen() {
+
+    assertEquals("[7♦, A♦, 5♣, 3♠, 5♠, 8♣, 2♦, A♥, "
+                    + "10♦, 7♠, Q♦, A♣, 6♦, 8♥, A♠, K♥, "
+                    + "10♥, Q♣, 3♥, 9♦, 6♠, 8♦, 3♦, 10♣, "
+                    + "K♦, 5♥, 9♠, 3♣, 8♠, 7♥, 4♦, J♠, "
+                    + "4♣, Q♠, 9♣, 9♥, 7♣, 6♥, 2♣, 2♠, "
+                    + "4♠, 10♠, 2♥, 5♦, J♣, 6♣, J♥, Q♥, "
+                    + "J♦, K♠, K♣, 4♥]",
+            NumberedDeals.deal(617).toString());
+  }
+
+  @Test
+  public void testDealIsDealtRoundRobin() {
+
+    FreecellOperations<Card> game = FreecellModel.getBuilder().cascades(8).opens(4).build();
+    game.startGame(NumberedDeals.deal(1), false);
+
+    assertTrue(game.getGameState().contains("C1: J♦, K♦, 2♠, 4♣, 3♠, 6♦, 6♠\n"));
+    assertTrue(game.getGameState().endsWith("C8: 5♥, 3♥, 3♣, 7♠, 7♦, 10♣"));
+  }
+
+  @Test
+  public void testBulkDealsMatchSingleDeals() {
+
+    NumberedDeals deals = new NumberedDeals();
+    Card[] cards = new Card[52];
+    byte[] ids = new byte[2 * 52];
+
+    for (int dealNumber : new int[]{1, 2, 11982, 32000, 1000000, NumberedDeals.MAX_DEAL}) {
+      List<Card> deck = NumberedDeals.deal(dealNumber);
+      assertEquals(52, new HashSet<>(deck).size());
+
+      deals.deal(dealNumber, cards);
+      deals.dealIds(dealNumber, ids, 52);
+
+      for (int index = 0; index < 52; index++) {
+        assertEquals(deck.get(index), cards[index]);
+        assertEquals(deck.get(index).getId(), ids[52 + index]);
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidArguments() {
+
+    NumberedDeals deals = new NumberedDeals();
+
+    try {
+      NumberedDeals.deal(0);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      deals.deal(1, new Card[51]);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      deals.dealIds(1, new byte[52], 1);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+  }
+}
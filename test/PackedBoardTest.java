@@ -0,0 +1,100 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that a game played on the packed board behaves exactly like the same game played on the
+ * default board, for both the single move and the multi move models.
+ */
+public class PackedBoardTest {
+
+  private final Random r = new Random(42);
+
+  @Test
+  public void testSingleMoveModelMatchesDefaultBoard() {
+
+    for (int game = 0; game < 20; game++) {
+      int cascades = 4 + r.nextInt(5);
+      int opens = 1 + r.nextInt(4);
+      playSideBySide(FreecellModel.getBuilder().cascades(cascades).opens(opens),
+              FreecellModel.getBuilder().cascades(cascades).opens(opens).packed());
+    }
+  }
+
+  @Test
+  public void testMultiMoveModelMatchesDefaultBoard() {
+
+    for (int game = 0; game < 20; game++) {
+      int cascades = 4 + r.nextInt(5);
+      int opens = 1 + r.nextInt(4);
+      playSideBySide(FreecellMultiMoveModel.getBuilder().cascades(cascades).opens(opens),
+              FreecellMultiMoveModel.getBuilder().cascades(cascades).opens(opens).packed());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMoveBeforeStartOnPackedBoard() {
+
+    FreecellOperations game = FreecellModel.getBuilder().packed().build();
+    assertEquals("", game.getGameState());
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+  }
+
+  /**
+   * Plays random moves on two games built by the given builders and checks that both games
+   * accept and reject the same moves and end up in the same state after each move.
+   */
+  private void playSideBySide(FreecellOperationsBuilder expectedBuilder,
+                              FreecellOperationsBuilder actualBuilder) {
+
+    FreecellOperations expected = expectedBuilder.build();
+    FreecellOperations actual = actualBuilder.build();
+    List deck = expected.getDeck();
+    expected.startGame(deck, true);
+    actual.startGame(deck, false);
+    assertEquals(expected.getGameState(), actual.getGameState());
+
+    PileType[] pileTypes = PileType.values();
+
+    for (int move = 0; move < 2000; move++) {
+      PileType source = pileTypes[r.nextInt(3)];
+      PileType destination = pileTypes[r.nextInt(3)];
+      int pileNumber = r.nextInt(9) - 1;
+      int cardIndex = r.nextInt(14) - 1;
+      int destPileNumber = r.nextInt(9) - 1;
+
+      String expectedOutcome = moveOutcome(expected, source, pileNumber, cardIndex, destination,
+              destPileNumber);
+      String actualOutcome = moveOutcome(actual, source, pileNumber, cardIndex, destination,
+              destPileNumber);
+
+      assertEquals(expectedOutcome, actualOutcome);
+      assertEquals(expected.getGameState(), actual.getGameState());
+      assertEquals(expected.isGameOver(), actual.isGameOver());
+    }
+  }
+
+  /**
+   * Makes a move on the given game and returns the message of the exception thrown by it, or an
+   * empty string if the move was accepted.
+   */
+  private String moveOutcome(FreecellOperations game, PileType source, int pileNumber,
+                             int cardIndex, PileType destination, int destPileNumber) {
+
+    try {
+      game.move(source, pileNumber, cardIndex, destination, destPileNumber);
+      return "";
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+  }
+}
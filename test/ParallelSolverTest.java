@@ -0,0 +1,132 @@
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.solver.ParallelSolver;
+import freecell.solver.Solution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the parallel solver, which check that the solutions it finds with one or many
+ * threads win the game when they are replayed through the move method.
+ */
+public class ParallelSolverTest {
+
+  private static final long[] SEEDS = {0, 3, 6};
+
+  @Test
+  public void testSolveWithOneThread() {
+
+    ParallelSolver solver = ParallelSolver.getBuilder().threads(1).build();
+    checkSolvesShuffledDeals(solver, FreecellModel.getBuilder().cascades(8).opens(4));
+    checkSolvesShuffledDeals(solver, FreecellMultiMoveModel.getBuilder().cascades(8).opens(4)
+            .packed());
+  }
+
+  @Test
+  public void testSolveWithManyThreads() {
+
+    ParallelSolver solver = ParallelSolver.getBuilder().threads(4).build();
+    assertEquals(4, solver.getThreads());
+    checkSolvesShuffledDeals(solver, FreecellModel.getBuilder().cascades(8).opens(4).packed());
+    checkSolvesShuffledDeals(solver, FreecellMultiMoveModel.getBuilder().cascades(8).opens(4));
+  }
+
+  @Test
+  public void testSolveGameThatIsOver() {
+
+    FreeCellAbstractModel game = build(FreecellModel.getBuilder().opens(4));
+    game.startGame(game.getDeck(), false);
+    ParallelSolver solver = ParallelSolver.getBuilder().threads(2).build();
+    solver.solve(game).replay(game);
+    assertTrue(game.isGameOver());
+
+    Solution solution = solver.solve(game);
+    assertTrue(solution.isSolved());
+    assertEquals(0, solution.getMoveCount());
+  }
+
+  @Test
+  public void testNodeLimit() {
+
+    FreeCellAbstractModel game = build(FreecellModel.getBuilder().cascades(8).opens(4));
+    List<Card> deck = game.getDeck();
+    Collections.shuffle(deck, new Random(7));
+    game.startGame(deck, false);
+
+    Solution solution = ParallelSolver.getBuilder().threads(2).maxNodes(1000).build()
+            .solve(game);
+    assertEquals(Solution.Status.NODE_LIMIT, solution.getStatus());
+    assertEquals(0, solution.getMoveCount());
+    assertTrue(solution.getNodesGenerated() >= 1000);
+  }
+
+  @Test
+  public void testInvalidArguments() {
+
+    ParallelSolver solver = ParallelSolver.getBuilder().build();
+
+    try {
+      solver.solve(build(FreecellModel.getBuilder()));
+      fail("Above line should have thrown exception");
+    } catch (IllegalStateException e) {
+      //Do Nothing
+    }
+
+    try {
+      solver.solve(null);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      ParallelSolver.getBuilder().threads(0);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+  }
+
+  /**
+   * Builds a game with the given builder.
+   */
+  private FreeCellAbstractModel build(FreecellOperationsBuilder builder) {
+
+    FreecellOperations<Card> game = builder.build();
+    return (FreeCellAbstractModel) game;
+  }
+
+  /**
+   * Solves deals of games built by the given builder, shuffled with each of the seeds, and
+   * replays each solution on a new game dealt with the same deck.
+   */
+  private void checkSolvesShuffledDeals(ParallelSolver solver, FreecellOperationsBuilder builder) {
+
+    for (long seed : SEEDS) {
+      FreeCellAbstractModel game = build(builder);
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, new Random(seed));
+      game.startGame(deck, false);
+
+      Solution solution = solver.solve(game);
+      assertEquals(Solution.Status.SOLVED, solution.getStatus());
+
+      FreeCellAbstractModel replayed = build(builder);
+      replayed.startGame(deck, false);
+      solution.replay(replayed);
+      assertTrue(replayed.isGameOver());
+    }
+  }
+}
@@ -0,0 +1,102 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests that the incrementally maintained position hash of a game always matches the hash
+ * computed from scratch.
+ */
+public class PositionHashTest {
+
+  private final Random r = new Random(7);
+
+  @Test
+  public void testHashBeforeStart() {
+
+    FreeCellAbstractModel game = build(FreecellModel.getBuilder());
+    assertEquals(0L, game.getPositionHash());
+    assertEquals(0L, game.computePositionHash());
+  }
+
+  @Test
+  public void testHashMatchesRecomputationForAllModels() {
+
+    checkRandomGames(FreecellModel.getBuilder());
+    checkRandomGames(FreecellModel.getBuilder().packed());
+    checkRandomGames(FreecellMultiMoveModel.getBuilder());
+    checkRandomGames(FreecellMultiMoveModel.getBuilder().packed());
+  }
+
+  @Test
+  public void testEqualPositionsHaveEqualHashes() {
+
+    FreeCellAbstractModel game = build(FreecellModel.getBuilder().opens(2));
+    FreeCellAbstractModel anotherGame = build(FreecellModel.getBuilder().opens(2).packed());
+    game.startGame(game.getDeck(), false);
+    anotherGame.startGame(anotherGame.getDeck(), false);
+    long startHash = game.getPositionHash();
+    assertEquals(startHash, anotherGame.getPositionHash());
+
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    assertNotEquals(startHash, game.getPositionHash());
+    long openHash = game.getPositionHash();
+
+    game.move(PileType.OPEN, 0, 0, PileType.OPEN, 1);
+    assertNotEquals(openHash, game.getPositionHash());
+
+    anotherGame.move(PileType.CASCADE, 0, 12, PileType.OPEN, 1);
+    assertEquals(game.getPositionHash(), anotherGame.getPositionHash());
+
+    game.startGame(game.getDeck(), false);
+    assertEquals(startHash, game.getPositionHash());
+  }
+
+  /**
+   * Builds a game with the given builder.
+   */
+  private FreeCellAbstractModel build(FreecellOperationsBuilder builder) {
+
+    FreecellOperations<Card> game = builder.build();
+    return (FreeCellAbstractModel) game;
+  }
+
+  /**
+   * Plays random games built by the given builder and checks the hash after every move.
+   */
+  private void checkRandomGames(FreecellOperationsBuilder builder) {
+
+    for (int gameCount = 0; gameCount < 10; gameCount++) {
+      FreeCellAbstractModel game = build(builder);
+      List deck = game.getDeck();
+      game.startGame(deck, true);
+      assertEquals(game.computePositionHash(), game.getPositionHash());
+
+      PileType[] pileTypes = PileType.values();
+
+      for (int move = 0; move < 3000; move++) {
+        PileType source = pileTypes[r.nextInt(3)];
+        int pileNumber = r.nextInt(4);
+        int cardIndex = source == PileType.CASCADE ? 8 + r.nextInt(6) : r.nextInt(13);
+
+        try {
+          game.move(source, pileNumber, cardIndex, pileTypes[r.nextInt(3)], r.nextInt(4));
+        } catch (IllegalArgumentException e) {
+          //Do Nothing
+        }
+        assertEquals(game.computePositionHash(), game.getPositionHash());
+      }
+    }
+  }
+}
@@ -0,0 +1,168 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.NumberedDeals;
+import freecell.model.PileType;
+import freecell.model.ReplayVerifier;
+import freecell.model.ReplayVerifier.Replay;
+import freecell.model.ReplayVerifier.Verdict;
+import freecell.solver.Solution;
+import freecell.solver.Solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the replay verifier, whose verdicts are checked against the moves accepted and
+ * rejected by the models.
+ */
+public class ReplayVerifierTest {
+
+  private static final PileType[] PILE_TYPES = PileType.values();
+
+  @Test
+  public void testVerdictsFollowSingleMoveModel() {
+
+    checkVerdictsFollowModel(false, 8, 4);
+    checkVerdictsFollowModel(false, 4, 1);
+    checkVerdictsFollowModel(false, 6, 2);
+  }
+
+  @Test
+  public void testVerdictsFollowMultiMoveModel() {
+
+    checkVerdictsFollowModel(true, 8, 4);
+    checkVerdictsFollowModel(true, 4, 1);
+    checkVerdictsFollowModel(true, 10, 2);
+  }
+
+  @Test
+  public void testSolutionsAreWon() {
+
+    Solver solver = Solver.getBuilder().build();
+    ReplayVerifier verifier = new ReplayVerifier();
+
+    for (int deal = 1; deal <= 3; deal++) {
+      for (boolean multiMove : new boolean[] {false, true}) {
+        FreeCellAbstractModel game = startedGame(multiMove, 8, 4, deal);
+        Solution solution = solver.solve(game);
+        assertTrue(solution.isSolved());
+
+        int[] moves = solution.getMoves();
+        assertEquals(Verdict.WON, verifier.verify(new Replay(deal, 4, 8, multiMove, moves)));
+        assertEquals(moves.length, verifier.getMovesPlayed());
+        assertEquals(Verdict.NOT_WON, verifier.verify(deal, 4, 8, multiMove, moves, 0,
+                moves.length - 1));
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidGames() {
+
+    ReplayVerifier verifier = new ReplayVerifier();
+    assertEquals(Verdict.INVALID_GAME, verifier.verify(new Replay(0, 4, 8, false, new int[0])));
+    assertEquals(Verdict.INVALID_GAME, verifier.verify(new Replay(1, 0, 8, false, new int[0])));
+    assertEquals(Verdict.INVALID_GAME, verifier.verify(new Replay(1, 4, 3, true, new int[0])));
+    assertEquals(Verdict.NOT_WON, verifier.verify(new Replay(1, 4, 60, true, new int[0])));
+  }
+
+  @Test
+  public void testVerifyAll() throws InterruptedException {
+
+    Random random = new Random(3);
+    List<Replay> archive = new ArrayList<>();
+    Verdict[] expected = new Verdict[500];
+    ReplayVerifier verifier = new ReplayVerifier();
+
+    for (int index = 0; index < expected.length; index++) {
+      int deal = 1 + random.nextInt(32000);
+      int[] moves = new int[5];
+      for (int move = 0; move < moves.length; move++) {
+        moves[move] = MoveBuffer.pack(PileType.CASCADE, random.nextInt(8), 6, PileType.OPEN,
+                random.nextInt(4));
+      }
+      Replay replay = new Replay(deal, 4, 8, index % 2 == 0, moves);
+      archive.add(replay);
+      expected[index] = verifier.verify(replay);
+    }
+
+    assertArrayEquals(expected, ReplayVerifier.verifyAll(archive, 4));
+    assertArrayEquals(expected, ReplayVerifier.verifyAll(archive, 1));
+  }
+
+  /**
+   * Builds a game and starts it on a numbered deal.
+   */
+  private FreeCellAbstractModel startedGame(boolean multiMove, int cascades, int opens,
+                                            int deal) {
+
+    FreecellOperationsBuilder builder = multiMove ? FreecellMultiMoveModel.getBuilder()
+            : FreecellModel.getBuilder();
+    FreecellOperations<Card> built = builder.cascades(cascades).opens(opens).build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    game.startGame(NumberedDeals.deal(deal), false);
+    return game;
+  }
+
+  /**
+   * Plays moves on numbered deals, half of them legal moves and half of them random moves that
+   * are mostly invalid, and checks that the verifier rejects exactly the moves for which the
+   * model throws an exception, at the same index, and accepts all the others.
+   */
+  private void checkVerdictsFollowModel(boolean multiMove, int cascades, int opens) {
+
+    Random random = new Random(cascades * 31 + opens);
+    MoveBuffer legalMoves = new MoveBuffer();
+    ReplayVerifier verifier = new ReplayVerifier();
+
+    for (int game = 0; game < 20; game++) {
+      int deal = 1 + random.nextInt(32000);
+      FreeCellAbstractModel model = startedGame(multiMove, cascades, opens, deal);
+      int[] moves = new int[200];
+      int size = 0;
+
+      for (int attempt = 0; attempt < 400 && size < moves.length; attempt++) {
+        int move;
+        if (random.nextBoolean() && model.generateMoves(legalMoves) > 0) {
+          move = legalMoves.get(random.nextInt(legalMoves.size()));
+        } else {
+          move = MoveBuffer.pack(PILE_TYPES[random.nextInt(3)], random.nextInt(cascades + 1),
+                  random.nextInt(14), PILE_TYPES[random.nextInt(3)], random.nextInt(cascades + 1));
+        }
+        moves[size] = move;
+
+        boolean accepted;
+        try {
+          model.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                  MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                  MoveBuffer.destPileNumber(move));
+          accepted = true;
+        } catch (IllegalArgumentException e) {
+          accepted = false;
+        }
+
+        Verdict verdict = verifier.verify(deal, opens, cascades, multiMove, moves, 0, size + 1);
+        if (accepted) {
+          size++;
+          assertEquals(model.isGameOver() ? Verdict.WON : Verdict.NOT_WON, verdict);
+          assertEquals(size, verifier.getMovesPlayed());
+        } else {
+          assertEquals(Verdict.INVALID_MOVE, verdict);
+          assertEquals(size, verifier.getMovesPlayed());
+        }
+      }
+    }
+  }
+}
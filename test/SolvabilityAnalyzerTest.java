@@ -0,0 +1,104 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import freecell.analysis.AnalysisReport;
+import freecell.analysis.SolvabilityAnalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the batch analyzer of numbered deals.
+ */
+public class SolvabilityAnalyzerTest {
+
+  @Test
+  public void testCsvResults() throws IOException {
+
+    StringBuilder out = new StringBuilder();
+    AnalysisReport report = SolvabilityAnalyzer.getBuilder().deals(1, 6).threads(3).build()
+            .analyze(out);
+
+    String[] lines = out.toString().split("\n");
+    assertEquals("deal,result,moves,nodes_expanded", lines[0]);
+    assertEquals(7, lines.length);
+
+    Set<Integer> deals = new HashSet<>();
+    for (int i = 1; i < lines.length; i++) {
+      String[] fields = lines[i].split(",");
+      assertEquals(4, fields.length);
+      deals.add(Integer.parseInt(fields[0]));
+      assertEquals("solved", fields[1]);
+      assertTrue(Integer.parseInt(fields[2]) > 0);
+      assertTrue(Long.parseLong(fields[3]) > 0);
+    }
+    assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5, 6)), deals);
+
+    assertEquals(6, report.getDeals());
+    assertEquals(6, report.getSolved());
+    assertEquals(0, report.getUnsolved());
+    assertEquals(0, report.getTimedOut());
+    assertTrue(report.getDealsPerSecond() > 0);
+  }
+
+  @Test
+  public void testNdjsonResultsOfMultiMoveGame() throws IOException {
+
+    StringBuilder out = new StringBuilder();
+    SolvabilityAnalyzer.getBuilder().deals(1, 1).multiMove().threads(1)
+            .format(SolvabilityAnalyzer.OutputFormat.NDJSON).build().analyze(out);
+
+    assertTrue(out.toString(), out.toString()
+            .matches("\\{\"deal\":1,\"result\":\"solved\",\"moves\":\\d+,"
+                    + "\"nodesExpanded\":\\d+}\n"));
+  }
+
+  @Test
+  public void testBudgetRunsOut() throws IOException {
+
+    StringBuilder out = new StringBuilder();
+    AnalysisReport report = SolvabilityAnalyzer.getBuilder().deals(1, 3)
+            .maxNodes(10).timeLimit(1, TimeUnit.MINUTES).threads(2).build().analyze(out);
+
+    assertEquals(3, report.getTimedOut());
+    assertEquals(3, out.toString().split("timeout,0,").length - 1);
+  }
+
+  @Test
+  public void testInvalidArguments() {
+
+    try {
+      SolvabilityAnalyzer.getBuilder().deals(0, 10);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      SolvabilityAnalyzer.getBuilder().deals(10, 9);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      SolvabilityAnalyzer.getBuilder().cascades(3).build();
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      SolvabilityAnalyzer.getBuilder().build().analyze(null);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException | IOException e) {
+      //Do Nothing
+    }
+  }
+}
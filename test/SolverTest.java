@@ -0,0 +1,144 @@
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.PileType;
+import freecell.solver.Solution;
+import freecell.solver.Solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the solver, which check that the solutions it finds win the game when they are
+ * replayed through the move method.
+ */
+public class SolverTest {
+
+  private final Solver solver = Solver.getBuilder().build();
+
+  @Test
+  public void testSolveSingleMoveModel() {
+
+    checkSolvesShuffledDeals(FreecellModel.getBuilder().cascades(8).opens(4), 3);
+    checkSolvesShuffledDeals(FreecellModel.getBuilder().cascades(8).opens(4).packed(), 3);
+  }
+
+  @Test
+  public void testSolveMultiMoveModel() {
+
+    checkSolvesShuffledDeals(FreecellMultiMoveModel.getBuilder().cascades(8).opens(4), 3);
+    checkSolvesShuffledDeals(FreecellMultiMoveModel.getBuilder().cascades(8).opens(4)
+            .packed(), 3);
+  }
+
+  @Test
+  public void testSolveFromPositionOfGameInProgress() {
+
+    FreeCellAbstractModel game = build(FreecellModel.getBuilder().opens(4));
+    game.startGame(game.getDeck(), false);
+    game.move(PileType.CASCADE, 0, 12, PileType.FOUNDATION, 0);
+    String state = game.getGameState();
+
+    Solution solution = solver.solve(game);
+    assertTrue(solution.isSolved());
+    assertEquals(state, game.getGameState());
+
+    solution.replay(game);
+    assertTrue(game.isGameOver());
+  }
+
+  @Test
+  public void testSolveGameThatIsOver() {
+
+    FreeCellAbstractModel game = build(FreecellModel.getBuilder().opens(4));
+    game.startGame(game.getDeck(), false);
+    solver.solve(game).replay(game);
+    assertTrue(game.isGameOver());
+
+    Solution solution = solver.solve(game);
+    assertTrue(solution.isSolved());
+    assertEquals(0, solution.getMoveCount());
+  }
+
+  @Test
+  public void testNodeLimit() {
+
+    FreeCellAbstractModel game = build(FreecellModel.getBuilder().cascades(8).opens(4));
+    List<Card> deck = game.getDeck();
+    Collections.shuffle(deck, new Random(3));
+    game.startGame(deck, false);
+
+    Solution solution = Solver.getBuilder().maxNodes(10).build().solve(game);
+    assertEquals(Solution.Status.NODE_LIMIT, solution.getStatus());
+    assertEquals(0, solution.getMoveCount());
+    assertEquals(10, solution.getNodesGenerated());
+  }
+
+  @Test
+  public void testInvalidArguments() {
+
+    try {
+      solver.solve(build(FreecellModel.getBuilder()));
+      fail("Above line should have thrown exception");
+    } catch (IllegalStateException e) {
+      //Do Nothing
+    }
+
+    try {
+      solver.solve(null);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+
+    try {
+      Solver.getBuilder().weight(0);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+  }
+
+  /**
+   * Builds a game with the given builder.
+   */
+  private FreeCellAbstractModel build(FreecellOperationsBuilder builder) {
+
+    FreecellOperations<Card> game = builder.build();
+    return (FreeCellAbstractModel) game;
+  }
+
+  /**
+   * Solves shuffled deals of games built by the given builder and replays each solution on a new
+   * game dealt with the same deck.
+   */
+  private void checkSolvesShuffledDeals(FreecellOperationsBuilder builder, int dealsCount) {
+
+    Random random = new Random(99);
+
+    for (int deal = 0; deal < dealsCount; deal++) {
+      FreeCellAbstractModel game = build(builder);
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, random);
+      game.startGame(deck, false);
+
+      Solution solution = solver.solve(game);
+      assertEquals(Solution.Status.SOLVED, solution.getStatus());
+
+      FreeCellAbstractModel replayed = build(builder);
+      replayed.startGame(deck, false);
+      solution.replay(replayed);
+      assertTrue(replayed.isGameOver());
+    }
+  }
+}
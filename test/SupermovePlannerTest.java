@@ -0,0 +1,171 @@
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.MoveBuffer;
+import freecell.model.NumberedDeals;
+import freecell.model.PileType;
+import freecell.model.ReplayVerifier;
+import freecell.model.SupermovePlanner;
+import freecell.solver.Solution;
+import freecell.solver.Solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the supermove planner, whose expansions of multi card moves should be accepted move
+ * by move by the single move model and end in the position the multi card move leads to.
+ */
+public class SupermovePlannerTest {
+
+  private final SupermovePlanner planner = new SupermovePlanner();
+
+  @Test
+  public void testExpansionsReplayInSingleMoveModel() {
+
+    int[] expanded = new int[2];
+    checkExpansionsOfRandomGames(8, 4, expanded);
+    checkExpansionsOfRandomGames(6, 2, expanded);
+    checkExpansionsOfRandomGames(4, 1, expanded);
+    assertTrue(expanded[0] > 100);
+    // Some of the moves expanded needed an empty cascade pile as an intermediate slot.
+    assertTrue(expanded[1] > 0);
+  }
+
+  @Test
+  public void testSolutionsReplayWithSingleMoveRules() {
+
+    Solver solver = Solver.getBuilder().build();
+    ReplayVerifier verifier = new ReplayVerifier();
+    for (int deal = 1; deal <= 3; deal++) {
+      FreecellOperations<Card> built = FreecellMultiMoveModel.getBuilder().cascades(8).opens(4)
+              .build();
+      FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+      game.startGame(NumberedDeals.deal(deal), false);
+      Solution solution = solver.solve(game);
+      assertTrue(solution.isSolved());
+
+      MoveBuffer steps = new MoveBuffer();
+      int stepsCount = planner.expandAll(game, solution.getMoves(), steps);
+      assertEquals(steps.size(), stepsCount);
+      assertTrue(stepsCount >= solution.getMoveCount());
+      assertEquals(ReplayVerifier.Verdict.WON,
+              verifier.verify(deal, 4, 8, false, toArray(steps), 0, stepsCount));
+    }
+  }
+
+  @Test
+  public void testSingleCardMoveIsKept() {
+
+    FreecellOperations<Card> built = FreecellMultiMoveModel.getBuilder().cascades(8).opens(4)
+            .build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    game.startGame(game.getDeck(), false);
+
+    MoveBuffer steps = new MoveBuffer();
+    int move = MoveBuffer.pack(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    assertEquals(1, planner.expand(game, move, steps));
+    assertEquals(move, steps.get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGameNotStarted() {
+
+    FreecellOperations<Card> built = FreecellMultiMoveModel.getBuilder().build();
+    planner.expand((FreeCellAbstractModel) built,
+            MoveBuffer.pack(PileType.CASCADE, 0, 0, PileType.CASCADE, 1), new MoveBuffer());
+  }
+
+  /**
+   * Plays random games of the multi move model and, before each move, expands every multi card
+   * move of the position and replays the expansion on a single move game in the same position.
+   * Counts the moves expanded and the expansions that parked cards on an empty cascade pile.
+   */
+  private void checkExpansionsOfRandomGames(int cascades, int opens, int[] expanded) {
+
+    Random random = new Random(cascades * 31 + opens);
+    MoveBuffer moves = new MoveBuffer();
+    MoveBuffer steps = new MoveBuffer();
+
+    for (int round = 0; round < 20; round++) {
+      FreecellOperations<Card> built = FreecellMultiMoveModel.getBuilder().cascades(cascades)
+              .opens(opens).build();
+      FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, random);
+      game.startGame(deck, false);
+
+      for (int turn = 0; turn < 150 && game.generateMoves(moves) > 0; turn++) {
+        for (int index = 0; index < moves.size(); index++) {
+          int move = moves.get(index);
+          if (MoveBuffer.destination(move) == PileType.CASCADE
+                  && MoveBuffer.source(move) == PileType.CASCADE
+                  && MoveBuffer.cardIndex(move)
+                  < game.getPileSize(PileType.CASCADE, MoveBuffer.pileNumber(move)) - 1) {
+            steps.clear();
+            planner.expand(game, move, steps);
+            if (replay(game, move, steps)) {
+              expanded[1]++;
+            }
+            expanded[0]++;
+          }
+        }
+        int move = moves.get(random.nextInt(moves.size()));
+        game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+      }
+    }
+  }
+
+  /**
+   * Replays the expansion of a move on a single move game in the position of the given game and
+   * checks that it ends in the position the move leads to.
+   * @return true if the expansion moved a card to a cascade pile other than the destination.
+   */
+  private boolean replay(FreeCellAbstractModel game, int move, MoveBuffer steps) {
+
+    FreecellOperations<Card> built = FreecellModel.getBuilder()
+            .cascades(game.getCascadePilesCount()).opens(game.getOpenPilesCount()).build();
+    FreeCellAbstractModel single = (FreeCellAbstractModel) built;
+    byte[] position = new byte[game.positionSize()];
+    game.writePosition(position, 0);
+    single.readPosition(position, 0);
+
+    boolean parked = false;
+    for (int index = 0; index < steps.size(); index++) {
+      int step = steps.get(index);
+      single.move(MoveBuffer.source(step), MoveBuffer.pileNumber(step),
+              MoveBuffer.cardIndex(step), MoveBuffer.destination(step),
+              MoveBuffer.destPileNumber(step));
+      parked |= MoveBuffer.destination(step) == PileType.CASCADE
+              && MoveBuffer.destPileNumber(step) != MoveBuffer.destPileNumber(move);
+    }
+
+    FreeCellAbstractModel multi = game.copy();
+    multi.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move), MoveBuffer.cardIndex(move),
+            MoveBuffer.destination(move), MoveBuffer.destPileNumber(move));
+    assertEquals(multi.getGameState(), single.getGameState());
+    return parked;
+  }
+
+  /**
+   * Copies the moves of a buffer into an array.
+   */
+  private int[] toArray(MoveBuffer buffer) {
+
+    int[] moves = new int[buffer.size()];
+    for (int index = 0; index < moves.length; index++) {
+      moves[index] = buffer.get(index);
+    }
+    return moves;
+  }
+}
@@ -0,0 +1,190 @@
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.MoveResult;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for tryMove, which should tell the outcome of each move by its result, agree with move
+ * on which moves are accepted and leave the game unchanged when it rejects a move.
+ */
+public class TryMoveTest {
+
+  private static final PileType[] PILE_TYPES = PileType.values();
+
+  @Test
+  public void testSingleMoveResults() {
+
+    FreeCellAbstractModel game = game(false, 8, 4);
+    assertEquals(MoveResult.NOT_STARTED, game.tryMove(PileType.CASCADE, 0, 6, PileType.OPEN, 0));
+    game.startGame(game.getDeck(), false);
+
+    // The first 4 cascades hold the odd cards of spades, clubs, diamonds and hearts, with their
+    // aces on top, and the last 4 the even cards, with their 2s on top.
+    assertEquals(MoveResult.NO_SUCH_PILE, game.tryMove(PileType.CASCADE, 8, 0, PileType.OPEN, 0));
+    assertEquals(MoveResult.NO_SUCH_PILE, game.tryMove(PileType.OPEN, 0, 0, PileType.OPEN, 1));
+    assertEquals(MoveResult.NOT_TOP_CARD, game.tryMove(PileType.CASCADE, 0, 5, PileType.OPEN, 0));
+    assertEquals(MoveResult.NO_SUCH_CELL, game.tryMove(PileType.CASCADE, 0, 6, PileType.OPEN, 4));
+    assertEquals(MoveResult.NO_SUCH_DESTINATION,
+            game.tryMove(PileType.CASCADE, 0, 6, PileType.FOUNDATION, 4));
+    assertEquals(MoveResult.NOT_AN_ACE,
+            game.tryMove(PileType.CASCADE, 4, 5, PileType.FOUNDATION, 0));
+    assertEquals(MoveResult.BAD_RANK, game.tryMove(PileType.CASCADE, 0, 6, PileType.CASCADE, 1));
+
+    assertEquals(MoveResult.OK, game.tryMove(PileType.CASCADE, 0, 6, PileType.OPEN, 0));
+    assertEquals(MoveResult.NO_OP, game.tryMove(PileType.OPEN, 0, 0, PileType.OPEN, 0));
+    assertEquals(MoveResult.CELL_OCCUPIED, game.tryMove(PileType.CASCADE, 1, 6, PileType.OPEN, 0));
+    assertEquals(MoveResult.NO_SUCH_DESTINATION,
+            game.tryMove(PileType.CASCADE, 1, 6, PileType.CASCADE, -1));
+  }
+
+  @Test
+  public void testColorAndSuitResults() {
+
+    FreeCellAbstractModel game = game(false, 8, 4);
+    game.startGame(game.getDeck(), false);
+
+    assertEquals(MoveResult.OK, game.tryMove(PileType.CASCADE, 1, 6, PileType.FOUNDATION, 0));
+    assertEquals(MoveResult.BAD_COLOR, game.tryMove(PileType.CASCADE, 4, 5, PileType.CASCADE,
+            1));
+    assertEquals(MoveResult.BAD_SUIT, game.tryMove(PileType.CASCADE, 4, 5, PileType.FOUNDATION,
+            0));
+    assertEquals(MoveResult.OK, game.tryMove(PileType.CASCADE, 5, 5, PileType.FOUNDATION, 0));
+    assertEquals(2, game.getPileSize(PileType.FOUNDATION, 0));
+  }
+
+  @Test
+  public void testMultiMoveResults() {
+
+    FreeCellAbstractModel game = game(true, 8, 4);
+    game.startGame(game.getDeck(), false);
+
+    assertEquals(MoveResult.NO_SUCH_CARD, game.tryMove(PileType.CASCADE, 0, 7, PileType.CASCADE,
+            1));
+    assertEquals(MoveResult.NOT_TOP_CARD, game.tryMove(PileType.CASCADE, 0, 5, PileType.OPEN,
+            0));
+    assertEquals(MoveResult.NOT_A_BUILD, game.tryMove(PileType.CASCADE, 0, 5, PileType.CASCADE,
+            1));
+    assertEquals(MoveResult.BAD_RANK, game.tryMove(PileType.CASCADE, 0, 6, PileType.CASCADE, 1));
+
+    // Builds 3 of spades and 2 of hearts on the first cascade and fills the open piles.
+    assertEquals(MoveResult.OK, game.tryMove(PileType.CASCADE, 0, 6, PileType.FOUNDATION, 0));
+    assertEquals(MoveResult.OK, game.tryMove(PileType.CASCADE, 7, 5, PileType.CASCADE, 0));
+    for (int open = 0; open < 4; open++) {
+      int pile = open + 1;
+      assertEquals(MoveResult.OK, game.tryMove(PileType.CASCADE, pile,
+              game.getPileSize(PileType.CASCADE, pile) - 1, PileType.OPEN, open));
+    }
+    assertEquals(MoveResult.INSUFFICIENT_CAPACITY,
+            game.tryMove(PileType.CASCADE, 0, 5, PileType.CASCADE, 7));
+    assertEquals(MoveResult.OK, game.tryMove(PileType.OPEN, 3, 0, PileType.FOUNDATION, 0));
+    assertEquals(MoveResult.OK, game.tryMove(PileType.CASCADE, 0, 5, PileType.CASCADE, 7));
+    assertEquals(7, game.getPileSize(PileType.CASCADE, 7));
+  }
+
+  @Test
+  public void testResultsFollowMove() {
+
+    checkResultsFollowMove(false, 8, 4);
+    checkResultsFollowMove(false, 4, 1);
+    checkResultsFollowMove(true, 8, 4);
+    checkResultsFollowMove(true, 6, 2);
+  }
+
+  @Test
+  public void testMoveThrowsMessageOfResult() {
+
+    FreecellOperations<Card> game = FreecellModel.getBuilder().build();
+    try {
+      game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+      fail("Move before the game starts should be rejected");
+    } catch (IllegalStateException e) {
+      assertEquals(MoveResult.NOT_STARTED.getMessage(), e.getMessage());
+    }
+    game.startGame(game.getDeck(), false);
+    try {
+      game.move(PileType.CASCADE, 0, 0, PileType.OPEN, 0);
+      fail("Move of a card under others should be rejected");
+    } catch (IllegalArgumentException e) {
+      assertEquals(MoveResult.NOT_TOP_CARD.getMessage(), e.getMessage());
+    }
+    assertTrue(MoveResult.OK.isAccepted());
+    assertTrue(MoveResult.NO_OP.isAccepted());
+    assertFalse(MoveResult.BAD_COLOR.isAccepted());
+  }
+
+  /**
+   * Builds a game that hasn't started.
+   */
+  private FreeCellAbstractModel game(boolean multiMove, int cascades, int opens) {
+
+    FreecellOperationsBuilder builder = multiMove ? FreecellMultiMoveModel.getBuilder()
+            : FreecellModel.getBuilder();
+    FreecellOperations<Card> built = builder.cascades(cascades).opens(opens).build();
+    return (FreeCellAbstractModel) built;
+  }
+
+  /**
+   * Plays random moves, mostly invalid, on two copies of a game, one through move and one
+   * through tryMove, and checks that a move is rejected by tryMove, with the message of the
+   * exception of move, exactly when move rejects it, and that both games stay the same.
+   */
+  private void checkResultsFollowMove(boolean multiMove, int cascades, int opens) {
+
+    Random random = new Random(cascades * 31 + opens + (multiMove ? 7 : 0));
+    MoveBuffer legalMoves = new MoveBuffer();
+
+    for (int round = 0; round < 10; round++) {
+      FreeCellAbstractModel moved = game(multiMove, cascades, opens);
+      List<Card> deck = moved.getDeck();
+      Collections.shuffle(deck, random);
+      moved.startGame(deck, false);
+      FreeCellAbstractModel tried = moved.copy();
+
+      for (int attempt = 0; attempt < 300; attempt++) {
+        int move;
+        if (random.nextInt(3) == 0 && moved.generateMoves(legalMoves) > 0) {
+          move = legalMoves.get(random.nextInt(legalMoves.size()));
+        } else {
+          move = MoveBuffer.pack(PILE_TYPES[random.nextInt(3)], random.nextInt(cascades + 1),
+                  random.nextInt(14), PILE_TYPES[random.nextInt(3)], random.nextInt(cascades + 1));
+        }
+
+        String message = null;
+        try {
+          moved.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                  MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                  MoveBuffer.destPileNumber(move));
+        } catch (IllegalArgumentException e) {
+          message = e.getMessage();
+        }
+        String before = tried.getGameState();
+        MoveResult result = tried.tryMove(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+
+        assertEquals(message, result.getMessage());
+        if (!result.isAccepted()) {
+          assertEquals(before, tried.getGameState());
+        }
+        assertEquals(moved.getGameState(), tried.getGameState());
+        assertEquals(moved.getPositionHash(), tried.getPositionHash());
+      }
+    }
+  }
+}
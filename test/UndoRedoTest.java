@@ -0,0 +1,246 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreeCellAbstractModel;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.MoveBuffer;
+import freecell.model.NumberedDeals;
+import freecell.model.PileType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the undo and redo of moves, which are checked by comparing the game state and the
+ * position hash of a game with the ones it had before the moves.
+ */
+public class UndoRedoTest {
+
+  @Test
+  public void testUndoRedoFollowsRandomPlay() {
+
+    checkUndoRedoFollowsRandomPlay(FreecellModel.getBuilder().cascades(8).opens(4));
+    checkUndoRedoFollowsRandomPlay(FreecellModel.getBuilder().opens(2).packed());
+    checkUndoRedoFollowsRandomPlay(FreecellMultiMoveModel.getBuilder().cascades(8).opens(4));
+    checkUndoRedoFollowsRandomPlay(FreecellMultiMoveModel.getBuilder().cascades(6).opens(2)
+            .packed());
+  }
+
+  @Test
+  public void testUndoMultiCardMove() {
+
+    FreeCellAbstractModel game = startedGame(FreecellMultiMoveModel.getBuilder().cascades(8)
+            .opens(4));
+    game.startGame(NumberedDeals.deal(1), false);
+
+    // Builds 9♣, 8♦ on cascade 2 and uncovers 10♥ on cascade 4.
+    game.move(PileType.CASCADE, 2, 6, PileType.OPEN, 0);
+    game.move(PileType.CASCADE, 2, 5, PileType.CASCADE, 1);
+    game.move(PileType.CASCADE, 3, 6, PileType.OPEN, 1);
+    game.move(PileType.CASCADE, 3, 5, PileType.OPEN, 2);
+    String state = game.getGameState();
+    long hash = game.getPositionHash();
+
+    game.move(PileType.CASCADE, 1, 6, PileType.CASCADE, 3);
+    assertEquals(7, game.getPileSize(PileType.CASCADE, 3));
+    assertEquals(6, game.getPileSize(PileType.CASCADE, 1));
+
+    game.undo();
+    assertEquals(state, game.getGameState());
+    assertEquals(hash, game.getPositionHash());
+    assertEquals(game.computePositionHash(), game.getPositionHash());
+
+    game.redo();
+    assertEquals(7, game.getPileSize(PileType.CASCADE, 3));
+    assertEquals(game.copy().getGameState(), game.getGameState());
+  }
+
+  @Test
+  public void testNewMoveForgetsUndoneMoves() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder().opens(2));
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    game.move(PileType.CASCADE, 1, 12, PileType.OPEN, 1);
+    game.undo();
+    assertTrue(game.canRedo());
+
+    game.move(PileType.OPEN, 0, 0, PileType.OPEN, 1);
+    assertFalse(game.canRedo());
+    assertRejected(game, false);
+
+    game.undo();
+    game.undo();
+    assertFalse(game.canUndo());
+    assertEquals(startedGame(FreecellModel.getBuilder().opens(2)).getGameState(),
+            game.getGameState());
+  }
+
+  @Test
+  public void testInvalidMovesAreNotRecorded() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder());
+
+    try {
+      game.move(PileType.CASCADE, 0, 12, PileType.CASCADE, 1);
+      fail("Above line should have thrown exception");
+    } catch (IllegalArgumentException e) {
+      //Do Nothing
+    }
+    game.move(PileType.CASCADE, 0, 12, PileType.CASCADE, 0);
+    assertFalse(game.canUndo());
+    assertRejected(game, true);
+  }
+
+  @Test
+  public void testUndoLimit() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder().opens(2).undoLimit(3));
+    List<String> states = new ArrayList<>();
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+
+    for (int i = 0; i < 5; i++) {
+      states.add(game.getGameState());
+      game.move(PileType.OPEN, i % 2, 0, PileType.OPEN, 1 - i % 2);
+    }
+
+    for (int i = 4; i >= 2; i--) {
+      game.undo();
+      assertEquals(states.get(i), game.getGameState());
+    }
+    assertFalse(game.canUndo());
+    assertRejected(game, true);
+
+    game.redo();
+    game.redo();
+    game.redo();
+    assertFalse(game.canRedo());
+    assertEquals(game.copy().getGameState(), game.getGameState());
+  }
+
+  @Test
+  public void testUndoDisabled() {
+
+    FreeCellAbstractModel game = startedGame(FreecellMultiMoveModel.getBuilder().undoLimit(0));
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    assertFalse(game.canUndo());
+    assertRejected(game, true);
+  }
+
+  @Test
+  public void testStartGameForgetsMoves() {
+
+    FreeCellAbstractModel game = startedGame(FreecellModel.getBuilder());
+    assertRejected(game, true);
+
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    assertTrue(game.canUndo());
+    game.startGame(game.getDeck(), false);
+    assertFalse(game.canUndo());
+    assertFalse(game.canRedo());
+
+    game.move(PileType.CASCADE, 0, 12, PileType.OPEN, 0);
+    assertFalse(game.copy().canUndo());
+  }
+
+  @Test
+  public void testUndoBeforeStart() {
+
+    FreecellOperations<Card> built = FreecellModel.getBuilder().build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    assertFalse(game.canUndo());
+    assertRejected(game, true);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeUndoLimit() {
+    FreecellMultiMoveModel.getBuilder().undoLimit(-1);
+  }
+
+  /**
+   * Builds a game and starts it with an unshuffled deck.
+   */
+  private FreeCellAbstractModel startedGame(FreecellOperationsBuilder builder) {
+
+    FreecellOperations<Card> built = builder.build();
+    FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+    game.startGame(game.getDeck(), false);
+    return game;
+  }
+
+  /**
+   * Checks that undo or redo throws IllegalStateException and leaves the game as it is.
+   */
+  private void assertRejected(FreeCellAbstractModel game, boolean undo) {
+
+    String state = game.getGameState();
+    try {
+      if (undo) {
+        game.undo();
+      } else {
+        game.redo();
+      }
+      fail("Above line should have thrown exception");
+    } catch (IllegalStateException e) {
+      //Do Nothing
+    }
+    assertEquals(state, game.getGameState());
+  }
+
+  /**
+   * Plays random legal moves on shuffled deals of games built by the given builder, undoes all
+   * of them checking each position on the way back, and then redoes all of them.
+   */
+  private void checkUndoRedoFollowsRandomPlay(FreecellOperationsBuilder builder) {
+
+    Random random = new Random(7);
+    MoveBuffer buffer = new MoveBuffer();
+
+    for (int deal = 0; deal < 10; deal++) {
+      FreecellOperations<Card> built = builder.build();
+      FreeCellAbstractModel game = (FreeCellAbstractModel) built;
+      List<Card> deck = game.getDeck();
+      Collections.shuffle(deck, random);
+      game.startGame(deck, false);
+
+      List<String> states = new ArrayList<>();
+      List<Long> hashes = new ArrayList<>();
+
+      for (int i = 0; i < 100 && game.generateMoves(buffer) > 0; i++) {
+        states.add(game.getGameState());
+        hashes.add(game.getPositionHash());
+        int move = buffer.get(random.nextInt(buffer.size()));
+        game.move(MoveBuffer.source(move), MoveBuffer.pileNumber(move),
+                MoveBuffer.cardIndex(move), MoveBuffer.destination(move),
+                MoveBuffer.destPileNumber(move));
+      }
+      String finalState = game.getGameState();
+      long finalHash = game.getPositionHash();
+
+      for (int i = states.size() - 1; i >= 0; i--) {
+        assertTrue(game.canUndo());
+        game.undo();
+        assertEquals(states.get(i), game.getGameState());
+        assertEquals(hashes.get(i).longValue(), game.getPositionHash());
+      }
+      assertFalse(game.canUndo());
+      assertEquals(game.computePositionHash(), game.getPositionHash());
+
+      while (game.canRedo()) {
+        game.redo();
+      }
+      assertEquals(finalState, game.getGameState());
+      assertEquals(finalHash, game.getPositionHash());
+      assertEquals(game.copy().getGameState(), game.getGameState());
+    }
+  }
+}